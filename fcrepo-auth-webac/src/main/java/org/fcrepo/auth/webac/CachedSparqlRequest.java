@@ -17,10 +17,14 @@
  */
 package org.fcrepo.auth.webac;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.slf4j.LoggerFactory.getLogger;
+
 import java.io.BufferedReader;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.nio.charset.Charset;
 
 import javax.servlet.ReadListener;
 import javax.servlet.ServletInputStream;
@@ -28,18 +32,24 @@ import javax.servlet.ServletRequest;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletRequestWrapper;
 
-import org.apache.commons.io.IOUtils;
+import org.fcrepo.http.commons.domain.SparqlUpdateBody;
+import org.slf4j.Logger;
 
 /**
- * An extension of HttpServletRequestWrapper that caches the InputStream as
- * byte array and overrides the getInputStream to return a new InputStream
- * object each time based on the cached byte array.
- * 
+ * An extension of HttpServletRequestWrapper that reads the SPARQL Update body of
+ * the request once, keeps it as a request attribute (see {@link SparqlUpdateBody})
+ * so that it may be shared with the resource handling the request, and overrides
+ * getInputStream to return a new InputStream object each time based on that body.
+ * The body is decoded with the character encoding of the request, or UTF-8 if it
+ * has none.
+ *
  * @author mohideen
  */
 public class CachedSparqlRequest extends HttpServletRequestWrapper {
 
-    private byte[] cachedContent;
+    private static final Logger LOGGER = getLogger(CachedSparqlRequest.class);
+
+    private SparqlUpdateBody sparqlUpdate;
 
     private BufferedReader reader;
 
@@ -51,42 +61,89 @@ public class CachedSparqlRequest extends HttpServletRequestWrapper {
         super((HttpServletRequest) request);
     }
 
+    /**
+     * Read the SPARQL Update body of the request, if it has not been read already.
+     *
+     * @return the body, or null if the request has no content
+     * @throws IOException if the body could not be read
+     */
+    public SparqlUpdateBody getSparqlUpdate() throws IOException {
+        if (this.sparqlUpdate == null && getRequest().getInputStream() != null) {
+            this.sparqlUpdate = SparqlUpdateBody.read(getRequest().getInputStream(), getCharset());
+            this.sparqlUpdate.setOnRequest(this);
+        }
+        return this.sparqlUpdate;
+    }
+
     @Override
     public ServletInputStream getInputStream() throws IOException {
         if (getRequest().getInputStream() != null) {
-            if (this.cachedContent == null) {
-                this.cachedContent = IOUtils.toByteArray(getRequest().getInputStream());
-            }
-            return new CustomServletInputStream(cachedContent);
+            return new CustomServletInputStream(getSparqlUpdate(), getCharset());
         }
         return null;
     }
 
+    /**
+     * @return the character encoding of the request, or UTF-8 if it has none or it is not supported
+     */
+    private Charset getCharset() {
+        final String encoding = getRequest().getCharacterEncoding();
+        if (encoding == null) {
+            return UTF_8;
+        }
+        try {
+            return Charset.forName(encoding);
+        } catch (final IllegalArgumentException e) {
+            LOGGER.debug("Unsupported character encoding {}, reading SPARQL Update as UTF-8", encoding);
+            return UTF_8;
+        }
+    }
+
     @Override
     public BufferedReader getReader() throws IOException {
-        if (this.reader == null) {
-            this.reader = new BufferedReader(new InputStreamReader(getInputStream(),
-                    getCharacterEncoding()));
+        if (this.reader == null && getSparqlUpdate() != null) {
+            this.reader = new BufferedReader(new StringReader(getSparqlUpdate().getBody()));
         }
         return this.reader;
     }
 
+    /**
+     * A ServletInputStream over a SPARQL Update body, which is only encoded (in the character encoding of the
+     * request) if the stream is actually read.
+     */
     private static class CustomServletInputStream extends ServletInputStream {
 
-        private final ByteArrayInputStream buffer;
+        private final SparqlUpdateBody contents;
+
+        private final Charset charset;
+
+        private ByteArrayInputStream buffer;
 
-        public CustomServletInputStream(final byte[] contents) {
-            this.buffer = new ByteArrayInputStream(contents);
+        public CustomServletInputStream(final SparqlUpdateBody contents, final Charset charset) {
+            this.contents = contents;
+            this.charset = charset;
+        }
+
+        private ByteArrayInputStream buffer() {
+            if (buffer == null) {
+                buffer = new ByteArrayInputStream(contents.getBody().getBytes(charset));
+            }
+            return buffer;
         }
 
         @Override
         public int read() {
-            return buffer.read();
+            return buffer().read();
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len) {
+            return buffer().read(b, off, len);
         }
 
         @Override
         public boolean isFinished() {
-            return buffer.available() == 0;
+            return buffer().available() == 0;
         }
 
         @Override
@@ -36,6 +36,7 @@ import org.fcrepo.kernel.api.FedoraSession;
 import org.fcrepo.kernel.api.identifiers.IdentifierConverter;
 import org.fcrepo.kernel.api.models.FedoraResource;
 import org.fcrepo.kernel.api.services.NodeService;
+import org.fcrepo.kernel.modeshape.SessionPool;
 import org.fcrepo.kernel.modeshape.rdf.impl.DefaultIdentifierTranslator;
 
 import org.slf4j.Logger;
@@ -64,29 +65,34 @@ public class LinkHeaderProvider implements UriAwareHttpHeaderFactory {
     @Inject
     private NodeService nodeService;
 
+    @Inject
+    private WebACRolesProvider rolesProvider;
+
     @Override
     public Multimap<String, String> createHttpHeadersForResource(final UriInfo uriInfo, final FedoraResource resource) {
 
-        final FedoraSession internalSession = sessionFactory.getInternalSession();
-        final IdentifierConverter<Resource, FedoraResource> translator =
-                new DefaultIdentifierTranslator(getJcrSession(internalSession));
         final ListMultimap<String, String> headers = ArrayListMultimap.create();
 
         LOGGER.debug("Adding WebAC Link Header for Resource: {}", resource.getPath());
         // Get the correct Acl for this resource
-        WebACRolesProvider.getEffectiveAcl(resource, false, sessionFactory).ifPresent(acls -> {
+        rolesProvider.getEffectiveAcl(resource).ifPresent(acls -> {
             // If the Acl is present we need to use the internal session to get its URI
-            nodeService.find(internalSession, acls.resource.getPath())
-            .getTriples(translator, PROPERTIES)
-            .collect(toModel()).listObjectsOfProperty(createProperty(WEBAC_ACCESS_CONTROL_VALUE))
-            .forEachRemaining(linkObj -> {
-                if (linkObj.isURIResource()) {
-                    final Resource acl = linkObj.asResource();
-                    final String aclPath = translator.convert(acl).getPath();
-                    final URI aclUri = uriInfo.getBaseUriBuilder().path(aclPath).build();
-                    headers.put("Link", Link.fromUri(aclUri).rel("acl").build().toString());
-                }
-            });
+            try (final SessionPool.Lease lease = sessionFactory.leaseInternalSession()) {
+                final FedoraSession internalSession = lease.getSession();
+                final IdentifierConverter<Resource, FedoraResource> translator =
+                        new DefaultIdentifierTranslator(getJcrSession(internalSession));
+                nodeService.find(internalSession, acls.resource.getPath())
+                .getTriples(translator, PROPERTIES)
+                .collect(toModel()).listObjectsOfProperty(createProperty(WEBAC_ACCESS_CONTROL_VALUE))
+                .forEachRemaining(linkObj -> {
+                    if (linkObj.isURIResource()) {
+                        final Resource acl = linkObj.asResource();
+                        final String aclPath = translator.convert(acl).getPath();
+                        final URI aclUri = uriInfo.getBaseUriBuilder().path(aclPath).build();
+                        headers.put("Link", Link.fromUri(aclUri).rel("acl").build().toString());
+                    }
+                });
+            }
         });
 
         return headers;
@@ -0,0 +1,319 @@
+/*
+ * Licensed to DuraSpace under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * DuraSpace licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.auth.webac;
+
+import static com.google.common.base.Throwables.throwIfUnchecked;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.fcrepo.kernel.api.observer.EventType.RESOURCE_DELETION;
+import static org.fcrepo.kernel.api.observer.EventType.RESOURCE_RELOCATION;
+import static org.fcrepo.kernel.modeshape.FedoraResourceImpl.CONTAINER_WEBAC_ACL;
+import static org.slf4j.LoggerFactory.getLogger;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+
+import org.fcrepo.kernel.api.observer.FedoraEvent;
+import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.RemovalCause;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.eventbus.EventBus;
+import com.google.common.eventbus.Subscribe;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+/**
+ * Caches the results of WebAC authorization lookups so that they need not be re-read from the repository on every
+ * request.  Three things are cached, all keyed by repository path:
+ * <ul>
+ *   <li>the acl:Authorizations read from the ACL of an ACL-bearing resource,</li>
+ *   <li>for a resource, the path of the nearest resource at or above it whose ACL contributes acl:default
+ *       authorizations, i.e. the ACL inherited by its descendants, and</li>
+ *   <li>the members of the vcard:Groups described by resources named as an acl:agentGroup, indexed both by group
+ *       and by member.</li>
+ * </ul>
+ *
+ * Entries are invalidated by events from the internal EventBus: a change to any part of an ACL invalidates that
+ * ACL and every inherited-ACL pointer beneath its resource, a change to a cached group resource invalidates that
+ * group, and the deletion or relocation of a resource invalidates everything cached beneath it.  Rather than
+ * scanning the cache, each invalidation is recorded against a logical clock and entries computed before an
+ * invalidation of one of their ancestors are discarded when next read.
+ *
+ * @author rdfloyd
+ */
+@Component
+public class WebACAuthorizationCache {
+
+    private static final Logger LOGGER = getLogger(WebACAuthorizationCache.class);
+
+    private static final String ACL_SEGMENT = "/" + CONTAINER_WEBAC_ACL;
+
+    @Inject
+    private EventBus eventBus;
+
+    private final Cache<String, Stamped<List<WebACAuthorization>>> authorizations;
+
+    private final Cache<String, Stamped<Optional<String>>> inheritedAcls;
+
+    private final Cache<String, Stamped<WebACGroupMembership>> groupMembers;
+
+    /**
+     * The path of every resource that has been loaded as a group, so that changes to them can be recognized even
+     * while they are being loaded.
+     */
+    private final Set<String> groupPaths = ConcurrentHashMap.newKeySet();
+
+    /**
+     * The logical time at which each path (and everything beneath it) was last invalidated.  Records are kept for
+     * twice the time-to-live of a cached entry, after which any entry they could apply to has expired, and are
+     * bounded in number like the entries themselves.
+     */
+    private final Cache<String, Long> invalidations;
+
+    /**
+     * The latest logical time of an invalidation record evicted to keep within the bound; every entry computed
+     * before it is treated as stale, since the record that applied to it may be gone.
+     */
+    private final AtomicLong evicted = new AtomicLong();
+
+    private final AtomicLong clock = new AtomicLong();
+
+    /**
+     * A cached value along with the logical time at which its computation began.
+     */
+    private static class Stamped<V> {
+
+        private final V value;
+
+        private final long stamp;
+
+        private Stamped(final V value, final long stamp) {
+            this.value = value;
+            this.stamp = stamp;
+        }
+    }
+
+    /**
+     * Create a new cache.
+     *
+     * @param maximumSize the maximum number of entries in each of the authorization, inherited ACL and group caches,
+     *        and of invalidation records
+     * @param timeToLive the number of seconds after which an entry expires
+     */
+    @Inject
+    public WebACAuthorizationCache(@Value("${fcrepo.auth.webac.cache.size:100000}") final long maximumSize,
+                                   @Value("${fcrepo.auth.webac.cache.timeToLive:600}") final long timeToLive) {
+        authorizations = CacheBuilder.newBuilder().maximumSize(maximumSize).expireAfterWrite(timeToLive, SECONDS)
+                .recordStats().build();
+        inheritedAcls = CacheBuilder.newBuilder().maximumSize(maximumSize).expireAfterWrite(timeToLive, SECONDS)
+                .recordStats().build();
+        groupMembers = CacheBuilder.newBuilder().maximumSize(maximumSize).expireAfterWrite(timeToLive, SECONDS)
+                .recordStats().build();
+        invalidations = CacheBuilder.newBuilder().maximumSize(maximumSize).expireAfterWrite(2 * timeToLive, SECONDS)
+                .removalListener((final RemovalNotification<String, Long> removal) -> {
+                    if (removal.getCause() == RemovalCause.SIZE) {
+                        evicted.accumulateAndGet(removal.getValue(), Math::max);
+                    }
+                }).build();
+    }
+
+    /**
+     * Subscribe to repository events.
+     */
+    @PostConstruct
+    public void register() {
+        eventBus.register(this);
+    }
+
+    /**
+     * Stop listening for repository events.
+     */
+    @PreDestroy
+    public void unregister() {
+        eventBus.unregister(this);
+        LOGGER.info("WebAC authorization cache: {}; inherited ACL cache: {}; group cache: {}",
+                getAuthorizationStats(), getInheritedAclStats(), getGroupStats());
+    }
+
+    /**
+     * Get the authorizations read from the ACL of the given resource, loading them if necessary.
+     *
+     * @param path the path of the ACL-bearing resource
+     * @param loader reads the authorizations from the ACL
+     * @return the authorizations
+     */
+    public List<WebACAuthorization> getAuthorizations(final String path,
+                                                      final Supplier<List<WebACAuthorization>> loader) {
+        return get(authorizations, path, loader);
+    }
+
+    /**
+     * Get the path of the resource whose ACL is inherited by the descendants of the given resource, resolving it if
+     * necessary.
+     *
+     * @param path the path of a resource
+     * @param loader resolves the path of the ACL-bearing resource
+     * @return the path of the ACL-bearing resource, or empty if no ACL applies
+     */
+    public Optional<String> getInheritedAcl(final String path, final Supplier<Optional<String>> loader) {
+        return get(inheritedAcls, path, loader);
+    }
+
+    /**
+     * Get the membership of the groups described by the given resource, loading it if necessary.
+     *
+     * @param path the path of the group resource
+     * @param loader reads the members of each group from the resource
+     * @return the membership of the groups
+     */
+    public WebACGroupMembership getGroupMembership(final String path, final Supplier<WebACGroupMembership> loader) {
+        groupPaths.add(path);
+        return get(groupMembers, path, loader);
+    }
+
+    /**
+     * Invalidate everything cached for the given path and its descendants.  If the path lies within an ACL, the
+     * resource bearing that ACL is invalidated instead.
+     *
+     * @param path a repository path
+     */
+    public void invalidate(final String path) {
+        final String target = aclBearingPath(path).orElse(path);
+        invalidations.put(target, clock.incrementAndGet());
+        authorizations.invalidate(target);
+        inheritedAcls.invalidate(target);
+        groupMembers.invalidate(target);
+        LOGGER.debug("Invalidated cached WebAC authorizations at and below {}", target);
+    }
+
+    /**
+     * Invalidate everything in the cache.
+     */
+    public void invalidateAll() {
+        invalidations.put("/", clock.incrementAndGet());
+        authorizations.invalidateAll();
+        inheritedAcls.invalidateAll();
+        groupMembers.invalidateAll();
+    }
+
+    /**
+     * Invalidate cached authorizations affected by a repository event.
+     *
+     * @param event the event
+     */
+    @Subscribe
+    public void onEvent(final FedoraEvent event) {
+        final String path = event.getPath();
+        final int hashIndex = path.indexOf('#');
+        final String resourcePath = hashIndex > 0 ? path.substring(0, hashIndex) : path;
+        if (aclBearingPath(path).isPresent()) {
+            invalidate(path);
+        } else if (groupPaths.contains(resourcePath) ||
+                event.getTypes().contains(RESOURCE_DELETION) || event.getTypes().contains(RESOURCE_RELOCATION)) {
+            invalidate(resourcePath);
+        }
+    }
+
+    /**
+     * @return hit, miss and eviction statistics for cached authorizations
+     */
+    public CacheStats getAuthorizationStats() {
+        return authorizations.stats();
+    }
+
+    /**
+     * @return hit, miss and eviction statistics for cached inherited ACLs
+     */
+    public CacheStats getInheritedAclStats() {
+        return inheritedAcls.stats();
+    }
+
+    /**
+     * @return hit, miss and eviction statistics for cached groups
+     */
+    public CacheStats getGroupStats() {
+        return groupMembers.stats();
+    }
+
+    private <V> V get(final Cache<String, Stamped<V>> cache, final String path, final Supplier<V> loader) {
+        final long stamp = clock.get();
+        try {
+            final Stamped<V> entry = cache.get(path, () -> new Stamped<>(loader.get(), stamp));
+            if (!isStale(path, entry.stamp)) {
+                return entry.value;
+            }
+            LOGGER.trace("Discarding stale WebAC cache entry for {}", path);
+            cache.invalidate(path);
+            return loader.get();
+        } catch (final ExecutionException | UncheckedExecutionException ex) {
+            throwIfUnchecked(ex.getCause());
+            throw new UncheckedExecutionException(ex.getCause());
+        }
+    }
+
+    /**
+     * An entry is stale if the path or any of its ancestors was invalidated after the entry began to be computed.
+     */
+    private boolean isStale(final String path, final long stamp) {
+        if (stamp < evicted.get()) {
+            return true;
+        }
+        for (String p = path; p != null; p = getParentPath(p)) {
+            final Long invalidated = invalidations.getIfPresent(p);
+            if (invalidated != null && invalidated > stamp) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String getParentPath(final String path) {
+        if (path.equals("/") || path.isEmpty()) {
+            return null;
+        }
+        final int index = path.lastIndexOf('/');
+        return index > 0 ? path.substring(0, index) : "/";
+    }
+
+    /**
+     * @param path a repository path
+     * @return the path of the resource bearing the ACL, if the path lies within an ACL
+     */
+    private static Optional<String> aclBearingPath(final String path) {
+        for (int index = path.indexOf(ACL_SEGMENT); index >= 0; index = path.indexOf(ACL_SEGMENT, index + 1)) {
+            final int end = index + ACL_SEGMENT.length();
+            if (end == path.length() || path.charAt(end) == '/' || path.charAt(end) == '#') {
+                return Optional.of(index == 0 ? "/" : path.substring(0, index));
+            }
+        }
+        return Optional.empty();
+    }
+}
@@ -27,7 +27,9 @@ import static org.slf4j.LoggerFactory.getLogger;
 
 import java.net.URI;
 import java.security.Principal;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 import javax.inject.Inject;
 import javax.jcr.Node;
@@ -111,7 +113,6 @@ public class WebACAuthorizingRealm extends AuthorizingRealm {
     protected AuthorizationInfo doGetAuthorizationInfo(final PrincipalCollection principals) {
         final SimpleAuthorizationInfo authzInfo = new SimpleAuthorizationInfo();
         final Map<String, Collection<String>> roles;
-        boolean isAdmin = false;
 
         final Collection<DelegatedHeaderPrincipal> delegatePrincipals =
                 principals.byType(DelegatedHeaderPrincipal.class);
@@ -125,31 +126,49 @@ public class WebACAuthorizingRealm extends AuthorizingRealm {
                 authzInfo.addRole(FEDORA_ADMIN_ROLE);
                 return authzInfo;
             }
-            isAdmin = true;
             // if Admin is delegating, they are a normal user
             authzInfo.addRole(FEDORA_USER_ROLE);
         } else if (principals.byType(ContainerRolesPrincipal.class).contains(userPrincipal)) {
             authzInfo.addRole(FEDORA_USER_ROLE);
         }
 
-        // for non-admins, we must check the ACL for the requested resource
-        roles = getRolesForPath();
-
         for (Object o : principals.asList()) {
             log.debug("User has principal with name: {}", ((Principal) o).getName());
         }
+        final List<String> agents = getAgents(principals);
+
+        // for non-admins, we must check the ACL for the requested resource
+        roles = getRolesForPath(agents);
+
+        agents.forEach(agent -> addPermissions(authzInfo, roles, agent));
+
+        return authzInfo;
+
+    }
+
+    /**
+     * The agents whose modes in an ACL apply to a user who is not an administrator acting as themself.
+     *
+     * @param principals the principals of the user
+     * @return the agents, in the order their modes are granted
+     */
+    static List<String> getAgents(final PrincipalCollection principals) {
+        final List<String> agents = new ArrayList<>();
+        final Collection<DelegatedHeaderPrincipal> delegatePrincipals =
+                principals.byType(DelegatedHeaderPrincipal.class);
+        final boolean isAdmin = principals.byType(ContainerRolesPrincipal.class).contains(adminPrincipal);
         final Principal userPrincipal = principals.oneByType(BasicUserPrincipal.class);
         final Collection<HttpHeaderPrincipal> headerPrincipals = principals.byType(HttpHeaderPrincipal.class);
         // Add permissions for user or delegated user principal
         if (isAdmin && delegatePrincipals.size() == 1) {
             final DelegatedHeaderPrincipal delegatedPrincipal = delegatePrincipals.iterator().next();
             log.debug("Admin user is delegating to {}", delegatedPrincipal);
-            addPermissions(authzInfo, roles, delegatedPrincipal.getName());
-            addPermissions(authzInfo, roles, WEBAC_AUTHENTICATED_AGENT_VALUE);
+            agents.add(delegatedPrincipal.getName());
+            agents.add(WEBAC_AUTHENTICATED_AGENT_VALUE);
         } else if (userPrincipal != null) {
             log.debug("Basic user principal username: {}", userPrincipal.getName());
-            addPermissions(authzInfo, roles, userPrincipal.getName());
-            addPermissions(authzInfo, roles, WEBAC_AUTHENTICATED_AGENT_VALUE);
+            agents.add(userPrincipal.getName());
+            agents.add(WEBAC_AUTHENTICATED_AGENT_VALUE);
         } else {
             log.debug("No basic user principal found");
         }
@@ -158,17 +177,15 @@ public class WebACAuthorizingRealm extends AuthorizingRealm {
             log.debug("No header principals found!");
         }
         headerPrincipals.forEach((headerPrincipal) -> {
-            addPermissions(authzInfo, roles, headerPrincipal.getName());
+            agents.add(headerPrincipal.getName());
         });
 
         // Added FOAF_AGENT permissions for both authenticated and unauthenticated users
-        addPermissions(authzInfo, roles, FOAF_AGENT_VALUE);
-
-        return authzInfo;
-
+        agents.add(FOAF_AGENT_VALUE);
+        return agents;
     }
 
-    private Map<String, Collection<String>> getRolesForPath() {
+    private Map<String, Collection<String>> getRolesForPath(final Collection<String> agents) {
         Map<String, Collection<String>> roles = null;
         final FedoraResource fedoraResource = getResourceOrParentFromPath(request.getPathInfo());
 
@@ -176,7 +193,7 @@ public class WebACAuthorizingRealm extends AuthorizingRealm {
             final Node node = ((FedoraResourceImpl) fedoraResource).getNode();
 
             // check ACL for the request URI and get a mapping of agent => modes
-            roles = rolesProvider.getRoles(node);
+            roles = rolesProvider.getRoles(node, agents);
         }
         return roles;
     }
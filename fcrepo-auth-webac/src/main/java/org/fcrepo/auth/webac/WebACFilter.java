@@ -18,8 +18,8 @@
 
 package org.fcrepo.auth.webac;
 
-import static java.nio.charset.StandardCharsets.UTF_8;
 import static javax.servlet.http.HttpServletResponse.SC_FORBIDDEN;
+import static org.apache.jena.rdf.model.ResourceFactory.createResource;
 import static org.apache.jena.riot.WebContent.contentTypeSPARQLUpdate;
 import static org.fcrepo.auth.common.ServletContainerAuthFilter.FEDORA_ADMIN_ROLE;
 import static org.fcrepo.auth.common.ServletContainerAuthFilter.FEDORA_USER_ROLE;
@@ -29,12 +29,20 @@ import static org.fcrepo.auth.webac.URIConstants.WEBAC_MODE_CONTROL;
 import static org.fcrepo.auth.webac.URIConstants.WEBAC_MODE_READ;
 import static org.fcrepo.auth.webac.URIConstants.WEBAC_MODE_WRITE;
 import static org.fcrepo.kernel.api.FedoraTypes.FCR_ACL;
+import static org.fcrepo.kernel.api.FedoraTypes.FCR_BULK;
+import static org.fcrepo.kernel.api.FedoraTypes.FCR_METADATA;
 import static org.fcrepo.kernel.api.FedoraTypes.FEDORA_BINARY;
+import static org.fcrepo.kernel.modeshape.utils.FedoraTypesUtils.getJcrNode;
 import static org.slf4j.LoggerFactory.getLogger;
 
 import java.io.IOException;
 import java.net.URI;
 import java.security.Principal;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Predicate;
 
 import javax.inject.Inject;
 import javax.servlet.Filter;
@@ -45,39 +53,46 @@ import javax.servlet.ServletRequest;
 import javax.servlet.ServletResponse;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import javax.ws.rs.ClientErrorException;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.UriBuilder;
 
-import org.apache.commons.io.IOUtils;
 import org.apache.jena.query.QueryParseException;
-import org.apache.jena.rdf.model.ModelFactory;
 import org.apache.jena.rdf.model.Resource;
 import org.apache.jena.sparql.modify.request.UpdateDataDelete;
 import org.apache.jena.sparql.modify.request.UpdateModify;
-import org.apache.jena.update.UpdateFactory;
 import org.apache.jena.update.UpdateRequest;
 import org.apache.shiro.SecurityUtils;
 import org.apache.shiro.subject.PrincipalCollection;
 import org.apache.shiro.subject.SimplePrincipalCollection;
 import org.apache.shiro.subject.Subject;
 import org.fcrepo.http.api.FedoraLdp;
+import org.fcrepo.http.commons.api.ResourceCreationAuthorizer;
 import org.fcrepo.http.commons.api.rdf.HttpResourceConverter;
+import org.fcrepo.http.commons.domain.SparqlUpdateBody;
 import org.fcrepo.http.commons.session.HttpSession;
 import org.fcrepo.http.commons.session.SessionFactory;
 import org.fcrepo.kernel.api.FedoraSession;
 import org.fcrepo.kernel.api.models.FedoraResource;
 import org.fcrepo.kernel.api.services.NodeService;
+import org.fcrepo.kernel.modeshape.SessionPool;
 import org.slf4j.Logger;
 
 /**
  * @author peichman
  */
-public class WebACFilter implements Filter {
+public class WebACFilter implements Filter, ResourceCreationAuthorizer {
 
     private static final Logger log = getLogger(WebACFilter.class);
 
+    private static final String FCR_MEMBERSHIP_INDEX = "fcr:membershipIndex";
+
+    private static final String FCR_REFERENCE_INDEX = "fcr:referenceIndex";
+
     private static final MediaType sparqlUpdate = MediaType.valueOf(contentTypeSPARQLUpdate);
 
+    private static final String REPO_PATH_ATTRIBUTE = WebACFilter.class.getName() + ".repoPath";
+
     private FedoraSession session;
 
     private static final Principal FOAF_AGENT_PRINCIPAL = new Principal() {
@@ -105,6 +120,12 @@ public class WebACFilter implements Filter {
     @Inject
     private SessionFactory sessionFactory;
 
+    @Inject
+    private WebACAuthorizationCache authorizationCache;
+
+    @Inject
+    private WebACRolesProvider rolesProvider;
+
     @Override
     public void init(final FilterConfig filterConfig) {
         // this method intentionally left empty
@@ -126,9 +147,15 @@ public class WebACFilter implements Filter {
             } else if (currentUser.hasRole(FEDORA_USER_ROLE)) {
                 log.debug("User has fedoraUser role");
                 // non-admins are subject to permission checks
-                if (!isAuthorized(currentUser, httpRequest)) {
-                    // if the user is not authorized, set response to forbidden
-                    ((HttpServletResponse) response).sendError(SC_FORBIDDEN);
+                try {
+                    if (!isAuthorized(currentUser, httpRequest)) {
+                        // if the user is not authorized, set response to forbidden
+                        ((HttpServletResponse) response).sendError(SC_FORBIDDEN);
+                        return;
+                    }
+                } catch (final ClientErrorException e) {
+                    // the request body could not be inspected, e.g. because it is too large
+                    ((HttpServletResponse) response).sendError(e.getResponse().getStatus(), e.getMessage());
                     return;
                 }
             } else {
@@ -149,6 +176,62 @@ public class WebACFilter implements Filter {
 
         // proceed to the next filter
         chain.doFilter(httpRequest, response);
+
+        invalidateAuthorizations(httpRequest);
+    }
+
+    /**
+     * Writes to an ACL, and deletes of resources that may bear one, invalidate any cached authorizations for the
+     * affected resources straight away rather than waiting for the corresponding repository event.
+     */
+    private void invalidateAuthorizations(final HttpServletRequest httpRequest) {
+        final String method = httpRequest.getMethod();
+        final boolean isAcl = httpRequest.getRequestURL().toString().endsWith(FCR_ACL);
+        if (method.equals("DELETE") || (isAcl && (method.equals("PUT") || method.equals("PATCH")))) {
+            authorizationCache.invalidate(getRepoPath(httpRequest));
+        }
+    }
+
+    /**
+     * Resources created without being addressed by the request, such as those of a bulk ingest, are authorized as a
+     * PUT of each of them would be.
+     */
+    @Override
+    public Predicate<String> getCreationCheck(final HttpServletRequest request) {
+        final Subject currentUser = SecurityUtils.getSubject();
+        if (currentUser.isAuthenticated() && currentUser.hasRole(FEDORA_ADMIN_ROLE)) {
+            return path -> true;
+        }
+        final List<String> agents = getAgents(currentUser.isAuthenticated() ? currentUser : getFoafAgentSubject());
+        return path -> isCreationPermitted(agents, path);
+    }
+
+    private static List<String> getAgents(final Subject subject) {
+        return WebACAuthorizingRealm.getAgents(subject.getPrincipals());
+    }
+
+    /**
+     * A new resource may be created with acl:Write or acl:Append permission inherited from its nearest existing
+     * ancestor.
+     */
+    private boolean isCreationPermitted(final List<String> agents, final String path) {
+        try (final SessionPool.Lease lease = sessionFactory.leaseInternalSession()) {
+            final FedoraSession internalSession = lease.getSession();
+            String existingPath = path;
+            while (!nodeService.exists(internalSession, existingPath)) {
+                final int lastSlash = existingPath.lastIndexOf('/');
+                existingPath = lastSlash > 0 ? existingPath.substring(0, lastSlash) : "/";
+            }
+            final Map<String, Collection<String>> roles =
+                    rolesProvider.getRoles(getJcrNode(nodeService.find(internalSession, existingPath)), agents);
+            final boolean permitted = agents.stream().map(roles::get).filter(Objects::nonNull)
+                    .flatMap(Collection::stream)
+                    .anyMatch(mode -> mode.equals(WEBAC_MODE_WRITE.toString())
+                            || mode.equals(WEBAC_MODE_APPEND.toString()));
+            log.debug("Creation of {} {} by {} permission inherited from {}", path,
+                    permitted ? "allowed" : "prohibited without", "acl:Append or acl:Write", existingPath);
+            return permitted;
+        }
     }
 
     private Subject getFoafAgentSubject() {
@@ -195,15 +278,21 @@ public class WebACFilter implements Filter {
     }
 
     private String getRepoPath(final HttpServletRequest servletRequest) {
+        // the same request may be converted more than once
+        final Object memo = servletRequest.getAttribute(REPO_PATH_ATTRIBUTE);
+        if (memo instanceof String) {
+            return (String) memo;
+        }
         final String httpURI = servletRequest.getRequestURL().toString();
         final HttpSession httpSession = new HttpSession(session());
 
         final UriBuilder uriBuilder = UriBuilder.fromUri(getBaseURL(servletRequest)).path(FedoraLdp.class);
         final HttpResourceConverter conv = new HttpResourceConverter(httpSession, uriBuilder);
-        final Resource resource = ModelFactory.createDefaultModel().createResource(httpURI);
+        final Resource resource = createResource(httpURI);
 
         final String repoPath = conv.asString(resource);
         log.debug("Converted request URI {} to repo path {}", httpURI, repoPath);
+        servletRequest.setAttribute(REPO_PATH_ATTRIBUTE, repoPath);
         return repoPath;
     }
 
@@ -213,6 +302,24 @@ public class WebACFilter implements Filter {
         final URI requestURI = URI.create(requestURL);
         log.debug("Request URI is {}", requestURI);
 
+        if (requestURI.getPath().endsWith("/" + FCR_MEMBERSHIP_INDEX) ||
+                requestURI.getPath().endsWith("/" + FCR_REFERENCE_INDEX)) {
+            // maintenance of the repository-wide indexes visits every resource, whatever its ACL
+            log.debug("{} is restricted to administrators", requestURI);
+            return false;
+        }
+
+        if (requestURL.endsWith("/" + FCR_BULK)) {
+            // a bulk ingest is a POST to its container, and each resource it creates is checked as it is created;
+            // the endpoint accepts nothing else, so other methods are left to be refused as not allowed
+            if (!httpRequest.getMethod().equals("POST")) {
+                return true;
+            }
+            final String repoPath = getRepoPath(httpRequest);
+            final String containerPath = repoPath.substring(0, repoPath.length() - FCR_BULK.length() - 1);
+            return isCreationPermitted(getAgents(currentUser), containerPath.isEmpty() ? "/" : containerPath);
+        }
+
         // WebAC permissions
         final WebACPermission toRead = new WebACPermission(WEBAC_MODE_READ, requestURI);
         final WebACPermission toWrite = new WebACPermission(WEBAC_MODE_WRITE, requestURI);
@@ -332,10 +439,11 @@ public class WebACFilter implements Filter {
             log.debug("Cannot verify authorization on NON-SPARQL Patch request.");
             return false;
         }
-        if (httpRequest.getInputStream() != null) {
+        final SparqlUpdateBody sparqlUpdate = ((CachedSparqlRequest) httpRequest).getSparqlUpdate();
+        if (sparqlUpdate != null) {
             boolean noDeletes = false;
             try {
-                noDeletes = !hasDeleteClause(IOUtils.toString(httpRequest.getInputStream(), UTF_8));
+                noDeletes = !hasDeleteClause(sparqlUpdate.parse(getBaseUri(httpRequest)));
             } catch (final QueryParseException ex) {
                 log.error("Cannot verify authorization! Exception while inspecting SPARQL query!", ex);
             }
@@ -346,8 +454,18 @@ public class WebACFilter implements Filter {
         }
     }
 
-    private boolean hasDeleteClause(final String sparqlString) {
-        final UpdateRequest sparqlUpdate = UpdateFactory.create(sparqlString);
+    /**
+     * The base URI against which the resource handling a PATCH will resolve relative URIs: the URI of the described
+     * resource.  Parsing with the same base lets it reuse the request parsed here.
+     */
+    private static String getBaseUri(final HttpServletRequest httpRequest) {
+        final String requestUrl = httpRequest.getRequestURL().toString();
+        final String metadataSuffix = "/" + FCR_METADATA;
+        return requestUrl.endsWith(metadataSuffix) ?
+                requestUrl.substring(0, requestUrl.length() - metadataSuffix.length()) : requestUrl;
+    }
+
+    private boolean hasDeleteClause(final UpdateRequest sparqlUpdate) {
         return sparqlUpdate.getOperations().stream()
                 .filter(update -> update instanceof UpdateDataDelete)
                 .map(update -> (UpdateDataDelete) update)
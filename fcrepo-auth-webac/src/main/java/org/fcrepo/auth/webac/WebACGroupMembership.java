@@ -0,0 +1,79 @@
+/*
+ * Licensed to DuraSpace under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * DuraSpace licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.auth.webac;
+
+import static java.util.Collections.emptySet;
+import static java.util.Collections.unmodifiableMap;
+import static java.util.Collections.unmodifiableSet;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The members of the vcard:Groups described by a resource, indexed both by group and by member, so that whether an
+ * agent belongs to a group is a set lookup rather than a search of its members.  Groups are identified by the
+ * fragment ("#name", or "" for the resource itself) of their URI.
+ *
+ * @author rdfloyd
+ */
+public class WebACGroupMembership {
+
+    private final Map<String, Set<String>> membersByGroup;
+
+    private final Map<String, Set<String>> groupsByMember;
+
+    /**
+     * @param membersByGroup the members of each group, keyed by the fragment of the group's URI
+     */
+    public WebACGroupMembership(final Map<String, Set<String>> membersByGroup) {
+        final Map<String, Set<String>> members = new HashMap<>();
+        final Map<String, Set<String>> groups = new HashMap<>();
+        membersByGroup.forEach((group, groupMembers) -> {
+            members.put(group, unmodifiableSet(new HashSet<>(groupMembers)));
+            groupMembers.forEach(member -> groups.computeIfAbsent(member, key -> new HashSet<>()).add(group));
+        });
+        groups.replaceAll((member, memberGroups) -> unmodifiableSet(memberGroups));
+        this.membersByGroup = unmodifiableMap(members);
+        this.groupsByMember = unmodifiableMap(groups);
+    }
+
+    /**
+     * @param group the fragment of the group's URI
+     * @return the members of the group
+     */
+    public Set<String> getMembers(final String group) {
+        return membersByGroup.getOrDefault(group, emptySet());
+    }
+
+    /**
+     * @param member an agent
+     * @return the fragments of the URIs of the groups the agent is a member of
+     */
+    public Set<String> getGroups(final String member) {
+        return groupsByMember.getOrDefault(member, emptySet());
+    }
+
+    /**
+     * @return the number of groups
+     */
+    public int size() {
+        return membersByGroup.size();
+    }
+}
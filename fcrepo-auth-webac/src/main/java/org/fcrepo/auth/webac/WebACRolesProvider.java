@@ -19,6 +19,8 @@ package org.fcrepo.auth.webac;
 
 import static java.util.Arrays.asList;
 import static java.util.Collections.emptyList;
+import static java.util.Collections.emptySet;
+import static java.util.Collections.unmodifiableSet;
 import static java.util.stream.Collectors.toList;
 import static java.util.stream.Collectors.toSet;
 import static java.util.stream.IntStream.range;
@@ -53,10 +55,12 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.function.Function;
 import java.util.function.Predicate;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import javax.inject.Inject;
@@ -68,9 +72,11 @@ import org.apache.jena.rdf.model.Resource;
 import org.apache.jena.rdf.model.Statement;
 import org.fcrepo.http.commons.session.SessionFactory;
 import org.fcrepo.kernel.api.FedoraSession;
+import org.fcrepo.kernel.api.exception.RepositoryRuntimeException;
 import org.fcrepo.kernel.api.identifiers.IdentifierConverter;
 import org.fcrepo.kernel.api.models.FedoraResource;
 import org.fcrepo.kernel.api.services.NodeService;
+import org.fcrepo.kernel.modeshape.SessionPool;
 import org.fcrepo.kernel.modeshape.identifiers.NodeResourceConverter;
 import org.fcrepo.kernel.modeshape.rdf.impl.DefaultIdentifierTranslator;
 import org.slf4j.Logger;
@@ -99,8 +105,50 @@ public class WebACRolesProvider {
     @Inject
     private SessionFactory sessionFactory;
 
+    @Inject
+    private WebACAuthorizationCache authorizationCache;
+
     private final NodeResourceConverter nodeConverter = NodeResourceConverter.nodeConverter;
 
+    /**
+     * The agent base URIs in effect when the cached authorizations and groups were read.
+     */
+    private volatile AgentBaseUris agentBaseUris = AgentBaseUris.current();
+
+    /**
+     * The configured base URIs of user and group agents, read once rather than for each agent value.
+     */
+    private static final class AgentBaseUris {
+
+        private final String user;
+
+        private final String group;
+
+        private AgentBaseUris(final String user, final String group) {
+            this.user = user;
+            this.group = group;
+        }
+
+        private static AgentBaseUris current() {
+            return new AgentBaseUris(System.getProperty(USER_AGENT_BASE_URI_PROPERTY),
+                    System.getProperty(GROUP_AGENT_BASE_URI_PROPERTY));
+        }
+
+        @Override
+        public boolean equals(final Object other) {
+            if (!(other instanceof AgentBaseUris)) {
+                return false;
+            }
+            final AgentBaseUris that = (AgentBaseUris) other;
+            return Objects.equals(user, that.user) && Objects.equals(group, that.group);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(user, group);
+        }
+    }
+
     /**
      * Get the roles assigned to this Node.
      *
@@ -108,18 +156,36 @@ public class WebACRolesProvider {
      * @return a set of roles for each principal
      */
     public Map<String, Collection<String>> getRoles(final Node node) {
-        return getAgentRoles(nodeConverter.convert(node));
+        return getAgentRoles(nodeConverter.convert(node), agent -> true, null);
+    }
+
+    /**
+     * Get the roles assigned to this Node for the given agents only.  Rather than listing the members of each
+     * acl:agentGroup, each agent is looked up among them.
+     *
+     * @param node the subject Node
+     * @param agents the agents whose roles are wanted
+     * @return a set of roles for each of the agents that has any
+     */
+    public Map<String, Collection<String>> getRoles(final Node node, final Collection<String> agents) {
+        final Set<String> agentSet = new HashSet<>(agents);
+        return getAgentRoles(nodeConverter.convert(node), agentSet::contains, agentSet);
     }
 
     /**
      *  For a given FedoraResource, get a mapping of acl:agent values to acl:mode values and
      *  for foaf:Agent and acl:AuthenticatedAgent include the acl:agentClass value to acl:mode.
+     *  Only the agents accepted are included; if they are known, groups are searched for them alone.
      */
-    private Map<String, Collection<String>> getAgentRoles(final FedoraResource resource) {
+    private Map<String, Collection<String>> getAgentRoles(final FedoraResource resource,
+                                                          final Predicate<String> accepted,
+                                                          final Set<String> agents) {
         LOGGER.debug("Getting agent roles for: {}", resource.getPath());
 
+        final AgentBaseUris baseUris = checkAgentBaseUris();
+
         // Get the effective ACL by searching the target node and any ancestors.
-        final Optional<ACLHandle> effectiveAcl = getEffectiveAcl(resource, false, sessionFactory);
+        final Optional<ACLHandle> effectiveAcl = getEffectiveAcl(resource);
 
         // Construct a list of acceptable acl:accessTo values for the target resource.
         final List<String> resourcePaths = new ArrayList<>();
@@ -159,7 +225,7 @@ public class WebACRolesProvider {
         // Read the effective Acl and return a list of acl:Authorization statements
         final List<WebACAuthorization> authorizations = effectiveAcl
                 .map(auth -> auth.authorizations)
-                .orElseGet(() -> getDefaultAuthorizations());
+                .orElseGet(() -> getDefaultAuthorizations(baseUris));
 
         // Filter the acl:Authorization statements so that they correspond only to statements that apply to
         // the target (or acl-bearing ancestor) resource path or rdf:type.
@@ -169,7 +235,9 @@ public class WebACRolesProvider {
         authorizations.stream()
                       .filter(checkAccessTo.or(checkAccessToClass))
                       .forEach(auth -> {
-                          concat(auth.getAgents().stream(), dereferenceAgentGroups(auth.getAgentGroups()).stream())
+                          concat(auth.getAgents().stream(),
+                                 dereferenceAgentGroups(auth.getAgentGroups(), agents, baseUris).stream())
+                              .filter(accepted)
                               .filter(agent -> !agent.equals(FOAF_AGENT_VALUE) &&
                                                !agent.equals(WEBAC_AUTHENTICATED_AGENT_VALUE))
                               .forEach(agent -> {
@@ -179,6 +247,7 @@ public class WebACRolesProvider {
                           auth.getAgentClasses().stream().filter(agentClass -> agentClass.equals(FOAF_AGENT_VALUE) ||
                                                                                agentClass.equals(
                                                                                    WEBAC_AUTHENTICATED_AGENT_VALUE))
+                              .filter(accepted)
                               .forEach(agentClass -> {
                                   effectiveRoles.computeIfAbsent(agentClass, key -> new HashSet<>())
                                                 .addAll(auth.getModes().stream().map(URI::toString).collect(toSet()));
@@ -190,6 +259,22 @@ public class WebACRolesProvider {
         return effectiveRoles;
     }
 
+    /**
+     * Cached authorizations and groups include agent values derived from the configured agent base URIs, so they
+     * must be discarded if those change.
+     *
+     * @return the current agent base URIs
+     */
+    private AgentBaseUris checkAgentBaseUris() {
+        final AgentBaseUris baseUris = AgentBaseUris.current();
+        if (!baseUris.equals(agentBaseUris)) {
+            LOGGER.info("Agent base URIs changed, discarding cached WebAC authorizations");
+            agentBaseUris = baseUris;
+            authorizationCache.invalidateAll();
+        }
+        return baseUris;
+    }
+
     /**
      * Given a path (e.g. /a/b/c/d) retrieve a list of all ancestor paths.
      * In this case, that would be a list of "/a/b/c", "/a/b", "/a" and "/".
@@ -218,25 +303,27 @@ public class WebACRolesProvider {
         uris.stream().anyMatch(uri -> auth.getAccessToURIs().contains(uri));
 
     /**
-     *  This maps a Collection of acl:agentGroup values to a List of agents.
+     *  This maps a Collection of acl:agentGroup values to a List of agents: all of their members, or if the agents
+     *  of interest are given, those of them that are members.
      *  Any out-of-domain URIs are silently ignored.
      */
-    private List<String> dereferenceAgentGroups(final Collection<String> agentGroups) {
-        final FedoraSession internalSession = sessionFactory.getInternalSession();
-        final IdentifierConverter<Resource, FedoraResource> translator =
-                new DefaultIdentifierTranslator(getJcrSession(internalSession));
-
+    private List<String> dereferenceAgentGroups(final Collection<String> agentGroups, final Set<String> agents,
+                                                final AgentBaseUris baseUris) {
         final List<String> members = agentGroups.stream().flatMap(agentGroup -> {
             if (agentGroup.startsWith(FEDORA_INTERNAL_PREFIX)) {
-                //strip off trailing hash.
+                //split off trailing hash.
                 final int hashIndex = agentGroup.indexOf("#");
                 final String agentGroupNoHash = hashIndex > 0 ?
                                          agentGroup.substring(0, hashIndex) :
                                          agentGroup;
-                final String hashedSuffix = hashIndex > 0 ? agentGroup.substring(hashIndex) : null;
-                final FedoraResource resource = nodeService.find(
-                    internalSession, agentGroupNoHash.substring(FEDORA_INTERNAL_PREFIX.length()));
-                return getAgentMembers(translator, resource, hashedSuffix);
+                final String hashedSuffix = hashIndex > 0 ? agentGroup.substring(hashIndex) : "";
+                final String path = agentGroupNoHash.substring(FEDORA_INTERNAL_PREFIX.length());
+                final WebACGroupMembership groups =
+                    authorizationCache.getGroupMembership(path, () -> readGroupMembers(path, baseUris));
+                if (agents == null) {
+                    return groups.getMembers(hashedSuffix).stream();
+                }
+                return agents.stream().filter(agent -> groups.getGroups(agent).contains(hashedSuffix));
             } else if (agentGroup.equals(FOAF_AGENT_VALUE)) {
                 return of(agentGroup);
             } else {
@@ -253,32 +340,61 @@ public class WebACRolesProvider {
     }
 
     /**
-     * Given a FedoraResource, return a list of agents.
+     * Read the members of each vcard:Group described by a resource: the resource itself (keyed by "") and each of
+     * its hash-URI fragments (keyed by "#name").  A group only has members if it has rdf:type vcard:Group.
      */
-    private static Stream<String> getAgentMembers(final IdentifierConverter<Resource, FedoraResource> translator,
-                                                  final FedoraResource resource, final String hashPortion) {
+    private WebACGroupMembership readGroupMembers(final String path, final AgentBaseUris baseUris) {
+        final List<Triple> triples;
+        try (final SessionPool.Lease lease = sessionFactory.leaseInternalSession()) {
+            final FedoraSession internalSession = lease.getSession();
+            final IdentifierConverter<Resource, FedoraResource> translator =
+                    new DefaultIdentifierTranslator(getJcrSession(internalSession));
+            final FedoraResource resource = nodeService.find(internalSession, path);
+            triples = resource.getTriples(translator, PROPERTIES).collect(toList());
+        }
+        final Set<String> fragments = new HashSet<>();
+        fragments.add("");
+        triples.stream().map(Triple::getSubject).filter(org.apache.jena.graph.Node::isURI)
+               .map(org.apache.jena.graph.Node::getURI).filter(uri -> uri.indexOf('#') > 0)
+               .forEach(uri -> fragments.add(uri.substring(uri.indexOf('#'))));
+
+        final Map<String, Set<String>> groups = new HashMap<>();
+        fragments.forEach(fragment -> {
+            final Set<String> members = getAgentMembers(triples, fragment, baseUris);
+            if (!members.isEmpty()) {
+                groups.put(fragment, members);
+            }
+        });
+        LOGGER.debug("Read {} groups from {}", groups.size(), path);
+        return new WebACGroupMembership(groups);
+    }
 
-        //resolve list of triples, accounting for hash-uris.
-        final List<Triple> triples = resource.getTriples(translator, PROPERTIES).filter(
-            triple -> hashPortion == null || triple.getSubject().getURI().endsWith(hashPortion)).collect(toList());
+    /**
+     * Given the triples of a group resource, return the set of agents in the group with the given fragment.
+     */
+    private static Set<String> getAgentMembers(final List<Triple> resourceTriples, final String hashPortion,
+                                               final AgentBaseUris baseUris) {
+
+        //select the triples, accounting for hash-uris.
+        final List<Triple> triples = resourceTriples.stream().filter(
+            triple -> hashPortion.isEmpty() || triple.getSubject().getURI().endsWith(hashPortion)).collect(toList());
         //determine if there is a rdf:type vcard:Group
         final boolean hasVcardGroup = triples.stream().anyMatch(
             triple -> triple.matches(triple.getSubject(), RDF_TYPE_NODE, VCARD_GROUP_NODE));
         //return members only if there is an associated vcard:Group
         if (hasVcardGroup) {
-            return triples.stream()
+            return unmodifiableSet(triples.stream()
                           .filter(triple -> triple.predicateMatches(VCARD_MEMBER_NODE))
                           .map(Triple::getObject).flatMap(WebACRolesProvider::nodeToStringStream)
-                                                 .map(WebACRolesProvider::stripUserAgentBaseURI);
+                          .map(member -> stripUserAgentBaseURI(member, baseUris)).collect(toSet()));
         } else {
-            return empty();
+            return emptySet();
         }
     }
 
-    private static String stripUserAgentBaseURI(final String object) {
-        final String userBaseUri = System.getProperty(USER_AGENT_BASE_URI_PROPERTY);
-        if (userBaseUri != null && object.startsWith(userBaseUri)) {
-            return object.substring(userBaseUri.length());
+    private static String stripUserAgentBaseURI(final String object, final AgentBaseUris baseUris) {
+        if (baseUris.user != null && object.startsWith(baseUris.user)) {
+            return object.substring(baseUris.user.length());
         }
         return object;
     }
@@ -304,34 +420,63 @@ public class WebACRolesProvider {
     private static final Predicate<Triple> hasAclPredicate = triple ->
         triple.getPredicate().getNameSpace().equals(WEBAC_NAMESPACE_VALUE);
 
+    /**
+     * Get the acl:Authorizations that apply by way of the ACL of the given resource, consulting the authorization
+     * cache before reading the ACL itself.
+     *
+     * @param path the path of the ACL-bearing resource
+     * @param aclResource supplies the ACL resource, if it must be read
+     * @param ancestorAcl flag indicating whether or not the ACL resource associated with an ancestor of the target
+     *                    resource
+     * @return a list of acl:Authorization objects
+     */
+    private List<WebACAuthorization> getAuthorizations(final String path, final Supplier<FedoraResource> aclResource,
+                                                       final boolean ancestorAcl) {
+        final List<WebACAuthorization> authorizations =
+            authorizationCache.getAuthorizations(path,
+                () -> readAuthorizations(aclResource.get(), sessionFactory, agentBaseUris));
+        //only include authorizations if the acl resource is not an ancestor acl
+        //or the authorization has at least one acl:default
+        if (!ancestorAcl) {
+            return authorizations;
+        }
+        return authorizations.stream().filter(authorization -> authorization.getDefaults().size() > 0)
+                             .collect(toList());
+    }
+
     /**
      * This function reads a Fedora ACL resource and all of its acl:Authorization children.
      * The RDF from each child resource is put into a WebACAuthorization object, and the
      * full list is returned.
      *
      * @param aclResource the ACL resource
-     * @param ancestorAcl flag indicating whether or not the ACL resource associated with an ancestor of the target
-     *                    resource
      * @param sessionFactory the session factory
+     * @param baseUris the agent base URIs
      * @return a list of acl:Authorization objects
      */
-    private static List<WebACAuthorization> getAuthorizations(final FedoraResource aclResource,
-                                                              final boolean ancestorAcl,
-                                                              final SessionFactory sessionFactory) {
+    private static List<WebACAuthorization> readAuthorizations(final FedoraResource aclResource,
+                                                               final SessionFactory sessionFactory,
+                                                               final AgentBaseUris baseUris) {
 
-        final FedoraSession internalSession = sessionFactory.getInternalSession();
         final List<WebACAuthorization> authorizations = new ArrayList<>();
-        final IdentifierConverter<Resource, FedoraResource> translator =
-                new DefaultIdentifierTranslator(getJcrSession(internalSession));
+
+        if (aclResource == null) {
+            return authorizations;
+        }
 
         if (LOGGER.isDebugEnabled()) {
             LOGGER.debug("ACL: {}", aclResource.getPath());
         }
 
         if (aclResource.isAcl()) {
-            //resolve set of subjects that are of type acl:authorization
-            final List<Triple> triples = aclResource.getTriples(translator, PROPERTIES).collect(toList());
+            final List<Triple> triples;
+            try (final SessionPool.Lease lease = sessionFactory.leaseInternalSession()) {
+                final IdentifierConverter<Resource, FedoraResource> translator =
+                        new DefaultIdentifierTranslator(getJcrSession(lease.getSession()));
+                triples = aclResource.getTriples(translator, PROPERTIES).collect(toList());
+            }
 
+            //resolve set of subjects that are of type acl:authorization
             final Set<org.apache.jena.graph.Node> authSubjects = triples.stream().filter(t -> {
                 return t.getPredicate().getURI().equals(RDF_NAMESPACE + "type") &&
                        t.getObject().getURI().equals(WEBAC_AUTHORIZATION_VALUE);
@@ -350,7 +495,7 @@ public class WebACRolesProvider {
                                                                                    key -> new ArrayList<>());
                             nodeToStringStream(triple.getObject()).forEach(values::add);
                             if (predicate.equals(WEBAC_AGENT_VALUE)) {
-                                additionalAgentValues(triple.getObject()).forEach(values::add);
+                                additionalAgentValues(triple.getObject(), baseUris).forEach(values::add);
                             }
                         }
                     });
@@ -358,14 +503,7 @@ public class WebACRolesProvider {
             if (LOGGER.isDebugEnabled()) {
                 LOGGER.debug("Adding acl:Authorization from {}", aclResource.getPath());
             }
-            authMap.values().forEach(aclTriples -> {
-                final WebACAuthorization authorization = createAuthorizationFromMap(aclTriples);
-                //only include authorizations if the acl resource is not an ancestor acl
-                //or the authorization has at least one acl:default
-                if (!ancestorAcl || authorization.getDefaults().size() > 0) {
-                    authorizations.add(authorization);
-                }
-            });
+            authMap.values().forEach(aclTriples -> authorizations.add(createAuthorizationFromMap(aclTriples)));
         }
 
         return authorizations;
@@ -384,23 +522,21 @@ public class WebACRolesProvider {
     }
 
     /**
-     * Recursively find the effective ACL as a URI along with the FedoraResource that points to it.
+     * Find the effective ACL as a URI along with the FedoraResource that points to it.
      * This way, if the effective ACL is pointed to from a parent resource, the child will inherit
      * any permissions that correspond to access to that parent. This ACL resource may or may not exist,
      * and it may be external to the fedora repository.
      * @param resource the Fedora resource
-     * @param ancestorAcl the flag for looking up ACL from ancestor hierarchy resources
-     * @param sessionFactory session factory
+     * @return the effective ACL, or empty if no ACL is defined on the resource or in its parent hierarchy
      */
-    static Optional<ACLHandle> getEffectiveAcl(final FedoraResource resource, final boolean ancestorAcl,
-                                                final SessionFactory sessionFactory) {
+    Optional<ACLHandle> getEffectiveAcl(final FedoraResource resource) {
         try {
 
             final FedoraResource aclResource = resource.getAcl();
 
             if (aclResource != null) {
                 final List<WebACAuthorization> authorizations =
-                    getAuthorizations(aclResource, ancestorAcl, sessionFactory);
+                    getAuthorizations(aclBearingPath(aclResource), () -> aclResource, false);
                 if (authorizations.size() > 0) {
                     return Optional.of(
                         new ACLHandle(resource, authorizations));
@@ -412,15 +548,72 @@ public class WebACRolesProvider {
                 return Optional.empty();
             } else {
                 LOGGER.trace("Checking parent resource for ACL. No ACL found at {}", resource.getPath());
-                return getEffectiveAcl(resource.getContainer(), true, sessionFactory);
+                return getInheritedAcl(resource.getContainer());
             }
-        } catch (final RepositoryException ex) {
+        } catch (final RepositoryException | RepositoryRuntimeException ex) {
             LOGGER.debug("Exception finding effective ACL: {}", ex.getMessage());
             return Optional.empty();
         }
     }
 
-    private static List<WebACAuthorization> getDefaultAuthorizations() {
+    /**
+     * Find the ACL inherited by the children of the given resource, using the cached pointer to the nearest
+     * ACL-bearing resource with acl:default authorizations where possible.
+     */
+    private Optional<ACLHandle> getInheritedAcl(final FedoraResource resource) {
+        return authorizationCache.getInheritedAcl(resource.getPath(), () -> findInheritedAcl(resource))
+            .flatMap(path -> {
+                // the ACL handle outlives this call, so the resource bearing the ACL, which is the given resource or
+                // one of its ancestors, is read through the session of the given resource rather than a new one
+                FedoraResource aclBearer = resource;
+                while (aclBearer != null && !aclBearer.getPath().equals(path)) {
+                    aclBearer = aclBearer.getContainer();
+                }
+                if (aclBearer == null) {
+                    return Optional.empty();
+                }
+                final FedoraResource bearer = aclBearer;
+                return Optional.of(new ACLHandle(bearer, getAuthorizations(path, bearer::getAcl, true)));
+            });
+    }
+
+    /**
+     * Recursively find the path of the nearest resource, starting with the given one, whose ACL has any
+     * acl:default authorizations.
+     */
+    private Optional<String> findInheritedAcl(final FedoraResource resource) {
+        try {
+            final FedoraResource aclResource = resource.getAcl();
+
+            if (aclResource != null &&
+                    getAuthorizations(aclBearingPath(aclResource), () -> aclResource, true).size() > 0) {
+                return Optional.of(resource.getPath());
+            }
+
+            if (getJcrNode(resource).getDepth() == 0) {
+                LOGGER.debug("No ACLs defined on this node or in parent hierarchy");
+                return Optional.empty();
+            } else {
+                LOGGER.trace("Checking parent resource for ACL. No ACL found at {}", resource.getPath());
+                final FedoraResource container = resource.getContainer();
+                return authorizationCache.getInheritedAcl(container.getPath(), () -> findInheritedAcl(container));
+            }
+        } catch (final RepositoryException ex) {
+            throw new RepositoryRuntimeException(ex);
+        }
+    }
+
+    /**
+     * @param aclResource an ACL resource
+     * @return the path of the resource bearing the ACL
+     */
+    private static String aclBearingPath(final FedoraResource aclResource) {
+        final String path = aclResource.getPath();
+        final int index = path.lastIndexOf('/');
+        return index > 0 ? path.substring(0, index) : "/";
+    }
+
+    private static List<WebACAuthorization> getDefaultAuthorizations(final AgentBaseUris baseUris) {
         final Map<String, List<String>> aclTriples = new HashMap<>();
         final List<WebACAuthorization> authorizations = new ArrayList<>();
 
@@ -431,7 +624,7 @@ public class WebACRolesProvider {
                     key -> new ArrayList<>());
                 nodeToStringStream(triple.getObject()).forEach(values::add);
                 if (predicate.equals(WEBAC_AGENT_VALUE)) {
-                    additionalAgentValues(triple.getObject()).forEach(values::add);
+                    additionalAgentValues(triple.getObject(), baseUris).forEach(values::add);
                 }
             }
         });
@@ -440,9 +633,10 @@ public class WebACRolesProvider {
         return authorizations;
     }
 
-    private static Stream<String> additionalAgentValues(final org.apache.jena.graph.Node object) {
-        final String groupBaseUri = System.getProperty(GROUP_AGENT_BASE_URI_PROPERTY);
-        final String userBaseUri = System.getProperty(USER_AGENT_BASE_URI_PROPERTY);
+    private static Stream<String> additionalAgentValues(final org.apache.jena.graph.Node object,
+                                                        final AgentBaseUris baseUris) {
+        final String groupBaseUri = baseUris.group;
+        final String userBaseUri = baseUris.user;
 
         if (object.isURI()) {
             final String uri = object.getURI();
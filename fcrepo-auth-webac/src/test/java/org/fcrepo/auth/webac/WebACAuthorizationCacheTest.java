@@ -0,0 +1,199 @@
+/*
+ * Licensed to DuraSpace under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * DuraSpace licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.auth.webac;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.emptySet;
+import static java.util.Collections.singleton;
+import static org.fcrepo.kernel.api.observer.EventType.RESOURCE_CREATION;
+import static org.fcrepo.kernel.api.observer.EventType.RESOURCE_DELETION;
+import static org.fcrepo.kernel.api.observer.EventType.RESOURCE_MODIFICATION;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.when;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.fcrepo.kernel.api.observer.FedoraEvent;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+/**
+ * @author rdfloyd
+ */
+@RunWith(MockitoJUnitRunner.Silent.class)
+public class WebACAuthorizationCacheTest {
+
+    @Mock
+    private FedoraEvent mockEvent;
+
+    private WebACAuthorizationCache cache;
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Before
+    public void setUp() {
+        cache = new WebACAuthorizationCache(100, 600);
+        loads.set(0);
+    }
+
+    private List<WebACAuthorization> loadAuthorizations() {
+        loads.incrementAndGet();
+        return emptyList();
+    }
+
+    private Optional<String> loadInheritedAcl(final String path) {
+        loads.incrementAndGet();
+        return Optional.of(path);
+    }
+
+    @Test
+    public void testCachedAuthorizations() {
+        cache.getAuthorizations("/a", this::loadAuthorizations);
+        cache.getAuthorizations("/a", this::loadAuthorizations);
+        assertEquals("Authorizations should only be loaded once", 1, loads.get());
+        assertEquals(1, cache.getAuthorizationStats().hitCount());
+        assertEquals(1, cache.getAuthorizationStats().missCount());
+    }
+
+    @Test
+    public void testAclChangeInvalidatesDescendants() {
+        cache.getAuthorizations("/a", this::loadAuthorizations);
+        cache.getInheritedAcl("/a/b/c", () -> loadInheritedAcl("/a"));
+        cache.getInheritedAcl("/d", () -> loadInheritedAcl("/"));
+
+        when(mockEvent.getPath()).thenReturn("/a/fedora:acl/#/authz");
+        when(mockEvent.getTypes()).thenReturn(singleton(RESOURCE_MODIFICATION));
+        cache.onEvent(mockEvent);
+
+        cache.getAuthorizations("/a", this::loadAuthorizations);
+        cache.getInheritedAcl("/a/b/c", () -> loadInheritedAcl("/a"));
+        cache.getInheritedAcl("/d", () -> loadInheritedAcl("/"));
+        assertEquals("Only entries at or below /a should be reloaded", 5, loads.get());
+    }
+
+    @Test
+    public void testRootAclChangeInvalidatesEverything() {
+        cache.getInheritedAcl("/a/b/c", () -> loadInheritedAcl("/"));
+        cache.getInheritedAcl("/d", () -> loadInheritedAcl("/"));
+
+        cache.invalidate("/fedora:acl");
+
+        cache.getInheritedAcl("/a/b/c", () -> loadInheritedAcl("/"));
+        cache.getInheritedAcl("/d", () -> loadInheritedAcl("/"));
+        assertEquals(4, loads.get());
+    }
+
+    @Test
+    public void testDeletionInvalidatesSubtree() {
+        cache.getAuthorizations("/a/b", this::loadAuthorizations);
+        when(mockEvent.getPath()).thenReturn("/a");
+        when(mockEvent.getTypes()).thenReturn(singleton(RESOURCE_DELETION));
+        cache.onEvent(mockEvent);
+
+        cache.getAuthorizations("/a/b", this::loadAuthorizations);
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void testUnrelatedEventsAreIgnored() {
+        cache.getAuthorizations("/a", this::loadAuthorizations);
+        when(mockEvent.getPath()).thenReturn("/a");
+        when(mockEvent.getTypes()).thenReturn(singleton(RESOURCE_MODIFICATION));
+        cache.onEvent(mockEvent);
+        when(mockEvent.getPath()).thenReturn("/a/fedora:aclx");
+        when(mockEvent.getTypes()).thenReturn(singleton(RESOURCE_CREATION));
+        cache.onEvent(mockEvent);
+
+        cache.getAuthorizations("/a", this::loadAuthorizations);
+        assertEquals(1, loads.get());
+    }
+
+    private WebACGroupMembership loadGroups() {
+        loads.incrementAndGet();
+        final Map<String, Set<String>> groups = new HashMap<>();
+        groups.put("", new HashSet<>(asList("alice", "bob")));
+        groups.put("#admins", singleton("alice"));
+        return new WebACGroupMembership(groups);
+    }
+
+    @Test
+    public void testGroupMembers() {
+        cache.getGroupMembership("/groups/g", this::loadGroups);
+        final WebACGroupMembership groups = cache.getGroupMembership("/groups/g", this::loadGroups);
+        assertEquals("Groups should only be loaded once", 1, loads.get());
+        assertEquals(new HashSet<>(asList("alice", "bob")), groups.getMembers(""));
+        assertEquals(singleton("alice"), groups.getMembers("#admins"));
+        assertEquals(new HashSet<>(asList("", "#admins")), groups.getGroups("alice"));
+        assertEquals(singleton(""), groups.getGroups("bob"));
+        assertEquals(emptySet(), groups.getGroups("carol"));
+    }
+
+    @Test
+    public void testGroupChangeInvalidatesGroup() {
+        cache.getGroupMembership("/groups/g", this::loadGroups);
+        cache.getAuthorizations("/groups", this::loadAuthorizations);
+
+        when(mockEvent.getPath()).thenReturn("/groups/g#admins");
+        when(mockEvent.getTypes()).thenReturn(singleton(RESOURCE_MODIFICATION));
+        cache.onEvent(mockEvent);
+
+        cache.getGroupMembership("/groups/g", this::loadGroups);
+        cache.getAuthorizations("/groups", this::loadAuthorizations);
+        assertEquals("Only the group should be reloaded", 3, loads.get());
+    }
+
+    @Test
+    public void testEvictedInvalidation() {
+        cache = new WebACAuthorizationCache(2, 600);
+        cache.getAuthorizations("/a/b", this::loadAuthorizations);
+        cache.invalidate("/a");
+        for (int i = 0; i < 10; i++) {
+            cache.invalidate("/other/" + i);
+        }
+        cache.getAuthorizations("/a/b", this::loadAuthorizations);
+        assertEquals("An entry older than an evicted invalidation should be reloaded", 2, loads.get());
+    }
+
+    @Test
+    public void testInvalidationDuringLoad() {
+        // an invalidation that happens while an entry is being computed must not leave a stale entry behind
+        final AtomicBoolean invalidated = new AtomicBoolean();
+        cache.getAuthorizations("/a", () -> {
+            if (!invalidated.getAndSet(true)) {
+                cache.invalidate("/a/fedora:acl");
+            }
+            return loadAuthorizations();
+        });
+        assertEquals("The stale value should have been recomputed", 2, loads.get());
+
+        cache.getAuthorizations("/a", this::loadAuthorizations);
+        cache.getAuthorizations("/a", this::loadAuthorizations);
+        assertEquals(3, loads.get());
+    }
+}
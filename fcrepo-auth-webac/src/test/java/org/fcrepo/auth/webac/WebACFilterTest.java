@@ -17,8 +17,11 @@
  */
 package org.fcrepo.auth.webac;
 
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static javax.servlet.http.HttpServletResponse.SC_FORBIDDEN;
 import static javax.servlet.http.HttpServletResponse.SC_OK;
+import static javax.servlet.http.HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE;
 import static org.apache.jena.riot.WebContent.contentTypeSPARQLUpdate;
 import static org.fcrepo.auth.common.ServletContainerAuthFilter.FEDORA_ADMIN_ROLE;
 import static org.fcrepo.auth.common.ServletContainerAuthFilter.FEDORA_USER_ROLE;
@@ -28,6 +31,7 @@ import static org.fcrepo.auth.webac.URIConstants.WEBAC_MODE_READ;
 import static org.fcrepo.auth.webac.URIConstants.WEBAC_MODE_WRITE;
 import static org.fcrepo.kernel.api.FedoraTypes.FEDORA_BINARY;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
 import static org.mockito.Mockito.when;
 
 import java.io.IOException;
@@ -35,10 +39,12 @@ import java.net.URI;
 
 import javax.servlet.ServletException;
 
+import org.apache.commons.io.IOUtils;
 import org.apache.shiro.SecurityUtils;
 import org.apache.shiro.mgt.SecurityManager;
 import org.apache.shiro.subject.Subject;
 import org.apache.shiro.subject.support.SubjectThreadState;
+import org.fcrepo.http.commons.domain.SparqlUpdateBody;
 import org.fcrepo.http.commons.session.SessionFactory;
 import org.fcrepo.kernel.api.FedoraSession;
 import org.fcrepo.kernel.api.models.FedoraResource;
@@ -47,7 +53,9 @@ import org.fcrepo.kernel.modeshape.ContainerImpl;
 import org.fcrepo.kernel.modeshape.FedoraBinaryImpl;
 import org.junit.After;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.contrib.java.lang.system.RestoreSystemProperties;
 import org.junit.runner.RunWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
@@ -86,6 +94,9 @@ public class WebACFilterTest {
     @Mock
     private NodeService mockNodeService;
 
+    @Mock
+    private WebACAuthorizationCache mockAuthorizationCache;
+
     private FedoraSession mockFedoraSession;
 
     private FedoraResource mockContainer;
@@ -112,6 +123,9 @@ public class WebACFilterTest {
 
     private MockHttpServletRequest request;
 
+    @Rule
+    public final RestoreSystemProperties restoreSystemProperties = new RestoreSystemProperties();
+
     private MockHttpServletResponse response;
 
     private MockFilterChain filterChain;
@@ -496,6 +510,58 @@ public class WebACFilterTest {
         assertEquals(SC_OK, response.getStatus());
     }
 
+    @Test
+    public void testAuthUserReadAppendPatchSparqlShared() throws ServletException, IOException {
+        setupAuthUserReadAppend();
+        // the body read and parsed by the filter is passed on to the resource
+        final String updateString =
+                "INSERT { <> <http://purl.org/dc/elements/1.1/title> \"new title\" } WHERE { }";
+        request.setContentType(contentTypeSPARQLUpdate);
+        request.setContent(updateString.getBytes());
+        request.setRequestURI(testPath);
+        request.setMethod("PATCH");
+        webacFilter.doFilter(request, response, filterChain);
+        assertEquals(SC_OK, response.getStatus());
+
+        final SparqlUpdateBody body = SparqlUpdateBody.fromRequest(filterChain.getRequest()).get();
+        assertEquals(updateString, body.getBody());
+        assertNotNull(body.getParsed(request.getRequestURL().toString()));
+        assertEquals(updateString, IOUtils.toString(filterChain.getRequest().getInputStream(), UTF_8));
+    }
+
+    @Test
+    public void testAuthUserReadAppendPatchSparqlCharacterEncoding() throws ServletException, IOException {
+        setupAuthUserReadAppend();
+        // the body is decoded with the character encoding of the request
+        final String updateString =
+                "INSERT { <> <http://purl.org/dc/elements/1.1/title> \"caf\u00e9\" } WHERE { }";
+        request.setContentType(contentTypeSPARQLUpdate);
+        request.setCharacterEncoding(ISO_8859_1.name());
+        request.setContent(updateString.getBytes(ISO_8859_1));
+        request.setRequestURI(testPath);
+        request.setMethod("PATCH");
+        webacFilter.doFilter(request, response, filterChain);
+        assertEquals(SC_OK, response.getStatus());
+
+        assertEquals(updateString, SparqlUpdateBody.fromRequest(filterChain.getRequest()).get().getBody());
+        assertEquals(updateString, IOUtils.toString(filterChain.getRequest().getInputStream(), ISO_8859_1));
+    }
+
+    @Test
+    public void testAuthUserReadAppendPatchSparqlTooLarge() throws ServletException, IOException {
+        setupAuthUserReadAppend();
+        // PATCH (Sparql larger than the limit) => 413
+        System.setProperty(SparqlUpdateBody.MAX_SIZE_PROPERTY, "16");
+        final String updateString =
+                "INSERT { <> <http://purl.org/dc/elements/1.1/title> \"new title\" } WHERE { }";
+        request.setContentType(contentTypeSPARQLUpdate);
+        request.setContent(updateString.getBytes());
+        request.setRequestURI(testPath);
+        request.setMethod("PATCH");
+        webacFilter.doFilter(request, response, filterChain);
+        assertEquals(SC_REQUEST_ENTITY_TOO_LARGE, response.getStatus());
+    }
+
     @Test
     public void testAuthUserReadAppendPatchSparqlDelete() throws ServletException, IOException {
         setupAuthUserReadAppend();
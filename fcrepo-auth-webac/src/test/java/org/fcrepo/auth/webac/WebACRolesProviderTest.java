@@ -17,6 +17,8 @@
  */
 package org.fcrepo.auth.webac;
 
+import static java.util.Arrays.asList;
+import static java.util.Collections.singleton;
 import static java.util.Collections.singletonList;
 import static org.apache.jena.graph.NodeFactory.createURI;
 import static org.apache.jena.rdf.model.ModelFactory.createDefaultModel;
@@ -28,11 +30,14 @@ import static org.fcrepo.auth.webac.URIConstants.WEBAC_MODE_WRITE_VALUE;
 import static org.fcrepo.http.api.FedoraAcl.ROOT_AUTHORIZATION_PROPERTY;
 import static org.fcrepo.kernel.api.RdfLexicon.REPOSITORY_NAMESPACE;
 import static org.fcrepo.kernel.api.RequiredRdfContext.PROPERTIES;
+import static org.fcrepo.kernel.api.observer.EventType.RESOURCE_MODIFICATION;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.anyObject;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.util.ReflectionTestUtils.setField;
 
@@ -53,10 +58,12 @@ import org.apache.jena.riot.RDFDataMgr;
 import org.fcrepo.http.commons.session.SessionFactory;
 import org.fcrepo.kernel.api.RdfStream;
 import org.fcrepo.kernel.api.models.FedoraResource;
+import org.fcrepo.kernel.api.observer.FedoraEvent;
 import org.fcrepo.kernel.api.rdf.DefaultRdfStream;
 import org.fcrepo.kernel.api.services.NodeService;
 import org.fcrepo.kernel.modeshape.FedoraResourceImpl;
 import org.fcrepo.kernel.modeshape.FedoraSessionImpl;
+import org.fcrepo.kernel.modeshape.SessionPool;
 import org.fcrepo.kernel.modeshape.identifiers.NodeResourceConverter;
 import org.junit.Before;
 import org.junit.Rule;
@@ -75,6 +82,8 @@ public class WebACRolesProviderTest {
 
     private WebACRolesProvider roleProvider;
 
+    private WebACAuthorizationCache authorizationCache;
+
     private static final String FEDORA_PREFIX = "info:fedora";
     private static final String FEDORA_URI_PREFIX = "file:///rest";
 
@@ -87,6 +96,9 @@ public class WebACRolesProviderTest {
     @Mock
     private SessionFactory mockSessionFactory;
 
+    @Mock
+    private SessionPool.Lease mockLease;
+
     @Mock
     private Session mockJcrSession;
 
@@ -108,6 +120,9 @@ public class WebACRolesProviderTest {
     @Mock
     private Property mockProperty;
 
+    @Mock
+    private FedoraEvent mockEvent;
+
     @Rule
     public final RestoreSystemProperties restoreSystemProperties = new RestoreSystemProperties();
 
@@ -118,9 +133,13 @@ public class WebACRolesProviderTest {
         setField(roleProvider, "nodeService", mockNodeService);
         setField(roleProvider, "sessionFactory", mockSessionFactory);
         setField(roleProvider, "nodeConverter", mockNodeConverter);
+        authorizationCache = new WebACAuthorizationCache(100, 600);
+        setField(roleProvider, "authorizationCache", authorizationCache);
 
         when(mockNode.getSession()).thenReturn(mockJcrSession);
         when(mockSessionFactory.getInternalSession()).thenReturn(mockSession);
+        when(mockSessionFactory.leaseInternalSession()).thenReturn(mockLease);
+        when(mockLease.getSession()).thenReturn(mockSession);
         when(mockSession.getJcrSession()).thenReturn(mockJcrSession);
 
         when(mockNodeConverter.convert(mockNode)).thenReturn(mockResource);
@@ -155,6 +174,7 @@ public class WebACRolesProviderTest {
         when(mockResource.getOriginalResource()).thenReturn(mockResource);
         when(mockNode.getDepth()).thenReturn(1);
 
+        when(mockParentResource.getPath()).thenReturn("/dark/archive");
         when(mockParentResource.getNode()).thenReturn(mockParentNode);
         when(mockParentResource.getOriginalResource()).thenReturn(mockParentResource);
         when(mockParentNode.getDepth()).thenReturn(0);
@@ -268,6 +288,34 @@ public class WebACRolesProviderTest {
         assertTrue("The agent should be able to write", roles.get(agent).contains(WEBAC_MODE_WRITE_VALUE));
     }
 
+    @Test
+    public void acl01CachedTest() throws RepositoryException {
+        final String agent = "user01";
+        final String accessTo = "/webacl_box1";
+        final String acl = "/acls/01/acl.ttl";
+
+        when(mockNode.getPath()).thenReturn(accessTo);
+        when(mockAclNode.getPath()).thenReturn(acl);
+        when(mockResource.getAcl()).thenReturn(mockAclResource);
+        when(mockResource.getPath()).thenReturn(accessTo);
+        when(mockResource.getOriginalResource()).thenReturn(mockResource);
+        when(mockAclResource.getTriples(anyObject(), eq(PROPERTIES)))
+            .thenAnswer(invocation -> getRdfStreamFromResource(acl, TTL));
+        when(mockAclResource.isAcl()).thenReturn(true);
+        when(mockAclResource.getPath()).thenReturn(accessTo + "/fedora:acl");
+
+        roleProvider.getRoles(mockNode);
+        final Map<String, Collection<String>> roles = roleProvider.getRoles(mockNode);
+
+        assertEquals("The agent should have exactly two modes", 2, roles.get(agent).size());
+        verify(mockAclResource, times(1)).getTriples(anyObject(), eq(PROPERTIES));
+        assertEquals(1, authorizationCache.getAuthorizationStats().hitCount());
+
+        authorizationCache.invalidate(accessTo + "/fedora:acl");
+        roleProvider.getRoles(mockNode);
+        verify(mockAclResource, times(2)).getTriples(anyObject(), eq(PROPERTIES));
+    }
+
     @Test
     public void acl01Test2() throws RepositoryException {
         final String accessTo = "/webacl_box2";
@@ -541,6 +589,70 @@ public class WebACRolesProviderTest {
         assertTrue("The agent should be able to write", roles.get(agent1).contains(WEBAC_MODE_WRITE_VALUE));
     }
 
+    @Test
+    public void acl09CachedGroupTest() throws RepositoryException {
+        final String accessTo = "/anotherCollection";
+
+        final String groupResource = "/group/foo";
+        final String acl = "/acls/09/acl.ttl";
+        final String group = "/acls/09/group.ttl";
+
+        when(mockNodeService.find(mockSession, groupResource)).thenReturn(mockAgentClassResource);
+        when(mockResource.getAcl()).thenReturn(mockAclResource);
+        when(mockResource.getPath()).thenReturn(accessTo);
+        when(mockResource.getOriginalResource()).thenReturn(mockResource);
+        when(mockAclResource.getTriples(anyObject(), eq(PROPERTIES)))
+            .thenAnswer(invocation -> getRdfStreamFromResource(acl, TTL));
+        when(mockAclResource.isAcl()).thenReturn(true);
+        when(mockAclResource.getPath()).thenReturn(accessTo + "/fedora:acl");
+
+        when(mockAgentClassResource.getPath()).thenReturn(groupResource);
+        when(mockAgentClassResource.getTriples(anyObject(), eq(PROPERTIES)))
+                .thenAnswer(invocation -> getRdfStreamFromResource(group, TTL));
+
+        roleProvider.getRoles(mockNode);
+        final Map<String, Collection<String>> roles = roleProvider.getRoles(mockNode);
+
+        assertEquals("The group member should have two modes", 2, roles.get("person2").size());
+        verify(mockAgentClassResource, times(1)).getTriples(anyObject(), eq(PROPERTIES));
+
+        when(mockEvent.getPath()).thenReturn(groupResource);
+        when(mockEvent.getTypes()).thenReturn(singleton(RESOURCE_MODIFICATION));
+        authorizationCache.onEvent(mockEvent);
+
+        roleProvider.getRoles(mockNode);
+        verify(mockAgentClassResource, times(2)).getTriples(anyObject(), eq(PROPERTIES));
+        verify(mockAclResource, times(1)).getTriples(anyObject(), eq(PROPERTIES));
+    }
+
+    @Test
+    public void acl09AgentRolesTest() throws RepositoryException {
+        final String accessTo = "/anotherCollection";
+
+        final String groupResource = "/group/foo";
+        final String acl = "/acls/09/acl.ttl";
+        final String group = "/acls/09/group.ttl";
+
+        when(mockNodeService.find(mockSession, groupResource)).thenReturn(mockAgentClassResource);
+        when(mockResource.getAcl()).thenReturn(mockAclResource);
+        when(mockResource.getPath()).thenReturn(accessTo);
+        when(mockResource.getOriginalResource()).thenReturn(mockResource);
+        when(mockAclResource.getTriples(anyObject(), eq(PROPERTIES)))
+            .thenAnswer(invocation -> getRdfStreamFromResource(acl, TTL));
+        when(mockAclResource.isAcl()).thenReturn(true);
+        when(mockAclResource.getPath()).thenReturn(accessTo + "/fedora:acl");
+
+        when(mockAgentClassResource.getPath()).thenReturn(groupResource);
+        when(mockAgentClassResource.getTriples(anyObject(), eq(PROPERTIES)))
+                .thenAnswer(invocation -> getRdfStreamFromResource(group, TTL));
+
+        final Map<String, Collection<String>> roles = roleProvider.getRoles(mockNode, asList("person2", "other"));
+
+        assertEquals("Only the group member asked for should have roles", singleton("person2"), roles.keySet());
+        assertEquals("The group member should have two modes", 2, roles.get("person2").size());
+        assertTrue("The agent should be able to write", roles.get("person2").contains(WEBAC_MODE_WRITE_VALUE));
+    }
+
     /* (non-Javadoc)
      * Test that an in-repository resource used as a target for acl:agentClass has
      * the rdf:type of foaf:Group. This test mocks a resource that is not of the type
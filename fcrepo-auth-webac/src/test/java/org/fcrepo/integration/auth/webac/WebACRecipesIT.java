@@ -55,6 +55,7 @@ import org.apache.http.entity.ContentType;
 import org.apache.http.entity.InputStreamEntity;
 import org.apache.http.entity.StringEntity;
 import org.apache.http.message.AbstractHttpMessage;
+import org.apache.http.util.EntityUtils;
 import org.fcrepo.integration.http.api.AbstractResourceIT;
 import org.junit.Ignore;
 import org.junit.Rule;
@@ -1325,4 +1326,42 @@ public class WebACRecipesIT extends AbstractResourceIT {
         setAuth(headDesc2, "testuser");
         assertEquals(HttpStatus.SC_OK, getStatus(headDesc2));
     }
+
+    @Test
+    public void testBulkIngestChecksEachResource() throws Exception {
+        final String box = ingestObj("/rest/bulk_box");
+        ingestAcl("fedoraAdmin", "/acls/28/read-write.ttl", box + "/fcr:acl");
+        final String locked = ingestObj("/rest/bulk_box/locked");
+        ingestAcl("fedoraAdmin", "/acls/28/read-only.ttl", locked + "/fcr:acl");
+
+        final HttpPost request = new HttpPost(box + "/fcr:bulk");
+        setAuth(request, "user28");
+        request.setEntity(new StringEntity(
+                "<" + box + "/open> <" + title + "> \"open\" <" + box + "/open> .\n" +
+                "<" + locked + "/inner> <" + title + "> \"inner\" <" + locked + "/inner> .\n",
+                ContentType.create("application/n-quads")));
+        try (final CloseableHttpResponse response = execute(request)) {
+            assertEquals(HttpStatus.SC_OK, getStatus(response));
+            final String results = EntityUtils.toString(response.getEntity());
+            assertTrue(results, results.contains("\"uri\":\"" + box + "/open\",\"status\":201"));
+            assertTrue(results, results.contains("\"uri\":\"" + locked + "/inner\",\"status\":403"));
+        }
+        assertEquals(HttpStatus.SC_OK, getStatus(GET(box + "/open", "user28")));
+        assertEquals(SC_NOT_FOUND, getStatus(GET(locked + "/inner", "fedoraAdmin")));
+        assertEquals(HttpStatus.SC_METHOD_NOT_ALLOWED, getStatus(GET(box + "/fcr:bulk", "user28")));
+    }
+
+    @Test
+    public void testIndexMaintenanceRequiresAdmin() throws IOException {
+        final HttpPost verifyMembership = new HttpPost(serverAddress + "fcr:membershipIndex?verify=true");
+        setAuth(verifyMembership, "testuser");
+        assertEquals(HttpStatus.SC_FORBIDDEN, getStatus(verifyMembership));
+
+        final HttpPost rebuildReferences = new HttpPost(serverAddress + "fcr:referenceIndex");
+        assertEquals(HttpStatus.SC_FORBIDDEN, getStatus(rebuildReferences));
+
+        final HttpPost adminVerify = new HttpPost(serverAddress + "fcr:membershipIndex?verify=true");
+        setAuth(adminVerify, "fedoraAdmin");
+        assertEquals(HttpStatus.SC_OK, getStatus(adminVerify));
+    }
 }
@@ -0,0 +1,177 @@
+/*
+ * Licensed to DuraSpace under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * DuraSpace licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.event.serialization;
+
+import static com.fasterxml.jackson.databind.SerializationFeature.WRITE_DATES_AS_TIMESTAMPS;
+import static java.util.Collections.singleton;
+import static org.fcrepo.kernel.api.RdfLexicon.REPOSITORY_NAMESPACE;
+import static org.fcrepo.kernel.api.observer.EventType.RESOURCE_MODIFICATION;
+import static org.fcrepo.kernel.api.observer.OptionalValues.BASE_URL;
+import static org.fcrepo.kernel.api.observer.OptionalValues.USER_AGENT;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.fcrepo.kernel.api.observer.EventType;
+import org.fcrepo.kernel.api.observer.FedoraEvent;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+/**
+ * A microbenchmark of event serialization.  It compares the former JSON-LD serialization (a serializer created per
+ * event, re-registering the JavaTimeModule on a shared ObjectMapper, which then serializes a JsonLDEventMessage
+ * built for the event) with the streaming JsonLDSerializer, writing either a String or bytes to a reused buffer,
+ * and with the TurtleSerializer.  The TurtleSerializer parses the JSON-LD, which loads the remote Activity Streams
+ * context; it is skipped if that fails.
+ *
+ * This is not run as part of the build; run it with, e.g.:
+ * <pre>
+ * mvn -Pbenchmarks test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=org.fcrepo.event.serialization.EventSerializerBenchmark
+ * </pre>
+ *
+ * @author rdfloyd
+ */
+public class EventSerializerBenchmark {
+
+    private static final int EVENTS = Integer.getInteger("benchmark.events", 200000);
+
+    private static final int TURTLE_EVENTS = Integer.getInteger("benchmark.turtleEvents", 2000);
+
+    private static final ObjectMapper FORMER_MAPPER = new ObjectMapper();
+
+    private EventSerializerBenchmark() {
+    }
+
+    /**
+     * @param args unused
+     * @throws IOException if an event could not be serialized
+     */
+    public static void main(final String[] args) throws IOException {
+        final FedoraEvent event = event();
+        final JsonLDSerializer serializer = new JsonLDSerializer();
+        final ByteArrayOutputStream buffer = new ByteArrayOutputStream(2048);
+
+        // warm up
+        for (int i = 0; i < EVENTS / 10; i++) {
+            former(event);
+            serializer.serialize(event);
+            buffer.reset();
+            serializer.serialize(event, buffer);
+        }
+
+        System.out.println(String.format("%-28s %12s %14s", "serializer", "events", "events/sec"));
+        report("former JSON-LD", EVENTS, () -> former(event).length());
+        report("streaming JSON-LD (String)", EVENTS, () -> serializer.serialize(event).length());
+        report("streaming JSON-LD (bytes)", EVENTS, () -> {
+            buffer.reset();
+            serializer.serialize(event, buffer);
+            return buffer.size();
+        });
+        try {
+            final TurtleSerializer turtle = new TurtleSerializer();
+            turtle.serialize(event);
+            report("Turtle", TURTLE_EVENTS, () -> turtle.serialize(event).length());
+        } catch (final RuntimeException e) {
+            System.out.println(String.format("%-28s %s", "Turtle", "skipped: " + e.getMessage()));
+        }
+    }
+
+    private static String former(final FedoraEvent event) throws IOException {
+        FORMER_MAPPER.registerModule(new JavaTimeModule());
+        FORMER_MAPPER.configure(WRITE_DATES_AS_TIMESTAMPS, false);
+        return FORMER_MAPPER.writeValueAsString(JsonLDEventMessage.from(event));
+    }
+
+    @FunctionalInterface
+    private interface Operation {
+        int run() throws IOException;
+    }
+
+    private static void report(final String name, final int events, final Operation operation) throws IOException {
+        long sink = 0;
+        final long start = System.nanoTime();
+        for (int i = 0; i < events; i++) {
+            sink += operation.run();
+        }
+        final double seconds = (System.nanoTime() - start) / 1e9;
+        if (sink == 0) {
+            throw new IllegalStateException("Nothing was serialized");
+        }
+        System.out.println(String.format("%-28s %12d %14.0f", name, events, events / seconds));
+    }
+
+    private static FedoraEvent event() {
+        final Set<String> resourceTypes = new HashSet<>();
+        resourceTypes.add(REPOSITORY_NAMESPACE + "Resource");
+        resourceTypes.add(REPOSITORY_NAMESPACE + "Container");
+        final Map<String, String> info = new HashMap<>();
+        info.put(BASE_URL, "http://localhost:8080/rest");
+        info.put(USER_AGENT, "fcrepo-java-client");
+        final Instant date = Instant.now();
+        return new FedoraEvent() {
+
+            @Override
+            public Set<EventType> getTypes() {
+                return singleton(RESOURCE_MODIFICATION);
+            }
+
+            @Override
+            public Set<String> getResourceTypes() {
+                return resourceTypes;
+            }
+
+            @Override
+            public String getPath() {
+                return "/benchmark/resource";
+            }
+
+            @Override
+            public String getUserID() {
+                return "fedoraAdmin";
+            }
+
+            @Override
+            public URI getUserURI() {
+                return URI.create("info:fedora/local-user#fedoraAdmin");
+            }
+
+            @Override
+            public Instant getDate() {
+                return date;
+            }
+
+            @Override
+            public String getEventID() {
+                return "urn:uuid:3c834a8f-5638-4412-aa4b-35ea80416a18";
+            }
+
+            @Override
+            public Map<String, String> getInfo() {
+                return info;
+            }
+        };
+    }
+}
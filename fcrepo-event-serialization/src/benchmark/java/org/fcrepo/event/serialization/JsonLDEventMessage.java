@@ -39,8 +39,9 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 /**
- * A structure used for serializing a FedoraEvent into JSON
- * 
+ * A structure formerly used for serializing a FedoraEvent into JSON, kept as the baseline of the
+ * {@link EventSerializerBenchmark}
+ *
  * @author acoburn
  * @author dbernstein
  */
@@ -17,13 +17,15 @@
  */
 package org.fcrepo.event.serialization;
 
-import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.apache.jena.rdf.model.ModelFactory.createDefaultModel;
 import static org.fcrepo.kernel.api.observer.OptionalValues.BASE_URL;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 
 import org.apache.jena.rdf.model.Model;
+import org.fcrepo.kernel.api.exception.RepositoryRuntimeException;
 import org.fcrepo.kernel.api.observer.FedoraEvent;
 
 /**
@@ -39,11 +41,15 @@ public interface EventSerializer {
      * @return an RDF model representing the event
      */
     static Model toModel(final FedoraEvent evt) {
-        final EventSerializer serializer = new JsonLDSerializer();
-        final String json = serializer.serialize(evt);
+        final ByteArrayOutputStream json = new ByteArrayOutputStream(1024);
+        try {
+            new JsonLDSerializer().serialize(evt, json);
+        } catch (final IOException ex) {
+            throw new RepositoryRuntimeException(ex);
+        }
         final Model model = createDefaultModel();
         final String baseUrl = evt.getInfo().get(BASE_URL);
-        model.read(new ByteArrayInputStream(json.getBytes(UTF_8)), baseUrl + evt.getPath(), "JSON-LD");
+        model.read(new ByteArrayInputStream(json.toByteArray()), baseUrl + evt.getPath(), "JSON-LD");
         return model;
     }
 
@@ -17,34 +17,42 @@
  */
 package org.fcrepo.event.serialization;
 
-import static com.fasterxml.jackson.databind.SerializationFeature.WRITE_DATES_AS_TIMESTAMPS;
-import static org.fcrepo.event.serialization.JsonLDEventMessage.from;
+import static java.time.format.DateTimeFormatter.ISO_INSTANT;
+import static org.fcrepo.http.commons.api.rdf.HttpResourceConverter.convertToExternalPath;
+import static org.fcrepo.kernel.api.RdfLexicon.PROV_NAMESPACE;
+import static org.fcrepo.kernel.api.observer.OptionalValues.BASE_URL;
+import static org.fcrepo.kernel.api.observer.OptionalValues.USER_AGENT;
 import static org.slf4j.LoggerFactory.getLogger;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.time.Instant;
+import java.util.Set;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.fcrepo.kernel.api.observer.EventType;
 import org.fcrepo.kernel.api.observer.FedoraEvent;
 import org.slf4j.Logger;
 
 /**
  * Some serialization utilities for FedoraEvent objects
+ *
+ * Events are written field by field to a Jackson {@link JsonGenerator}, without building an intermediate object
+ * graph.  A JsonLDSerializer holds no state, so a single instance may be shared between threads.
+ *
  * @author acoburn
  */
 public class JsonLDSerializer implements EventSerializer {
 
     private static final Logger LOGGER = getLogger(JsonLDSerializer.class);
 
-    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final JsonFactory FACTORY = new JsonFactory();
 
-    /**
-     * Create a new JSON-LD Event Serializer
-     */
-    public JsonLDSerializer() {
-        // newer versions of jackson rename this to `JavaTimeModule`
-        MAPPER.registerModule(new JavaTimeModule());
-        MAPPER.configure(WRITE_DATES_AS_TIMESTAMPS, false);
-    }
+    private static final String ACTIVITYSTREAMS_NS = "https://www.w3.org/ns/activitystreams";
+
+    private static final String PROV_ENTITY = PROV_NAMESPACE + "Entity";
 
     /**
      * Serialize a FedoraEvent into a JSON String
@@ -53,11 +61,113 @@ public class JsonLDSerializer implements EventSerializer {
      */
     @Override
     public String serialize(final FedoraEvent evt) {
-        try {
-            return MAPPER.writeValueAsString(from(evt));
-        } catch (final JsonProcessingException ex) {
+        final StringWriter out = new StringWriter(1024);
+        try (final JsonGenerator generator = FACTORY.createGenerator(out)) {
+            serialize(evt, generator);
+        } catch (final IOException ex) {
             LOGGER.error("Error processing JSON: {}", ex.getMessage());
             return null;
         }
+        return out.toString();
+    }
+
+    /**
+     * Serialize a FedoraEvent as UTF-8 encoded JSON to a stream.  The stream is not closed.
+     * @param evt the Fedora event
+     * @param out the stream
+     * @throws IOException if the JSON could not be written
+     */
+    public void serialize(final FedoraEvent evt, final OutputStream out) throws IOException {
+        try (final JsonGenerator generator = FACTORY.createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            serialize(evt, generator);
+        }
+    }
+
+    /**
+     * Write a FedoraEvent as a JSON object
+     * @param evt the Fedora event
+     * @param generator the generator to which the JSON object is written
+     * @throws IOException if the JSON could not be written
+     */
+    public void serialize(final FedoraEvent evt, final JsonGenerator generator) throws IOException {
+        final String baseUrl = evt.getInfo().get(BASE_URL);
+        final Set<EventType> types = evt.getTypes();
+
+        generator.writeStartObject();
+        generator.writeStringField("id", evt.getEventID());
+
+        generator.writeArrayFieldStart("type");
+        for (final EventType type : types) {
+            generator.writeString(type.getTypeAbbreviated());
+        }
+        generator.writeEndArray();
+
+        // comma-separated list for names of events (since name requires string rather than array)
+        final StringBuilder name = new StringBuilder();
+        for (final EventType type : types) {
+            if (name.length() > 0) {
+                name.append(", ");
+            }
+            name.append(type.getName());
+        }
+        generator.writeStringField("name", name.toString());
+
+        final Instant published = evt.getDate();
+        generator.writeStringField("published", published == null ? null : ISO_INSTANT.format(published));
+
+        generator.writeArrayFieldStart("actor");
+        generator.writeStartObject();
+        writeSingletonArray(generator, "type", "Person");
+        generator.writeStringField("id", evt.getUserURI().toString());
+        generator.writeEndObject();
+        final String softwareAgent = evt.getInfo().get(USER_AGENT);
+        if (softwareAgent != null) {
+            generator.writeStartObject();
+            writeSingletonArray(generator, "type", "Application");
+            generator.writeStringField("name", softwareAgent);
+            generator.writeEndObject();
+        }
+        generator.writeEndArray();
+
+        generator.writeObjectFieldStart("object");
+        generator.writeArrayFieldStart("type");
+        final Set<String> resourceTypes = evt.getResourceTypes();
+        for (final String resourceType : resourceTypes) {
+            generator.writeString(resourceType);
+        }
+        if (!resourceTypes.contains(PROV_ENTITY)) {
+            generator.writeString(PROV_ENTITY);
+        }
+        generator.writeEndArray();
+        generator.writeStringField("id", convertToExternalPath(baseUrl + evt.getPath()));
+        generator.writeStringField("isPartOf", baseUrl);
+        generator.writeEndObject();
+
+        writeContext(generator);
+        generator.writeEndObject();
+    }
+
+    private static void writeSingletonArray(final JsonGenerator generator, final String field, final String value)
+            throws IOException {
+        generator.writeArrayFieldStart(field);
+        generator.writeString(value);
+        generator.writeEndArray();
+    }
+
+    private static void writeContext(final JsonGenerator generator) throws IOException {
+        generator.writeArrayFieldStart("@context");
+        generator.writeString(ACTIVITYSTREAMS_NS);
+        generator.writeStartObject();
+        generator.writeStringField("prov", "http://www.w3.org/ns/prov#");
+        generator.writeStringField("dcterms", "http://purl.org/dc/terms/");
+        generator.writeStringField("type", "@type");
+        generator.writeStringField("id", "@id");
+        generator.writeObjectFieldStart("isPartOf");
+        generator.writeStringField("@id", "dcterms:isPartOf");
+        generator.writeStringField("@type", "@id");
+        generator.writeEndObject();
+        generator.writeEndObject();
+        generator.writeEndArray();
     }
 }
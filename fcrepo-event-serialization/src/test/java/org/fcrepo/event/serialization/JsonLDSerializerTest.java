@@ -19,6 +19,7 @@
 package org.fcrepo.event.serialization;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Collections.singleton;
 import static org.apache.jena.rdf.model.ModelFactory.createDefaultModel;
 import static org.fcrepo.kernel.api.FedoraTypes.FCR_ACL;
 import static org.fcrepo.kernel.api.FedoraTypes.FCR_VERSIONS;
@@ -28,8 +29,10 @@ import static org.fcrepo.kernel.modeshape.FedoraResourceImpl.CONTAINER_WEBAC_ACL
 import static org.fcrepo.kernel.api.RdfLexicon.LDPCV_TIME_MAP;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.when;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
@@ -60,6 +63,36 @@ public class JsonLDSerializerTest extends FedoraEventSerializerTestBase {
         testModel(model);
     }
 
+    @Test
+    public void testStreamedSerialization() throws IOException {
+        mockEvent(path);
+        when(mockEvent.getResourceTypes()).thenReturn(singleton(REPOSITORY_NAMESPACE + "Container"));
+        final String expected = "{" +
+                "\"id\":\"urn:uuid:some-event\"," +
+                "\"type\":[\"Update\"]," +
+                "\"name\":\"update resource\"," +
+                "\"published\":\"2016-06-14T15:48:24Z\"," +
+                "\"actor\":[" +
+                "{\"type\":[\"Person\"],\"id\":\"https://example.com/agents/fedoraadmin\"}," +
+                "{\"type\":[\"Application\"],\"name\":\"fcrepo-java-client\"}]," +
+                "\"object\":{" +
+                "\"type\":[\"http://fedora.info/definitions/v4/repository#Container\"," +
+                "\"http://www.w3.org/ns/prov#Entity\"]," +
+                "\"id\":\"http://localhost:8080/fcrepo/rest/path/to/resource\"," +
+                "\"isPartOf\":\"http://localhost:8080/fcrepo/rest\"}," +
+                "\"@context\":[\"https://www.w3.org/ns/activitystreams\",{" +
+                "\"prov\":\"http://www.w3.org/ns/prov#\"," +
+                "\"dcterms\":\"http://purl.org/dc/terms/\"," +
+                "\"type\":\"@type\"," +
+                "\"id\":\"@id\"," +
+                "\"isPartOf\":{\"@id\":\"dcterms:isPartOf\",\"@type\":\"@id\"}}]}";
+        assertEquals(expected, new JsonLDSerializer().serialize(mockEvent));
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new JsonLDSerializer().serialize(mockEvent, out);
+        assertEquals(expected, new String(out.toByteArray(), UTF_8));
+    }
+
     @Test
     public void testJsonSerializationAsJson() throws IOException {
         testJsonSerializationAsJson(path, path);
@@ -0,0 +1,141 @@
+/*
+ * Licensed to DuraSpace under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * DuraSpace licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.http.api;
+
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+import org.fcrepo.http.api.PathLockManager.AcquiredLock;
+import org.fcrepo.kernel.api.FedoraSession;
+import org.fcrepo.kernel.api.services.NodeService;
+
+/**
+ * A contention benchmark comparing PathLockManager implementations.  Each
+ * writer repeatedly takes a write lock, holds it for a short simulated unit
+ * of work and releases it; every hundredth operation on the overlapping
+ * workload is a delete of a shared subtree.  Throughput is reported for 16,
+ * 64 and 256 concurrent writers against disjoint paths (one container per
+ * writer) and overlapping paths (all writers sharing a handful of containers).
+ *
+ * This is not run as part of the build; run it with, e.g.:
+ * <pre>
+ * mvn -Pbenchmarks test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=org.fcrepo.http.api.PathLockManagerBenchmark
+ * </pre>
+ *
+ * @author rdfloyd
+ */
+public class PathLockManagerBenchmark {
+
+    private static final int[] WRITERS = { 16, 64, 256 };
+
+    private static final long DURATION_MS = Long.getLong("benchmark.duration", 5000);
+
+    private static final long WORK_MICROS = Long.getLong("benchmark.work", 50);
+
+    private static final int SHARED_CONTAINERS = 4;
+
+    private final FedoraSession session = mock(FedoraSession.class, withSettings().stubOnly());
+
+    private final NodeService nodeService = mock(NodeService.class, withSettings().stubOnly());
+
+    private PathLockManagerBenchmark() {
+        when(nodeService.exists(any(), any())).thenReturn(true);
+    }
+
+    /**
+     * @param args unused
+     * @throws InterruptedException if interrupted while waiting for writers
+     */
+    public static void main(final String[] args) throws InterruptedException {
+        final PathLockManagerBenchmark benchmark = new PathLockManagerBenchmark();
+        System.out.println(String.format("%-36s %-12s %8s %14s", "manager", "workload", "writers", "ops/sec"));
+        for (final boolean overlapping : new boolean[] { false, true }) {
+            for (final int writers : WRITERS) {
+                benchmark.run("DefaultPathLockManager", DefaultPathLockManager::new, writers, overlapping);
+                benchmark.run("HierarchicalPathLockManager", HierarchicalPathLockManager::new, writers,
+                        overlapping);
+            }
+        }
+    }
+
+    private void run(final String name, final Supplier<PathLockManager> factory, final int writers,
+            final boolean overlapping) throws InterruptedException {
+        final PathLockManager manager = factory.get();
+        final AtomicBoolean running = new AtomicBoolean(true);
+        final LongAdder operations = new LongAdder();
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<Thread> threads = new ArrayList<>();
+
+        for (int i = 0; i < writers; i++) {
+            final int writer = i;
+            final Thread t = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (final InterruptedException e) {
+                    return;
+                }
+                long count = 0;
+                while (running.get()) {
+                    final String container = overlapping ?
+                            "/bench/shared" + (writer % SHARED_CONTAINERS) : "/bench/writer" + writer;
+                    final AcquiredLock lock;
+                    if (overlapping && count % 100 == 99) {
+                        lock = manager.lockForDelete(container + "/subtree");
+                    } else {
+                        lock = manager.lockForWrite(container + "/" + (count % 16), session, nodeService);
+                    }
+                    try {
+                        LockSupport.parkNanos(MICROSECONDS.toNanos(WORK_MICROS));
+                    } finally {
+                        lock.release();
+                    }
+                    operations.increment();
+                    count++;
+                }
+            });
+            t.start();
+            threads.add(t);
+        }
+
+        final long began = System.nanoTime();
+        start.countDown();
+        Thread.sleep(DURATION_MS);
+        running.set(false);
+        for (final Thread t : threads) {
+            t.join();
+        }
+        final long elapsedMs = MILLISECONDS.convert(System.nanoTime() - began, NANOSECONDS);
+
+        System.out.println(String.format("%-36s %-12s %8d %14.0f", name, overlapping ? "overlapping" : "disjoint",
+                writers, operations.sum() * 1000.0 / elapsedMs));
+    }
+}
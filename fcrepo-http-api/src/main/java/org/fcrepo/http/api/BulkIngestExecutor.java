@@ -0,0 +1,116 @@
+/*
+ * Licensed to DuraSpace under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * DuraSpace licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.http.api;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * The threads shared by all bulk ingests, at most fcrepo.http.bulk.maxThreads of them.
+ *
+ * The workers of an ingest wait on the request that feeds them, so an ingest waits until there are threads enough
+ * to run all of its workers at once rather than starting some of them behind the workers of other ingests.
+ *
+ * @author rdfloyd
+ */
+@Component
+public class BulkIngestExecutor {
+
+    private static final Logger LOGGER = getLogger(BulkIngestExecutor.class);
+
+    @Value("${fcrepo.http.bulk.maxThreads:16}")
+    private int maxThreads;
+
+    private Semaphore permits;
+
+    private ThreadPoolExecutor executor;
+
+    /**
+     * Start the executor
+     */
+    @PostConstruct
+    public void init() {
+        maxThreads = Math.max(1, maxThreads);
+        permits = new Semaphore(maxThreads, true);
+        executor = new ThreadPoolExecutor(maxThreads, maxThreads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                new ThreadFactoryBuilder().setNameFormat("fcrepo-bulk-ingest-%d").setDaemon(true).build());
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Stop the executor, interrupting any ingests still running
+     */
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * @return the most tasks that may be run at once
+     */
+    public int getMaxThreads() {
+        return maxThreads;
+    }
+
+    /**
+     * Run tasks all at once, waiting until there are threads for all of them.
+     *
+     * @param tasks the tasks, no more than {@link #getMaxThreads()} of them
+     * @return the futures of the tasks
+     * @throws InterruptedException if interrupted while waiting for threads
+     */
+    public List<Future<?>> execute(final List<? extends Runnable> tasks) throws InterruptedException {
+        if (tasks.size() > maxThreads) {
+            throw new IllegalArgumentException("Cannot run " + tasks.size() + " tasks on " + maxThreads + " threads");
+        }
+        permits.acquire(tasks.size());
+        LOGGER.debug("Running {} bulk ingest task(s); {} thread(s) free", tasks.size(), permits.availablePermits());
+        final List<Future<?>> futures = new ArrayList<>(tasks.size());
+        for (final Runnable task : tasks) {
+            try {
+                futures.add(executor.submit(() -> {
+                    try {
+                        task.run();
+                    } finally {
+                        permits.release();
+                    }
+                }));
+            } catch (final RejectedExecutionException e) {
+                permits.release(tasks.size() - futures.size());
+                throw e;
+            }
+        }
+        return futures;
+    }
+}
@@ -18,6 +18,9 @@
 package org.fcrepo.http.api;
 
 import static com.google.common.base.Strings.nullToEmpty;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.time.format.DateTimeFormatter.RFC_1123_DATE_TIME;
+import static java.time.temporal.ChronoUnit.SECONDS;
 import static java.util.EnumSet.of;
 import static java.util.stream.Stream.concat;
 import static java.util.stream.Stream.empty;
@@ -66,11 +69,13 @@ import static org.fcrepo.kernel.api.FedoraTypes.LDP_DIRECT_CONTAINER;
 import static org.fcrepo.kernel.api.FedoraTypes.LDP_INDIRECT_CONTAINER;
 import static org.fcrepo.kernel.api.RdfLexicon.BASIC_CONTAINER;
 import static org.fcrepo.kernel.api.RdfLexicon.CONTAINER;
+import static org.fcrepo.kernel.api.RdfLexicon.CONTAINS;
 import static org.fcrepo.kernel.api.RdfLexicon.DIRECT_CONTAINER;
 import static org.fcrepo.kernel.api.RdfLexicon.HAS_MEMBER_RELATION;
 import static org.fcrepo.kernel.api.RdfLexicon.INDIRECT_CONTAINER;
 import static org.fcrepo.kernel.api.RdfLexicon.LDP_NAMESPACE;
 import static org.fcrepo.kernel.api.RdfLexicon.MEMENTO_TYPE;
+import static org.fcrepo.kernel.api.RdfLexicon.PAGE;
 import static org.fcrepo.kernel.api.RdfLexicon.RDF_SOURCE;
 import static org.fcrepo.kernel.api.RdfLexicon.VERSIONED_RESOURCE;
 import static org.fcrepo.kernel.api.RdfLexicon.VERSIONING_TIMEGATE_TYPE;
@@ -98,6 +103,7 @@ import java.net.URISyntaxException;
 import java.text.MessageFormat;
 import java.time.Instant;
 import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
 import java.util.Arrays;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -112,6 +118,7 @@ import java.util.stream.Stream;
 import javax.annotation.PostConstruct;
 import javax.inject.Inject;
 import javax.servlet.ServletContext;
+import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import javax.ws.rs.BadRequestException;
 import javax.ws.rs.BeanParam;
@@ -134,13 +141,15 @@ import org.apache.jena.rdf.model.RDFNode;
 import org.apache.jena.rdf.model.Statement;
 import org.apache.jena.riot.Lang;
 import org.apache.jena.riot.RiotException;
+import org.apache.jena.update.UpdateRequest;
 import org.fcrepo.http.commons.api.HttpHeaderInjector;
 import org.fcrepo.http.commons.api.rdf.HttpTripleUtil;
 import org.fcrepo.http.commons.domain.MultiPrefer;
 import org.fcrepo.http.commons.domain.PreferTag;
 import org.fcrepo.http.commons.domain.Range;
+import org.fcrepo.http.commons.domain.SparqlUpdateBody;
 import org.fcrepo.http.commons.domain.ldp.LdpPreferTag;
-import org.fcrepo.http.commons.responses.RangeRequestInputStream;
+import org.fcrepo.http.commons.responses.ByteRangesStreamingOutput;
 import org.fcrepo.http.commons.responses.RdfNamespacedStream;
 import org.fcrepo.http.commons.session.HttpSession;
 import org.fcrepo.kernel.api.RdfStream;
@@ -155,6 +164,7 @@ import org.fcrepo.kernel.api.exception.RepositoryRuntimeException;
 import org.fcrepo.kernel.api.exception.ServerManagedPropertyException;
 import org.fcrepo.kernel.api.exception.ServerManagedTypeException;
 import org.fcrepo.kernel.api.exception.UnsupportedAlgorithmException;
+import org.fcrepo.kernel.api.models.ChildrenPage;
 import org.fcrepo.kernel.api.models.Container;
 import org.fcrepo.kernel.api.models.FedoraBinary;
 import org.fcrepo.kernel.api.models.FedoraResource;
@@ -192,6 +202,12 @@ public abstract class ContentExposingResource extends FedoraBaseResource {
 
     static final String HTTP_HEADER_ACCEPT_PATCH = "Accept-Patch";
 
+    static final String PAGE_PARAM = "page";
+
+    static final String PAGE_SIZE_PARAM = "pageSize";
+
+    static final int DEFAULT_PAGE_SIZE = 1000;
+
     static final String WEBAC_ACCESS_TO = WEBAC_NAMESPACE_VALUE + "accessTo";
 
     static final String WEBAC_ACCESS_TO_CLASS = WEBAC_NAMESPACE_VALUE + "accessToClass";
@@ -204,6 +220,7 @@ public abstract class ContentExposingResource extends FedoraBaseResource {
 
     @Context protected Request request;
     @Context protected HttpServletResponse servletResponse;
+    @Context protected HttpServletRequest servletRequest;
     @Context protected ServletContext context;
 
     @Inject
@@ -272,7 +289,7 @@ public abstract class ContentExposingResource extends FedoraBaseResource {
         } else {
             outputStream = new RdfNamespacedStream(
                     new DefaultRdfStream(rdfStream.topic(), concat(rdfStream,
-                        getResourceTriples(limit, resource))),
+                        getResourceTriples(limit, resource, true))),
                     namespaceRegistry.getNamespaces());
         }
         setVaryAndPreferenceAppliedHeaders(servletResponse, prefer, resource);
@@ -300,7 +317,7 @@ public abstract class ContentExposingResource extends FedoraBaseResource {
 
 
     protected RdfStream getResourceTriples(final FedoraResource resource) {
-        return getResourceTriples(-1, resource);
+        return getResourceTriples(-1, resource, false);
     }
 
     /**
@@ -308,9 +325,10 @@ public abstract class ContentExposingResource extends FedoraBaseResource {
      *
      * @param limit is the number of child resources returned in the response, -1 for all
      * @param resource the fedora resource
+     * @param pageable whether the containment triples may be paged, as requested by the client
      * @return {@link RdfStream}
      */
-    private RdfStream getResourceTriples(final int limit, final FedoraResource resource) {
+    private RdfStream getResourceTriples(final int limit, final FedoraResource resource, final boolean pageable) {
 
         final PreferTag returnPreference;
 
@@ -350,7 +368,10 @@ public abstract class ContentExposingResource extends FedoraBaseResource {
 
             // containment triples about this resource
             if (ldpPreferences.prefersContainment()) {
-                if (limit == -1) {
+                final int pageSize = pageable ? getPageSize(ldpPreferences) : -1;
+                if (pageSize > 0) {
+                    streams.add(getContainmentPage(resource, pageSize));
+                } else if (limit == -1) {
                     streams.add(getTriples(resource, LDP_CONTAINMENT));
                 } else {
                     streams.add(getTriples(resource, LDP_CONTAINMENT).limit(limit));
@@ -384,6 +405,67 @@ public abstract class ContentExposingResource extends FedoraBaseResource {
         return rdfStream;
     }
 
+    /**
+     * Get the number of children to list in a page of containment triples: the max-member-count preference, if any,
+     * or else the page size requested in the query.
+     *
+     * @param ldpPreferences the preferences of the request
+     * @return the page size, or -1 if paging was not requested
+     */
+    private int getPageSize(final LdpPreferTag ldpPreferences) {
+        if (ldpPreferences.getMaxMemberCount().isPresent()) {
+            return ldpPreferences.getMaxMemberCount().get();
+        }
+        return getRequestedPageSize(uriInfo.getQueryParameters().containsKey(PAGE_PARAM) ? DEFAULT_PAGE_SIZE : -1);
+    }
+
+    /**
+     * Get the page size requested in the query.
+     *
+     * @param defaultSize the page size if none was requested
+     * @return the page size
+     */
+    protected int getRequestedPageSize(final int defaultSize) {
+        final String pageSize = uriInfo.getQueryParameters().getFirst(PAGE_SIZE_PARAM);
+        if (pageSize != null) {
+            try {
+                final int size = Integer.parseInt(pageSize);
+                if (size > 0) {
+                    return size;
+                }
+            } catch (final NumberFormatException e) {
+                LOGGER.debug("Invalid page size: {}", pageSize);
+            }
+            throw new ClientErrorException("Invalid '" + PAGE_SIZE_PARAM + "' value: " + pageSize, SC_BAD_REQUEST);
+        }
+        return defaultSize;
+    }
+
+    /**
+     * Get the containment triples of one page of the children of a resource, and add the LDP Paging headers for it.
+     *
+     * @param resource the fedora resource
+     * @param pageSize the maximum number of children in the page
+     * @return the containment triples of the page
+     */
+    private Stream<Triple> getContainmentPage(final FedoraResource resource, final int pageSize) {
+        final String cursor = uriInfo.getQueryParameters().getFirst(PAGE_PARAM);
+        final ChildrenPage page;
+        try {
+            page = resource.getChildren(cursor, pageSize);
+        } catch (final IllegalArgumentException e) {
+            throw new ClientErrorException("Invalid '" + PAGE_PARAM + "' value: " + cursor, SC_BAD_REQUEST, e);
+        }
+
+        servletResponse.addHeader(LINK, buildLink(PAGE.getURI(), "type"));
+        page.getNextCursor().ifPresent(next -> servletResponse.addHeader(LINK, buildLink(
+                uriInfo.getRequestUriBuilder().replaceQueryParam(PAGE_PARAM, next)
+                        .replaceQueryParam(PAGE_SIZE_PARAM, pageSize).build(), "next")));
+
+        final Node subject = asNode(resource);
+        return page.getChildren().stream().map(child -> Triple.create(subject, CONTAINS.asNode(), asNode(child)));
+    }
+
     /**
      * Get the binary content of a datastream
      *
@@ -400,55 +482,73 @@ public abstract class ContentExposingResource extends FedoraBaseResource {
             cc.setMustRevalidate(true);
             final Response.ResponseBuilder builder;
 
-            if (rangeValue != null && rangeValue.startsWith("bytes")) {
-
-                final Range range = Range.convert(rangeValue);
-
-                final long contentSize = binary.getContentSize();
-
-                final String endAsString;
-
-                if (range.end() == -1) {
-                    endAsString = Long.toString(contentSize - 1);
-                } else {
-                    endAsString = Long.toString(range.end());
-                }
-
-                final String contentRangeValue =
-                        String.format("bytes %s-%s/%s", range.start(),
-                                endAsString, contentSize);
+            final long contentSize = binary.getContentSize();
+            final List<Range> ranges = rangeValue != null && contentSize >= 0 && ifRangeMatches(binary) ?
+                    Range.convert(rangeValue, contentSize) : null;
+            final String mediaType = getBinaryResourceMediaType(resource).toString();
 
-                if (range.end() > contentSize ||
-                        (range.end() == -1 && range.start() > contentSize)) {
-
-                    builder = status(REQUESTED_RANGE_NOT_SATISFIABLE)
-                            .header("Content-Range", contentRangeValue);
-                } else {
-                    @SuppressWarnings("resource")
-                    final RangeRequestInputStream rangeInputStream =
-                            new RangeRequestInputStream(binary.getContent(), range.start(), range.size());
-
-                    builder = status(PARTIAL_CONTENT).entity(rangeInputStream)
-                            .header("Content-Range", contentRangeValue)
-                            .header(CONTENT_LENGTH, range.size());
-                }
-
-            } else {
+            if (ranges == null) {
                 @SuppressWarnings("resource")
                 final InputStream content = binary.getContent();
                 builder = ok(content);
-            }
+            } else if (ranges.isEmpty()) {
+                builder = status(REQUESTED_RANGE_NOT_SATISFIABLE)
+                        .header("Content-Range", "bytes */" + contentSize);
+            } else if (ranges.size() == 1) {
+                final Range range = ranges.get(0);
+                @SuppressWarnings("resource")
+                final InputStream rangeInputStream = binary.getContent(range.start(), range.size());
 
+                builder = status(PARTIAL_CONTENT).entity(rangeInputStream)
+                        .header("Content-Range", String.format("bytes %s-%s/%s", range.start(), range.end(),
+                                contentSize))
+                        .header(CONTENT_LENGTH, range.size());
+            } else {
+                final ByteRangesStreamingOutput parts =
+                        new ByteRangesStreamingOutput(binary, ranges, mediaType, contentSize);
+                return status(PARTIAL_CONTENT).entity(parts)
+                        .type(parts.getMediaType())
+                        .header(CONTENT_LENGTH, parts.getLength())
+                        .cacheControl(cc)
+                        .build();
+            }
 
             // we set the content-type explicitly to avoid content-negotiation from getting in the way
             // getBinaryResourceMediaType will try to use the mime type on the resource, falling back on
             // 'application/octet-stream' if the mime type is syntactically invalid
-            return builder.type(getBinaryResourceMediaType(resource).toString())
+            return builder.type(mediaType)
                     .cacheControl(cc)
                     .build();
 
         }
 
+    /**
+     * Check whether a Range header is to be applied, given the If-Range header that may accompany it: a range is
+     * only served if the validator in If-Range is the current strong ETag or Last-Modified date of the binary.
+     *
+     * @param binary the binary
+     * @return whether there is no If-Range header, or its validator is current
+     */
+    private boolean ifRangeMatches(final FedoraBinary binary) {
+        final String ifRange = headers.getHeaderString("If-Range");
+        if (isBlank(ifRange)) {
+            return true;
+        }
+        final String validator = ifRange.trim();
+        if (validator.startsWith("\"")) {
+            return validator.equals(new EntityTag(binary.getEtagValue()).toString());
+        } else if (validator.startsWith("W/")) {
+            return false;
+        }
+        final Instant lastModified = binary.getLastModifiedDate();
+        try {
+            return lastModified != null && Instant.from(RFC_1123_DATE_TIME.parse(validator))
+                    .equals(lastModified.truncatedTo(SECONDS));
+        } catch (final DateTimeParseException e) {
+            return false;
+        }
+    }
+
     private RdfStream getTriples(final FedoraResource resource, final Set<? extends TripleCategory> x) {
         return resource.getTriples(translator(), x);
     }
@@ -994,7 +1094,7 @@ public abstract class ContentExposingResource extends FedoraBaseResource {
      * @param inputModel to be checked
      * @throws ServerManagedPropertyException on error
      */
-    private void ensureValidMemberRelation(final Model inputModel) {
+    protected void ensureValidMemberRelation(final Model inputModel) {
         // check that ldp:hasMemberRelation value is not server managed predicate.
         inputModel.listStatements().forEachRemaining((final Statement s) -> {
             LOGGER.debug("statement: s={}, p={}, o={}", s.getSubject(), s.getPredicate(), s.getObject());
@@ -1073,6 +1173,39 @@ public abstract class ContentExposingResource extends FedoraBaseResource {
         resource.updateProperties(translator(), requestBody, resourceTriples);
     }
 
+    protected void patchResourcewithSparql(final FedoraResource resource,
+            final SparqlUpdateBody requestBody,
+            final RdfStream resourceTriples) {
+        if (requestBody.isParsed()) {
+            // reuse the request if a servlet filter parsed it against the same base URI
+            final String describedURI =
+                translator().reverse().convert(resource.getDescribedResource()).toString();
+            final UpdateRequest parsed = requestBody.getParsed(describedURI);
+            if (parsed != null) {
+                resource.updateProperties(translator(), parsed, resourceTriples);
+                return;
+            }
+        }
+        resource.updateProperties(translator(), requestBody.getBody(), resourceTriples);
+    }
+
+    /**
+     * Read the body of a SPARQL Update request.  If a servlet filter has already read (and possibly parsed) the
+     * body, that copy is used rather than the request entity.
+     *
+     * @param requestBodyStream the request entity
+     * @return the SPARQL Update request body
+     * @throws IOException if the request entity could not be read
+     */
+    protected SparqlUpdateBody readSparqlUpdate(final InputStream requestBodyStream) throws IOException {
+        final SparqlUpdateBody shared = SparqlUpdateBody.fromRequest(servletRequest).orElse(null);
+        if (shared != null) {
+            LOGGER.trace("Using SPARQL-UPDATE body read by a servlet filter");
+            return shared;
+        }
+        return SparqlUpdateBody.read(requestBodyStream, UTF_8);
+    }
+
     /**
      * This method returns a MediaType for a binary resource.
      * If the resource's media type is syntactically incorrect, it will
@@ -17,7 +17,6 @@
  */
 package org.fcrepo.http.api;
 
-import static java.nio.charset.StandardCharsets.UTF_8;
 import static javax.ws.rs.core.HttpHeaders.CONTENT_TYPE;
 import static javax.ws.rs.core.Response.created;
 import static javax.ws.rs.core.Response.noContent;
@@ -63,13 +62,13 @@ import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.UriInfo;
 
-import org.apache.commons.io.IOUtils;
 import org.apache.jena.rdf.model.Model;
 import org.apache.jena.riot.RDFDataMgr;
 import org.apache.jena.shared.JenaException;
 import org.fcrepo.http.api.PathLockManager.AcquiredLock;
 import org.fcrepo.http.commons.domain.PATCH;
 import org.fcrepo.http.commons.domain.RDFMediaType;
+import org.fcrepo.http.commons.domain.SparqlUpdateBody;
 import org.fcrepo.http.commons.responses.RdfNamespacedStream;
 import org.fcrepo.kernel.api.RdfStream;
 import org.fcrepo.kernel.api.exception.AccessDeniedException;
@@ -192,8 +191,8 @@ public class FedoraAcl extends ContentExposingResource {
                                                            nodeService);
 
         try {
-            final String requestBody = IOUtils.toString(requestBodyStream, UTF_8);
-            if (isBlank(requestBody)) {
+            final SparqlUpdateBody requestBody = readSparqlUpdate(requestBodyStream);
+            if (isBlank(requestBody.getBody())) {
                 throw new BadRequestException("SPARQL-UPDATE requests must have content!");
             }
 
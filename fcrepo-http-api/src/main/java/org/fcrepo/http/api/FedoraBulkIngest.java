@@ -0,0 +1,776 @@
+/*
+ * Licensed to DuraSpace under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * DuraSpace licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.http.api;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static java.util.stream.Collectors.toList;
+import static javax.servlet.http.HttpServletResponse.SC_BAD_REQUEST;
+import static javax.servlet.http.HttpServletResponse.SC_CONFLICT;
+import static javax.servlet.http.HttpServletResponse.SC_CREATED;
+import static javax.servlet.http.HttpServletResponse.SC_FORBIDDEN;
+import static javax.servlet.http.HttpServletResponse.SC_INTERNAL_SERVER_ERROR;
+import static javax.servlet.http.HttpServletResponse.SC_SERVICE_UNAVAILABLE;
+import static javax.ws.rs.core.MediaType.MULTIPART_FORM_DATA;
+import static javax.ws.rs.core.MediaType.TEXT_PLAIN_TYPE;
+import static javax.ws.rs.core.Response.Status.BAD_REQUEST;
+import static javax.ws.rs.core.Response.Status.CONFLICT;
+import static javax.ws.rs.core.Response.Status.FORBIDDEN;
+import static javax.ws.rs.core.Response.ok;
+import static org.apache.jena.rdf.model.ModelFactory.createDefaultModel;
+import static org.apache.jena.rdf.model.ResourceFactory.createResource;
+import static org.fcrepo.http.commons.domain.RDFMediaType.NQUADS;
+import static org.fcrepo.http.commons.domain.RDFMediaType.NQUADS_TYPE;
+import static org.fcrepo.kernel.api.FedoraTypes.FEDORA_PAIRTREE;
+import static org.fcrepo.kernel.api.FedoraTypes.LDP_BASIC_CONTAINER;
+import static org.fcrepo.kernel.api.FedoraTypes.LDP_DIRECT_CONTAINER;
+import static org.fcrepo.kernel.api.FedoraTypes.LDP_INDIRECT_CONTAINER;
+import static org.fcrepo.kernel.api.FedoraTypes.LDP_NON_RDF_SOURCE;
+import static org.fcrepo.kernel.api.RdfLexicon.FEDORA_DESCRIPTION;
+import static org.fcrepo.kernel.api.RdfLexicon.LDP_NAMESPACE;
+import static org.slf4j.LoggerFactory.getLogger;
+import static org.springframework.web.context.ContextLoader.getCurrentWebApplicationContext;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+import javax.inject.Inject;
+import javax.ws.rs.ClientErrorException;
+import javax.ws.rs.Consumes;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+import javax.ws.rs.core.UriBuilder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.annotations.VisibleForTesting;
+import org.apache.jena.graph.Node;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFDataMgr;
+import org.apache.jena.riot.RiotException;
+import org.apache.jena.riot.system.StreamRDFBase;
+import org.apache.jena.sparql.core.Quad;
+import org.apache.jena.vocabulary.RDF;
+import org.fcrepo.http.api.PathLockManager.AcquiredLock;
+import org.fcrepo.http.commons.api.ResourceCreationAuthorizer;
+import org.fcrepo.http.commons.api.rdf.HttpResourceConverter;
+import org.fcrepo.http.commons.session.HttpSession;
+import org.fcrepo.kernel.api.FedoraRepository;
+import org.fcrepo.kernel.api.FedoraSession;
+import org.fcrepo.kernel.api.exception.AccessDeniedException;
+import org.fcrepo.kernel.api.exception.ConstraintViolationException;
+import org.fcrepo.kernel.api.exception.InvalidChecksumException;
+import org.fcrepo.kernel.api.exception.UnsupportedAlgorithmException;
+import org.fcrepo.kernel.api.identifiers.IdentifierConverter;
+import org.fcrepo.kernel.api.models.Container;
+import org.fcrepo.kernel.api.models.FedoraBinary;
+import org.fcrepo.kernel.api.models.FedoraResource;
+import org.fcrepo.kernel.api.rdf.DefaultRdfStream;
+import org.fcrepo.kernel.api.services.CredentialsService;
+import org.glassfish.jersey.media.multipart.ContentDisposition;
+import org.glassfish.jersey.media.multipart.FormDataContentDisposition;
+import org.slf4j.Logger;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.Scope;
+
+/**
+ * Create many resources beneath a container in one request.
+ *
+ * The body is either N-Quads, in which each named graph holds the triples of the new container it names, or
+ * multipart/form-data, in which N-Quads parts are read the same way and every other part is the content of a new
+ * binary named by the name of the part.  The triples of a graph must be contiguous.  A graph may give the interaction
+ * model of its container as an rdf:type of ldp:BasicContainer, ldp:DirectContainer or ldp:IndirectContainer.  A
+ * multipart body is read as it arrives, so the reading of each binary waits for it to be stored.
+ *
+ * Resources are created in the order they are read, in saves of up to fcrepo.http.bulk.batchSize resources.  The
+ * resources beneath each child of the container form a subtree; subtrees are spread across fcrepo.http.bulk.threads
+ * threads of the {@link BulkIngestExecutor}, each with its own session.  Each resource is locked for writing, as
+ * it would be if it were created on its own, until its batch is saved.  Within a transaction, resources are created
+ * on one thread in the session of the transaction, and a resource that fails is removed from that session again.
+ * Each resource must be permitted by every {@link ResourceCreationAuthorizer} as though it were created on its own.
+ *
+ * The response is streamed as one JSON object per line: the URI and status of each resource as soon as it is saved
+ * or has failed, followed by a count of the resources created and failed.
+ *
+ * @author rdfloyd
+ */
+@Scope("request")
+@Path("/{path: .*}/fcr:bulk")
+public class FedoraBulkIngest extends ContentExposingResource {
+
+    private static final Logger LOGGER = getLogger(FedoraBulkIngest.class);
+
+    /**
+     * The media type of the results of a bulk ingest, a JSON object per line
+     */
+    public static final String BULK_RESULTS = "application/x-ndjson";
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static final List<String> INTERACTION_MODELS =
+            Arrays.asList(LDP_BASIC_CONTAINER, LDP_DIRECT_CONTAINER, LDP_INDIRECT_CONTAINER);
+
+    @PathParam("path") protected String externalPath;
+
+    @Inject
+    private FedoraHttpConfiguration httpConfiguration;
+
+    @Inject
+    private FedoraRepository repository;
+
+    @Inject
+    private CredentialsService credentialsService;
+
+    @Inject
+    private BulkIngestExecutor bulkIngestExecutor;
+
+    /**
+     * Default JAX-RS entry point
+     */
+    public FedoraBulkIngest() {
+        super();
+    }
+
+    /**
+     * Create a new FedoraBulkIngest instance for a given path
+     * @param externalPath the external path
+     */
+    @VisibleForTesting
+    public FedoraBulkIngest(final String externalPath) {
+        this.externalPath = externalPath;
+    }
+
+    /**
+     * Create the resources described by the named graphs of an N-Quads body.
+     *
+     * POST /path/to/container/fcr:bulk
+     *
+     * @param requestBodyStream the N-Quads body
+     * @return the results of the ingest, streamed
+     */
+    @POST
+    @Consumes({NQUADS})
+    @Produces({BULK_RESULTS})
+    public Response ingestQuads(final InputStream requestBodyStream) {
+        final Ingest ingest = new Ingest();
+        return ok((StreamingOutput) out -> ingest.run(out, () -> ingest.readQuads(requestBodyStream))).build();
+    }
+
+    /**
+     * Create the resources described by the N-Quads parts of a multipart body, and a binary for each other part.
+     *
+     * POST /path/to/container/fcr:bulk
+     *
+     * @param requestBodyStream the multipart body
+     * @return the results of the ingest, streamed
+     */
+    @POST
+    @Consumes({MULTIPART_FORM_DATA})
+    @Produces({BULK_RESULTS})
+    public Response ingestMultipart(final InputStream requestBodyStream) {
+        final String boundary = headers.getMediaType().getParameters().get("boundary");
+        if (boundary == null) {
+            throw new ClientErrorException("A multipart body must have a boundary", BAD_REQUEST);
+        }
+        final Ingest ingest = new Ingest();
+        return ok((StreamingOutput) out -> ingest.run(out, () -> {
+            final MultipartStream multipart = new MultipartStream(requestBodyStream, boundary);
+            for (Map<String, String> partHeaders = multipart.nextPart(); partHeaders != null;
+                    partHeaders = multipart.nextPart()) {
+                final ContentDisposition contentDisposition;
+                final MediaType contentType;
+                try {
+                    contentDisposition = partHeaders.containsKey("content-disposition") ?
+                            new FormDataContentDisposition(partHeaders.get("content-disposition")) : null;
+                    contentType = partHeaders.containsKey("content-type") ?
+                            MediaType.valueOf(partHeaders.get("content-type")) : TEXT_PLAIN_TYPE;
+                } catch (final ParseException | IllegalArgumentException e) {
+                    ingest.report(null, SC_BAD_REQUEST, "Invalid part header: " + e.getMessage());
+                    continue;
+                }
+                if (NQUADS_TYPE.isCompatible(contentType)) {
+                    ingest.readQuads(multipart.getPart());
+                } else {
+                    final String name = contentDisposition instanceof FormDataContentDisposition ?
+                            ((FormDataContentDisposition) contentDisposition).getName() : null;
+                    ingest.addBinary(name, multipart.getPart(), contentType, contentDisposition,
+                            partHeaders.get("digest"));
+                }
+            }
+        })).build();
+    }
+
+    @Override
+    protected String externalPath() {
+        return externalPath;
+    }
+
+    private static int getStatus(final Exception e) {
+        if (e instanceof WebApplicationException) {
+            return ((WebApplicationException) e).getResponse().getStatus();
+        } else if (e instanceof ConstraintViolationException || e instanceof UnsupportedAlgorithmException) {
+            return SC_BAD_REQUEST;
+        } else if (e instanceof InvalidChecksumException) {
+            return SC_CONFLICT;
+        } else if (e instanceof AccessDeniedException) {
+            return SC_FORBIDDEN;
+        }
+        return SC_INTERNAL_SERVER_ERROR;
+    }
+
+    /**
+     * Reads the body of the request, adding the resources it holds to an ingest
+     */
+    @FunctionalInterface
+    private interface BodyReader {
+
+        void read() throws IOException;
+    }
+
+    /**
+     * A resource to be created
+     */
+    private static final class Item {
+
+        private static final Item END = new Item(null, null, null, null, null, null, null, null, null);
+
+        private final String uri;
+
+        private final String path;
+
+        private final String subtree;
+
+        private final Model model;
+
+        private final String interactionModel;
+
+        private final InputStream content;
+
+        private final MediaType contentType;
+
+        private final ContentDisposition contentDisposition;
+
+        private final Collection<String> checksums;
+
+        /**
+         * Released once the content of a binary has been stored, or will not be
+         */
+        private final CountDownLatch consumed;
+
+        private Item(final String uri, final String path, final String subtree, final Model model,
+                final String interactionModel, final InputStream content, final MediaType contentType,
+                final ContentDisposition contentDisposition, final Collection<String> checksums) {
+            this.uri = uri;
+            this.path = path;
+            this.subtree = subtree;
+            this.model = model;
+            this.interactionModel = interactionModel;
+            this.content = content;
+            this.contentType = contentType;
+            this.contentDisposition = contentDisposition;
+            this.checksums = checksums;
+            this.consumed = content == null ? null : new CountDownLatch(1);
+        }
+
+        private void release() {
+            if (consumed != null) {
+                consumed.countDown();
+            }
+        }
+    }
+
+    /**
+     * The state of one bulk ingest
+     */
+    private final class Ingest {
+
+        private final String containerPath;
+
+        private final String containerUri;
+
+        private final UriBuilder uriBuilder;
+
+        private final Object credentials;
+
+        private final List<Predicate<String>> creationChecks;
+
+        private final int batchSize;
+
+        private final List<Worker> workers = new ArrayList<>();
+
+        private final LongAdder created = new LongAdder();
+
+        private final LongAdder failed = new LongAdder();
+
+        private OutputStream out;
+
+        private boolean disconnected;
+
+        private Ingest() {
+            if (!(resource() instanceof Container)) {
+                throw new ClientErrorException("Object cannot have child nodes", CONFLICT);
+            } else if (resource().hasType(FEDORA_PAIRTREE)) {
+                throw new ClientErrorException("Objects cannot be created under pairtree nodes", FORBIDDEN);
+            }
+            containerPath = resource().getPath();
+            containerUri = translator().reverse().convert(resource()).getURI();
+            uriBuilder = uriInfo.getBaseUriBuilder().clone().path(FedoraLdp.class);
+            batchSize = Math.max(1, httpConfiguration.bulkIngestBatchSize());
+            // the agent of the request is captured here, on the thread of the request
+            final ApplicationContext context = getCurrentWebApplicationContext();
+            creationChecks = context == null ? Collections.emptyList() :
+                    context.getBeansOfType(ResourceCreationAuthorizer.class).values().stream()
+                            .map(authorizer -> authorizer.getCreationCheck(servletRequest)).collect(toList());
+            if (session.isBatchSession()) {
+                credentials = null;
+                workers.add(new Worker(session));
+            } else {
+                credentials = credentialsService.getCredentials(servletRequest);
+                final int threads = Math.min(httpConfiguration.bulkIngestThreads(), bulkIngestExecutor.getMaxThreads());
+                for (int i = 0; i < Math.max(1, threads); i++) {
+                    workers.add(new Worker(null));
+                }
+            }
+        }
+
+        private void run(final OutputStream out, final BodyReader reader) throws IOException {
+            this.out = out;
+            final List<Future<?>> futures;
+            try {
+                futures = bulkIngestExecutor.execute(workers);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting to ingest into " + containerPath);
+            }
+            try {
+                reader.read();
+            } catch (final RiotException e) {
+                report(null, SC_BAD_REQUEST, "RDF was not parsable: " + e.getMessage());
+            } finally {
+                for (final Worker worker : workers) {
+                    worker.add(Item.END);
+                }
+                for (final Future<?> future : futures) {
+                    try {
+                        future.get();
+                    } catch (final ExecutionException e) {
+                        LOGGER.warn("Bulk ingest into {} failed", containerPath, e.getCause());
+                    } catch (final InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        break;
+                    }
+                }
+            }
+            final ObjectNode summary = MAPPER.createObjectNode();
+            summary.put("created", created.sum());
+            summary.put("failed", failed.sum());
+            write(summary);
+            LOGGER.info("Bulk ingest into {} created {} resource(s); {} failed", containerPath, created.sum(),
+                    failed.sum());
+        }
+
+        private void readQuads(final InputStream stream) {
+            RDFDataMgr.parse(new StreamRDFBase() {
+
+                private Node graph;
+
+                private Model model;
+
+                @Override
+                public void quad(final Quad quad) {
+                    if (!quad.getGraph().equals(graph)) {
+                        addGraph(graph, model);
+                        graph = quad.getGraph();
+                        model = createDefaultModel();
+                    }
+                    model.getGraph().add(quad.asTriple());
+                }
+
+                @Override
+                public void finish() {
+                    addGraph(graph, model);
+                }
+            }, stream, Lang.NQUADS);
+        }
+
+        private void addGraph(final Node graph, final Model model) {
+            if (graph == null) {
+                return;
+            } else if (!graph.isURI() || Quad.isDefaultGraph(graph)) {
+                report(null, SC_BAD_REQUEST, "Triples must be in a graph named by the resource they describe");
+                return;
+            }
+            final String uri = graph.getURI();
+            final Resource subject = createResource(uri);
+            String interactionModel = null;
+            for (final String type : INTERACTION_MODELS) {
+                final Resource typeResource = createResource(LDP_NAMESPACE + type.substring("ldp:".length()));
+                if (model.contains(subject, RDF.type, typeResource)) {
+                    model.remove(subject, RDF.type, typeResource);
+                    interactionModel = type;
+                }
+            }
+            final String path = getPath(uri);
+            if (path != null) {
+                add(new Item(uri, path, getSubtree(path), model, interactionModel, null, null, null, null));
+            }
+        }
+
+        private void addBinary(final String name, final InputStream content, final MediaType contentType,
+                final ContentDisposition contentDisposition, final String digest) throws InterruptedIOException {
+            if (name == null) {
+                report(null, SC_BAD_REQUEST, "A binary must be named by the URI of the resource to create");
+                return;
+            }
+            final String resolved = name.contains(":") ? name
+                    : containerUri + (containerUri.endsWith("/") ? "" : "/") + name;
+            final String path = getPath(resolved);
+            if (path != null) {
+                final Item item;
+                try {
+                    item = new Item(resolved, path, getSubtree(path), null, null, content, contentType,
+                            contentDisposition, parseDigestHeader(digest));
+                } catch (final UnsupportedAlgorithmException e) {
+                    report(resolved, SC_BAD_REQUEST, e.getMessage());
+                    return;
+                }
+                // the content is read straight from the request, which cannot move on until it has been
+                final Worker worker = add(item);
+                try {
+                    while (!item.consumed.await(1, SECONDS)) {
+                        if (worker.stopped) {
+                            return;
+                        }
+                    }
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while storing " + resolved);
+                }
+            }
+        }
+
+        private String getPath(final String uri) {
+            final Resource resource = createResource(uri);
+            final String path = translator().inDomain(resource) ? translator().asString(resource) : null;
+            final String prefix = containerPath.endsWith("/") ? containerPath : containerPath + "/";
+            if (path == null || !path.startsWith(prefix) || path.length() == prefix.length()) {
+                report(uri, SC_BAD_REQUEST, "Resource is not beneath " + containerPath);
+                return null;
+            }
+            try {
+                hasRestrictedPath(path);
+            } catch (final ConstraintViolationException e) {
+                report(uri, SC_BAD_REQUEST, e.getMessage());
+                return null;
+            }
+            if (Arrays.stream(path.split("/")).anyMatch(segment -> segment.startsWith("fcr:"))) {
+                report(uri, SC_BAD_REQUEST, "Path cannot contain a fcr: prefixed segment.");
+                return null;
+            }
+            return path;
+        }
+
+        private String getSubtree(final String path) {
+            final String prefix = containerPath.endsWith("/") ? containerPath : containerPath + "/";
+            final int end = path.indexOf('/', prefix.length());
+            return end < 0 ? path : path.substring(0, end);
+        }
+
+        private Worker add(final Item item) {
+            final Worker worker = workers.get(Math.floorMod(item.subtree.hashCode(), workers.size()));
+            worker.add(item);
+            return worker;
+        }
+
+        private void report(final String uri, final int status, final String message) {
+            final ObjectNode result = MAPPER.createObjectNode();
+            result.put("uri", uri);
+            result.put("status", status);
+            if (message != null) {
+                result.put("message", message);
+            }
+            if (status == SC_CREATED) {
+                created.increment();
+            } else {
+                failed.increment();
+                LOGGER.debug("Bulk ingest of {} failed with {}: {}", uri, status, message);
+            }
+            write(result);
+        }
+
+        private synchronized void write(final ObjectNode result) {
+            if (disconnected) {
+                return;
+            }
+            try {
+                out.write((MAPPER.writeValueAsString(result) + "\n").getBytes(StandardCharsets.UTF_8));
+                out.flush();
+            } catch (final IOException e) {
+                disconnected = true;
+                LOGGER.warn("Unable to report the results of a bulk ingest into {}: {}", containerPath,
+                        e.getMessage());
+            }
+        }
+
+        /**
+         * Creates the resources of the subtrees assigned to it, in its own session
+         */
+        private final class Worker implements Runnable {
+
+            private final BlockingQueue<Item> queue = new ArrayBlockingQueue<>(batchSize * 2);
+
+            private final List<Item> batch = new ArrayList<>();
+
+            private final boolean shared;
+
+            private HttpSession workerSession;
+
+            private IdentifierConverter<Resource, FedoraResource> idTranslator;
+
+            private final List<AcquiredLock> locks = new ArrayList<>();
+
+            private volatile boolean stopped;
+
+            private Worker(final HttpSession session) {
+                this.shared = session != null;
+                this.workerSession = session;
+            }
+
+            private void add(final Item item) {
+                try {
+                    while (!queue.offer(item, 1, SECONDS)) {
+                        if (stopped) {
+                            if (item != Item.END) {
+                                report(item.uri, SC_SERVICE_UNAVAILABLE, "Bulk ingest stopped");
+                            }
+                            return;
+                        }
+                    }
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while queueing " + item.uri, e);
+                }
+            }
+
+            @Override
+            public void run() {
+                try {
+                    for (Item item = queue.take(); item != Item.END; item = queue.take()) {
+                        try {
+                            process(item);
+                        } finally {
+                            item.release();
+                        }
+                    }
+                    save();
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    batch.forEach(item -> report(item.uri, SC_INTERNAL_SERVER_ERROR, "Interrupted"));
+                    batch.clear();
+                } finally {
+                    stopped = true;
+                    queue.forEach(item -> {
+                        if (item != Item.END) {
+                            report(item.uri, SC_SERVICE_UNAVAILABLE, "Bulk ingest stopped");
+                        }
+                        item.release();
+                    });
+                    release();
+                    if (workerSession != null && !shared) {
+                        workerSession.expire();
+                    }
+                }
+            }
+
+            private void process(final Item item) {
+                create(item);
+                // binary content cannot be read again, so a binary is never left unsaved
+                if (item.content != null || batch.size() >= batchSize) {
+                    save();
+                }
+            }
+
+            private HttpSession session() {
+                if (workerSession == null) {
+                    workerSession = new HttpSession(repository.login(credentials));
+                    idTranslator = null;
+                }
+                return workerSession;
+            }
+
+            private IdentifierConverter<Resource, FedoraResource> translator() {
+                if (idTranslator == null) {
+                    idTranslator = new HttpResourceConverter(session(), uriBuilder.clone());
+                }
+                return idTranslator;
+            }
+
+            private void create(final Item item) {
+                try {
+                    locks.add(lockManager.lockForWrite(item.path, session().getFedoraSession(), nodeService));
+                } catch (final RuntimeException e) {
+                    report(item.uri, getStatus(e), e.getMessage());
+                    return;
+                }
+                String created = null;
+                try {
+                    created = check(item);
+                    apply(item);
+                    batch.add(item);
+                } catch (final Exception e) {
+                    report(item.uri, getStatus(e), e.getMessage());
+                    // the failed resource may be partly created, so it is removed from the session of the transaction
+                    // or the rest of the batch is created again without it
+                    if (shared) {
+                        if (created != null) {
+                            undo(created);
+                        }
+                    } else {
+                        discard();
+                        release();
+                        final List<Item> previous = new ArrayList<>(batch);
+                        batch.clear();
+                        for (final Item retry : previous) {
+                            create(retry);
+                            save();
+                        }
+                    }
+                }
+            }
+
+            /**
+             * @return the path of the topmost resource that creating the item will create
+             */
+            private String check(final Item item) {
+                if (!creationChecks.stream().allMatch(check -> check.test(item.path))) {
+                    throw new ClientErrorException("Not permitted to create " + item.uri, FORBIDDEN);
+                }
+                final FedoraSession fedoraSession = session().getFedoraSession();
+                if (nodeService.exists(fedoraSession, item.path)) {
+                    throw new ClientErrorException("Resource " + item.uri + " already exists", CONFLICT);
+                }
+                return checkExistingAncestor(fedoraSession, item.path);
+            }
+
+            private void apply(final Item item) throws InvalidChecksumException {
+                final FedoraSession fedoraSession = session().getFedoraSession();
+                if (item.content == null) {
+                    ensureValidMemberRelation(item.model);
+                    final Container container =
+                            containerService.findOrCreate(fedoraSession, item.path, item.interactionModel);
+                    timeMapService.findOrCreate(fedoraSession, item.path);
+                    container.replaceProperties(translator(), item.model,
+                            new DefaultRdfStream(translator().reverse().convert(container).asNode()));
+                } else {
+                    final FedoraBinary binary = binaryService.findOrCreate(fedoraSession, item.path);
+                    timeMapService.findOrCreate(fedoraSession, item.path + "/" + FEDORA_DESCRIPTION);
+                    timeMapService.findOrCreate(fedoraSession, item.path);
+                    replaceResourceBinaryWithStream(binary, item.content, item.contentDisposition, item.contentType,
+                            item.checksums, null, null);
+                    binary.addType(LDP_NON_RDF_SOURCE);
+                }
+            }
+
+            private String checkExistingAncestor(final FedoraSession fedoraSession, final String path) {
+                String created = path;
+                for (String parentPath = path.substring(0, path.lastIndexOf('/')); !parentPath.isEmpty();
+                        parentPath = parentPath.substring(0, parentPath.lastIndexOf('/'))) {
+                    if (nodeService.exists(fedoraSession, parentPath)) {
+                        if (!(translator().convert(translator().toDomain(parentPath)) instanceof Container)) {
+                            throw new ClientErrorException("Unable to add child " + path.replace(parentPath, "")
+                                    + " to resource " + parentPath + ".", CONFLICT);
+                        }
+                        return created;
+                    }
+                    created = parentPath;
+                }
+                return created;
+            }
+
+            /**
+             * Removes a resource created by a failed item from the session of the transaction, along with the
+             * tombstone its deletion leaves, so that the rest of the transaction is kept as it was
+             */
+            private void undo(final String created) {
+                final FedoraSession fedoraSession = session().getFedoraSession();
+                try {
+                    if (nodeService.exists(fedoraSession, created)) {
+                        nodeService.find(fedoraSession, created).delete();
+                        if (nodeService.exists(fedoraSession, created)) {
+                            translator().convert(translator().toDomain(created)).delete();
+                        }
+                    }
+                } catch (final RuntimeException e) {
+                    LOGGER.warn("Unable to remove {} from transaction {} after it failed", created,
+                            session().getId(), e);
+                }
+            }
+
+            private void save() {
+                try {
+                    if (!batch.isEmpty()) {
+                        session().commit();
+                        batch.forEach(item -> report(item.uri, SC_CREATED, null));
+                    }
+                } catch (final RuntimeException e) {
+                    batch.forEach(item -> report(item.uri, getStatus(e), e.getMessage()));
+                    discard();
+                } finally {
+                    batch.clear();
+                    release();
+                }
+            }
+
+            private void discard() {
+                if (!shared && workerSession != null) {
+                    workerSession.expire();
+                    workerSession = null;
+                }
+            }
+
+            private void release() {
+                locks.forEach(AcquiredLock::release);
+                locks.clear();
+            }
+        }
+    }
+}
@@ -30,6 +30,12 @@ public class FedoraHttpConfiguration {
     @Value("${fcrepo.http.ldp.putRequiresIfMatch:false}")
     private boolean putRequiresIfMatch;
 
+    @Value("${fcrepo.http.bulk.batchSize:100}")
+    private int bulkIngestBatchSize;
+
+    @Value("${fcrepo.http.bulk.threads:4}")
+    private int bulkIngestThreads;
+
     /**
      * Should PUT requests require an If-Match header?
      * @return put request if match
@@ -37,4 +43,20 @@ public class FedoraHttpConfiguration {
     public boolean putRequiresIfMatch() {
         return putRequiresIfMatch;
     }
+
+    /**
+     * The number of resources a bulk ingest creates in each save
+     * @return the batch size
+     */
+    public int bulkIngestBatchSize() {
+        return bulkIngestBatchSize;
+    }
+
+    /**
+     * The number of threads across which a bulk ingest spreads independent subtrees
+     * @return the number of threads
+     */
+    public int bulkIngestThreads() {
+        return bulkIngestThreads;
+    }
 }
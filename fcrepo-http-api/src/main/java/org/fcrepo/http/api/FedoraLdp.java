@@ -20,7 +20,6 @@ package org.fcrepo.http.api;
 
 import static com.google.common.base.Strings.isNullOrEmpty;
 import static com.google.common.base.Strings.nullToEmpty;
-import static java.nio.charset.StandardCharsets.UTF_8;
 import static javax.ws.rs.core.HttpHeaders.CONTENT_DISPOSITION;
 import static javax.ws.rs.core.HttpHeaders.CONTENT_TYPE;
 import static javax.ws.rs.core.HttpHeaders.LINK;
@@ -105,12 +104,12 @@ import javax.ws.rs.core.Variant.VariantListBuilder;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Splitter;
 import com.google.common.collect.ImmutableList;
-import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.jena.atlas.web.ContentType;
 import org.apache.jena.rdf.model.Resource;
 import org.fcrepo.http.api.PathLockManager.AcquiredLock;
 import org.fcrepo.http.commons.domain.PATCH;
+import org.fcrepo.http.commons.domain.SparqlUpdateBody;
 import org.fcrepo.kernel.api.FedoraTypes;
 import org.fcrepo.kernel.api.RdfStream;
 import org.fcrepo.kernel.api.exception.AccessDeniedException;
@@ -536,8 +535,8 @@ public class FedoraLdp extends ContentExposingResource {
                 nodeService);
 
         try {
-            final String requestBody = IOUtils.toString(requestBodyStream, UTF_8);
-            if (isBlank(requestBody)) {
+            final SparqlUpdateBody requestBody = readSparqlUpdate(requestBodyStream);
+            if (isBlank(requestBody.getBody())) {
                 throw new BadRequestException("SPARQL-UPDATE requests must have content!");
             }
 
@@ -676,7 +675,7 @@ public class FedoraLdp extends ContentExposingResource {
 
                     } else if (contentTypeString.equals(contentTypeSPARQLUpdate)) {
                         LOGGER.trace("Found SPARQL-Update content, applying..");
-                        patchResourcewithSparql(resource, IOUtils.toString(requestBodyStream, UTF_8), resourceTriples);
+                        patchResourcewithSparql(resource, readSparqlUpdate(requestBodyStream), resourceTriples);
                     } else {
                         if (requestBodyStream.read() != -1) {
                             throw new ClientErrorException("Invalid Content Type " + contentTypeString,
@@ -854,14 +853,14 @@ public class FedoraLdp extends ContentExposingResource {
 
     private String handleWantDigestHeader(final FedoraBinary binary, final String wantDigest)
             throws UnsupportedAlgorithmException {
-        // handle the Want-Digest header with fixity check
+        // handle the Want-Digest header with the digests known for the content, computing only those that are not
         final Collection<String> preferredDigests = parseWantDigestHeader(wantDigest);
         if (preferredDigests.isEmpty()) {
             throw new UnsupportedAlgorithmException(
                     "Unsupported digest algorithm provided in 'Want-Digest' header: " + wantDigest);
         }
 
-        final Collection<URI> checksumResults = binary.checkFixity(idTranslator, preferredDigests);
+        final Collection<URI> checksumResults = binary.getDigests(preferredDigests);
         return checksumResults.stream().map(uri -> uri.toString().replaceFirst("urn:", "")
                 .replaceFirst(":", "=").replaceFirst("sha1=", "sha=")).collect(Collectors.joining(","));
     }
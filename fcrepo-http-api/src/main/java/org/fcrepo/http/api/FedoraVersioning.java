@@ -23,6 +23,7 @@ import static javax.ws.rs.core.Response.Status.CONFLICT;
 import static javax.ws.rs.core.Response.Status.UNSUPPORTED_MEDIA_TYPE;
 import static javax.ws.rs.core.Response.ok;
 import static org.apache.commons.lang3.StringUtils.isBlank;
+import static org.apache.http.HttpStatus.SC_BAD_REQUEST;
 import static org.apache.jena.riot.RDFLanguages.contentTypeToLang;
 import static org.fcrepo.http.commons.domain.RDFMediaType.APPLICATION_LINK_FORMAT;
 import static org.fcrepo.http.commons.domain.RDFMediaType.JSON_LD;
@@ -45,9 +46,7 @@ import java.time.Instant;
 import java.time.ZoneId;
 import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collection;
-import java.util.Comparator;
 import java.util.HashSet;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -82,6 +81,7 @@ import org.fcrepo.kernel.api.exception.RepositoryRuntimeException;
 import org.fcrepo.kernel.api.exception.UnsupportedAlgorithmException;
 import org.fcrepo.kernel.api.models.FedoraBinary;
 import org.fcrepo.kernel.api.models.FedoraResource;
+import org.fcrepo.kernel.api.models.FedoraTimeMap;
 import org.fcrepo.kernel.api.rdf.DefaultRdfStream;
 import org.slf4j.Logger;
 import org.springframework.context.annotation.Scope;
@@ -275,34 +275,7 @@ public class FedoraVersioning extends ContentExposingResource {
         addResourceHttpHeaders(theTimeMap);
 
         if (acceptValue != null && acceptValue.equalsIgnoreCase(APPLICATION_LINK_FORMAT)) {
-            final URI parentUri = getUri(resource());
-            final List<Link> versionLinks = new ArrayList<>();
-            versionLinks.add(Link.fromUri(parentUri).rel("original").build());
-            versionLinks.add(Link.fromUri(parentUri).rel("timegate").build());
-            // So we don't collect the children twice, store them in an array.
-            final FedoraResource[] children = theTimeMap.getChildren().toArray(FedoraResource[]::new);
-
-            Arrays.stream(children).forEach(t -> {
-                final URI childUri = getUri(t);
-                versionLinks.add(Link.fromUri(childUri).rel("memento")
-                                     .param("datetime",
-                        MEMENTO_RFC_1123_FORMATTER.format(t.getMementoDatetime()))
-                                     .build());
-            });
-            // Based on the dates of the above mementos, add the range to the below link.
-            final Instant[] Mementos = Arrays.stream(children).map(FedoraResource::getMementoDatetime)
-                .sorted(Comparator.naturalOrder())
-                .toArray(Instant[]::new);
-            final Builder linkBuilder =
-                Link.fromUri(parentUri + "/" + FCR_VERSIONS).rel("self").type(APPLICATION_LINK_FORMAT);
-            if (Mementos.length >= 2) {
-                // There are 2 or more Mementos so make a range.
-                linkBuilder.param("from", MEMENTO_RFC_1123_FORMATTER.format(Mementos[0].atZone(ZoneId.of("UTC"))));
-                linkBuilder.param("until",
-                    MEMENTO_RFC_1123_FORMATTER.format(Mementos[Mementos.length - 1].atZone(ZoneId.of("UTC"))));
-            }
-            versionLinks.add(linkBuilder.build());
-            return ok(new LinkFormatStream(versionLinks.stream())).build();
+            return getLinkFormatPage((FedoraTimeMap) theTimeMap);
         } else {
             final AcquiredLock readLock = lockManager.lockForRead(theTimeMap.getPath());
             try (final RdfStream rdfStream = new DefaultRdfStream(asNode(theTimeMap))) {
@@ -313,6 +286,82 @@ public class FedoraVersioning extends ContentExposingResource {
         }
     }
 
+    /**
+     * List one page of the mementos of a TimeMap in application/link-format.  Pages are listed in order of memento
+     * datetime and linked to their neighbours, as in the paged TimeMaps of RFC 7089.
+     *
+     * @param theTimeMap the TimeMap
+     * @return the page
+     */
+    private Response getLinkFormatPage(final FedoraTimeMap theTimeMap) {
+        final int pageSize = getRequestedPageSize(DEFAULT_PAGE_SIZE);
+        final int page = getRequestedPage();
+        final List<Instant> datetimes = theTimeMap.getMementoDatetimes();
+        final int first = (int) Math.min((long) page * pageSize, datetimes.size());
+        final int last = Math.min(first + pageSize, datetimes.size());
+
+        final URI parentUri = getUri(resource());
+        final List<Link> versionLinks = new ArrayList<>();
+        versionLinks.add(Link.fromUri(parentUri).rel("original").build());
+        versionLinks.add(Link.fromUri(parentUri).rel("timegate").build());
+        for (final Instant datetime : datetimes.subList(first, last)) {
+            final FedoraResource memento = theTimeMap.getMemento(datetime);
+            if (memento != null) {
+                versionLinks.add(Link.fromUri(getUri(memento)).rel("memento")
+                        .param("datetime", MEMENTO_RFC_1123_FORMATTER.format(memento.getMementoDatetime()))
+                        .build());
+            }
+        }
+
+        final URI selfUri = uriInfo.getQueryParameters().containsKey(PAGE_PARAM) ? getPageUri(page, pageSize) :
+                URI.create(parentUri + "/" + FCR_VERSIONS);
+        versionLinks.add(getTimeMapLink(selfUri, "self", datetimes.subList(first, last)));
+        if (first > 0) {
+            final int previous = Math.min(page - 1, (datetimes.size() - 1) / pageSize);
+            versionLinks.add(getTimeMapLink(getPageUri(previous, pageSize), "prev timemap",
+                    datetimes.subList(previous * pageSize, Math.min((previous + 1) * pageSize, datetimes.size()))));
+        }
+        if (last < datetimes.size()) {
+            versionLinks.add(getTimeMapLink(getPageUri(page + 1, pageSize), "next timemap",
+                    datetimes.subList(last, Math.min(last + pageSize, datetimes.size()))));
+        }
+        return ok(new LinkFormatStream(versionLinks.stream())).build();
+    }
+
+    private int getRequestedPage() {
+        final String page = uriInfo.getQueryParameters().getFirst(PAGE_PARAM);
+        if (page == null) {
+            return 0;
+        }
+        try {
+            final int number = Integer.parseInt(page);
+            if (number >= 0) {
+                return number;
+            }
+        } catch (final NumberFormatException e) {
+            LOGGER.debug("Invalid page: {}", page);
+        }
+        throw new ClientErrorException("Invalid '" + PAGE_PARAM + "' value: " + page, SC_BAD_REQUEST);
+    }
+
+    private URI getPageUri(final int page, final int pageSize) {
+        return uriInfo.getRequestUriBuilder().replaceQueryParam(PAGE_PARAM, page)
+                .replaceQueryParam(PAGE_SIZE_PARAM, pageSize).build();
+    }
+
+    /*
+     * A link to a page of a TimeMap, giving the range of the page if it holds 2 or more Mementos.
+     */
+    private static Link getTimeMapLink(final URI uri, final String rel, final List<Instant> datetimes) {
+        final Builder linkBuilder = Link.fromUri(uri).rel(rel).type(APPLICATION_LINK_FORMAT);
+        if (datetimes.size() >= 2) {
+            linkBuilder.param("from", MEMENTO_RFC_1123_FORMATTER.format(datetimes.get(0).atZone(ZoneId.of("UTC"))));
+            linkBuilder.param("until",
+                MEMENTO_RFC_1123_FORMATTER.format(datetimes.get(datetimes.size() - 1).atZone(ZoneId.of("UTC"))));
+        }
+        return linkBuilder.build();
+    }
+
     /**
      * Outputs information about the supported HTTP methods, etc.
      *
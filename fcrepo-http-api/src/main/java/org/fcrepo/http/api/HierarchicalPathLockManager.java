@@ -0,0 +1,366 @@
+/*
+ * Licensed to DuraSpace under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * DuraSpace licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.http.api;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.fcrepo.kernel.api.FedoraSession;
+import org.fcrepo.kernel.api.exception.InterruptedRuntimeException;
+import org.fcrepo.kernel.api.services.NodeService;
+import org.slf4j.Logger;
+
+import com.google.common.annotations.VisibleForTesting;
+
+/**
+ * A PathLockManager that uses multiple-granularity locking over the path
+ * hierarchy instead of a single monitor.  Every path that is the subject of
+ * a lock request, along with each of its ancestors, is represented by a node
+ * in a concurrent map.  Each node carries its own monitor, so acquiring or
+ * releasing a lock only contends with (and only wakes) threads interested in
+ * the same node.
+ *
+ * A read or write lock on a path places an "intention" on every ancestor of
+ * that path.  A delete lock is a subtree lock: it is granted only when the
+ * node has no readers, no writer and no intentions, which is to say that no
+ * lock is held anywhere beneath it, and while it is held no intention can be
+ * placed on the node.  This meets the locking requirements for deletes
+ * without scanning (or locking) the set of active descendant paths.  Once a
+ * delete is waiting on a node, new locks on or beneath it wait for the delete
+ * as well, so that it is not starved by a steady stream of them, unless the
+ * thread asking already holds a lock through the node.
+ *
+ * Nodes are acquired top-down along a single line of descent and are never
+ * re-acquired, so a thread only ever waits on locks deeper than any it holds,
+ * which rules out deadlock.
+ *
+ * This implementation is not registered by component scanning; it may be
+ * selected in place of {@link DefaultPathLockManager} by declaring it as a
+ * primary bean in the Spring configuration.
+ *
+ * @author rdfloyd
+ */
+public class HierarchicalPathLockManager implements PathLockManager {
+
+    private static final Logger LOGGER = getLogger(HierarchicalPathLockManager.class);
+
+    /**
+     * All paths that are either locked, awaiting a lock or an ancestor of such
+     * a path.  Entries are reference counted and removed once no lock request
+     * refers to them.
+     */
+    @VisibleForTesting
+    final ConcurrentMap<String, PathNode> activeNodes = new ConcurrentHashMap<>();
+
+    /**
+     * The ways in which a single node may be locked.
+     */
+    private enum Mode {
+        INTENT, READ, WRITE, DELETE
+    }
+
+    /**
+     * The lock state of a single path.
+     */
+    @VisibleForTesting
+    static class PathNode {
+
+        private final String path;
+
+        private final ReentrantLock monitor = new ReentrantLock();
+
+        private final Condition released = monitor.newCondition();
+
+        /**
+         * The number of lock requests referring to this node; guarded by the
+         * atomicity of the map operations in the outer class.
+         */
+        private int references;
+
+        private int intentions;
+
+        private int readers;
+
+        private Thread writer;
+
+        private int writeHolds;
+
+        private boolean deleting;
+
+        /**
+         * The number of delete locks waiting to be granted on this node.
+         */
+        private int waitingDeletes;
+
+        /**
+         * The number of locks and intentions each thread holds on this node.
+         */
+        private final Map<Thread, Integer> holders = new HashMap<>();
+
+        private PathNode(final String path) {
+            this.path = path;
+        }
+
+        private boolean isGrantable(final Mode mode) {
+            final boolean writtenByOther = writer != null && writer != Thread.currentThread();
+            // a thread that already holds a lock through this node is not held back by a waiting delete, which
+            // could otherwise never be granted
+            final boolean deleteWaiting = waitingDeletes > 0 && !holders.containsKey(Thread.currentThread());
+            switch (mode) {
+                case INTENT:
+                    return !deleting && !deleteWaiting;
+                case READ:
+                    return !deleting && !deleteWaiting && !writtenByOther;
+                case WRITE:
+                    return !deleting && !deleteWaiting && !writtenByOther && (readers == 0 || writer != null);
+                case DELETE:
+                    return !deleting && writer == null && readers == 0 && intentions == 0;
+                default:
+                    throw new IllegalArgumentException("Unknown lock mode: " + mode);
+            }
+        }
+
+        /**
+         * Blocks until the node may be locked in the given mode, then takes the
+         * lock, along with an intention if the request also covers a descendant.
+         */
+        private void acquire(final Mode mode, final boolean intent) throws InterruptedException {
+            monitor.lockInterruptibly();
+            try {
+                if (mode == Mode.DELETE) {
+                    waitingDeletes++;
+                }
+                try {
+                    while (!isGrantable(mode)) {
+                        LOGGER.trace("Thread {} waiting for {} lock on {}.", Thread.currentThread().getId(), mode,
+                                path);
+                        released.await();
+                    }
+                } finally {
+                    if (mode == Mode.DELETE) {
+                        waitingDeletes--;
+                        released.signalAll();
+                    }
+                }
+                holders.merge(Thread.currentThread(), 1, Integer::sum);
+                switch (mode) {
+                    case READ:
+                        readers++;
+                        break;
+                    case WRITE:
+                        writer = Thread.currentThread();
+                        writeHolds++;
+                        break;
+                    case DELETE:
+                        deleting = true;
+                        break;
+                    default:
+                        break;
+                }
+                if (intent) {
+                    intentions++;
+                }
+            } finally {
+                monitor.unlock();
+            }
+        }
+
+        private void release(final Mode mode, final boolean intent, final Thread holder) {
+            monitor.lock();
+            try {
+                holders.computeIfPresent(holder, (thread, holds) -> holds == 1 ? null : holds - 1);
+                switch (mode) {
+                    case READ:
+                        readers--;
+                        break;
+                    case WRITE:
+                        if (--writeHolds == 0) {
+                            writer = null;
+                        }
+                        break;
+                    case DELETE:
+                        deleting = false;
+                        break;
+                    default:
+                        break;
+                }
+                if (intent) {
+                    intentions--;
+                }
+                released.signalAll();
+            } finally {
+                monitor.unlock();
+            }
+        }
+    }
+
+    /**
+     * A single node lock held on behalf of an AcquiredLock.
+     */
+    private static class HeldNode {
+
+        private final PathNode node;
+
+        private final Mode mode;
+
+        private final boolean intent;
+
+        private final Thread holder;
+
+        private HeldNode(final PathNode node, final Mode mode, final boolean intent) {
+            this.node = node;
+            this.mode = mode;
+            this.intent = intent;
+            this.holder = Thread.currentThread();
+        }
+    }
+
+    /**
+     * The AcquiredLock implementation returned by this class.  It holds the
+     * node locks along one line of descent, from the topmost ancestor down.
+     */
+    private class AcquiredHierarchicalLock implements AcquiredLock {
+
+        private final List<HeldNode> held = new ArrayList<>();
+
+        private final List<PathNode> referenced = new ArrayList<>();
+
+        private boolean released;
+
+        /**
+         * Acquires the locks for a request whose deepest path is the last
+         * element of the lineage.
+         *
+         * @param lineage the path and all of its ancestors, topmost first
+         * @param targets the paths (within the lineage) to lock in the given mode
+         * @param mode the mode in which targets are locked; others get intentions
+         */
+        private AcquiredHierarchicalLock(final List<String> lineage, final Set<String> targets, final Mode mode) {
+            lineage.forEach(p -> referenced.add(reference(p)));
+            try {
+                for (int i = 0; i < referenced.size(); i++) {
+                    final PathNode node = referenced.get(i);
+                    final boolean deepest = i == referenced.size() - 1;
+                    final Mode nodeMode = targets.contains(node.path) ? mode : Mode.INTENT;
+                    final boolean intent = !deepest;
+                    node.acquire(nodeMode, intent);
+                    held.add(new HeldNode(node, nodeMode, intent));
+                }
+            } catch (final InterruptedException e) {
+                release();
+                throw new InterruptedRuntimeException(e);
+            }
+            LOGGER.debug("Acquired all necessary path locks  (Thread {})", Thread.currentThread().getId());
+        }
+
+        @Override
+        public void release() {
+            if (released) {
+                return;
+            }
+            released = true;
+            for (int i = held.size() - 1; i >= 0; i--) {
+                final HeldNode h = held.get(i);
+                h.node.release(h.mode, h.intent, h.holder);
+            }
+            referenced.forEach(node -> dereference(node.path));
+            LOGGER.trace("Thread {} released locks.", Thread.currentThread().getId());
+        }
+    }
+
+    private PathNode reference(final String path) {
+        return activeNodes.compute(path, (p, node) -> {
+            final PathNode n = node == null ? new PathNode(p) : node;
+            n.references++;
+            return n;
+        });
+    }
+
+    private void dereference(final String path) {
+        activeNodes.computeIfPresent(path, (p, node) -> --node.references == 0 ? null : node);
+    }
+
+    /**
+     * @param path a normalized path
+     * @return the path and each of its ancestors, topmost first
+     */
+    private static List<String> lineage(final String path) {
+        final List<String> lineage = new ArrayList<>();
+        for (int i = path.indexOf('/', 1); i > 0; i = path.indexOf('/', i + 1)) {
+            lineage.add(path.substring(0, i));
+        }
+        lineage.add(path);
+        return lineage;
+    }
+
+    private static String getParentPath(final String path) {
+        if (path.indexOf('/') == -1) {
+            return null;
+        }
+        return path.substring(0, path.lastIndexOf('/'));
+    }
+
+    private static String normalizePath(final String path) {
+        if (path.endsWith("/")) {
+            return path.substring(0, path.length() - 1);
+        } else {
+            return path;
+        }
+    }
+
+    @Override
+    public AcquiredLock lockForRead(final String path) {
+        final String normalized = normalizePath(path);
+        final Set<String> targets = new HashSet<>();
+        targets.add(normalized);
+        return new AcquiredHierarchicalLock(lineage(normalized), targets, Mode.READ);
+    }
+
+    @Override
+    public AcquiredLock lockForWrite(final String path, final FedoraSession session, final NodeService nodeService) {
+        // lock the specified path along with each path that would be created
+        // implicitly by this write (ie, non-existent ancestral paths)
+        final String startingPath = normalizePath(path);
+        final Set<String> targets = new HashSet<>();
+        targets.add(startingPath);
+        for (String currentPath = getParentPath(startingPath);
+                currentPath != null && currentPath.length() > 0 && !nodeService.exists(session, currentPath);
+                currentPath = getParentPath(currentPath)) {
+            targets.add(currentPath);
+        }
+        return new AcquiredHierarchicalLock(lineage(startingPath), targets, Mode.WRITE);
+    }
+
+    @Override
+    public AcquiredLock lockForDelete(final String path) {
+        final String normalized = normalizePath(path);
+        final Set<String> targets = new HashSet<>();
+        targets.add(normalized);
+        return new AcquiredHierarchicalLock(lineage(normalized), targets, Mode.DELETE);
+    }
+}
@@ -0,0 +1,218 @@
+/*
+ * Licensed to DuraSpace under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * DuraSpace licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.http.api;
+
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Reads the parts of a multipart body one at a time, straight from the stream of the body, so that no part is
+ * buffered beyond a small window.  Each part must be read, or abandoned, before moving to the next.
+ *
+ * @author rdfloyd
+ */
+final class MultipartStream {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final InputStream in;
+
+    private final byte[] delimiter;
+
+    private final byte[] buffer;
+
+    private int head;
+
+    private int tail;
+
+    private PartStream part;
+
+    private boolean finished;
+
+    /**
+     * @param in the body
+     * @param boundary the boundary between parts
+     */
+    MultipartStream(final InputStream in, final String boundary) {
+        this.in = in;
+        this.delimiter = ("\r\n--" + boundary).getBytes(ISO_8859_1);
+        this.buffer = new byte[Math.max(BUFFER_SIZE, delimiter.length * 2)];
+        // the first delimiter need not follow a line break, so one is supplied
+        buffer[tail++] = '\r';
+        buffer[tail++] = '\n';
+    }
+
+    /**
+     * Move to the next part, abandoning the rest of the current one.
+     *
+     * @return the headers of the next part, with lower-case names, or null if there are no more parts
+     * @throws IOException if the body cannot be read or is not multipart
+     */
+    Map<String, String> nextPart() throws IOException {
+        if (finished) {
+            return null;
+        }
+        final PartStream previous = part == null ? new PartStream() : part;
+        final byte[] skipped = new byte[BUFFER_SIZE];
+        while (previous.read(skipped, 0, skipped.length) >= 0) {
+            // the rest of the preamble or previous part is not wanted
+        }
+        head += delimiter.length;
+        if (!fill(2)) {
+            throw new EOFException("Multipart body ends without a closing boundary");
+        } else if (buffer[head] == '-' && buffer[head + 1] == '-') {
+            finished = true;
+            part = null;
+            return null;
+        }
+        readLine();
+        final Map<String, String> headers = new TreeMap<>();
+        for (String line = readLine(); !line.isEmpty(); line = readLine()) {
+            final int colon = line.indexOf(':');
+            if (colon > 0) {
+                headers.put(line.substring(0, colon).trim().toLowerCase(Locale.ROOT), line.substring(colon + 1).trim());
+            }
+        }
+        part = new PartStream();
+        return headers;
+    }
+
+    /**
+     * @return the content of the current part
+     */
+    InputStream getPart() {
+        return part;
+    }
+
+    private String readLine() throws IOException {
+        int i = head;
+        for (;;) {
+            for (; i + 1 < tail; i++) {
+                if (buffer[i] == '\r' && buffer[i + 1] == '\n') {
+                    final String line = new String(buffer, head, i - head, ISO_8859_1);
+                    head = i + 2;
+                    return line;
+                }
+            }
+            final int scanned = i - head;
+            if (!fill(tail - head + 1)) {
+                throw new IOException("Multipart header line is too long or unterminated");
+            }
+            i = head + scanned;
+        }
+    }
+
+    /**
+     * Ensure that at least some number of bytes are buffered past the head
+     *
+     * @return whether they could be
+     */
+    private boolean fill(final int wanted) throws IOException {
+        if (wanted > buffer.length) {
+            return false;
+        }
+        while (tail - head < wanted) {
+            if (head > 0 && tail + (wanted - (tail - head)) > buffer.length) {
+                System.arraycopy(buffer, head, buffer, 0, tail - head);
+                tail -= head;
+                head = 0;
+            }
+            final int read = in.read(buffer, tail, buffer.length - tail);
+            if (read < 0) {
+                return false;
+            }
+            tail += read;
+        }
+        return true;
+    }
+
+    /**
+     * The content of one part, ending at the delimiter that follows it
+     */
+    private final class PartStream extends InputStream {
+
+        private boolean ended;
+
+        /**
+         * @return the number of bytes at the head that belong to the part, or -1 if the part has ended
+         */
+        private int readable() throws IOException {
+            if (ended || part != this && part != null) {
+                return -1;
+            }
+            for (;;) {
+                final int found = indexOfDelimiter();
+                if (found == head) {
+                    ended = true;
+                    return -1;
+                } else if (found > head) {
+                    return found - head;
+                }
+                // a delimiter may begin in the last bytes buffered
+                final int safe = tail - head - (delimiter.length - 1);
+                if (safe > 0) {
+                    return safe;
+                } else if (!fill(tail - head + 1)) {
+                    throw new EOFException("Multipart body ends within a part");
+                }
+            }
+        }
+
+        private int indexOfDelimiter() {
+            for (int i = head; i + delimiter.length <= tail; i++) {
+                int j = 0;
+                while (j < delimiter.length && buffer[i + j] == delimiter[j]) {
+                    j++;
+                }
+                if (j == delimiter.length) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (readable() < 0) {
+                return -1;
+            }
+            return buffer[head++] & 0xff;
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            final int available = readable();
+            if (available < 0) {
+                return -1;
+            }
+            final int count = Math.min(len, available);
+            System.arraycopy(buffer, head, b, off, count);
+            head += count;
+            return count;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Licensed to DuraSpace under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * DuraSpace licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.http.api.repository;
+
+import static java.util.stream.Collectors.joining;
+import static javax.ws.rs.core.MediaType.TEXT_PLAIN;
+import static javax.ws.rs.core.Response.ok;
+import static org.slf4j.LoggerFactory.getLogger;
+
+import java.util.Collection;
+
+import javax.inject.Inject;
+import javax.ws.rs.DefaultValue;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.Response;
+
+import org.fcrepo.http.api.FedoraBaseResource;
+import org.fcrepo.kernel.api.models.FedoraResource;
+import org.fcrepo.kernel.api.services.RepositoryService;
+import org.slf4j.Logger;
+import org.springframework.context.annotation.Scope;
+
+/**
+ * Verify or rebuild the membership indexes of the direct and indirect containers of the repository, e.g. after
+ * upgrading a repository whose containers were created before the indexes existed. Both operations visit every
+ * container of the repository, so both are a POST, restricted to administrators; both respond with the containers
+ * whose index was missing or out of date, one per line.
+ *
+ * @author rdfloyd
+ */
+@Scope("request")
+@Path("/fcr:membershipIndex")
+public class FedoraRepositoryMembershipIndex extends FedoraBaseResource {
+
+    private static final Logger LOGGER = getLogger(FedoraRepositoryMembershipIndex.class);
+
+    @Inject
+    private RepositoryService repositoryService;
+
+    /**
+     * Rebuild the membership indexes that are missing or out of date, or, with verify=true, only list the containers
+     * whose index is missing or out of date, without changing them.
+     *
+     * @param verify whether to list the containers without rebuilding their indexes
+     * @return response
+     */
+    @POST
+    @Produces(TEXT_PLAIN)
+    public Response rebuild(@QueryParam("verify") @DefaultValue("false") final boolean verify) {
+        if (verify) {
+            final Collection<FedoraResource> outOfDate =
+                    repositoryService.rebuildMembershipIndexes(session.getFedoraSession(), true);
+            LOGGER.info("Found {} container(s) with a missing or out of date membership index", outOfDate.size());
+            return ok(list(outOfDate)).build();
+        }
+        final Collection<FedoraResource> rebuilt =
+                repositoryService.rebuildMembershipIndexes(session.getFedoraSession(), false);
+        session.commit();
+        LOGGER.info("Rebuilt the membership index of {} container(s)", rebuilt.size());
+        return ok(list(rebuilt)).build();
+    }
+
+    private String list(final Collection<FedoraResource> containers) {
+        return containers.stream().map(c -> translator().reverse().convert(c).getURI()).collect(joining("\n"));
+    }
+}
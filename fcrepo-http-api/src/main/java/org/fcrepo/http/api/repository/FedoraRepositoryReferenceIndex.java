@@ -0,0 +1,63 @@
+/*
+ * Licensed to DuraSpace under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * DuraSpace licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.http.api.repository;
+
+import static javax.ws.rs.core.MediaType.TEXT_PLAIN;
+import static javax.ws.rs.core.Response.ok;
+import static org.slf4j.LoggerFactory.getLogger;
+
+import javax.inject.Inject;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.Response;
+
+import org.fcrepo.http.api.FedoraBaseResource;
+import org.fcrepo.kernel.api.services.RepositoryService;
+import org.slf4j.Logger;
+import org.springframework.context.annotation.Scope;
+
+/**
+ * Rebuild the index of the resources that are the target of a reference, e.g. after upgrading a repository whose
+ * resources were created before the index existed. Responds with the number of resources found to be referenced.
+ *
+ * @author rdfloyd
+ */
+@Scope("request")
+@Path("/fcr:referenceIndex")
+public class FedoraRepositoryReferenceIndex extends FedoraBaseResource {
+
+    private static final Logger LOGGER = getLogger(FedoraRepositoryReferenceIndex.class);
+
+    @Inject
+    private RepositoryService repositoryService;
+
+    /**
+     * Rebuild the reference index.
+     *
+     * @return response
+     */
+    @POST
+    @Produces(TEXT_PLAIN)
+    public Response rebuild() {
+        final long targets = repositoryService.rebuildReferenceIndex(session.getFedoraSession());
+        session.commit();
+        LOGGER.info("Rebuilt the reference index with {} referenced resource(s)", targets);
+        return ok(String.valueOf(targets)).build();
+    }
+}
@@ -215,7 +215,8 @@ public class StreamingBaseHtmlProvider implements MessageBodyWriter<RdfNamespace
         uriTemplate.match(subjectUri, values);
         if (values.containsKey("path")) {
             try {
-                return translator().convert(translator().toDomain(values.get("path")));
+                final IdentifierConverter<Resource, FedoraResource> translator = translator();
+                return translator.convert(translator.toDomain(values.get("path")));
             } catch (final RuntimeException e) {
                 if (e.getCause() instanceof PathNotFoundException) {
                     //there is at least one case (ie Time Map endpoints - aka /fcr:versions) where the underlying jcr
@@ -65,6 +65,7 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anySet;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.same;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.doThrow;
@@ -88,6 +89,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
+import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import javax.servlet.ServletContext;
 import javax.ws.rs.BadRequestException;
@@ -107,10 +109,12 @@ import org.apache.jena.graph.Triple;
 import org.apache.jena.rdf.model.Model;
 import org.apache.jena.rdf.model.RDFNode;
 import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.update.UpdateRequest;
 import org.fcrepo.http.api.PathLockManager.AcquiredLock;
 import org.fcrepo.http.commons.api.rdf.HttpResourceConverter;
 import org.fcrepo.http.commons.domain.MultiPrefer;
 import org.fcrepo.http.commons.domain.PreferTag;
+import org.fcrepo.http.commons.domain.SparqlUpdateBody;
 import org.fcrepo.http.commons.responses.RdfNamespacedStream;
 import org.fcrepo.http.commons.session.HttpSession;
 import org.fcrepo.kernel.api.FedoraSession;
@@ -949,6 +953,21 @@ public class FedoraLdpTest {
     }
 
 
+    @Test
+    public void testPatchObjectWithParsedUpdate() throws Exception {
+
+        final FedoraResource mockObject = setResource(Container.class);
+        final SparqlUpdateBody body = new SparqlUpdateBody(
+                "INSERT DATA { <> <http://purl.org/dc/elements/1.1/title> \"title\" }");
+        final UpdateRequest parsed = body.parse(idTranslator.reverse().convert(mockObject).toString());
+        final HttpServletRequest mockServletRequest = mock(HttpServletRequest.class);
+        when(mockServletRequest.getAttribute(SparqlUpdateBody.SPARQL_UPDATE_ATTRIBUTE)).thenReturn(body);
+        setField(testObj, "servletRequest", mockServletRequest);
+
+        testObj.updateSparql(toInputStream("ignored", UTF_8));
+        verify(mockObject).updateProperties(eq(idTranslator), same(parsed), any(RdfStream.class));
+    }
+
     @Test
     @SuppressWarnings({"resource", "unchecked"})
     public void testPatchBinaryDescription() throws MalformedRdfException, IOException {
@@ -0,0 +1,308 @@
+/*
+ * Licensed to DuraSpace under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * DuraSpace licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.http.api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+import org.fcrepo.http.api.PathLockManager.AcquiredLock;
+import org.fcrepo.kernel.api.FedoraSession;
+import org.fcrepo.kernel.api.exception.InterruptedRuntimeException;
+import org.fcrepo.kernel.api.services.NodeService;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+/**
+ * Unit tests for HierarchicalPathLockManager.
+ * @author rdfloyd
+ */
+@RunWith(MockitoJUnitRunner.Silent.class)
+public class HierarchicalPathLockManagerTest {
+
+    /**
+     * Miliseconds to allow (as a maximum) for running threads to complete.  The
+     * current value of 1000 should be orders of magnitude more than is required.
+     * Tests are written such that we'll only wait this long if there's something
+     * broken in the code and the test would fail.
+     */
+    private static final int WAIT = 1000;
+
+    @Mock
+    private FedoraSession session;
+
+    @Mock
+    private NodeService nodeService;
+
+    @Before
+    public void defaultSetup() {
+        when(nodeService.exists(any(), any())).thenReturn(true);
+
+    }
+
+    @Test
+    public void testActivePathCleanup() {
+        final HierarchicalPathLockManager m = new HierarchicalPathLockManager();
+        assertEquals("There should no active paths in memory.", 0, m.activeNodes.size());
+
+        final AcquiredLock l1 = m.lockForRead("p1");
+        assertEquals("There should be exactly 1 path in memory.", 1, m.activeNodes.size());
+
+        final AcquiredLock l2 = m.lockForWrite("p2", session, nodeService);
+        assertEquals("There should be exactly 2 paths in memory.", 2, m.activeNodes.size());
+
+        l1.release();
+        assertEquals("There should be exactly 1 path in memory.", 1, m.activeNodes.size());
+        l2.release();
+
+        assertEquals("There should no active paths in memory.", 0, m.activeNodes.size());
+    }
+
+    @Test
+    public void readsShouldNotBlock() {
+        final HierarchicalPathLockManager m = new HierarchicalPathLockManager();
+        final String path = "path1";
+        m.lockForRead(path);
+        assertTrue("Concurrent read operations should be allowed!",
+                new Actor(() -> m.lockForRead(path)).canComplete());
+    }
+
+    @Test
+    public void readShouldBlockWhileWriting() {
+        final HierarchicalPathLockManager m = new HierarchicalPathLockManager();
+        final String path = "path1";
+        final AcquiredLock l = m.lockForWrite(path, session, nodeService);
+        final Actor r = new Actor(() -> m.lockForRead(path));
+        assertTrue("Read should block while writing to same path!", r.isBlocked());
+        l.release();
+        assertTrue("Read should complete after write!", r.canComplete());
+    }
+
+    @Test
+    public void writesShouldBlock() {
+        final HierarchicalPathLockManager m = new HierarchicalPathLockManager();
+        final String path = "path1";
+        final AcquiredLock l = m.lockForWrite(path, session, nodeService);
+        final Actor r = new Actor(() -> m.lockForWrite(path, session, nodeService));
+        assertTrue("Concurrent writes to the same path should block!", r.isBlocked());
+        l.release();
+        assertTrue("Write should be able to complete sequentially.", r.canComplete());
+    }
+
+    @Test
+    public void siblingWritesShouldNotBlock() {
+        final HierarchicalPathLockManager m = new HierarchicalPathLockManager();
+        final String p1 = "0/0";
+        final String p2 = "0/1";
+        m.lockForWrite(p1, session, nodeService);
+        final Actor writer = new Actor(() -> m.lockForWrite(p2, session, nodeService));
+        assertTrue("Sibling writes should not block!!", writer.canComplete());
+    }
+
+    @Test
+    public void siblingCreatesShouldNotBlock() {
+        when(nodeService.exists(any(), eq("0/0"))).thenReturn(false);
+        when(nodeService.exists(any(), eq("0/1"))).thenReturn(false);
+        final HierarchicalPathLockManager m = new HierarchicalPathLockManager();
+        final String p1 = "0/0";
+        final String p2 = "0/1";
+        m.lockForWrite(p1, session, nodeService);
+        final Actor writer = new Actor(() -> m.lockForWrite(p2, session, nodeService));
+        assertTrue("Sibling creates should not block!!", writer.canComplete());
+    }
+
+    @Test
+    public void ancestorNodesShouldDisappearWhenLockIsReleased() {
+        final HierarchicalPathLockManager m = new HierarchicalPathLockManager();
+        final AcquiredLock l1 = m.lockForWrite("/a/b/c", session, nodeService);
+        assertEquals("The path and each of its ancestors should be in memory.", 3, m.activeNodes.size());
+
+        final AcquiredLock l2 = m.lockForRead("/a/d");
+        assertEquals("Shared ancestors should only be in memory once.", 4, m.activeNodes.size());
+
+        l1.release();
+        assertEquals("There should be exactly 2 paths in memory.", 2, m.activeNodes.size());
+        l2.release();
+        assertEquals("There should no active paths in memory.", 0, m.activeNodes.size());
+    }
+
+    @Test
+    public void deletePathShouldBeDisappearWhenLockIsReleased() {
+        final HierarchicalPathLockManager m = new HierarchicalPathLockManager();
+        final String p1 = "delete";
+        final AcquiredLock l = m.lockForDelete(p1);
+        assertEquals("One delete lock should exist!", 1, m.activeNodes.size());
+        assertTrue(m.activeNodes.containsKey(p1));
+        l.release();
+        assertEquals("Delete lock should have been cleaned up!", 0, m.activeNodes.size());
+    }
+
+    @Test
+    public void deleteShouldBlockWhileDescendantsAreLocked() {
+        final HierarchicalPathLockManager m = new HierarchicalPathLockManager();
+        final AcquiredLock l = m.lockForRead("/root/delete/some/descendant");
+        final Actor deleter = new Actor(() -> m.lockForDelete("/root/delete"));
+        assertTrue("Delete should block while a descendant is being read!", deleter.isBlocked());
+        l.release();
+        assertTrue("Delete should complete once the descendant is released.",
+                new Actor(() -> m.lockForDelete("/root/delete")).canComplete());
+    }
+
+    @Test
+    public void waitingDeleteShouldHoldNewDescendantLocks() {
+        final HierarchicalPathLockManager m = new HierarchicalPathLockManager();
+        final AcquiredLock l = m.lockForRead("/root/delete/child");
+        final Actor deleter = new Actor(() -> m.lockForDelete("/root/delete"));
+        while (deleter.getState() != Thread.State.WAITING) {
+            Thread.yield();
+        }
+        final Actor reader = new Actor(() -> m.lockForRead("/root/delete/other"));
+        assertFalse("A lock beneath a waiting delete should wait for the delete!", reader.canComplete());
+        assertTrue("A lock beside a waiting delete should not wait for it.",
+                new Actor(() -> m.lockForRead("/root/other")).canComplete());
+        // the thread holding a lock beneath the delete is not held back by it
+        m.lockForRead("/root/delete/child/more").release();
+        l.release();
+        assertTrue("Delete should complete once the descendant is released.", deleter.canComplete());
+        assertTrue("The held lock should complete once the delete is released.", reader.canComplete());
+        assertEquals("There should no active paths in memory.", 0, m.activeNodes.size());
+    }
+
+    @Test
+    public void nestedDeletesShouldBlock() {
+        final HierarchicalPathLockManager m = new HierarchicalPathLockManager();
+        final AcquiredLock l = m.lockForDelete("/root/delete");
+        assertTrue("Deleting a descendant of a node being deleted should block!",
+                new Actor(() -> m.lockForDelete("/root/delete/child")).isBlocked());
+        assertTrue("Deleting an ancestor of a node being deleted should block!",
+                new Actor(() -> m.lockForDelete("/root")).isBlocked());
+        l.release();
+        assertTrue("Deleting the ancestor should complete once the delete lock is released.",
+                new Actor(() -> m.lockForDelete("/root")).canComplete());
+    }
+
+    @Test
+    public void writeShouldBeReentrant() {
+        final HierarchicalPathLockManager m = new HierarchicalPathLockManager();
+        final AcquiredLock l1 = m.lockForWrite("/path1", session, nodeService);
+        final AcquiredLock l2 = m.lockForWrite("/path1", session, nodeService);
+        final AcquiredLock l3 = m.lockForRead("/path1");
+        l3.release();
+        l2.release();
+        l1.release();
+        assertEquals("There should no active paths in memory.", 0, m.activeNodes.size());
+    }
+
+    @Test
+    public void deleteShouldBlockAccessToDescendents() {
+        final HierarchicalPathLockManager m = new HierarchicalPathLockManager();
+        final String p1 = "delete";
+        m.lockForDelete(p1);
+        assertTrue("Reading a path that is being deleted should block until delete is complete!",
+                new Actor(() -> m.lockForRead("delete/some/ancestor")).isBlocked());
+
+        when(nodeService.exists(any(), eq("delete/some/nonexistant/path"))).thenReturn(false);
+        when(nodeService.exists(any(), eq("delete/some/nonexistant"))).thenReturn(false);
+        assertTrue("Creating a node under a node being deleted should block until delete is complete!",
+                new Actor(() -> m.lockForRead("delete/some/nonexistant/path")).isBlocked());
+    }
+
+    @Test
+    public void deleteShouldNotAffectParentOrPeers() {
+        final HierarchicalPathLockManager m = new HierarchicalPathLockManager();
+        final String p1 = "root/delete";
+        m.lockForDelete(p1);
+        assertTrue("Writing to parent of node-being-deleted should not block.",
+                new Actor(() -> m.lockForWrite("root", session, nodeService)).canComplete());
+        assertTrue("Writing to peer of node-being-deleted should not block.",
+                new Actor(() -> m.lockForWrite("root/other", session, nodeService)).canComplete());
+    }
+
+    /**
+     * An interface whose single method acquires an AcquiredLock.
+     */
+    private interface Locker {
+        AcquiredLock acquireLock();
+    }
+
+    /**
+     * A thread that locks as if performing some action.
+     */
+    private class Actor extends Thread {
+
+        private boolean interrupted;
+
+        private final Locker l;
+
+        public Actor(final Locker l) {
+            this.l = l;
+            this.start();
+        }
+
+        @Override
+        public void run() {
+            AcquiredLock lock = null;
+            try {
+                lock = l.acquireLock();
+            } catch (final InterruptedRuntimeException e) {
+                interrupted = true;
+            }
+            if (lock != null) {
+                lock.release();
+            }
+        }
+
+        /**
+         * Determines if the thread would/was/is blocking.  This
+         * is accomplished by interrupting the thread and joining,
+         * so once it's called, the thread is no longer of use
+         */
+        private boolean isBlocked() {
+            this.interrupt();
+            try {
+                this.join();
+            } catch (final InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+            return interrupted;
+        }
+
+        /**
+         * Determines if the thread has/can complete (ie, is not blocked).
+         * The current implementation joins this thread (with a timeout)
+         * and verifies that it is no longer alive.
+         * @return true if thread can complete
+         */
+        private boolean canComplete() {
+            try {
+                this.join(WAIT);
+            } catch (final InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+            return !this.isAlive();
+        }
+
+    }
+
+}
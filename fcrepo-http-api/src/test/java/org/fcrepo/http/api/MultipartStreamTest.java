@@ -0,0 +1,133 @@
+/*
+ * Licensed to DuraSpace under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * DuraSpace licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.http.api;
+
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.apache.commons.io.IOUtils.toByteArray;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for MultipartStream.
+ * @author rdfloyd
+ */
+public class MultipartStreamTest {
+
+    private static final String BOUNDARY = "AaB03x";
+
+    @Test
+    public void testParts() throws IOException {
+        final MultipartStream multipart = new MultipartStream(body(
+                "preamble\r\n--AaB03x\r\n" +
+                "Content-Disposition: form-data; name=\"a\"\r\n" +
+                "Content-Type: text/plain\r\n\r\n" +
+                "first\r\n--AaB03x  \r\n" +
+                "content-disposition: form-data; name=\"b\"\r\n\r\n" +
+                "second\r\nline\r\n--AaB03x--\r\nepilogue"), BOUNDARY);
+
+        final Map<String, String> first = multipart.nextPart();
+        assertEquals("form-data; name=\"a\"", first.get("content-disposition"));
+        assertEquals("text/plain", first.get("content-type"));
+        assertEquals("first", new String(toByteArray(multipart.getPart()), UTF_8));
+
+        final Map<String, String> second = multipart.nextPart();
+        assertEquals("form-data; name=\"b\"", second.get("content-disposition"));
+        assertEquals("second\r\nline", new String(toByteArray(multipart.getPart()), UTF_8));
+
+        assertNull(multipart.nextPart());
+        assertNull(multipart.nextPart());
+    }
+
+    @Test
+    public void testUnreadPartIsSkipped() throws IOException {
+        final MultipartStream multipart = new MultipartStream(body(
+                "--AaB03x\r\n\r\nskipped\r\n--AaB03x\r\n\r\nread\r\n--AaB03x--"), BOUNDARY);
+
+        multipart.nextPart();
+        assertEquals('s', multipart.getPart().read());
+        multipart.nextPart();
+        assertEquals("read", new String(toByteArray(multipart.getPart()), UTF_8));
+        assertNull(multipart.nextPart());
+    }
+
+    @Test
+    public void testLargePartReadInSmallChunks() throws IOException {
+        final byte[] content = new byte[100000];
+        new Random(42).nextBytes(content);
+        // near misses of the delimiter, some straddling the buffer
+        for (int i = 8180; i < content.length; i += 8191) {
+            System.arraycopy("\r\n--AaB03".getBytes(ISO_8859_1), 0, content, i, 9);
+        }
+        final ByteArrayOutputStream body = new ByteArrayOutputStream();
+        body.write("--AaB03x\r\nContent-Type: application/octet-stream\r\n\r\n".getBytes(ISO_8859_1));
+        body.write(content);
+        body.write("\r\n--AaB03x--\r\n".getBytes(ISO_8859_1));
+
+        final MultipartStream multipart = new MultipartStream(trickle(body.toByteArray()), BOUNDARY);
+        multipart.nextPart();
+        assertArrayEquals(content, toByteArray(multipart.getPart()));
+        assertNull(multipart.nextPart());
+    }
+
+    @Test
+    public void testEmptyPart() throws IOException {
+        final MultipartStream multipart = new MultipartStream(body("--AaB03x\r\n\r\n\r\n--AaB03x--"), BOUNDARY);
+        multipart.nextPart();
+        assertEquals(-1, multipart.getPart().read());
+        assertNull(multipart.nextPart());
+    }
+
+    @Test(expected = EOFException.class)
+    public void testTruncatedBody() throws IOException {
+        final MultipartStream multipart = new MultipartStream(body("--AaB03x\r\n\r\ntruncated"), BOUNDARY);
+        multipart.nextPart();
+        toByteArray(multipart.getPart());
+    }
+
+    private static InputStream body(final String body) {
+        return new ByteArrayInputStream(body.getBytes(UTF_8));
+    }
+
+    /**
+     * A stream that yields at most a few bytes at a time, as a network stream might
+     */
+    private static InputStream trickle(final byte[] bytes) {
+        return new FilterInputStream(new ByteArrayInputStream(bytes)) {
+
+            private final Random random = new Random(7);
+
+            @Override
+            public int read(final byte[] b, final int off, final int len) throws IOException {
+                return super.read(b, off, Math.min(len, 1 + random.nextInt(700)));
+            }
+        };
+    }
+}
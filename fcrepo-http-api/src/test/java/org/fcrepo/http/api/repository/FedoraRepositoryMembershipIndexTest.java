@@ -0,0 +1,86 @@
+/*
+ * Licensed to DuraSpace under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * DuraSpace licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.http.api.repository;
+
+import static java.util.Collections.emptyList;
+import static javax.ws.rs.core.Response.Status.OK;
+import static org.fcrepo.http.commons.test.util.TestHelpers.getUriInfoImpl;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+import static org.springframework.test.util.ReflectionTestUtils.setField;
+
+import javax.ws.rs.core.Response;
+
+import org.fcrepo.http.commons.session.HttpSession;
+import org.fcrepo.kernel.api.FedoraSession;
+import org.fcrepo.kernel.api.services.RepositoryService;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+
+/**
+ * @author rdfloyd
+ */
+public class FedoraRepositoryMembershipIndexTest {
+
+    private FedoraRepositoryMembershipIndex membershipIndex;
+
+    @Mock
+    private RepositoryService mockService;
+
+    @Mock
+    private HttpSession mockSession;
+
+    @Mock
+    private FedoraSession mockFedoraSession;
+
+    @Before
+    public void setUp() {
+        initMocks(this);
+
+        membershipIndex = new FedoraRepositoryMembershipIndex();
+        setField(membershipIndex, "session", mockSession);
+        setField(membershipIndex, "repositoryService", mockService);
+        setField(membershipIndex, "uriInfo", getUriInfoImpl());
+        when(mockSession.getFedoraSession()).thenReturn(mockFedoraSession);
+        when(mockService.rebuildMembershipIndexes(any(FedoraSession.class), any(Boolean.class)))
+                .thenReturn(emptyList());
+    }
+
+    @Test
+    public void testVerify() {
+        final Response response = membershipIndex.rebuild(true);
+        assertEquals(OK.getStatusCode(), response.getStatus());
+        assertEquals("", response.getEntity());
+        verify(mockService).rebuildMembershipIndexes(mockFedoraSession, true);
+        verify(mockSession, never()).commit();
+    }
+
+    @Test
+    public void testRebuild() {
+        final Response response = membershipIndex.rebuild(false);
+        assertEquals(OK.getStatusCode(), response.getStatus());
+        verify(mockService).rebuildMembershipIndexes(eq(mockFedoraSession), eq(false));
+        verify(mockSession).commit();
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Licensed to DuraSpace under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * DuraSpace licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.http.api.repository;
+
+import static javax.ws.rs.core.Response.Status.OK;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+import static org.springframework.test.util.ReflectionTestUtils.setField;
+
+import javax.ws.rs.core.Response;
+
+import org.fcrepo.http.commons.session.HttpSession;
+import org.fcrepo.kernel.api.FedoraSession;
+import org.fcrepo.kernel.api.services.RepositoryService;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+
+/**
+ * @author rdfloyd
+ */
+public class FedoraRepositoryReferenceIndexTest {
+
+    private FedoraRepositoryReferenceIndex referenceIndex;
+
+    @Mock
+    private RepositoryService mockService;
+
+    @Mock
+    private HttpSession mockSession;
+
+    @Mock
+    private FedoraSession mockFedoraSession;
+
+    @Before
+    public void setUp() {
+        initMocks(this);
+
+        referenceIndex = new FedoraRepositoryReferenceIndex();
+        setField(referenceIndex, "session", mockSession);
+        setField(referenceIndex, "repositoryService", mockService);
+        when(mockSession.getFedoraSession()).thenReturn(mockFedoraSession);
+        when(mockService.rebuildReferenceIndex(mockFedoraSession)).thenReturn(3L);
+    }
+
+    @Test
+    public void testRebuild() {
+        final Response response = referenceIndex.rebuild();
+        assertEquals(OK.getStatusCode(), response.getStatus());
+        assertEquals("3", response.getEntity());
+        verify(mockService).rebuildReferenceIndex(mockFedoraSession);
+        verify(mockSession).commit();
+    }
+}
@@ -0,0 +1,201 @@
+/*
+ * Licensed to DuraSpace under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * DuraSpace licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.integration.http.api;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static javax.ws.rs.core.HttpHeaders.CONTENT_TYPE;
+import static javax.ws.rs.core.Response.Status.CREATED;
+import static javax.ws.rs.core.Response.Status.NO_CONTENT;
+import static javax.ws.rs.core.Response.Status.NOT_FOUND;
+import static javax.ws.rs.core.Response.Status.OK;
+import static org.apache.jena.graph.Node.ANY;
+import static org.apache.jena.graph.NodeFactory.createLiteral;
+import static org.apache.jena.graph.NodeFactory.createURI;
+import static org.fcrepo.http.commons.domain.RDFMediaType.NQUADS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpEntityEnclosingRequestBase;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.entity.mime.MultipartEntityBuilder;
+import org.apache.http.util.EntityUtils;
+import org.fcrepo.http.commons.test.util.CloseableDataset;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * @author rdfloyd
+ */
+public class FedoraBulkIngestIT extends AbstractResourceIT {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static final String TITLE = "http://purl.org/dc/elements/1.1/title";
+
+    @Test
+    public void testIngestQuads() throws IOException {
+        final String pid = getRandomUniqueId();
+        createObjectAndClose(pid);
+        final String base = serverAddress + pid;
+        final String quads =
+                quad(base + "/a", TITLE, "\"A\"", base + "/a") +
+                quad(base + "/a/b", TITLE, "\"B\"", base + "/a/b") +
+                quad(base + "/c", "http://www.w3.org/1999/02/22-rdf-syntax-ns#type",
+                        "<http://www.w3.org/ns/ldp#DirectContainer>", base + "/c") +
+                quad(base + "/c", "http://www.w3.org/ns/ldp#membershipResource", "<" + base + ">", base + "/c") +
+                quad(base + "/c", "http://www.w3.org/ns/ldp#hasMemberRelation", "<http://example.org/has>",
+                        base + "/c");
+
+        final Map<String, Integer> results = ingest(pid, new StringEntity(quads, UTF_8), NQUADS);
+        assertEquals(Integer.valueOf(CREATED.getStatusCode()), results.get(base + "/a"));
+        assertEquals(Integer.valueOf(CREATED.getStatusCode()), results.get(base + "/a/b"));
+        assertEquals(Integer.valueOf(CREATED.getStatusCode()), results.get(base + "/c"));
+        assertEquals(Integer.valueOf(3), results.get("created"));
+        assertEquals(Integer.valueOf(0), results.get("failed"));
+
+        try (final CloseableDataset dataset = getDataset(getObjMethod(pid + "/a/b"))) {
+            assertTrue(dataset.asDatasetGraph().contains(ANY, createURI(base + "/a/b"), createURI(TITLE),
+                    createLiteral("B")));
+        }
+        try (final CloseableHttpResponse response = execute(headObjMethod(pid + "/c"))) {
+            checkForLinkHeader(response, "http://www.w3.org/ns/ldp#DirectContainer", "type");
+        }
+    }
+
+    @Test
+    public void testIngestFailures() throws IOException {
+        final String pid = getRandomUniqueId();
+        createObjectAndClose(pid);
+        createObjectAndClose(pid + "/existing");
+        final String base = serverAddress + pid;
+        final String quads =
+                quad(base + "/a", TITLE, "\"A\"", base + "/a") +
+                quad(base + "/a/bad", "http://fedora.info/definitions/v4/repository#lastModified", "\"no\"",
+                        base + "/a/bad") +
+                quad(base + "/a/c", TITLE, "\"C\"", base + "/a/c") +
+                quad(base + "/existing", TITLE, "\"E\"", base + "/existing") +
+                quad(serverAddress + "elsewhere", TITLE, "\"X\"", serverAddress + "elsewhere");
+
+        final Map<String, Integer> results = ingest(pid, new StringEntity(quads, UTF_8), NQUADS);
+        assertEquals(Integer.valueOf(CREATED.getStatusCode()), results.get(base + "/a"));
+        assertEquals(Integer.valueOf(CREATED.getStatusCode()), results.get(base + "/a/c"));
+        assertEquals(Integer.valueOf(409), results.get(base + "/existing"));
+        assertEquals(Integer.valueOf(400), results.get(serverAddress + "elsewhere"));
+        assertTrue(results.get(base + "/a/bad") >= 400);
+        assertEquals(Integer.valueOf(2), results.get("created"));
+        assertEquals(Integer.valueOf(3), results.get("failed"));
+
+        assertEquals(OK.getStatusCode(), getStatus(getObjMethod(pid + "/a")));
+        assertEquals(OK.getStatusCode(), getStatus(getObjMethod(pid + "/a/c")));
+        assertEquals(NOT_FOUND.getStatusCode(), getStatus(getObjMethod(pid + "/a/bad")));
+    }
+
+    @Test
+    public void testIngestFailuresInTransaction() throws IOException {
+        final String pid = getRandomUniqueId();
+        createObjectAndClose(pid);
+        final String txLocation = createTransaction();
+        final String txPath = txLocation.substring(serverAddress.length()) + "/" + pid;
+        final String base = serverAddress + txPath;
+        final String quads =
+                quad(base + "/a", TITLE, "\"A\"", base + "/a") +
+                quad(base + "/a/bad", "http://fedora.info/definitions/v4/repository#lastModified", "\"no\"",
+                        base + "/a/bad") +
+                quad(base + "/a/c", TITLE, "\"C\"", base + "/a/c");
+
+        final Map<String, Integer> results = ingest(txPath, new StringEntity(quads, UTF_8), NQUADS);
+        assertEquals(Integer.valueOf(CREATED.getStatusCode()), results.get(base + "/a"));
+        assertEquals(Integer.valueOf(CREATED.getStatusCode()), results.get(base + "/a/c"));
+        assertTrue(results.get(base + "/a/bad") >= 400);
+        assertEquals(Integer.valueOf(2), results.get("created"));
+        assertEquals(Integer.valueOf(1), results.get("failed"));
+
+        assertEquals(NO_CONTENT.getStatusCode(), getStatus(new HttpPost(txLocation + "/fcr:tx/fcr:commit")));
+        assertEquals(OK.getStatusCode(), getStatus(getObjMethod(pid + "/a")));
+        assertEquals(OK.getStatusCode(), getStatus(getObjMethod(pid + "/a/c")));
+        assertEquals(NOT_FOUND.getStatusCode(), getStatus(getObjMethod(pid + "/a/bad")));
+    }
+
+    @Test
+    public void testIngestMultipart() throws IOException {
+        final String pid = getRandomUniqueId();
+        createObjectAndClose(pid);
+        final String base = serverAddress + pid;
+        final MultipartEntityBuilder builder = MultipartEntityBuilder.create();
+        builder.addTextBody("rdf", quad(base + "/a", TITLE, "\"A\"", base + "/a"), ContentType.create(NQUADS));
+        builder.addBinaryBody("a/file.txt", "some content".getBytes(UTF_8), ContentType.TEXT_PLAIN, "file.txt");
+
+        final Map<String, Integer> results = ingest(pid, builder.build(), null);
+        assertEquals(Integer.valueOf(CREATED.getStatusCode()), results.get(base + "/a"));
+        assertEquals(Integer.valueOf(CREATED.getStatusCode()), results.get(base + "/a/file.txt"));
+
+        try (final CloseableHttpResponse response = execute(getObjMethod(pid + "/a/file.txt"))) {
+            assertEquals(OK.getStatusCode(), getStatus(response));
+            assertEquals("some content", EntityUtils.toString(response.getEntity()));
+            assertTrue(response.getFirstHeader(CONTENT_TYPE).getValue().startsWith("text/plain"));
+        }
+    }
+
+    @Test
+    public void testIngestIntoMissingContainer() throws IOException {
+        final HttpPost post = new HttpPost(serverAddress + getRandomUniqueId() + "/fcr:bulk");
+        post.setEntity(new StringEntity("", UTF_8));
+        post.setHeader(CONTENT_TYPE, NQUADS);
+        assertEquals(NOT_FOUND.getStatusCode(), getStatus(post));
+    }
+
+    private static String quad(final String subject, final String predicate, final String object,
+            final String graph) {
+        return "<" + subject + "> <" + predicate + "> " + object + " <" + graph + "> .\n";
+    }
+
+    /**
+     * @return the status of each resource by URI, and the counts of those created and failed
+     */
+    private Map<String, Integer> ingest(final String pid, final org.apache.http.HttpEntity entity,
+            final String contentType) throws IOException {
+        final HttpEntityEnclosingRequestBase post = new HttpPost(serverAddress + pid + "/fcr:bulk");
+        post.setEntity(entity);
+        if (contentType != null) {
+            post.setHeader(CONTENT_TYPE, contentType);
+        }
+        final Map<String, Integer> results = new HashMap<>();
+        try (final CloseableHttpResponse response = execute(post)) {
+            assertEquals(OK.getStatusCode(), getStatus(response));
+            for (final String line : EntityUtils.toString(response.getEntity()).split("\n")) {
+                final JsonNode result = MAPPER.readTree(line);
+                if (result.has("uri")) {
+                    results.put(result.get("uri").asText(), result.get("status").asInt());
+                } else {
+                    results.put("created", result.get("created").asInt());
+                    results.put("failed", result.get("failed").asInt());
+                }
+            }
+        }
+        return results;
+    }
+}
@@ -41,6 +41,7 @@ import static javax.ws.rs.core.Response.Status.NO_CONTENT;
 import static javax.ws.rs.core.Response.Status.OK;
 import static javax.ws.rs.core.Response.Status.PARTIAL_CONTENT;
 import static javax.ws.rs.core.Response.Status.PRECONDITION_FAILED;
+import static javax.ws.rs.core.Response.Status.REQUESTED_RANGE_NOT_SATISFIABLE;
 import static javax.ws.rs.core.Response.Status.UNSUPPORTED_MEDIA_TYPE;
 import static nu.validator.htmlparser.common.DoctypeExpectation.NO_DOCTYPE_ERRORS;
 import static nu.validator.htmlparser.common.XmlViolationPolicy.ALLOW;
@@ -97,6 +98,7 @@ import static org.fcrepo.kernel.api.RdfLexicon.MEMBERSHIP_RESOURCE;
 import static org.fcrepo.kernel.api.RdfLexicon.MEMENTO_NAMESPACE;
 import static org.fcrepo.kernel.api.RdfLexicon.MEMENTO_TYPE;
 import static org.fcrepo.kernel.api.RdfLexicon.NON_RDF_SOURCE;
+import static org.fcrepo.kernel.api.RdfLexicon.PAGE;
 import static org.fcrepo.kernel.api.RdfLexicon.RDF_SOURCE;
 import static org.fcrepo.kernel.api.RdfLexicon.REPOSITORY_NAMESPACE;
 import static org.fcrepo.kernel.api.RdfLexicon.RESOURCE;
@@ -126,11 +128,13 @@ import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
 import java.util.NoSuchElementException;
 import java.util.Optional;
+import java.util.Set;
 
 import javax.ws.rs.core.Link;
 import javax.ws.rs.core.Response.Status;
@@ -1955,6 +1959,83 @@ public class FedoraLdpIT extends AbstractResourceIT {
         }
     }
 
+    @Test
+    public void testGetSuffixRange() throws IOException {
+        final String id = getRandomUniqueId();
+        createObjectAndClose(id);
+        createDatastream(id, "ds1", "0123456789");
+
+        final HttpGet get = getDSMethod(id, "ds1");
+        get.setHeader("Range", "bytes=-3");
+        try (final CloseableHttpResponse response = execute(get)) {
+            assertEquals(PARTIAL_CONTENT.getStatusCode(), getStatus(response));
+            assertEquals("bytes 7-9/10", response.getFirstHeader("Content-Range").getValue());
+            assertEquals("789", EntityUtils.toString(response.getEntity()));
+        }
+    }
+
+    @Test
+    public void testGetMultipleRanges() throws IOException {
+        final String id = getRandomUniqueId();
+        createObjectAndClose(id);
+        createDatastream(id, "ds1", "0123456789");
+
+        final HttpGet get = getDSMethod(id, "ds1");
+        get.setHeader("Range", "bytes=0-1,5-6");
+        try (final CloseableHttpResponse response = execute(get)) {
+            assertEquals(PARTIAL_CONTENT.getStatusCode(), getStatus(response));
+            final String contentType = response.getFirstHeader(CONTENT_TYPE).getValue();
+            assertTrue(contentType.startsWith("multipart/byteranges"));
+            final String boundary = contentType.substring(contentType.indexOf("boundary=") + 9);
+            final String body = EntityUtils.toString(response.getEntity());
+            assertEquals(Long.toString(body.length()), response.getFirstHeader(CONTENT_LENGTH).getValue());
+            assertTrue(body.contains("Content-Range: bytes 0-1/10\r\n\r\n01\r\n--" + boundary));
+            assertTrue(body.contains("Content-Range: bytes 5-6/10\r\n\r\n56\r\n--" + boundary + "--"));
+        }
+    }
+
+    @Test
+    public void testGetUnsatisfiableRange() throws IOException {
+        final String id = getRandomUniqueId();
+        createObjectAndClose(id);
+        createDatastream(id, "ds1", "0123456789");
+
+        final HttpGet get = getDSMethod(id, "ds1");
+        get.setHeader("Range", "bytes=10-20");
+        try (final CloseableHttpResponse response = execute(get)) {
+            assertEquals(REQUESTED_RANGE_NOT_SATISFIABLE.getStatusCode(), getStatus(response));
+            assertEquals("bytes */10", response.getFirstHeader("Content-Range").getValue());
+        }
+    }
+
+    @Test
+    public void testGetRangeWithIfRange() throws IOException {
+        final String id = getRandomUniqueId();
+        createObjectAndClose(id);
+        createDatastream(id, "ds1", "0123456789");
+
+        final String etag;
+        try (final CloseableHttpResponse response = execute(getDSMethod(id, "ds1"))) {
+            etag = response.getFirstHeader("ETag").getValue();
+        }
+
+        final HttpGet current = getDSMethod(id, "ds1");
+        current.setHeader("Range", "bytes=2-3");
+        current.setHeader("If-Range", etag);
+        try (final CloseableHttpResponse response = execute(current)) {
+            assertEquals(PARTIAL_CONTENT.getStatusCode(), getStatus(response));
+            assertEquals("23", EntityUtils.toString(response.getEntity()));
+        }
+
+        final HttpGet stale = getDSMethod(id, "ds1");
+        stale.setHeader("Range", "bytes=2-3");
+        stale.setHeader("If-Range", "\"stale\"");
+        try (final CloseableHttpResponse response = execute(stale)) {
+            assertEquals(OK.getStatusCode(), getStatus(response));
+            assertEquals("0123456789", EntityUtils.toString(response.getEntity()));
+        }
+    }
+
     @Test
     public void testDeleteDatastream() throws IOException {
         final String id = getRandomUniqueId();
@@ -2074,6 +2155,58 @@ public class FedoraLdpIT extends AbstractResourceIT {
         }
     }
 
+    @Test
+    public void testGetObjectGraphPages() throws IOException {
+        final String id = getRandomUniqueId();
+        final String location = getLocation(createObject(id));
+
+        final int CHILDREN_TOTAL = 7;
+        for (int x = 0; x < CHILDREN_TOTAL; ++x) {
+            createObjectAndClose(id + "/child-" + x);
+        }
+
+        final Set<Node> children = new HashSet<>();
+        final HttpGet firstPage = getObjMethod(id);
+        firstPage.setHeader("Prefer", "return=representation; max-member-count=\"3\"");
+        HttpGet httpGet = firstPage;
+        int pages = 0;
+        while (httpGet != null) {
+            pages++;
+            try (final CloseableHttpResponse response = execute(httpGet)) {
+                assertEquals(OK.getStatusCode(), getStatus(response));
+                checkForLinkHeader(response, PAGE.getURI(), "type");
+                if (httpGet == firstPage) {
+                    assertTrue(response.getFirstHeader("Preference-Applied").getValue()
+                            .contains("max-member-count=\"3\""));
+                }
+                final Optional<Link> next = getLinkHeaders(response).stream().map(Link::valueOf)
+                        .filter(link -> link.getRel().equals("next")).findFirst();
+                try (final CloseableDataset dataset = getDataset(response)) {
+                    final DatasetGraph graph = dataset.asDatasetGraph();
+                    final List<Node> contained = new ArrayList<>();
+                    graph.find(ANY, createURI(location), CONTAINS.asNode(), ANY)
+                            .forEachRemaining(quad -> contained.add(quad.getObject()));
+                    assertEquals(next.isPresent() ? 3 : 1, contained.size());
+                    children.addAll(contained);
+                }
+                httpGet = next.map(link -> new HttpGet(link.getUri())).orElse(null);
+            }
+        }
+        assertEquals(3, pages);
+        assertEquals(CHILDREN_TOTAL, children.size());
+    }
+
+    @Test
+    public void testGetObjectGraphWithBadPageCursor() throws IOException {
+        final String id = getRandomUniqueId();
+        createObjectAndClose(id);
+
+        final HttpGet httpGet = new HttpGet(serverAddress + id + "?page=not-a-cursor!");
+        try (final CloseableHttpResponse response = execute(httpGet)) {
+            assertEquals(SC_BAD_REQUEST, response.getStatusLine().getStatusCode());
+        }
+    }
+
     @Test
     public void testGetObjectGraphMinimal() throws IOException {
         final String id = getRandomUniqueId();
@@ -91,6 +91,7 @@ import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 import javax.ws.rs.core.Link;
 
@@ -196,6 +197,60 @@ public class FedoraVersioningIT extends AbstractResourceIT {
         verifyTimemapResponse(subjectUri, id, mementos, memento3, memento2);
     }
 
+    @Test
+    public void testGetTimeMapPages() throws Exception {
+        createVersionedContainer(id);
+        final String memento1 =
+            MEMENTO_RFC_1123_FORMATTER.format(LocalDateTime.of(2000, 1, 1, 00, 00, 00).atOffset(ZoneOffset.UTC));
+        final String memento2 =
+            MEMENTO_RFC_1123_FORMATTER.format(LocalDateTime.of(2015, 8, 13, 18, 30, 0).atOffset(ZoneOffset.UTC));
+        final String memento3 =
+            MEMENTO_RFC_1123_FORMATTER.format(LocalDateTime.of(1980, 5, 31, 9, 15, 30).atOffset(ZoneOffset.UTC));
+        createContainerMementoWithBody(subjectUri, memento1);
+        createContainerMementoWithBody(subjectUri, memento2);
+        createContainerMementoWithBody(subjectUri, memento3);
+
+        final List<Link> firstPage = getTimeMapPage("?page=0&pageSize=2");
+        assertEquals(Arrays.asList(memento3, memento1), getMementoDatetimes(firstPage));
+        final Link self = getLinkWithRel(firstPage, "self");
+        assertEquals(memento3, self.getParams().get("from"));
+        assertEquals(memento1, self.getParams().get("until"));
+        final Link next = getLinkWithRel(firstPage, "next");
+        assertTrue(next.getRels().contains("timemap"));
+        assertEquals(APPLICATION_LINK_FORMAT, next.getType());
+        assertNull("Should not be a previous page", getLinkWithRel(firstPage, "prev"));
+
+        final List<Link> secondPage = getTimeMapPage("?" + next.getUri().getRawQuery());
+        assertEquals(Arrays.asList(memento2), getMementoDatetimes(secondPage));
+        assertNull("Should not be a next page", getLinkWithRel(secondPage, "next"));
+        final Link prev = getLinkWithRel(secondPage, "prev");
+        assertEquals(memento3, prev.getParams().get("from"));
+        assertEquals(memento1, prev.getParams().get("until"));
+
+        final HttpGet httpGet = getObjMethod(id + "/" + FCR_VERSIONS + "?page=-1");
+        httpGet.setHeader("Accept", APPLICATION_LINK_FORMAT);
+        assertEquals(BAD_REQUEST.getStatusCode(), getStatus(httpGet));
+    }
+
+    private List<Link> getTimeMapPage(final String query) throws Exception {
+        final HttpGet httpGet = getObjMethod(id + "/" + FCR_VERSIONS + query);
+        httpGet.setHeader("Accept", APPLICATION_LINK_FORMAT);
+        try (final CloseableHttpResponse response = execute(httpGet)) {
+            assertEquals("Didn't get a OK response!", OK.getStatusCode(), getStatus(response));
+            return Arrays.stream(EntityUtils.toString(response.getEntity()).split("," + System.lineSeparator()))
+                    .map(String::trim).filter(t -> !t.isEmpty()).map(Link::valueOf).collect(Collectors.toList());
+        }
+    }
+
+    private static List<String> getMementoDatetimes(final List<Link> links) {
+        return links.stream().filter(l -> l.getRels().contains("memento")).map(l -> l.getParams().get("datetime"))
+                .collect(Collectors.toList());
+    }
+
+    private static Link getLinkWithRel(final List<Link> links, final String rel) {
+        return links.stream().filter(l -> l.getRels().contains(rel)).findFirst().orElse(null);
+    }
+
     @Test
     public void testGetTimeMapRDFSubject() throws Exception {
         createVersionedContainer(id);
@@ -19,7 +19,9 @@ package org.fcrepo.integration.http.api;
 
 import static javax.ws.rs.core.HttpHeaders.CONTENT_TYPE;
 import static javax.ws.rs.core.HttpHeaders.LINK;
+import static javax.ws.rs.core.Response.Status.METHOD_NOT_ALLOWED;
 import static javax.ws.rs.core.Response.Status.NO_CONTENT;
+import static javax.ws.rs.core.Response.Status.OK;
 import static org.fcrepo.kernel.api.RdfLexicon.DIRECT_CONTAINER;
 import static org.fcrepo.kernel.api.RdfLexicon.HAS_MEMBER_RELATION;
 import static org.fcrepo.kernel.api.RdfLexicon.INDIRECT_CONTAINER;
@@ -36,10 +38,12 @@ import static org.junit.Assert.assertTrue;
 
 import java.io.StringWriter;
 import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPatch;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.client.methods.HttpPut;
 import org.apache.http.entity.StringEntity;
+import org.apache.http.util.EntityUtils;
 import org.apache.jena.rdf.model.Model;
 import org.apache.jena.rdf.model.Property;
 import org.apache.jena.rdf.model.Resource;
@@ -315,6 +319,38 @@ public class LDPContainerIT extends AbstractResourceIT {
                 resc.hasProperty(HAS_MEMBER_RELATION, LDP_MEMBER));
     }
 
+    @Test
+    public void testMembershipIndexIsKeptUpToDate() throws Exception {
+        final String parentId = getRandomUniqueId();
+        final String parentURI = serverAddress + parentId;
+        createObjectAndClose(parentId);
+
+        final String directId = parentId + "/direct";
+        final String directURI = serverAddress + directId;
+        createDirectContainer(directId, parentURI);
+        final String memberId = directId + "/member";
+        createObjectAndClose(memberId);
+
+        final Model model = getModel(parentId);
+        assertTrue("Membership triple must be present", model.getResource(parentURI)
+                .hasProperty(PCDM_HAS_MEMBER_PROP, createResource(serverAddress + memberId)));
+
+        try (CloseableHttpResponse response = execute(new HttpGet(serverAddress + "fcr:membershipIndex"))) {
+            assertEquals(METHOD_NOT_ALLOWED.getStatusCode(), getStatus(response));
+        }
+        try (CloseableHttpResponse response =
+                execute(new HttpPost(serverAddress + "fcr:membershipIndex?verify=true"))) {
+            assertEquals(OK.getStatusCode(), getStatus(response));
+            assertFalse("Membership index must be up to date",
+                    EntityUtils.toString(response.getEntity()).contains(directURI));
+        }
+        try (CloseableHttpResponse response = execute(new HttpPost(serverAddress + "fcr:membershipIndex"))) {
+            assertEquals(OK.getStatusCode(), getStatus(response));
+            assertFalse("Membership index must not be rebuilt",
+                    EntityUtils.toString(response.getEntity()).contains(directURI));
+        }
+    }
+
     private void createDirectContainer(final String directId, final String membershipURI)
             throws Exception {
         final String[] idParts = directId.split("/");
@@ -0,0 +1,155 @@
+/*
+ * Licensed to DuraSpace under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * DuraSpace licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.http.commons.api.rdf;
+
+import static org.apache.commons.lang3.StringUtils.replaceOnce;
+import static org.apache.jena.rdf.model.ResourceFactory.createResource;
+import static org.mockito.Mockito.mock;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.IntFunction;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.jcr.Session;
+import javax.ws.rs.core.UriBuilder;
+
+import org.apache.jena.rdf.model.Resource;
+import org.fcrepo.http.commons.session.HttpSession;
+import org.fcrepo.kernel.modeshape.FedoraSessionImpl;
+import org.fcrepo.kernel.modeshape.identifiers.HashConverter;
+import org.fcrepo.kernel.modeshape.identifiers.NamespaceConverter;
+import org.glassfish.jersey.uri.UriTemplate;
+
+import com.google.common.base.Converter;
+
+/**
+ * A microbenchmark of URI to path and path to URI conversion, comparing the former approach (URI template matching,
+ * a regular expression for fcr: components and a UriBuilder per URI) with HttpResourceConverter's prefix matching,
+ * suffix scanning and memo, both for distinct URIs and for a small set of URIs seen repeatedly, as when the same
+ * subjects and objects recur in a response.
+ *
+ * This is not run as part of the build; run it with, e.g.:
+ * <pre>
+ * mvn -Pbenchmarks test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=org.fcrepo.http.commons.api.rdf.HttpResourceConverterBenchmark
+ * </pre>
+ *
+ * @author rdfloyd
+ */
+public class HttpResourceConverterBenchmark {
+
+    private static final int CONVERSIONS = Integer.getInteger("benchmark.conversions", 200000);
+
+    private static final int REPEATED = 100;
+
+    private static final String TEMPLATE = "http://localhost:8080/rest/{path: .*}";
+
+    private static final String BASE = "http://localhost:8080/rest/";
+
+    private static final Pattern FORWARD_COMPONENT_PATTERN = Pattern.compile(
+            ".*?(/fcr:metadata)?(/fcr:versions(/\\d{14})?)?(/fcr:acl)?(\\#\\S+)?$");
+
+    private static final UriTemplate URI_TEMPLATE = new UriTemplate(TEMPLATE);
+
+    private static final Converter<String, String> FORWARD = new NamespaceConverter().andThen(new HashConverter());
+
+    private HttpResourceConverterBenchmark() {
+    }
+
+    /**
+     * @param args unused
+     */
+    public static void main(final String[] args) {
+        final HttpSession session = new HttpSession(new FedoraSessionImpl(mock(Session.class)));
+
+        System.out.println(String.format("%-28s %16s %16s", "conversion", "before /sec", "after /sec"));
+        for (int i = 0; i < 2; i++) {
+            final boolean report = i > 0;
+            final IntFunction<String> distinct = n -> "container/child" + n + (n % 4 == 0 ? "/fcr:metadata" : "");
+            final IntFunction<String> repeated = n -> distinct.apply(n % REPEATED);
+            compare("uri to path, distinct", report, n -> legacyAsString(createResource(BASE + distinct.apply(n))),
+                    converter -> n -> converter.asString(createResource(BASE + distinct.apply(n))), session);
+            compare("uri to path, repeated", report, n -> legacyAsString(createResource(BASE + repeated.apply(n))),
+                    converter -> n -> converter.asString(createResource(BASE + repeated.apply(n))), session);
+            compare("path to uri", report, n -> legacyToDomain(distinct.apply(n)).getURI(),
+                    converter -> n -> converter.toDomain(distinct.apply(n)).getURI(), session);
+        }
+    }
+
+    @FunctionalInterface
+    private interface ConverterFactory {
+        IntFunction<String> create(HttpResourceConverter converter);
+    }
+
+    private static void compare(final String name, final boolean report, final IntFunction<String> before,
+            final ConverterFactory after, final HttpSession session) {
+        final double beforeRate = rate(before);
+        // one converter per request, as in the HTTP API
+        final double afterRate = rate(after.create(new HttpResourceConverter(session, UriBuilder.fromUri(TEMPLATE))));
+        if (report) {
+            System.out.println(String.format("%-28s %16.0f %16.0f", name, beforeRate, afterRate));
+        }
+    }
+
+    private static double rate(final IntFunction<String> conversion) {
+        long sink = 0;
+        final long start = System.nanoTime();
+        for (int i = 0; i < CONVERSIONS; i++) {
+            sink += conversion.apply(i).length();
+        }
+        final double seconds = (System.nanoTime() - start) / 1e9;
+        if (sink == 0) {
+            throw new IllegalStateException("Nothing was converted");
+        }
+        return CONVERSIONS / seconds;
+    }
+
+    private static String legacyAsString(final Resource resource) {
+        final Map<String, String> values = new HashMap<>();
+        if (URI_TEMPLATE.match(resource.getURI(), values) && values.containsKey("path")) {
+            String path = "/" + values.get("path");
+            final Matcher matcher = FORWARD_COMPONENT_PATTERN.matcher(path);
+            if (matcher.matches()) {
+                if (matcher.group(2) != null) {
+                    path = replaceOnce(path, "/fcr:versions", "/fedora:timemap");
+                }
+                if (matcher.group(1) != null) {
+                    path = replaceOnce(path, "/fcr:metadata", "/fedora:description");
+                }
+                if (matcher.group(4) != null) {
+                    path = replaceOnce(path, "/fcr:acl", "/fedora:acl");
+                }
+            }
+            path = FORWARD.convert(path);
+            try {
+                return URLDecoder.decode(path, "UTF-8");
+            } catch (final UnsupportedEncodingException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        return null;
+    }
+
+    private static Resource legacyToDomain(final String path) {
+        return createResource(UriBuilder.fromUri(TEMPLATE).resolveTemplate("path", path, false).build().toString());
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Licensed to DuraSpace under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * DuraSpace licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.http.commons.domain;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.apache.jena.update.UpdateFactory.create;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+import org.apache.jena.update.UpdateRequest;
+
+import com.google.common.io.ByteStreams;
+
+/**
+ * A microbenchmark of the handling of large INSERT DATA PATCH bodies by an append-only user, for whom the
+ * authorization filter must inspect the request.  It compares the former approach (the filter buffers the body as
+ * bytes, decodes and parses it; the endpoint decodes the bytes again and the kernel parses them again) with a
+ * SparqlUpdateBody read once and parsed once, with the parsed request shared.
+ *
+ * This is not run as part of the build; run it with, e.g.:
+ * <pre>
+ * mvn -Pbenchmarks test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=org.fcrepo.http.commons.domain.SparqlUpdateBodyBenchmark
+ * </pre>
+ *
+ * @author rdfloyd
+ */
+public class SparqlUpdateBodyBenchmark {
+
+    private static final int[] TRIPLES = { 1000, 2500, 5000 };
+
+    private static final int ITERATIONS = Integer.getInteger("benchmark.iterations", 20);
+
+    private static final String BASE = "http://localhost:8080/rest/benchmark";
+
+    private SparqlUpdateBodyBenchmark() {
+    }
+
+    /**
+     * @param args unused
+     * @throws IOException if a body could not be read
+     */
+    public static void main(final String[] args) throws IOException {
+        System.out.println(String.format("%-10s %10s %16s %16s",
+                "triples", "bytes", "parse twice ms", "parse once ms"));
+        for (final int triples : TRIPLES) {
+            final byte[] body = insertData(triples);
+            // warm up
+            for (int i = 0; i < 3; i++) {
+                parseTwice(body);
+                parseOnce(body);
+            }
+            final double twice = time(() -> parseTwice(body));
+            final double once = time(() -> parseOnce(body));
+            System.out.println(String.format("%-10d %10d %16.1f %16.1f", triples, body.length, twice, once));
+        }
+    }
+
+    private static byte[] insertData(final int triples) {
+        final StringBuilder update = new StringBuilder("PREFIX dc: <http://purl.org/dc/elements/1.1/>\n");
+        update.append("INSERT DATA {\n");
+        for (int i = 0; i < triples; i++) {
+            update.append("  <#s").append(i).append("> dc:title \"title number ").append(i).append("\" .\n");
+        }
+        update.append("}");
+        return update.toString().getBytes(UTF_8);
+    }
+
+    private static int parseTwice(final byte[] body) throws IOException {
+        final byte[] buffered = ByteStreams.toByteArray(new ByteArrayInputStream(body));
+        final UpdateRequest inFilter = create(new String(buffered, UTF_8));
+        final UpdateRequest inKernel = create(new String(buffered, UTF_8), BASE);
+        return inFilter.getOperations().size() + inKernel.getOperations().size();
+    }
+
+    private static int parseOnce(final byte[] body) throws IOException {
+        final SparqlUpdateBody update = SparqlUpdateBody.read(new ByteArrayInputStream(body), UTF_8, -1);
+        final UpdateRequest inFilter = update.parse(BASE);
+        final UpdateRequest inKernel = update.getParsed(BASE);
+        return inFilter.getOperations().size() + inKernel.getOperations().size();
+    }
+
+    @FunctionalInterface
+    private interface Operation {
+        int run() throws IOException;
+    }
+
+    private static double time(final Operation operation) throws IOException {
+        long sink = 0;
+        final long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            sink += operation.run();
+        }
+        final double elapsed = (System.nanoTime() - start) / 1e6 / ITERATIONS;
+        if (sink == 0) {
+            throw new IllegalStateException("Nothing was parsed");
+        }
+        return elapsed;
+    }
+}
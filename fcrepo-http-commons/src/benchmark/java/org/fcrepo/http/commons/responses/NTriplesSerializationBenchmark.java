@@ -0,0 +1,153 @@
+/*
+ * Licensed to DuraSpace under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * DuraSpace licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.http.commons.responses;
+
+import static javax.ws.rs.core.MediaType.valueOf;
+import static org.apache.jena.graph.NodeFactory.createLiteral;
+import static org.apache.jena.graph.NodeFactory.createURI;
+import static org.apache.jena.graph.Triple.create;
+import static org.apache.jena.riot.RDFFormat.NTRIPLES;
+import static org.apache.jena.riot.system.StreamRDFWriter.getWriterStream;
+
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.riot.system.StreamRDF;
+import org.apache.jena.riot.system.StreamRDFWrapper;
+import org.fcrepo.kernel.api.RdfStream;
+import org.fcrepo.kernel.api.rdf.DefaultRdfStream;
+
+import com.google.common.io.ByteStreams;
+
+/**
+ * A microbenchmark of the throughput of N-Triples serialization from a single-threaded RdfStream, comparing every
+ * triple passed through the synchronized wrapper, as RdfStreamStreamingOutput does, with a batching, unsynchronized
+ * wrapper.  The batching wrapper made no measurable difference, so it is kept here only for the comparison.
+ *
+ * This is not run as part of the build; run it with, e.g.:
+ * <pre>
+ * mvn -Pbenchmarks test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=org.fcrepo.http.commons.responses.NTriplesSerializationBenchmark
+ * </pre>
+ *
+ * @author rdfloyd
+ */
+public class NTriplesSerializationBenchmark {
+
+    private static final int TRIPLES = Integer.getInteger("benchmark.triples", 1000000);
+
+    private static final int ITERATIONS = Integer.getInteger("benchmark.iterations", 5);
+
+    private static final String BASE = "http://localhost:8080/rest/benchmark";
+
+    private static final Node CONTAINER = createURI(BASE);
+
+    private static final Node CONTAINS = createURI("http://www.w3.org/ns/ldp#contains");
+
+    private static final Node TITLE = createURI("http://purl.org/dc/elements/1.1/title");
+
+    private static final Node[] OBJECTS = IntStream.range(0, TRIPLES)
+            .mapToObj(i -> i % 2 == 0 ? createURI(BASE + "/child" + i) : createLiteral("child number " + i))
+            .toArray(Node[]::new);
+
+    private NTriplesSerializationBenchmark() {
+    }
+
+    /**
+     * @param args unused
+     */
+    public static void main(final String[] args) {
+        System.out.println(String.format("%-28s %12s %16s", "sink", "triples", "triples/sec"));
+        for (int i = 0; i < 2; i++) {
+            final boolean report = i > 0;
+            run("synchronized, per triple", report, output -> {
+                final StreamRDF stream = new SynchonizedStreamRDFWrapper(getWriterStream(output, NTRIPLES));
+                stream.start();
+                rdfStream().forEach(stream::triple);
+                stream.finish();
+            });
+            run("batched, unsynchronized", report, output -> {
+                final StreamRDF stream = new BatchingStreamRDFWrapper(getWriterStream(output, NTRIPLES), 256);
+                stream.start();
+                rdfStream().forEach(stream::triple);
+                stream.finish();
+            });
+            run("RdfStreamStreamingOutput", report, output ->
+                    new RdfStreamStreamingOutput(rdfStream(), Collections.emptyMap(),
+                            valueOf("application/n-triples")).write(output));
+        }
+    }
+
+    /**
+     * Collects triples in a fixed-size array and hands them to the wrapped stream a batch at a time, without locking
+     */
+    private static class BatchingStreamRDFWrapper extends StreamRDFWrapper {
+
+        private final Triple[] batch;
+
+        private int size;
+
+        private BatchingStreamRDFWrapper(final StreamRDF stream, final int batchSize) {
+            super(stream);
+            this.batch = new Triple[batchSize];
+        }
+
+        @Override
+        public void triple(final Triple triple) {
+            batch[size++] = triple;
+            if (size == batch.length) {
+                flush();
+            }
+        }
+
+        @Override
+        public void finish() {
+            flush();
+            super.finish();
+        }
+
+        private void flush() {
+            for (int i = 0; i < size; i++) {
+                other.triple(batch[i]);
+                batch[i] = null;
+            }
+            size = 0;
+        }
+    }
+
+    private static RdfStream rdfStream() {
+        return new DefaultRdfStream(CONTAINER, IntStream.range(0, TRIPLES)
+                .mapToObj(i -> create(CONTAINER, i % 2 == 0 ? CONTAINS : TITLE, OBJECTS[i])));
+    }
+
+    private static void run(final String name, final boolean report, final Consumer<OutputStream> serializer) {
+        final OutputStream output = ByteStreams.nullOutputStream();
+        final long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            serializer.accept(output);
+        }
+        final double seconds = (System.nanoTime() - start) / 1e9 / ITERATIONS;
+        if (report) {
+            System.out.println(String.format("%-28s %12d %16.0f", name, TRIPLES, TRIPLES / seconds));
+        }
+    }
+}
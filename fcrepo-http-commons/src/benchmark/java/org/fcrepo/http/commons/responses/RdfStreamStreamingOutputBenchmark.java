@@ -0,0 +1,163 @@
+/*
+ * Licensed to DuraSpace under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * DuraSpace licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.http.commons.responses;
+
+import static java.lang.management.ManagementFactory.getMemoryPoolMXBeans;
+import static java.lang.management.MemoryType.HEAP;
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.Stream.concat;
+import static javax.ws.rs.core.MediaType.valueOf;
+import static org.apache.jena.graph.NodeFactory.createLiteral;
+import static org.apache.jena.graph.NodeFactory.createURI;
+import static org.apache.jena.graph.Triple.create;
+import static org.apache.jena.riot.RDFFormat.JSONLD_EXPAND_FLAT;
+import static org.apache.jena.riot.RDFFormat.TURTLE_BLOCKS;
+import static org.apache.jena.riot.system.StreamRDFWriter.getWriterStream;
+import static org.fcrepo.http.commons.domain.RDFMediaType.TURTLE_TYPE;
+import static org.fcrepo.kernel.api.RdfCollectors.toModel;
+
+import java.io.OutputStream;
+import java.lang.management.MemoryPoolMXBean;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+import javax.ws.rs.core.MediaType;
+
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.riot.RDFDataMgr;
+import org.apache.jena.riot.system.StreamRDF;
+import org.fcrepo.kernel.api.RdfStream;
+import org.fcrepo.kernel.api.rdf.DefaultRdfStream;
+
+/**
+ * A microbenchmark of the time to first byte, total time and peak heap of serializing a large container, comparing
+ * the former approach (all triples collected before the first is written) with the streaming serializations of
+ * Turtle and expanded JSON-LD.  Peak heap is the sum of the peak usage of the heap memory pools during a run, so it
+ * is only indicative, since it includes garbage not yet collected.  With -Xmx512m the model-based JSON-LD
+ * serialization of the default 400,000 triples runs out of memory.
+ *
+ * This is not run as part of the build; run it with, e.g.:
+ * <pre>
+ * mvn -Pbenchmarks test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=org.fcrepo.http.commons.responses.RdfStreamStreamingOutputBenchmark
+ * </pre>
+ *
+ * @author rdfloyd
+ */
+public class RdfStreamStreamingOutputBenchmark {
+
+    private static final int CHILDREN = Integer.getInteger("benchmark.children", 200000);
+
+    private static final String BASE = "http://localhost:8080/rest/benchmark";
+
+    private static final Node CONTAINER = createURI(BASE);
+
+    private static final Node CONTAINS = createURI("http://www.w3.org/ns/ldp#contains");
+
+    private static final Node TITLE = createURI("http://purl.org/dc/elements/1.1/title");
+
+    private static final MediaType JSONLD_TYPE = valueOf("application/ld+json");
+
+    private RdfStreamStreamingOutputBenchmark() {
+    }
+
+    /**
+     * @param args unused
+     */
+    public static void main(final String[] args) {
+        final Map<String, String> namespaces = new HashMap<>();
+        namespaces.put("ldp", "http://www.w3.org/ns/ldp#");
+        namespaces.put("dc", "http://purl.org/dc/elements/1.1/");
+
+        System.out.println(String.format("%-28s %12s %12s %12s %14s",
+                "serialization", "triples", "first ms", "total ms", "peak heap MB"));
+        for (int i = 0; i < 2; i++) {
+            final boolean report = i > 0;
+            run("turtle, collected first", report, output -> {
+                final StreamRDF stream = getWriterStream(output, TURTLE_BLOCKS);
+                final List<Triple> triples = rdfStream().collect(toList());
+                stream.start();
+                namespaces.forEach(stream::prefix);
+                triples.forEach(stream::triple);
+                stream.finish();
+            });
+            run("turtle, streamed", report, output ->
+                    new RdfStreamStreamingOutput(rdfStream(), namespaces, TURTLE_TYPE).write(output));
+            run("json-ld expanded, model", report, output ->
+                    RDFDataMgr.write(output, rdfStream().collect(toModel()).getGraph(), JSONLD_EXPAND_FLAT));
+            run("json-ld expanded, streamed", report, output ->
+                    new RdfStreamStreamingOutput(rdfStream(), namespaces, JSONLD_TYPE).write(output));
+        }
+    }
+
+    private static RdfStream rdfStream() {
+        return new DefaultRdfStream(CONTAINER, concat(
+                IntStream.range(0, CHILDREN).mapToObj(i -> create(CONTAINER, CONTAINS, child(i))),
+                IntStream.range(0, CHILDREN).mapToObj(i -> create(child(i), TITLE,
+                        createLiteral("child number " + i)))));
+    }
+
+    private static Node child(final int i) {
+        return createURI(BASE + "/child" + i);
+    }
+
+    private static void run(final String name, final boolean report, final Consumer<OutputStream> serializer) {
+        System.gc();
+        final List<MemoryPoolMXBean> pools = getMemoryPoolMXBeans();
+        pools.stream().filter(pool -> pool.getType() == HEAP).forEach(MemoryPoolMXBean::resetPeakUsage);
+        final TimingOutputStream output = new TimingOutputStream();
+        serializer.accept(output);
+        final long end = System.nanoTime();
+        final long peak = pools.stream().filter(pool -> pool.getType() == HEAP)
+                .mapToLong(pool -> pool.getPeakUsage().getUsed()).sum();
+        if (report) {
+            System.out.println(String.format("%-28s %12d %12.1f %12.1f %14.1f", name, CHILDREN * 2,
+                    (output.first - output.start) / 1e6, (end - output.start) / 1e6, peak / 1e6));
+        }
+    }
+
+    /**
+     * Discards what is written, recording when the first byte arrived
+     */
+    private static class TimingOutputStream extends OutputStream {
+
+        private final long start = System.nanoTime();
+
+        private long first;
+
+        @Override
+        public void write(final int b) {
+            arrived();
+        }
+
+        @Override
+        public void write(final byte[] b, final int off, final int len) {
+            arrived();
+        }
+
+        private void arrived() {
+            if (first == 0) {
+                first = System.nanoTime();
+            }
+        }
+    }
+}
@@ -0,0 +1,41 @@
+/*
+ * Licensed to DuraSpace under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * DuraSpace licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.http.commons.api;
+
+import java.util.function.Predicate;
+
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * Helper interface to authorize, from external modules, the creation of resources that a request creates without
+ * addressing each of them directly.
+ *
+ * @author rdfloyd
+ */
+public interface ResourceCreationAuthorizer {
+
+    /**
+     * Capture the agent of a request, returning a test of whether that agent may create a resource at a repository
+     * path.  The test may be applied on threads other than that of the request.
+     *
+     * @param request the request
+     * @return whether the agent of the request may create a resource at a given path
+     */
+    Predicate<String> getCreationCheck(HttpServletRequest request);
+
+}
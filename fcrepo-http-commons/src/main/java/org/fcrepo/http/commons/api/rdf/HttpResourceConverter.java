@@ -41,8 +41,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.Optional;
 
 import javax.jcr.Node;
 import javax.jcr.PathNotFoundException;
@@ -69,6 +68,8 @@ import org.slf4j.Logger;
 import org.springframework.context.ApplicationContext;
 
 import com.google.common.base.Converter;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.Lists;
 
 /**
@@ -82,14 +83,25 @@ public class HttpResourceConverter extends IdentifierConverter<Resource,FedoraRe
 
     private static final Logger LOGGER = getLogger(HttpResourceConverter.class);
 
-    // Regex pattern which decomposes a http resource uri into components
-    // The first group determines if it is an fcr:metadata non-rdf source.
-    // The second group determines if the path is for a memento or timemap.
-    // The third group allows for a memento identifier.
-    // The fourth group for allows ACL.
-    // The fifth group allows for any hashed suffixes.
-    private final static Pattern FORWARD_COMPONENT_PATTERN = Pattern.compile(
-            ".*?(/" + FCR_METADATA + ")?(/" + FCR_VERSIONS + "(/\\d{14})?)?(/" + FCR_ACL + ")?(\\#\\S+)?$");
+    // The trailing components of a http resource uri, each optional but in this order: fcr:metadata for a non-rdf
+    // source description, fcr:versions with an optional memento identifier for a timemap or memento, fcr:acl, and
+    // a hashed suffix
+    private static final String METADATA_SUFFIX = "/" + FCR_METADATA;
+    private static final String VERSIONS_SUFFIX = "/" + FCR_VERSIONS;
+    private static final String ACL_SUFFIX = "/" + FCR_ACL;
+    private static final int MEMENTO_ID_LENGTH = 14;
+    private static final String WHITESPACE = " \t\n\013\f\r";
+
+    static final int METADATA = 1;
+    static final int VERSIONS = 2;
+    static final int ACL = 4;
+
+    private static final String PATH_VARIABLE = "{path: .*}";
+
+    // characters which UriBuilder leaves unencoded in a path
+    private static final String PATH_CHARS = "-._~!$&'()*+,;=:@/";
+
+    private static final int MEMO_SIZE = 1000;
 
     protected List<Converter<String, String>> translationChain;
 
@@ -102,6 +114,14 @@ public class HttpResourceConverter extends IdentifierConverter<Resource,FedoraRe
     private final UriTemplate uriTemplate;
     private final boolean batch;
 
+    // the part of the URI template before the path, if the template ends in the path; null otherwise
+    private final String pathPrefix;
+
+    private final Cache<String, Optional<String>> paths =
+            CacheBuilder.newBuilder().concurrencyLevel(1).maximumSize(MEMO_SIZE).build();
+    private final Cache<String, Resource> uris =
+            CacheBuilder.newBuilder().concurrencyLevel(1).maximumSize(MEMO_SIZE).build();
+
     /**
      * Create a new identifier converter within the given session with the given URI template
      * @param session the session
@@ -114,25 +134,54 @@ public class HttpResourceConverter extends IdentifierConverter<Resource,FedoraRe
         this.uriBuilder = uriBuilder;
         this.batch = session.isBatchSession();
         this.uriTemplate = new UriTemplate(uriBuilder.toTemplate());
+        this.pathPrefix = pathPrefix(uriBuilder.toTemplate());
 
         resetTranslationChain();
     }
 
+    /**
+     * If the template is a fixed prefix followed by the path, URIs can be matched by comparing prefixes and built by
+     * appending paths, instead of through the template.
+     *
+     * @param template the URI template
+     * @return the prefix, or null if the template is of another form
+     */
+    private String pathPrefix(final String template) {
+        if (!template.endsWith(PATH_VARIABLE)) {
+            return null;
+        }
+        final String prefix = template.substring(0, template.length() - PATH_VARIABLE.length());
+        if (prefix.indexOf('{') >= 0 || !isPathSafe(prefix)
+                || !prefix.equals(uriBuilder().resolveTemplate("path", "", false).build().toString())) {
+            return null;
+        }
+        return prefix;
+    }
+
+    private static boolean isPathSafe(final String value) {
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            if (!(c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c >= '0' && c <= '9' || PATH_CHARS.indexOf(c) >= 0)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     private UriBuilder uriBuilder() {
         return UriBuilder.fromUri(uriBuilder.toTemplate());
     }
 
     @Override
     protected FedoraResource doForward(final Resource resource) {
-        final Map<String, String> values = new HashMap<>();
-        final String path = asString(resource, values);
+        final String path = asString(resource);
         final Session jcrSession = getJcrSession(session);
         try {
             if (path != null) {
                 final Node node = getNode(path);
 
-                final boolean metadata = values.containsKey("path")
-                        && values.get("path").contains("/" + FCR_METADATA);
+                final String templatePath = templatePath(resource.getURI());
+                final boolean metadata = templatePath != null && templatePath.contains(METADATA_SUFFIX);
 
                 final FedoraResource fedoraResource = nodeConverter.convert(node);
 
@@ -162,15 +211,33 @@ public class HttpResourceConverter extends IdentifierConverter<Resource,FedoraRe
 
     @Override
     protected Resource doBackward(final FedoraResource resource) {
-        return toDomain(doBackwardPathOnly(resource));
+        final String internalPath = resource.getPath();
+        final Resource memo = internalPath == null ? null : uris.getIfPresent(internalPath);
+        if (memo != null) {
+            return memo;
+        }
+        final Resource uri = toDomain(doBackwardPathOnly(resource));
+        if (internalPath != null) {
+            uris.put(internalPath, uri);
+        }
+        return uri;
     }
 
     @Override
     public boolean inDomain(final Resource resource) {
-        final Map<String, String> values = new HashMap<>();
+        return templatePath(resource.getURI()) != null || isRootWithoutTrailingSlash(resource);
+    }
 
-        return uriTemplate.match(resource.getURI(), values) && values.containsKey("path") ||
-            isRootWithoutTrailingSlash(resource);
+    /**
+     * @param uri a URI
+     * @return the value of the path in the URI template matched by the URI, or null if the URI doesn't match
+     */
+    private String templatePath(final String uri) {
+        if (pathPrefix != null && uri != null) {
+            return uri.startsWith(pathPrefix) ? uri.substring(pathPrefix.length()) : null;
+        }
+        final Map<String, String> values = new HashMap<>();
+        return uriTemplate.match(uri, values) ? values.get("path") : null;
     }
 
     @Override
@@ -185,6 +252,10 @@ public class HttpResourceConverter extends IdentifierConverter<Resource,FedoraRe
             realPath = path;
         }
 
+        if (pathPrefix != null && isPathSafe(realPath)) {
+            return createResource(pathPrefix + realPath);
+        }
+
         final UriBuilder uri = uriBuilder();
 
         if (realPath.contains("#")) {
@@ -202,40 +273,42 @@ public class HttpResourceConverter extends IdentifierConverter<Resource,FedoraRe
 
     @Override
     public String asString(final Resource resource) {
-        final Map<String, String> values = new HashMap<>();
-
-        return asString(resource, values);
+        final String uri = resource.getURI();
+        if (uri == null) {
+            return toPath(resource);
+        }
+        final Optional<String> memo = paths.getIfPresent(uri);
+        if (memo != null) {
+            return memo.orElse(null);
+        }
+        final String path = toPath(resource);
+        paths.put(uri, Optional.ofNullable(path));
+        return path;
     }
 
     /**
      * Convert the incoming Resource to a JCR path (but don't attempt to load the node).
      *
      * @param resource Jena Resource to convert
-     * @param values a map that will receive the matching URI template variables for future use.
      * @return String of JCR path
      */
-    private String asString(final Resource resource, final Map<String, String> values) {
-        if (uriTemplate.match(resource.getURI(), values) && values.containsKey("path")) {
-            String path = "/" + values.get("path");
+    private String toPath(final Resource resource) {
+        final String templatePath = templatePath(resource.getURI());
+        if (templatePath != null) {
+            String path = "/" + templatePath;
 
-            final Matcher matcher = FORWARD_COMPONENT_PATTERN.matcher(path);
+            final int suffixes = suffixes(path);
 
-            if (matcher.matches()) {
-                final boolean metadata = matcher.group(1) != null;
-                final boolean versioning = matcher.group(2) != null;
-                final boolean webacAcl = matcher.group(4) != null;
-
-                if (versioning) {
-                    path = replaceOnce(path, "/" + FCR_VERSIONS, "/" + LDPCV_TIME_MAP);
-                }
+            if ((suffixes & VERSIONS) != 0) {
+                path = replaceOnce(path, VERSIONS_SUFFIX, "/" + LDPCV_TIME_MAP);
+            }
 
-                if (metadata) {
-                    path = replaceOnce(path, "/" + FCR_METADATA, "/" + FEDORA_DESCRIPTION);
-                }
+            if ((suffixes & METADATA) != 0) {
+                path = replaceOnce(path, METADATA_SUFFIX, "/" + FEDORA_DESCRIPTION);
+            }
 
-                if (webacAcl) {
-                    path = replaceOnce(path, "/" + FCR_ACL, "/" + CONTAINER_WEBAC_ACL);
-                }
+            if ((suffixes & ACL) != 0) {
+                path = replaceOnce(path, ACL_SUFFIX, "/" + CONTAINER_WEBAC_ACL);
             }
 
             path = forward.convert(path);
@@ -244,10 +317,12 @@ public class HttpResourceConverter extends IdentifierConverter<Resource,FedoraRe
                 return null;
             }
 
-            try {
-                path = URLDecoder.decode(path, "UTF-8");
-            } catch (final UnsupportedEncodingException e) {
-                LOGGER.debug("Unable to URL-decode path " + e + " as UTF-8", e);
+            if (path.indexOf('%') >= 0 || path.indexOf('+') >= 0) {
+                try {
+                    path = URLDecoder.decode(path, "UTF-8");
+                } catch (final UnsupportedEncodingException e) {
+                    LOGGER.debug("Unable to URL-decode path " + e + " as UTF-8", e);
+                }
             }
 
             if (path.isEmpty()) {
@@ -268,6 +343,67 @@ public class HttpResourceConverter extends IdentifierConverter<Resource,FedoraRe
         return null;
     }
 
+    /**
+     * Find which of the fcr: components end a path.  They are optional but must come in the order fcr:metadata,
+     * fcr:versions (with an optional memento identifier), fcr:acl, followed by an optional hashed suffix, which may
+     * not contain whitespace.
+     *
+     * @param path the path
+     * @return a combination of the METADATA, VERSIONS and ACL flags
+     */
+    static int suffixes(final String path) {
+        if (path.indexOf("/fcr:") < 0) {
+            return 0;
+        }
+        int end = path.length();
+        int whitespace = -1;
+        for (int i = end - 1; i >= 0; i--) {
+            if (WHITESPACE.indexOf(path.charAt(i)) >= 0) {
+                whitespace = i;
+                break;
+            }
+        }
+        final int hash = path.indexOf('#', whitespace + 1);
+        if (hash >= 0 && hash < end - 1) {
+            end = hash;
+        }
+        int suffixes = 0;
+        if (path.startsWith(ACL_SUFFIX, end - ACL_SUFFIX.length())) {
+            suffixes |= ACL;
+            end -= ACL_SUFFIX.length();
+        }
+        if (path.startsWith(VERSIONS_SUFFIX, end - VERSIONS_SUFFIX.length())) {
+            suffixes |= VERSIONS;
+            end -= VERSIONS_SUFFIX.length();
+        } else if (isMementoId(path, end) &&
+                path.startsWith(VERSIONS_SUFFIX, end - MEMENTO_ID_LENGTH - 1 - VERSIONS_SUFFIX.length())) {
+            suffixes |= VERSIONS;
+            end -= MEMENTO_ID_LENGTH + 1 + VERSIONS_SUFFIX.length();
+        }
+        if (path.startsWith(METADATA_SUFFIX, end - METADATA_SUFFIX.length())) {
+            suffixes |= METADATA;
+        }
+        return suffixes;
+    }
+
+    /**
+     * @param path a path
+     * @param end an index into the path
+     * @return whether the path has a slash and a memento identifier of fourteen digits before the index
+     */
+    private static boolean isMementoId(final String path, final int end) {
+        final int start = end - MEMENTO_ID_LENGTH;
+        if (start < 1 || path.charAt(start - 1) != '/') {
+            return false;
+        }
+        for (int i = start; i < end; i++) {
+            final char c = path.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
 
     private Node getNode(final String path) throws RepositoryException {
         try {
@@ -384,9 +520,7 @@ public class HttpResourceConverter extends IdentifierConverter<Resource,FedoraRe
     }
 
     private boolean isRootWithoutTrailingSlash(final Resource resource) {
-        final Map<String, String> values = new HashMap<>();
-
-        return uriTemplate.match(resource.getURI() + "/", values) && values.containsKey("path") &&
-            values.get("path").isEmpty();
+        final String templatePath = templatePath(resource.getURI() + "/");
+        return templatePath != null && templatePath.isEmpty();
     }
 }
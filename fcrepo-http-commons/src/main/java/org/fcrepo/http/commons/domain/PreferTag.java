@@ -40,6 +40,12 @@ import java.util.Optional;
  * @author cabeer
  */
 public class PreferTag implements Comparable<PreferTag> {
+
+    /**
+     * The LDP Paging preference for the largest number of members in a page
+     */
+    public static final String MAX_MEMBER_COUNT = "max-member-count";
+
     private final String tag;
     private String value = "";
     private Map<String, String> params = new HashMap<>();
@@ -130,6 +136,19 @@ public class PreferTag implements Comparable<PreferTag> {
         return params;
     }
 
+    /**
+     * Get a parameter that must be a positive integer
+     * @param name the name of the parameter
+     * @return the value of the parameter, if it is present and a positive integer
+     */
+    protected Optional<Integer> getPositiveIntParam(final String name) {
+        try {
+            return ofNullable(params.get(name)).map(String::trim).map(Integer::valueOf).filter(x -> x > 0);
+        } catch (final NumberFormatException e) {
+            return Optional.empty();
+        }
+    }
+
     /**
      * Add appropriate response headers to indicate that the incoming preferences were acknowledged
      * @param servletResponse the servlet response
@@ -166,6 +185,10 @@ public class PreferTag implements Comparable<PreferTag> {
         preferenceAppliedBuilder.append(appliedReceived.length() > 0 ? "; " + appliedReceived : "");
         appendHeaderParam(preferenceAppliedBuilder, "include", includeBuilder.toString().trim());
         appendHeaderParam(preferenceAppliedBuilder, "omit", omitBuilder.toString().trim());
+        if (!value.equals("minimal")) {
+            getPositiveIntParam(MAX_MEMBER_COUNT).ifPresent(count ->
+                    appendHeaderParam(preferenceAppliedBuilder, MAX_MEMBER_COUNT, count.toString()));
+        }
 
         servletResponse.addHeader("Preference-Applied", preferenceAppliedBuilder.toString().trim());
 
@@ -22,6 +22,7 @@ import static org.apache.jena.riot.WebContent.contentTypeJSONLD;
 import static org.apache.jena.riot.WebContent.contentTypeN3;
 import static org.apache.jena.riot.WebContent.contentTypeN3Alt2;
 import static org.apache.jena.riot.WebContent.contentTypeNTriples;
+import static org.apache.jena.riot.WebContent.contentTypeNQuads;
 import static org.apache.jena.riot.WebContent.contentTypeRDFXML;
 import static org.apache.jena.riot.WebContent.contentTypeTurtle;
 import static org.apache.jena.riot.WebContent.contentTypeTurtleAlt2;
@@ -72,6 +73,10 @@ public abstract class RDFMediaType extends MediaType {
 
     public static final MediaType NTRIPLES_TYPE = typeFromString(NTRIPLES);
 
+    public static final String NQUADS = contentTypeNQuads;
+
+    public static final MediaType NQUADS_TYPE = typeFromString(NQUADS);
+
     public final static String JSON_LD = contentTypeJSONLD;
 
     public final static MediaType JSON_LD_TYPE = typeFromString(JSON_LD);
@@ -20,6 +20,8 @@ package org.fcrepo.http.commons.domain;
 import static java.lang.Long.parseLong;
 import static java.util.regex.Pattern.compile;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -37,6 +39,15 @@ public class Range {
     private static final Pattern rangePattern =
         compile("^bytes\\s*=\\s*(\\d*)\\s*-\\s*(\\d*)");
 
+    private static final Pattern rangesPattern = compile("^bytes\\s*=(.*)$");
+
+    private static final Pattern rangeSpecPattern = compile("^\\s*(\\d*)\\s*-\\s*(\\d*)\\s*$");
+
+    /**
+     * The most ranges served from a single request; a request for more is served the whole content
+     */
+    public static final int MAX_RANGES = 100;
+
     /**
      * Unbounded Range
      */
@@ -130,4 +141,57 @@ public class Range {
 
         return new Range(start, end);
     }
+
+    /**
+     * Convert an HTTP Range header, which may hold several ranges, to the ranges of content it selects.  Unlike
+     * {@link #convert(String)}, a range given only by a length is the suffix of the content of that length, and the
+     * end of a range is limited to the end of the content, as RFC 7233 has it.
+     *
+     * @param source the source
+     * @param contentSize the size of the content
+     * @return the satisfiable ranges in the order requested, empty if none is satisfiable, or null if the header is
+     *         not a valid byte range request, or asks for more than {@link #MAX_RANGES} ranges, and is to be ignored
+     */
+    public static List<Range> convert(final String source, final long contentSize) {
+        final Matcher matcher = rangesPattern.matcher(source);
+        if (!matcher.matches()) {
+            return null;
+        }
+        final String[] specs = matcher.group(1).split(",");
+        if (specs.length > MAX_RANGES) {
+            return null;
+        }
+        final List<Range> ranges = new ArrayList<>(specs.length);
+        try {
+            for (final String spec : specs) {
+                final Matcher specMatcher = rangeSpecPattern.matcher(spec);
+                if (!specMatcher.matches()) {
+                    return null;
+                }
+                final String from = specMatcher.group(1);
+                final String to = specMatcher.group(2);
+                if (from.isEmpty()) {
+                    if (to.isEmpty()) {
+                        return null;
+                    }
+                    final long suffix = parseLong(to);
+                    if (suffix > 0 && contentSize > 0) {
+                        ranges.add(new Range(Math.max(0, contentSize - suffix), contentSize - 1));
+                    }
+                    continue;
+                }
+                final long start = parseLong(from);
+                final long end = to.isEmpty() ? Long.MAX_VALUE : parseLong(to);
+                if (end < start) {
+                    return null;
+                }
+                if (start < contentSize) {
+                    ranges.add(new Range(start, Math.min(end, contentSize - 1)));
+                }
+            }
+        } catch (final NumberFormatException e) {
+            return null;
+        }
+        return ranges;
+    }
 }
@@ -0,0 +1,184 @@
+/*
+ * Licensed to DuraSpace under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * DuraSpace licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.http.commons.domain;
+
+import static javax.ws.rs.core.Response.Status.REQUEST_ENTITY_TOO_LARGE;
+import static org.apache.jena.update.UpdateFactory.create;
+import static org.slf4j.LoggerFactory.getLogger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.Objects;
+import java.util.Optional;
+
+import javax.servlet.ServletRequest;
+import javax.ws.rs.ClientErrorException;
+
+import org.apache.jena.update.UpdateRequest;
+import org.slf4j.Logger;
+
+import com.google.common.io.ByteStreams;
+import com.google.common.io.CharStreams;
+import com.google.common.io.CountingInputStream;
+
+/**
+ * The body of a SPARQL Update request, read from the request entity once and parsed at most once for a given
+ * base URI.  An instance may be stored as a request attribute so that the servlet filters and the JAX-RS
+ * resource handling a PATCH share a single copy of the body and of the parsed request.
+ *
+ * The size of a body is limited by the system property fcrepo.sparql.update.maxSize (in bytes); by default
+ * there is no limit.
+ *
+ * @author rdfloyd
+ */
+public class SparqlUpdateBody {
+
+    private static final Logger LOGGER = getLogger(SparqlUpdateBody.class);
+
+    /**
+     * The name of the request attribute holding the SparqlUpdateBody of a request
+     */
+    public static final String SPARQL_UPDATE_ATTRIBUTE = SparqlUpdateBody.class.getName();
+
+    public static final String MAX_SIZE_PROPERTY = "fcrepo.sparql.update.maxSize";
+
+    private final String body;
+
+    private String baseUri;
+
+    private UpdateRequest parsed;
+
+    /**
+     * Create a SparqlUpdateBody from a string
+     *
+     * @param body the text of the SPARQL Update request
+     */
+    public SparqlUpdateBody(final String body) {
+        this.body = body;
+    }
+
+    /**
+     * Read a SPARQL Update request body from a stream, enforcing the configured size limit.
+     *
+     * @param stream the request entity
+     * @param charset the character encoding of the entity
+     * @return the body
+     * @throws IOException if the stream could not be read
+     * @throws ClientErrorException with status 413 if the body exceeds the size limit
+     */
+    public static SparqlUpdateBody read(final InputStream stream, final Charset charset) throws IOException {
+        return read(stream, charset, getMaxSize());
+    }
+
+    /**
+     * Read a SPARQL Update request body from a stream, decoding it as it is read and without buffering it as
+     * bytes.
+     *
+     * @param stream the request entity
+     * @param charset the character encoding of the entity
+     * @param maxSize the maximum size of the entity in bytes, or a negative number for no limit
+     * @return the body
+     * @throws IOException if the stream could not be read
+     * @throws ClientErrorException with status 413 if the body exceeds maxSize
+     */
+    public static SparqlUpdateBody read(final InputStream stream, final Charset charset, final long maxSize)
+            throws IOException {
+        final CountingInputStream counted =
+                new CountingInputStream(maxSize < 0 ? stream : ByteStreams.limit(stream, maxSize + 1));
+        final String body = CharStreams.toString(new InputStreamReader(counted, charset));
+        if (maxSize >= 0 && counted.getCount() > maxSize) {
+            throw new ClientErrorException("SPARQL-UPDATE request exceeds the maximum size of " + maxSize +
+                    " bytes", REQUEST_ENTITY_TOO_LARGE);
+        }
+        return new SparqlUpdateBody(body);
+    }
+
+    /**
+     * @return the configured maximum size of a SPARQL Update request body, or -1 for no limit
+     */
+    public static long getMaxSize() {
+        return Long.getLong(MAX_SIZE_PROPERTY, -1L);
+    }
+
+    /**
+     * Find the SparqlUpdateBody previously read for a request.
+     *
+     * @param request the servlet request
+     * @return the body, if it has been read
+     */
+    public static Optional<SparqlUpdateBody> fromRequest(final ServletRequest request) {
+        if (request == null) {
+            return Optional.empty();
+        }
+        final Object attribute = request.getAttribute(SPARQL_UPDATE_ATTRIBUTE);
+        return attribute instanceof SparqlUpdateBody ? Optional.of((SparqlUpdateBody) attribute) : Optional.empty();
+    }
+
+    /**
+     * Store this body as an attribute of a request.
+     *
+     * @param request the servlet request
+     */
+    public void setOnRequest(final ServletRequest request) {
+        request.setAttribute(SPARQL_UPDATE_ATTRIBUTE, this);
+    }
+
+    /**
+     * @return the text of the SPARQL Update request
+     */
+    public String getBody() {
+        return body;
+    }
+
+    /**
+     * @return whether this body has been parsed
+     */
+    public synchronized boolean isParsed() {
+        return parsed != null;
+    }
+
+    /**
+     * Get the request as already parsed with the given base URI, without parsing it.
+     *
+     * @param base the base URI
+     * @return the parsed request, or null if it has not been parsed with that base URI
+     */
+    public synchronized UpdateRequest getParsed(final String base) {
+        return parsed != null && Objects.equals(base, baseUri) ? parsed : null;
+    }
+
+    /**
+     * Parse the SPARQL Update request, resolving relative URIs against the given base.  The result is kept, so
+     * parsing again with the same base URI returns the same UpdateRequest.
+     *
+     * @param base the base URI
+     * @return the parsed request
+     */
+    public synchronized UpdateRequest parse(final String base) {
+        if (parsed == null || !Objects.equals(base, baseUri)) {
+            if (parsed != null) {
+                LOGGER.debug("Re-parsing SPARQL-UPDATE request with base URI {} (was {})", base, baseUri);
+            }
+            parsed = create(body, base);
+            baseUri = base;
+        }
+        return parsed;
+    }
+}
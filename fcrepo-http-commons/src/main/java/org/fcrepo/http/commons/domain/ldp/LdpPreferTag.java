@@ -46,6 +46,8 @@ public class LdpPreferTag extends PreferTag {
 
     private final boolean managedProperties;
 
+    private final Optional<Integer> maxMemberCount;
+
     /**
      * Standard constructor.
      *
@@ -78,6 +80,8 @@ public class LdpPreferTag extends PreferTag {
 
         managedProperties = includes.contains(PREFER_SERVER_MANAGED.toString())
                 || (!omits.contains(PREFER_SERVER_MANAGED.toString()) && !minimal);
+
+        maxMemberCount = getPositiveIntParam(MAX_MEMBER_COUNT);
     }
 
     /**
@@ -112,4 +116,11 @@ public class LdpPreferTag extends PreferTag {
     public boolean prefersServerManaged() {
         return managedProperties;
     }
+
+    /**
+     * @return The largest number of containment triples this prefer tag asks for in a page, if any.
+     */
+    public Optional<Integer> getMaxMemberCount() {
+        return maxMemberCount;
+    }
 }
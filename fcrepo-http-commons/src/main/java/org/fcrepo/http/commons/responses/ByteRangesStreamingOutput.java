@@ -0,0 +1,110 @@
+/*
+ * Licensed to DuraSpace under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * DuraSpace licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.http.commons.responses;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static java.util.Collections.singletonMap;
+import static java.util.UUID.randomUUID;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.StreamingOutput;
+
+import org.apache.commons.io.IOUtils;
+import org.fcrepo.http.commons.domain.Range;
+import org.fcrepo.kernel.api.models.FedoraBinary;
+
+/**
+ * Serializes several ranges of the content of a binary as a multipart/byteranges body. Each range is read from its
+ * start with {@link FedoraBinary#getContent(long, long)}, so the content between ranges is not read where the binary
+ * allows it.
+ *
+ * @author rdfloyd
+ */
+public class ByteRangesStreamingOutput implements StreamingOutput {
+
+    private static final byte[] CRLF = "\r\n".getBytes(US_ASCII);
+
+    private final FedoraBinary binary;
+
+    private final List<Range> ranges;
+
+    private final String contentType;
+
+    private final long contentSize;
+
+    private final String boundary = randomUUID().toString();
+
+    /**
+     * @param binary the binary
+     * @param ranges the ranges, each within the content
+     * @param contentType the media type of the content
+     * @param contentSize the size of the content
+     */
+    public ByteRangesStreamingOutput(final FedoraBinary binary, final List<Range> ranges, final String contentType,
+            final long contentSize) {
+        this.binary = binary;
+        this.ranges = ranges;
+        this.contentType = contentType;
+        this.contentSize = contentSize;
+    }
+
+    /**
+     * @return the multipart/byteranges media type of the body, with its boundary
+     */
+    public MediaType getMediaType() {
+        return new MediaType("multipart", "byteranges", singletonMap("boundary", boundary));
+    }
+
+    /**
+     * @return the length of the body in bytes
+     */
+    public long getLength() {
+        long length = 0;
+        for (final Range range : ranges) {
+            length += partHeader(range).length + range.size() + CRLF.length;
+        }
+        return length + trailer().length;
+    }
+
+    @Override
+    public void write(final OutputStream output) throws IOException {
+        for (final Range range : ranges) {
+            output.write(partHeader(range));
+            try (final InputStream content = binary.getContent(range.start(), range.size())) {
+                IOUtils.copyLarge(content, output);
+            }
+            output.write(CRLF);
+        }
+        output.write(trailer());
+        output.flush();
+    }
+
+    private byte[] partHeader(final Range range) {
+        return ("--" + boundary + "\r\nContent-Type: " + contentType + "\r\nContent-Range: bytes " + range.start() +
+                "-" + range.end() + "/" + contentSize + "\r\n\r\n").getBytes(US_ASCII);
+    }
+
+    private byte[] trailer() {
+        return ("--" + boundary + "--\r\n").getBytes(US_ASCII);
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * Licensed to DuraSpace under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * DuraSpace licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.http.commons.responses;
+
+import static org.apache.jena.datatypes.xsd.XSDDatatype.XSDstring;
+import static org.apache.jena.riot.out.NodeFmtLib.encodeBNodeLabel;
+import static org.fcrepo.kernel.api.RdfLexicon.RDF_NAMESPACE;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashSet;
+import java.util.Set;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.riot.RiotException;
+import org.apache.jena.riot.system.StreamRDF;
+import org.apache.jena.sparql.core.Quad;
+
+/**
+ * Writes triples as expanded JSON-LD as they arrive, without collecting them into a model first.  Each run of
+ * triples with the same subject becomes a node object; if a run returns to a predicate it has already left, a new
+ * node object with the same {@code @id} is started, which JSON-LD processors merge.  Only the current node object is
+ * held in memory.
+ *
+ * @author rdfloyd
+ */
+final class ExpandedJsonLdStreamWriter implements StreamRDF {
+
+    private static final String RDF_TYPE = RDF_NAMESPACE + "type";
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory()
+            .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+    private final OutputStream output;
+
+    private JsonGenerator generator;
+
+    private Node subject;
+
+    private String key;
+
+    private final Set<String> keys = new HashSet<>();
+
+    /**
+     * @param output the stream to which to write
+     */
+    ExpandedJsonLdStreamWriter(final OutputStream output) {
+        this.output = output;
+    }
+
+    @Override
+    public void start() {
+        try {
+            generator = JSON_FACTORY.createGenerator(output, JsonEncoding.UTF8).useDefaultPrettyPrinter();
+            generator.writeStartArray();
+        } catch (final IOException e) {
+            throw new RiotException(e);
+        }
+    }
+
+    @Override
+    public void triple(final Triple triple) {
+        final Node object = triple.getObject();
+        final boolean isType = RDF_TYPE.equals(triple.getPredicate().getURI()) && !object.isLiteral();
+        final String tripleKey = isType ? "@type" : triple.getPredicate().getURI();
+        try {
+            if (!triple.getSubject().equals(subject) || (!tripleKey.equals(key) && keys.contains(tripleKey))) {
+                endNode();
+                subject = triple.getSubject();
+                generator.writeStartObject();
+                generator.writeStringField("@id", id(subject));
+            }
+            if (!tripleKey.equals(key)) {
+                if (key != null) {
+                    generator.writeEndArray();
+                }
+                key = tripleKey;
+                keys.add(key);
+                generator.writeArrayFieldStart(key);
+            }
+            if (isType) {
+                generator.writeString(id(object));
+            } else {
+                writeValue(object);
+            }
+        } catch (final IOException e) {
+            throw new RiotException(e);
+        }
+    }
+
+    private void writeValue(final Node object) throws IOException {
+        generator.writeStartObject();
+        if (object.isLiteral()) {
+            generator.writeStringField("@value", object.getLiteralLexicalForm());
+            final String language = object.getLiteralLanguage();
+            if (language != null && !language.isEmpty()) {
+                generator.writeStringField("@language", language);
+            } else if (!XSDstring.getURI().equals(object.getLiteralDatatypeURI())) {
+                generator.writeStringField("@type", object.getLiteralDatatypeURI());
+            }
+        } else {
+            generator.writeStringField("@id", id(object));
+        }
+        generator.writeEndObject();
+    }
+
+    private static String id(final Node node) {
+        return node.isBlank() ? "_:" + encodeBNodeLabel(node.getBlankNodeLabel()) : node.getURI();
+    }
+
+    private void endNode() throws IOException {
+        if (key != null) {
+            generator.writeEndArray();
+        }
+        if (subject != null) {
+            generator.writeEndObject();
+        }
+        subject = null;
+        key = null;
+        keys.clear();
+    }
+
+    @Override
+    public void quad(final Quad quad) {
+        triple(quad.asTriple());
+    }
+
+    @Override
+    public void base(final String base) {
+        // expanded JSON-LD uses absolute IRIs
+    }
+
+    @Override
+    public void prefix(final String prefix, final String iri) {
+        // expanded JSON-LD has no context in which to declare prefixes
+    }
+
+    @Override
+    public void finish() {
+        try {
+            endNode();
+            generator.writeEndArray();
+            generator.close();
+        } catch (final IOException e) {
+            throw new RiotException(e);
+        }
+    }
+}
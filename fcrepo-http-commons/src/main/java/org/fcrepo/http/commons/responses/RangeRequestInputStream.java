@@ -27,7 +27,11 @@ import org.apache.commons.io.input.BoundedInputStream;
  *
  * @author awoods
  * @author ajs6f
+ * @deprecated ranged responses read only the requested range with
+ *             {@link org.fcrepo.kernel.api.models.FedoraBinary#getContent(long, long)} rather than skipping the
+ *             content before it; this class will be removed in a future release
  */
+@Deprecated
 public class RangeRequestInputStream extends BoundedInputStream {
 
     /**
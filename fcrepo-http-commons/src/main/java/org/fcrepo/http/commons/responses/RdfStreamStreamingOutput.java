@@ -33,12 +33,13 @@ import static org.slf4j.LoggerFactory.getLogger;
 import static org.fcrepo.kernel.api.RdfLexicon.RDF_NAMESPACE;
 
 import java.io.OutputStream;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
-import java.util.stream.Collectors;
 import java.util.Optional;
 import java.util.Set;
 import javax.ws.rs.WebApplicationException;
@@ -74,6 +75,11 @@ public class RdfStreamStreamingOutput extends AbstractFuture<Void> implements
 
     private static final String RDF_TYPE = RDF_NAMESPACE + "type";
 
+    /**
+     * The number of triples read before prefixes are written, beyond which all registered prefixes are written
+     */
+    static final int PREFIX_LOOKAHEAD = 1000;
+
     private final Lang format;
 
     private final MediaType mediaType;
@@ -140,7 +146,12 @@ public class RdfStreamStreamingOutput extends AbstractFuture<Void> implements
             } else {
                 serializeBlockStreamed(rdfStream, output, format, nsPrefixes);
             }
-        // For formats that require analysis of the entire model and cannot be streamed directly (rdfxml, n3)
+        // Expanded JSON-LD needs no context, so it can be written node by node
+        } else if (JSONLD.equals(dataFormat) && JSONLD_EXPAND_FLAT.equals(getFormatFromMediaType(dataMediaType))) {
+            LOGGER.debug("Stream-based serialization of expanded {}", dataFormat.toString());
+            serializeJsonLdStreamed(rdfStream, output);
+        // For formats that require analysis of the entire model and cannot be streamed directly (rdfxml, n3,
+        // compacted and flattened JSON-LD)
         } else {
             LOGGER.debug("Non-stream serialization of {}", dataFormat.toString());
             serializeNonStreamed(rdfStream, output, dataFormat, dataMediaType, nsPrefixes);
@@ -162,23 +173,39 @@ public class RdfStreamStreamingOutput extends AbstractFuture<Void> implements
 
         final StreamRDF stream = new SynchonizedStreamRDFWrapper(getWriterStream(output, format));
         stream.start();
-        // Must read the rdf stream before writing out ns prefixes, otherwise the prefixes come after the triples
-        final List<Triple> tripleList = rdfStream.peek(t -> {
+        // Prefixes must come before the triples.  Read ahead a bounded number of triples: if that is the whole
+        // stream, write only the prefixes of the namespaces it uses; otherwise write every registered prefix and
+        // stream the rest of the triples as they are produced, rather than holding them all in memory.
+        final Iterator<Triple> triples = rdfStream.iterator();
+        final List<Triple> lookahead = new ArrayList<>();
+        while (lookahead.size() < PREFIX_LOOKAHEAD && triples.hasNext()) {
+            final Triple t = triples.next();
             // Collect the namespaces present in the RDF stream, using the same
             // criteria for where to look that jena's model.listNameSpaces() does
             namespacesPresent.add(t.getPredicate().getNameSpace());
             if (RDF_TYPE.equals(t.getPredicate().getURI()) && t.getObject().isURI()) {
                 namespacesPresent.add(t.getObject().getNameSpace());
             }
-        }).collect(Collectors.toList());
+            lookahead.add(t);
+        }
+        final boolean complete = !triples.hasNext();
 
         nsPrefixes.forEach((prefix, uri) -> {
             // Only add namespace prefixes if the namespace is present in the rdf stream
-            if (namespacesPresent.contains(uri)) {
+            if (!complete || namespacesPresent.contains(uri)) {
                 stream.prefix(prefix, uri);
             }
         });
-        tripleList.forEach(stream::triple);
+        lookahead.forEach(stream::triple);
+        lookahead.clear();
+        triples.forEachRemaining(stream::triple);
+        stream.finish();
+    }
+
+    private static void serializeJsonLdStreamed(final RdfStream rdfStream, final OutputStream output) {
+        final StreamRDF stream = new SynchonizedStreamRDFWrapper(new ExpandedJsonLdStreamWriter(output));
+        stream.start();
+        rdfStream.forEach(stream::triple);
         stream.finish();
     }
 
@@ -23,6 +23,7 @@ import static org.slf4j.LoggerFactory.getLogger;
 import java.security.Principal;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.inject.Inject;
 import javax.servlet.http.HttpServletRequest;
 
@@ -31,6 +32,7 @@ import org.fcrepo.kernel.api.FedoraSession;
 import org.fcrepo.kernel.api.exception.SessionMissingException;
 import org.fcrepo.kernel.api.services.CredentialsService;
 import org.fcrepo.kernel.api.services.BatchService;
+import org.fcrepo.kernel.modeshape.SessionPool;
 
 import org.slf4j.Logger;
 
@@ -69,6 +71,12 @@ public class SessionFactory {
     @Inject
     private CredentialsService credentialsService;
 
+    private volatile SessionPool internalSessions;
+
+    private int internalSessionPoolSize = 16;
+
+    private long sessionLeakThreshold = 60000;
+
     /**
      * Initialize a session factory for the given Repository
      *
@@ -89,7 +97,34 @@ public class SessionFactory {
     }
 
     /**
-     * Get a new JCR Session
+     * Log out of the pooled internal sessions
+     */
+    @PreDestroy
+    public synchronized void destroy() {
+        if (internalSessions != null) {
+            LOGGER.info("Closing internal session pool; {}", internalSessions);
+            internalSessions.close();
+            internalSessions = null;
+        }
+    }
+
+    /**
+     * @param internalSessionPoolSize the maximum number of idle internal sessions kept for reuse (default 16)
+     */
+    public void setInternalSessionPoolSize(final int internalSessionPoolSize) {
+        this.internalSessionPoolSize = internalSessionPoolSize;
+    }
+
+    /**
+     * @param sessionLeakThreshold how long in milliseconds an internal session may be leased before it is reported
+     *        as leaked (default 60000)
+     */
+    public void setSessionLeakThreshold(final long sessionLeakThreshold) {
+        this.sessionLeakThreshold = sessionLeakThreshold;
+    }
+
+    /**
+     * Get a new JCR Session, which the caller must expire
      *
      * @return an internal session
      */
@@ -97,6 +132,33 @@ public class SessionFactory {
         return repo.login();
     }
 
+    /**
+     * Lease an internal session for reading from a pool, to be returned by closing the lease.  Changes made through
+     * the session are discarded when it is returned.
+     *
+     * @return the lease
+     */
+    public SessionPool.Lease leaseInternalSession() {
+        return getInternalSessionPool().lease();
+    }
+
+    /**
+     * @return the pool of internal sessions, whose statistics show the login rate and the sessions in use
+     */
+    public SessionPool getInternalSessionPool() {
+        SessionPool pool = internalSessions;
+        if (pool == null) {
+            synchronized (this) {
+                pool = internalSessions;
+                if (pool == null) {
+                    pool = new SessionPool(repo, internalSessionPoolSize, sessionLeakThreshold);
+                    internalSessions = pool;
+                }
+            }
+        }
+        return pool;
+    }
+
     /**
      * Get a JCR session for the given HTTP servlet request with a
      * SecurityContext attached
@@ -48,6 +48,10 @@ import javax.jcr.Workspace;
 import javax.jcr.version.VersionManager;
 import javax.ws.rs.core.UriBuilder;
 
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
 import static org.apache.jena.rdf.model.ResourceFactory.createResource;
 import static org.fcrepo.http.commons.test.util.TestHelpers.setField;
 import static org.fcrepo.kernel.api.FedoraTypes.FEDORA_BINARY;
@@ -466,4 +470,53 @@ public class HttpResourceConverterTest {
             createResource("http://localhost:8080/some/" + path + "/fcr:acl#hash_resource");
         assertEquals(expectedResource, converted);
     }
+
+    @Test
+    public void testSuffixesMatchComponentPattern() {
+        final Pattern pattern = Pattern.compile(".*?(/fcr:metadata)?(/fcr:versions(/\\d{14})?)?(/fcr:acl)?(\\#\\S+)?$");
+        final String[] parts = { "/a", "/fcr:metadata", "/fcr:versions", "/20180101000000", "/2018010100000",
+            "/fcr:acl", "#hash", "#", " ", "#x y", "/fcr:versionsx", "/fcr:" };
+        final Random random = new Random(0);
+        for (int i = 0; i < 20000; i++) {
+            final StringBuilder path = new StringBuilder();
+            for (int j = random.nextInt(6); j >= 0; j--) {
+                path.append(parts[random.nextInt(parts.length)]);
+            }
+            final Matcher matcher = pattern.matcher(path);
+            assertTrue(matcher.matches());
+            final int expected = (matcher.group(1) != null ? HttpResourceConverter.METADATA : 0) |
+                    (matcher.group(2) != null ? HttpResourceConverter.VERSIONS : 0) |
+                    (matcher.group(4) != null ? HttpResourceConverter.ACL : 0);
+            assertEquals("Wrong suffixes for " + path, expected, HttpResourceConverter.suffixes(path.toString()));
+        }
+    }
+
+    @Test
+    public void testToDomainMatchesUriBuilder() {
+        for (char c = ' '; c < 0x7f; c++) {
+            final String external = "a" + c + "b/c";
+            final String expected = UriBuilder.fromUri(uriTemplate).resolveTemplate("path", external, false).build()
+                    .toString();
+            if (c != '#') {
+                assertEquals("Wrong URI for " + external, expected, converter.toDomain(external).getURI());
+            }
+            assertTrue(converter.inDomain(createResource(expected)));
+        }
+    }
+
+    @Test
+    public void testAsStringIsMemoized() {
+        assertEquals("/" + path, converter.asString(resource));
+        assertEquals("/" + path, converter.asString(resource));
+        assertEquals(null, converter.asString(createResource("http://example.org/" + path)));
+        assertEquals(null, converter.asString(createResource("http://example.org/" + path)));
+    }
+
+    @Test
+    public void testTemplateNotEndingInPath() {
+        final HttpResourceConverter otherConverter = new HttpResourceConverter(testHttpSession,
+                UriBuilder.fromUri("http://localhost:8080/{path: .*}/some"));
+        assertEquals("/" + path, otherConverter.asString(createResource("http://localhost:8080/" + path + "/some")));
+        assertEquals(createResource("http://localhost:8080/" + path + "/some"), otherConverter.toDomain(path));
+    }
 }
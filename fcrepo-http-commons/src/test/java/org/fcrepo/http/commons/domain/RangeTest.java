@@ -19,8 +19,11 @@ package org.fcrepo.http.commons.domain;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
+import java.util.List;
+
 import org.junit.Test;
 
 /**
@@ -80,4 +83,48 @@ public class RangeTest {
         assertEquals(-1L, range.size());
 
     }
+
+    @Test
+    public void testMultipleRangeParsing() {
+        final List<Range> ranges = Range.convert("bytes=0-9, 50-, -5", 100);
+
+        assertEquals(3, ranges.size());
+        assertEquals(0L, ranges.get(0).start());
+        assertEquals(9L, ranges.get(0).end());
+        assertEquals(50L, ranges.get(1).start());
+        assertEquals(99L, ranges.get(1).end());
+        assertEquals(95L, ranges.get(2).start());
+        assertEquals(99L, ranges.get(2).end());
+    }
+
+    @Test
+    public void testRangeParsingLimitedToContent() {
+        final List<Range> ranges = Range.convert("bytes=90-200,-500", 100);
+
+        assertEquals(2, ranges.size());
+        assertEquals(90L, ranges.get(0).start());
+        assertEquals(99L, ranges.get(0).end());
+        assertEquals(0L, ranges.get(1).start());
+        assertEquals(100L, ranges.get(1).size());
+    }
+
+    @Test
+    public void testUnsatisfiableRangeParsing() {
+        assertTrue(Range.convert("bytes=100-200", 100).isEmpty());
+        assertTrue(Range.convert("bytes=-0", 100).isEmpty());
+        assertTrue(Range.convert("bytes=0-", 0).isEmpty());
+    }
+
+    @Test
+    public void testInvalidRangesIgnored() {
+        assertNull(Range.convert("something-thats-not-a-range", 100));
+        assertNull(Range.convert("bytes=9-0", 100));
+        assertNull(Range.convert("bytes=0-9,x", 100));
+        assertNull(Range.convert("bytes=-", 100));
+        final StringBuilder tooMany = new StringBuilder("bytes=0-0");
+        for (int i = 0; i < Range.MAX_RANGES; i++) {
+            tooMany.append(",0-0");
+        }
+        assertNull(Range.convert(tooMany.toString(), 100));
+    }
 }
@@ -0,0 +1,101 @@
+/*
+ * Licensed to DuraSpace under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * DuraSpace licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.http.commons.domain;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static javax.ws.rs.core.Response.Status.REQUEST_ENTITY_TOO_LARGE;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+import javax.servlet.ServletRequest;
+import javax.ws.rs.ClientErrorException;
+
+import org.apache.jena.update.UpdateRequest;
+import org.junit.Test;
+
+/**
+ * @author rdfloyd
+ */
+public class SparqlUpdateBodyTest {
+
+    private static final String UPDATE =
+            "INSERT DATA { <> <http://purl.org/dc/elements/1.1/title> \"tïtle\" }";
+
+    @Test
+    public void testRead() throws IOException {
+        final SparqlUpdateBody body =
+                SparqlUpdateBody.read(new ByteArrayInputStream(UPDATE.getBytes(UTF_8)), UTF_8, 1024);
+        assertEquals(UPDATE, body.getBody());
+        assertFalse(body.isParsed());
+    }
+
+    @Test
+    public void testReadAtLimit() throws IOException {
+        final byte[] bytes = UPDATE.getBytes(UTF_8);
+        final SparqlUpdateBody body = SparqlUpdateBody.read(new ByteArrayInputStream(bytes), UTF_8, bytes.length);
+        assertEquals(UPDATE, body.getBody());
+    }
+
+    @Test
+    public void testReadOverLimit() throws IOException {
+        final byte[] bytes = UPDATE.getBytes(UTF_8);
+        try {
+            SparqlUpdateBody.read(new ByteArrayInputStream(bytes), UTF_8, bytes.length - 1);
+            fail("Expected the body to be rejected");
+        } catch (final ClientErrorException e) {
+            assertEquals(REQUEST_ENTITY_TOO_LARGE.getStatusCode(), e.getResponse().getStatus());
+        }
+    }
+
+    @Test
+    public void testParseOncePerBase() {
+        final SparqlUpdateBody body = new SparqlUpdateBody(UPDATE);
+        final UpdateRequest parsed = body.parse("http://localhost/rest/a");
+
+        assertTrue(body.isParsed());
+        assertSame(parsed, body.parse("http://localhost/rest/a"));
+        assertSame(parsed, body.getParsed("http://localhost/rest/a"));
+        assertNull(body.getParsed("http://localhost/rest/b"));
+        assertNotSame(parsed, body.parse("http://localhost/rest/b"));
+    }
+
+    @Test
+    public void testRequestAttribute() {
+        final ServletRequest request = mock(ServletRequest.class);
+        assertFalse(SparqlUpdateBody.fromRequest(request).isPresent());
+        assertFalse(SparqlUpdateBody.fromRequest(null).isPresent());
+
+        final SparqlUpdateBody body = new SparqlUpdateBody(UPDATE);
+        body.setOnRequest(request);
+        verify(request).setAttribute(SparqlUpdateBody.SPARQL_UPDATE_ATTRIBUTE, body);
+
+        when(request.getAttribute(SparqlUpdateBody.SPARQL_UPDATE_ATTRIBUTE)).thenReturn(body);
+        assertSame(body, SparqlUpdateBody.fromRequest(request).get());
+    }
+}
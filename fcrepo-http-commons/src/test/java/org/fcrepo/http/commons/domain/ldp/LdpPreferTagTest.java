@@ -20,9 +20,12 @@ package org.fcrepo.http.commons.domain.ldp;
 import org.fcrepo.http.commons.domain.PreferTag;
 import org.junit.Test;
 
+import java.util.Optional;
+
 import static org.fcrepo.kernel.api.RdfLexicon.EMBED_CONTAINED;
 import static org.fcrepo.kernel.api.RdfLexicon.INBOUND_REFERENCES;
 import static org.fcrepo.kernel.api.RdfLexicon.LDP_NAMESPACE;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
@@ -121,4 +124,21 @@ public class LdpPreferTagTest {
         testObj = new LdpPreferTag(new PreferTag("return=representation; include=\"" + EMBED_CONTAINED + "\""));
         assertTrue(testObj.prefersEmbed());
     }
+
+    @Test
+    public void testMaxMemberCount() {
+        testObj = new LdpPreferTag(new PreferTag("return=representation; max-member-count=\"500\""));
+
+        assertTrue(testObj.prefersContainment());
+        assertEquals(Optional.of(500), testObj.getMaxMemberCount());
+    }
+
+    @Test
+    public void testInvalidMaxMemberCountIsIgnored() {
+        testObj = new LdpPreferTag(new PreferTag("return=representation; max-member-count=\"none\""));
+        assertFalse(testObj.getMaxMemberCount().isPresent());
+
+        testObj = new LdpPreferTag(new PreferTag("return=representation; max-member-count=\"0\""));
+        assertFalse(testObj.getMaxMemberCount().isPresent());
+    }
 }
@@ -0,0 +1,62 @@
+/*
+ * Licensed to DuraSpace under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * DuraSpace licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.http.commons.responses;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import org.fcrepo.http.commons.domain.Range;
+import org.fcrepo.kernel.api.models.FedoraBinary;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+/**
+ * @author rdfloyd
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class ByteRangesStreamingOutputTest {
+
+    @Mock
+    private FedoraBinary mockBinary;
+
+    @Test
+    public void testWrite() throws IOException {
+        when(mockBinary.getContent(0, 3)).thenReturn(new ByteArrayInputStream("abc".getBytes(US_ASCII)));
+        when(mockBinary.getContent(8, 2)).thenReturn(new ByteArrayInputStream("ij".getBytes(US_ASCII)));
+        final ByteRangesStreamingOutput output =
+                new ByteRangesStreamingOutput(mockBinary, Range.convert("bytes=0-2,-2", 10), "text/plain", 10);
+        final String boundary = output.getMediaType().getParameters().get("boundary");
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        output.write(out);
+
+        assertEquals("multipart/byteranges", output.getMediaType().getType() + "/" +
+                output.getMediaType().getSubtype());
+        assertEquals("--" + boundary + "\r\nContent-Type: text/plain\r\nContent-Range: bytes 0-2/10\r\n\r\nabc\r\n" +
+                "--" + boundary + "\r\nContent-Type: text/plain\r\nContent-Range: bytes 8-9/10\r\n\r\nij\r\n" +
+                "--" + boundary + "--\r\n", out.toString("US-ASCII"));
+        assertEquals(out.size(), output.getLength());
+    }
+}
@@ -28,7 +28,10 @@ import static org.apache.jena.rdf.model.ModelFactory.createDefaultModel;
 import static org.apache.jena.rdf.model.ResourceFactory.createProperty;
 import static org.apache.jena.rdf.model.ResourceFactory.createResource;
 import static org.apache.jena.rdf.model.ResourceFactory.createTypedLiteral;
+import static org.apache.jena.vocabulary.RDF.type;
 import static org.fcrepo.http.commons.domain.RDFMediaType.TURTLE_TYPE;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
 import static org.slf4j.LoggerFactory.getLogger;
@@ -40,6 +43,7 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 import javax.jcr.Session;
@@ -50,6 +54,7 @@ import com.google.common.util.concurrent.FutureCallback;
 import com.google.common.util.concurrent.MoreExecutors;
 
 import org.apache.jena.rdf.model.RDFNode;
+import org.apache.jena.rdf.model.Resource;
 import org.apache.jena.riot.RiotException;
 import org.fcrepo.kernel.api.rdf.DefaultRdfStream;
 import org.fcrepo.kernel.api.RdfStream;
@@ -131,6 +136,89 @@ public class RdfStreamStreamingOutputTest {
         }
     }
 
+    @Test
+    public void testWriteOmitsUnusedNamespace() throws IOException {
+        final Map<String, String> namespaces = new HashMap<>();
+        namespaces.put("a", "info:");
+        namespaces.put("b", "http://example.org/unused#");
+        try (final RdfStream input = new DefaultRdfStream(triple.getSubject(), of(triple));
+                final ByteArrayOutputStream output = new ByteArrayOutputStream()) {
+            new RdfStreamStreamingOutput(input, namespaces, TURTLE_TYPE).write(output);
+            assertFalse(output.toString("UTF-8").contains("@prefix b:"));
+        }
+    }
+
+    @Test
+    public void testWriteBeyondLookaheadWritesAllNamespaces() throws IOException {
+        final Map<String, String> namespaces = new HashMap<>();
+        namespaces.put("a", "info:");
+        namespaces.put("b", "http://example.org/unused#");
+        final int size = RdfStreamStreamingOutput.PREFIX_LOOKAHEAD + 10;
+        final Stream<Triple> triples = IntStream.range(0, size).mapToObj(i ->
+                create(createURI("info:testSubject"), createURI("info:testPredicate"), createURI("info:o" + i)));
+        try (final RdfStream input = new DefaultRdfStream(triple.getSubject(), triples);
+                final ByteArrayOutputStream output = new ByteArrayOutputStream()) {
+            new RdfStreamStreamingOutput(input, namespaces, TURTLE_TYPE).write(output);
+            final String s = output.toString("UTF-8");
+            assertTrue(s.replaceAll("\\s+", " ").contains("@prefix b: <http://example.org/unused#>"));
+            assertTrue("Prefixes must precede the triples", s.indexOf("@prefix") < s.indexOf("testPredicate"));
+            final Model result = createDefaultModel().read(new ByteArrayInputStream(output.toByteArray()), null,
+                    "TTL");
+            assertEquals(size, result.size());
+        }
+    }
+
+    @Test
+    public void testWriteParallelNTriples() throws IOException {
+        final int size = 5000;
+        final Stream<Triple> triples = IntStream.range(0, size).parallel().mapToObj(i ->
+                create(createURI("info:testSubject"), createURI("info:testPredicate"), createURI("info:o" + i)));
+        try (final RdfStream input = new DefaultRdfStream(triple.getSubject(), triples);
+                final ByteArrayOutputStream output = new ByteArrayOutputStream()) {
+            new RdfStreamStreamingOutput(input, testNamespaces, valueOf("application/n-triples")).write(output);
+            final Model result = createDefaultModel().read(new ByteArrayInputStream(output.toByteArray()), null,
+                    "N-TRIPLES");
+            assertEquals(size, result.size());
+        }
+    }
+
+    @Test
+    public void testWriteExpandedJsonLd() throws IOException {
+        final Node subject = createURI("info:testSubject");
+        final Node blank = createResource().asNode();
+        final Stream<Triple> triples = of(
+                create(subject, createURI("info:p1"), createLiteral("french string", "fr")),
+                create(subject, type.asNode(), createURI("info:Type")),
+                create(subject, createURI("info:p2"), createLiteral("2014-01-01T01:02:03Z", XSDdateTime)),
+                create(subject, createURI("info:p1"), blank),
+                create(blank, createURI("info:p2"), createLiteral("plain \"quoted\"")));
+        try (final RdfStream input = new DefaultRdfStream(subject, triples);
+                final ByteArrayOutputStream output = new ByteArrayOutputStream()) {
+            new RdfStreamStreamingOutput(input, testNamespaces, valueOf("application/ld+json")).write(output);
+            final Model result = createDefaultModel().read(new ByteArrayInputStream(output.toByteArray()), null,
+                    "JSON-LD");
+            assertEquals(5, result.size());
+            final Resource s = result.getResource("info:testSubject");
+            assertTrue(result.contains(s, createProperty("info:p1"), result.createLiteral("french string", "fr")));
+            assertTrue(result.contains(s, type, createResource("info:Type")));
+            assertTrue(result.contains(s, createProperty("info:p2"),
+                    result.createTypedLiteral("2014-01-01T01:02:03Z", XSDdateTime)));
+            assertTrue(result.contains(null, createProperty("info:p2"), "plain \"quoted\""));
+            final RDFNode object = result.listObjectsOfProperty(s, createProperty("info:p1"))
+                    .filterKeep(RDFNode::isAnon).next();
+            assertTrue(result.contains(object.asResource(), createProperty("info:p2")));
+        }
+    }
+
+    @Test
+    public void testWriteEmptyExpandedJsonLd() throws IOException {
+        try (final RdfStream input = new DefaultRdfStream(triple.getSubject(), Stream.empty());
+                final ByteArrayOutputStream output = new ByteArrayOutputStream()) {
+            new RdfStreamStreamingOutput(input, testNamespaces, valueOf("application/ld+json")).write(output);
+            assertEquals("[ ]", output.toString("UTF-8"));
+        }
+    }
+
     @Test
     public void testWriteWithTypedObject() throws IOException {
         assertOutputContainsTriple(create(createURI("info:testSubject"),
@@ -35,6 +35,7 @@ import java.security.Principal;
 import javax.jcr.Session;
 import javax.jcr.Workspace;
 import javax.servlet.ServletContext;
+import javax.ws.rs.core.MultivaluedHashMap;
 import javax.ws.rs.core.SecurityContext;
 import javax.ws.rs.core.UriBuilder;
 import javax.ws.rs.core.UriInfo;
@@ -80,6 +81,8 @@ public abstract class TestHelpers {
         when(ui.getBaseUri()).thenReturn(create("http://localhost/fcrepo"));
         when(ui.getBaseUriBuilder()).thenAnswer(answer);
         when(ui.getAbsolutePathBuilder()).thenAnswer(answer);
+        when(ui.getRequestUriBuilder()).thenAnswer(answer);
+        when(ui.getQueryParameters()).thenReturn(new MultivaluedHashMap<>());
 
         return ui;
     }
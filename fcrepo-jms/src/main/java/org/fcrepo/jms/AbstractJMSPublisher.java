@@ -17,8 +17,13 @@
  */
 package org.fcrepo.jms;
 
+import static java.lang.System.getProperty;
 import static org.slf4j.LoggerFactory.getLogger;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.Optional;
+
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
 import javax.inject.Inject;
@@ -40,6 +45,10 @@ import com.google.common.eventbus.Subscribe;
  * Machinery to publish JMS messages when an EventBus
  * message is received.
  *
+ * By default messages are sent synchronously, on the thread that posts the event.  If a number of publisher
+ * threads is configured, events are instead queued and published asynchronously, in transacted batches; see
+ * {@link AsyncEventPublisher}.
+ *
  * @author barmintor
  * @author awoods
  * @author acoburn
@@ -61,6 +70,22 @@ abstract class AbstractJMSPublisher {
 
     private MessageProducer producer;
 
+    private int publisherThreads = 0;
+
+    private int queueCapacity = 10000;
+
+    private int batchSize = 100;
+
+    private long batchTimeout = 50;
+
+    private OverflowPolicy overflowPolicy = OverflowPolicy.BLOCK;
+
+    private String journalDirectory;
+
+    private long shutdownTimeout = 10000;
+
+    private AsyncEventPublisher asyncPublisher;
+
     private static final Logger LOGGER = getLogger(AbstractJMSPublisher.class);
 
     protected abstract Destination createDestination() throws JMSException;
@@ -75,6 +100,10 @@ abstract class AbstractJMSPublisher {
     @Subscribe
     public void publishJCREvent(final FedoraEvent fedoraEvent) throws JMSException {
         LOGGER.debug("Received an event from the internal bus.");
+        if (asyncPublisher != null) {
+            asyncPublisher.publish(fedoraEvent);
+            return;
+        }
         final Message tm =
                 eventFactory.getMessage(fedoraEvent, jmsSession);
         LOGGER.debug("Transformed the event to a JMS message.");
@@ -95,10 +124,37 @@ abstract class AbstractJMSPublisher {
         connection = connectionFactory.createConnection();
         connection.start();
         jmsSession = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
-        producer = jmsSession.createProducer(createDestination());
+        final Destination destination = createDestination();
+        producer = jmsSession.createProducer(destination);
+        if (publisherThreads > 0) {
+            final EventJournal journal;
+            try {
+                journal = overflowPolicy == OverflowPolicy.SPILL ?
+                        new EventJournal(getJournalDirectory(destination), batchSize) : null;
+            } catch (final IOException e) {
+                throw new IllegalStateException("Unable to open the JMS event journal", e);
+            }
+            asyncPublisher = new AsyncEventPublisher(connection, destination, eventFactory, queueCapacity,
+                    batchSize, batchTimeout, overflowPolicy, journal);
+            asyncPublisher.start(publisherThreads, getClass().getSimpleName());
+            LOGGER.info("Publishing events to {} asynchronously with {} thread(s), queue capacity {}, " +
+                    "batch size {}, overflow policy {}", destination, publisherThreads, queueCapacity, batchSize,
+                    overflowPolicy);
+        }
         eventBus.register(this);
     }
 
+    private File getJournalDirectory(final Destination destination) {
+        if (journalDirectory != null) {
+            return new File(journalDirectory);
+        }
+        final String fcrepoHome = getProperty("fcrepo.home");
+        final File home = fcrepoHome == null ?
+                new File(getProperty("user.dir"), "fcrepo4-data") : new File(fcrepoHome);
+        return new File(home, "fcrepo.jms.journal" + File.separator +
+                destination.toString().replaceAll("[^A-Za-z0-9._-]", "_"));
+    }
+
     /**
      * Close external connections
      *
@@ -108,9 +164,77 @@ abstract class AbstractJMSPublisher {
     public void releaseConnections() throws JMSException {
         LOGGER.debug("Tearing down: {}", this.getClass().getCanonicalName());
 
+        eventBus.unregister(this);
+        if (asyncPublisher != null) {
+            asyncPublisher.stop(shutdownTimeout);
+            asyncPublisher = null;
+        }
         producer.close();
         jmsSession.close();
         connection.close();
-        eventBus.unregister(this);
+    }
+
+    /**
+     * @return the statistics of asynchronous publication, if events are published asynchronously
+     */
+    public Optional<PublisherStats> getStats() {
+        return Optional.ofNullable(asyncPublisher).map(AsyncEventPublisher::getStats);
+    }
+
+    /**
+     * Set the number of threads publishing events asynchronously.  If zero (the default), events are published
+     * synchronously on the thread that posts them to the internal bus.  A single thread publishes events in the
+     * order in which they are posted; with more than one, events may be published out of order.
+     *
+     * @param publisherThreads the number of publisher threads
+     */
+    public void setPublisherThreads(final int publisherThreads) {
+        this.publisherThreads = publisherThreads;
+    }
+
+    /**
+     * @param queueCapacity the number of events that may wait for asynchronous publication (default 10000)
+     */
+    public void setQueueCapacity(final int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+
+    /**
+     * @param batchSize the maximum number of events published in one JMS transaction (default 100)
+     */
+    public void setBatchSize(final int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * @param batchTimeout the maximum time in milliseconds to wait for a batch to fill (default 50)
+     */
+    public void setBatchTimeout(final long batchTimeout) {
+        this.batchTimeout = batchTimeout;
+    }
+
+    /**
+     * @param overflowPolicy what to do with an event when the queue is full (default BLOCK)
+     */
+    public void setOverflowPolicy(final OverflowPolicy overflowPolicy) {
+        this.overflowPolicy = overflowPolicy;
+    }
+
+    /**
+     * Set the directory of the journal of events spilled when the queue is full.  By default this is
+     * fcrepo.jms.journal/&lt;destination&gt; in the fcrepo.home directory.
+     *
+     * @param journalDirectory the journal directory
+     */
+    public void setJournalDirectory(final String journalDirectory) {
+        this.journalDirectory = journalDirectory;
+    }
+
+    /**
+     * @param shutdownTimeout how long in milliseconds to wait for queued events to be published on shutdown
+     *        (default 10000)
+     */
+    public void setShutdownTimeout(final long shutdownTimeout) {
+        this.shutdownTimeout = shutdownTimeout;
     }
 }
@@ -0,0 +1,427 @@
+/*
+ * Licensed to DuraSpace under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * DuraSpace licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.jms;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static org.slf4j.LoggerFactory.getLogger;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.jms.Connection;
+import javax.jms.Destination;
+import javax.jms.JMSException;
+import javax.jms.MessageProducer;
+import javax.jms.Session;
+
+import org.fcrepo.kernel.api.observer.FedoraEvent;
+import org.slf4j.Logger;
+
+/**
+ * Publishes events to JMS from a pool of producer threads, decoupling publication from the thread that posts events
+ * to the internal bus.  Events are held in a bounded queue; each producer thread has its own transacted session and
+ * commits a batch once it holds a given number of events or once a given time has passed since the first event of
+ * the batch was taken.  When the queue is full an event is handled according to the {@link OverflowPolicy}.  A
+ * batch that cannot be sent is journaled if there is a journal, and otherwise retried with a new session.
+ *
+ * With a single producer thread, events are published in the order in which they were posted: while there are
+ * journaled events, newer events are journaled behind them rather than queued, and the journal is only replayed
+ * once the queue is empty.  With more than one producer thread, batches are sent concurrently and events may be
+ * published out of order.
+ *
+ * @author rdfloyd
+ */
+final class AsyncEventPublisher {
+
+    private static final Logger LOGGER = getLogger(AsyncEventPublisher.class);
+
+    private static final long POLL_INTERVAL = 100;
+
+    private static final long MAX_BACKOFF = 30000;
+
+    private final Connection connection;
+
+    private final Destination destination;
+
+    private final JMSEventMessageFactory eventFactory;
+
+    private final BlockingQueue<QueuedEvent> queue;
+
+    private final int queueCapacity;
+
+    private final OverflowPolicy overflowPolicy;
+
+    private final EventJournal journal;
+
+    private final int batchSize;
+
+    private final long batchTimeoutNanos;
+
+    private final List<Thread> workers = new ArrayList<>();
+
+    private volatile boolean running;
+
+    private final LongAdder published = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder spilled = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder latencySamples = new LongAdder();
+    private final LongAdder totalLatency = new LongAdder();
+    private final AtomicLong maxLatency = new AtomicLong();
+
+    /**
+     * @param connection the JMS connection, from which each producer thread creates its own session
+     * @param destination the JMS destination
+     * @param eventFactory creates JMS messages from events
+     * @param queueCapacity the capacity of the queue
+     * @param batchSize the maximum number of events in a transaction
+     * @param batchTimeout the maximum time in milliseconds an event waits for its batch to fill
+     * @param overflowPolicy what to do with an event when the queue is full
+     * @param journal the journal for spilled events; required if overflowPolicy is SPILL.  If there is a journal,
+     *        events that cannot be queued are always spilled to it, whatever the overflow policy.
+     */
+    AsyncEventPublisher(final Connection connection, final Destination destination,
+            final JMSEventMessageFactory eventFactory, final int queueCapacity, final int batchSize,
+            final long batchTimeout, final OverflowPolicy overflowPolicy, final EventJournal journal) {
+        if (overflowPolicy == OverflowPolicy.SPILL && journal == null) {
+            throw new IllegalArgumentException("A journal is required to spill events");
+        }
+        this.connection = connection;
+        this.destination = destination;
+        this.eventFactory = eventFactory;
+        this.queueCapacity = queueCapacity;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.batchTimeoutNanos = MILLISECONDS.toNanos(batchTimeout);
+        this.overflowPolicy = overflowPolicy;
+        this.journal = journal;
+    }
+
+    /**
+     * Start the producer threads.
+     *
+     * @param threads the number of producer threads
+     * @param name the name of the publisher, used to name the threads
+     */
+    synchronized void start(final int threads, final String name) {
+        running = true;
+        for (int i = 0; i < threads; i++) {
+            final Thread worker = new Thread(this::work, name + "-" + i);
+            worker.setDaemon(true);
+            workers.add(worker);
+            worker.start();
+        }
+    }
+
+    /**
+     * Queue an event for publication, applying the overflow policy if the queue is full.
+     *
+     * @param event the event
+     */
+    void publish(final FedoraEvent event) {
+        final QueuedEvent queued = new QueuedEvent(event);
+        if (journal != null) {
+            // an event may only be queued if there are no journaled events, which are older
+            synchronized (journal) {
+                if (!journal.isEmpty() || !queue.offer(queued)) {
+                    spill(event);
+                }
+            }
+            return;
+        }
+        if (queue.offer(queued)) {
+            return;
+        }
+        if (overflowPolicy == OverflowPolicy.BLOCK) {
+            try {
+                queue.put(queued);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                drop(event);
+            }
+        } else {
+            drop(event);
+        }
+    }
+
+    private void spill(final FedoraEvent event) {
+        try {
+            journal.append(event);
+            spilled.increment();
+        } catch (final IOException e) {
+            LOGGER.error("Unable to journal event {}: {}", event.getEventID(), e.getMessage());
+            drop(event);
+        }
+    }
+
+    private void drop(final FedoraEvent event) {
+        dropped.increment();
+        final long count = dropped.sum();
+        if (count == 1 || count % 1000 == 0) {
+            LOGGER.warn("JMS publishing queue is full; {} event(s) dropped so far", count);
+        }
+        LOGGER.debug("Dropped event {} for {}", event.getEventID(), event.getPath());
+    }
+
+    private void work() {
+        final Producer producer = new Producer();
+        final List<QueuedEvent> batch = new ArrayList<>(batchSize);
+        try {
+            while (running || !queue.isEmpty()) {
+                // journaled events are newer than any still queued, so they are replayed once the queue is empty
+                if (queue.isEmpty() && replayJournal(producer)) {
+                    continue;
+                }
+                final QueuedEvent first = queue.poll(POLL_INTERVAL, MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                final long deadline = System.nanoTime() + batchTimeoutNanos;
+                while (batch.size() < batchSize) {
+                    if (queue.drainTo(batch, batchSize - batch.size()) > 0) {
+                        continue;
+                    }
+                    final long remaining = deadline - System.nanoTime();
+                    final QueuedEvent next = remaining > 0 ? queue.poll(remaining, NANOSECONDS) : null;
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                publish(producer, batch);
+                batch.clear();
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOGGER.warn("JMS producer thread {} interrupted with {} event(s) unpublished",
+                    Thread.currentThread().getName(), batch.size());
+            failed.add(batch.size());
+        } finally {
+            producer.close();
+        }
+    }
+
+    /**
+     * Publish a batch, journaling it if it cannot be sent and it can be journaled, or otherwise retrying it with a
+     * growing delay for as long as the publisher is running.
+     */
+    private void publish(final Producer producer, final List<QueuedEvent> batch) throws InterruptedException {
+        long backoff = POLL_INTERVAL;
+        while (!send(producer, batch)) {
+            if (journal != null && spillBatch(batch)) {
+                return;
+            } else if (!running) {
+                failed.add(batch.size());
+                LOGGER.error("Discarding a batch of {} event(s) that could not be published before shutdown",
+                        batch.size());
+                return;
+            }
+            LOGGER.warn("Retrying a batch of {} event(s) in {} ms", batch.size(), backoff);
+            MILLISECONDS.sleep(backoff);
+            backoff = Math.min(backoff * 2, MAX_BACKOFF);
+        }
+    }
+
+    /**
+     * Journal a batch that could not be sent, followed by the events queued after it.  While the publisher is
+     * running, this is only done if the journal is empty: events already journaled are newer than the batch, which
+     * must be retried instead so that it is published first.
+     *
+     * @return whether the batch was journaled
+     */
+    private boolean spillBatch(final List<QueuedEvent> batch) {
+        synchronized (journal) {
+            if (running && !journal.isEmpty()) {
+                return false;
+            }
+            LOGGER.warn("Journaling a batch of {} event(s) to be published later", batch.size());
+            batch.forEach(queued -> spill(queued.event));
+            final List<QueuedEvent> queued = new ArrayList<>();
+            queue.drainTo(queued);
+            queued.forEach(next -> spill(next.event));
+            return true;
+        }
+    }
+
+    private boolean send(final Producer producer, final List<QueuedEvent> batch) {
+        final List<FedoraEvent> events = new ArrayList<>(batch.size());
+        batch.forEach(queued -> events.add(queued.event));
+        try {
+            producer.send(events);
+        } catch (final JMSException | RuntimeException e) {
+            LOGGER.error("Unable to publish a batch of {} event(s) to JMS: {}", batch.size(), e.getMessage());
+            return false;
+        }
+        final long now = System.nanoTime();
+        for (final QueuedEvent queued : batch) {
+            final long latency = now - queued.queued;
+            totalLatency.add(latency);
+            maxLatency.accumulateAndGet(latency, Math::max);
+        }
+        latencySamples.add(batch.size());
+        published.add(batch.size());
+        batches.increment();
+        LOGGER.debug("Published a batch of {} event(s) to JMS", batch.size());
+        return true;
+    }
+
+    /**
+     * Publish the oldest segment of the journal, if there is one.
+     *
+     * @return whether any events were published
+     */
+    private boolean replayJournal(final Producer producer) {
+        if (journal == null || journal.isEmpty()) {
+            return false;
+        }
+        try {
+            final int replayed = journal.replay(producer::send);
+            if (replayed > 0) {
+                published.add(replayed);
+                batches.increment();
+                LOGGER.debug("Published {} journaled event(s) to JMS", replayed);
+                return true;
+            }
+        } catch (final IOException | JMSException | RuntimeException e) {
+            LOGGER.error("Unable to replay journaled events to JMS: {}", e.getMessage());
+        }
+        return false;
+    }
+
+    /**
+     * Stop the producer threads once they have published the events remaining in the queue.  Events still queued
+     * after the timeout are journaled if there is a journal, and lost otherwise; they are journaled behind any
+     * events spilled while the queue was full, and so are published after them.
+     *
+     * @param timeout how long to wait for the queue to drain, in milliseconds
+     */
+    synchronized void stop(final long timeout) {
+        running = false;
+        final long deadline = System.currentTimeMillis() + timeout;
+        for (final Thread worker : workers) {
+            try {
+                worker.join(Math.max(1, deadline - System.currentTimeMillis()));
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        workers.forEach(Thread::interrupt);
+        workers.clear();
+        final List<QueuedEvent> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        if (!remaining.isEmpty()) {
+            if (journal != null) {
+                remaining.forEach(queued -> spill(queued.event));
+            } else {
+                LOGGER.warn("{} event(s) were not published to JMS before shutdown", remaining.size());
+                dropped.add(remaining.size());
+            }
+        }
+        if (journal != null) {
+            try {
+                journal.close();
+            } catch (final IOException e) {
+                LOGGER.warn("Unable to close JMS event journal: {}", e.getMessage());
+            }
+        }
+        LOGGER.info("Stopped asynchronous JMS publisher; {}", getStats());
+    }
+
+    /**
+     * @return a snapshot of the statistics of this publisher
+     */
+    PublisherStats getStats() {
+        final long samples = latencySamples.sum();
+        return new PublisherStats(queue.size(), queueCapacity, published.sum(), dropped.sum(), spilled.sum(),
+                failed.sum(), batches.sum(), samples > 0 ? totalLatency.sum() / samples : 0, maxLatency.get());
+    }
+
+    /**
+     * The transacted session and producer of one producer thread, created when first needed and discarded after a
+     * failed send, so that the next send starts over with a new session.
+     */
+    private final class Producer {
+
+        private Session session;
+
+        private MessageProducer producer;
+
+        private void send(final List<FedoraEvent> events) throws JMSException {
+            try {
+                if (session == null) {
+                    session = connection.createSession(true, Session.SESSION_TRANSACTED);
+                    producer = session.createProducer(destination);
+                }
+                for (final FedoraEvent event : events) {
+                    producer.send(eventFactory.getMessage(event, session));
+                }
+                session.commit();
+            } catch (final JMSException | RuntimeException e) {
+                rollback();
+                close();
+                throw e;
+            }
+        }
+
+        private void rollback() {
+            if (session != null) {
+                try {
+                    session.rollback();
+                } catch (final JMSException e) {
+                    LOGGER.warn("Unable to roll back JMS transaction: {}", e.getMessage());
+                }
+            }
+        }
+
+        private void close() {
+            try {
+                if (producer != null) {
+                    producer.close();
+                }
+                if (session != null) {
+                    session.close();
+                }
+            } catch (final JMSException e) {
+                LOGGER.warn("Unable to close JMS session: {}", e.getMessage());
+            } finally {
+                producer = null;
+                session = null;
+            }
+        }
+    }
+
+    private static final class QueuedEvent {
+
+        private final FedoraEvent event;
+
+        private final long queued = System.nanoTime();
+
+        private QueuedEvent(final FedoraEvent event) {
+            this.event = event;
+        }
+    }
+}
@@ -20,17 +20,20 @@ package org.fcrepo.jms;
 import static java.lang.String.join;
 import static java.util.stream.Collectors.joining;
 import static org.fcrepo.kernel.api.observer.OptionalValues.BASE_URL;
+import static org.fcrepo.kernel.api.observer.OptionalValues.DESCENDANT_COUNT;
 import static org.fcrepo.kernel.api.observer.OptionalValues.USER_AGENT;
 import static org.slf4j.LoggerFactory.getLogger;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.Set;
+import javax.jms.BytesMessage;
 import javax.jms.JMSException;
 import javax.jms.Message;
 import javax.jms.Session;
 
 import org.fcrepo.kernel.api.observer.EventType;
 import org.fcrepo.kernel.api.observer.FedoraEvent;
-import org.fcrepo.event.serialization.EventSerializer;
 import org.fcrepo.event.serialization.JsonLDSerializer;
 
 import org.slf4j.Logger;
@@ -39,6 +42,10 @@ import org.slf4j.Logger;
  * Generates JMS {@link Message}s composed entirely of headers, based entirely
  * on information found in the {@link FedoraEvent} that triggers publication.
  *
+ * The body of a message is the JSON-LD serialization of the event, sent as a
+ * TextMessage or, if so configured, written directly to a BytesMessage as
+ * UTF-8 without an intermediate String.
+ *
  * @author ajs6f
  * @author escowles
  * @since Dec 2, 2013
@@ -64,14 +71,28 @@ public class DefaultMessageFactory implements JMSEventMessageFactory {
     public static final String USER_HEADER_NAME = JMS_NAMESPACE + "user";
     public static final String USER_AGENT_HEADER_NAME = JMS_NAMESPACE + "userAgent";
     public static final String EVENT_ID_HEADER_NAME = JMS_NAMESPACE + "eventID";
+    public static final String DESCENDANT_COUNT_HEADER_NAME = JMS_NAMESPACE + "descendantCount";
+
+    private static final JsonLDSerializer SERIALIZER = new JsonLDSerializer();
+
+    private boolean bytesMessages = false;
+
+    /**
+     * Send the body of each message as UTF-8 encoded bytes in a BytesMessage, rather than as a TextMessage.
+     * Consumers must be able to read BytesMessages.
+     *
+     * @param bytesMessages whether to create BytesMessages
+     */
+    public void setBytesMessages(final boolean bytesMessages) {
+        this.bytesMessages = bytesMessages;
+    }
 
     @Override
     public Message getMessage(final FedoraEvent event, final Session jmsSession)
             throws JMSException {
 
-        final EventSerializer serializer = new JsonLDSerializer();
-        final String body = serializer.serialize(event);
-        final Message message = jmsSession.createTextMessage(body);
+        final Message message = bytesMessages ? createBytesMessage(event, jmsSession) :
+                jmsSession.createTextMessage(SERIALIZER.serialize(event));
 
         message.setLongProperty(TIMESTAMP_HEADER_NAME, event.getDate().toEpochMilli());
 
@@ -83,6 +104,10 @@ public class DefaultMessageFactory implements JMSEventMessageFactory {
         if (event.getInfo().containsKey(USER_AGENT)) {
             message.setStringProperty(USER_AGENT_HEADER_NAME, event.getInfo().get(USER_AGENT));
         }
+        if (event.getInfo().containsKey(DESCENDANT_COUNT)) {
+            message.setLongProperty(DESCENDANT_COUNT_HEADER_NAME,
+                    Long.parseLong(event.getInfo().get(DESCENDANT_COUNT)));
+        }
 
         message.setStringProperty(IDENTIFIER_HEADER_NAME, event.getPath());
         message.setStringProperty(EVENT_TYPE_HEADER_NAME, getEventURIs(event.getTypes()));
@@ -94,6 +119,20 @@ public class DefaultMessageFactory implements JMSEventMessageFactory {
         return message;
     }
 
+    private static BytesMessage createBytesMessage(final FedoraEvent event, final Session jmsSession)
+            throws JMSException {
+        final BytesMessage message = jmsSession.createBytesMessage();
+        try {
+            SERIALIZER.serialize(event, new BytesMessageOutputStream(message));
+        } catch (final IOException ex) {
+            if (ex.getCause() instanceof JMSException) {
+                throw (JMSException) ex.getCause();
+            }
+            LOGGER.error("Error processing JSON: {}", ex.getMessage());
+        }
+        return message;
+    }
+
     private static String getEventURIs(final Set<EventType> types) {
         final String uris = types.stream()
                                  .map(EventType::getType)
@@ -105,4 +144,33 @@ public class DefaultMessageFactory implements JMSEventMessageFactory {
 
     private static final Logger LOGGER = getLogger(DefaultMessageFactory.class);
 
+    /**
+     * Writes to the body of a BytesMessage
+     */
+    private static final class BytesMessageOutputStream extends OutputStream {
+
+        private final BytesMessage message;
+
+        private BytesMessageOutputStream(final BytesMessage message) {
+            this.message = message;
+        }
+
+        @Override
+        public void write(final int b) throws IOException {
+            try {
+                message.writeByte((byte) b);
+            } catch (final JMSException ex) {
+                throw new IOException(ex);
+            }
+        }
+
+        @Override
+        public void write(final byte[] b, final int off, final int len) throws IOException {
+            try {
+                message.writeBytes(b, off, len);
+            } catch (final JMSException ex) {
+                throw new IOException(ex);
+            }
+        }
+    }
 }
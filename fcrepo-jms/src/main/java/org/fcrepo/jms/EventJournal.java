@@ -0,0 +1,354 @@
+/*
+ * Licensed to DuraSpace under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * DuraSpace licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.jms;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.ObjectStreamException;
+import java.io.Serializable;
+import java.net.URI;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.jms.JMSException;
+
+import org.fcrepo.kernel.api.observer.EventType;
+import org.fcrepo.kernel.api.observer.FedoraEvent;
+import org.slf4j.Logger;
+
+/**
+ * An append-only journal on local disk of events that could not be queued for publication.  Events are written to
+ * segment files of a bounded number of events each; a segment is replayed as a whole and deleted only once it has
+ * been published, so delivery of journaled events is at-least-once.  Segments left behind by a previous run are
+ * replayed as well.
+ *
+ * Segments are read with Java serialization restricted to the classes of a journaled event.  A segment holding any
+ * other class, or that is otherwise unreadable, is renamed with the suffix {@value #REJECTED_SUFFIX} and is not
+ * replayed.
+ *
+ * @author rdfloyd
+ */
+final class EventJournal {
+
+    private static final Logger LOGGER = getLogger(EventJournal.class);
+
+    private static final String PREFIX = "events-";
+
+    private static final String SUFFIX = ".journal";
+
+    private static final String REJECTED_SUFFIX = ".rejected";
+
+    // the classes that may be read from a segment: a JournaledEvent and the types of its fields (strings are
+    // not resolved as classes, and an Instant is serialized through the package-private class java.time.Ser)
+    private static final Set<String> JOURNALED_CLASSES = Stream.concat(Stream.of(JournaledEvent.class,
+            HashSet.class, HashMap.class, EventType.class, Enum.class, URI.class).map(Class::getName),
+            Stream.of("java.time.Ser")).collect(Collectors.toSet());
+
+    /**
+     * Publishes the events of a journal segment
+     */
+    @FunctionalInterface
+    interface SegmentPublisher {
+
+        /**
+         * @param events the events of a segment, in the order in which they were journaled
+         * @throws JMSException if the events could not be published
+         */
+        void publish(List<FedoraEvent> events) throws JMSException;
+    }
+
+    private final File directory;
+
+    private final int segmentSize;
+
+    // closed segments, oldest first; guarded by this
+    private final Deque<File> segments = new ArrayDeque<>();
+
+    private final ReentrantLock replayLock = new ReentrantLock();
+
+    private long sequence;
+
+    private File current;
+
+    private ObjectOutputStream out;
+
+    private int currentCount;
+
+    /**
+     * @param directory the directory holding the journal segments
+     * @param segmentSize the maximum number of events in a segment
+     * @throws IOException if the directory could not be created
+     */
+    EventJournal(final File directory, final int segmentSize) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Unable to create JMS event journal directory " + directory);
+        }
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        final File[] existing = directory.listFiles((dir, name) -> name.startsWith(PREFIX) && name.endsWith(SUFFIX));
+        if (existing != null && existing.length > 0) {
+            Arrays.sort(existing);
+            segments.addAll(Arrays.asList(existing));
+            final String last = existing[existing.length - 1].getName();
+            sequence = Long.parseLong(last.substring(PREFIX.length(), last.length() - SUFFIX.length())) + 1;
+            LOGGER.info("Found {} unpublished JMS event journal segment(s) in {}", existing.length, directory);
+        }
+    }
+
+    /**
+     * Append an event to the journal.
+     *
+     * @param event the event
+     * @throws IOException if the event could not be written
+     */
+    synchronized void append(final FedoraEvent event) throws IOException {
+        if (out == null) {
+            current = new File(directory, String.format("%s%019d%s", PREFIX, sequence++, SUFFIX));
+            out = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(current)));
+        }
+        out.writeObject(JournaledEvent.of(event));
+        out.reset();
+        out.flush();
+        if (++currentCount >= segmentSize) {
+            roll();
+        }
+    }
+
+    /**
+     * @return whether there are no journaled events
+     */
+    synchronized boolean isEmpty() {
+        return segments.isEmpty() && out == null;
+    }
+
+    /**
+     * Publish the oldest segment of the journal and delete it.  If another thread is already replaying the journal,
+     * this does nothing.
+     *
+     * @param publisher publishes the events of the segment
+     * @return the number of events published
+     * @throws IOException if the segment could not be read
+     * @throws JMSException if the events could not be published; the segment is kept to be replayed again
+     */
+    int replay(final SegmentPublisher publisher) throws IOException, JMSException {
+        if (!replayLock.tryLock()) {
+            return 0;
+        }
+        try {
+            final File segment;
+            synchronized (this) {
+                if (segments.isEmpty()) {
+                    roll();
+                }
+                segment = segments.peek();
+            }
+            if (segment == null) {
+                return 0;
+            }
+            final List<FedoraEvent> events;
+            try {
+                events = read(segment);
+            } catch (final ObjectStreamException e) {
+                reject(segment);
+                throw e;
+            }
+            if (!events.isEmpty()) {
+                publisher.publish(events);
+            }
+            synchronized (this) {
+                segments.remove(segment);
+            }
+            if (!segment.delete()) {
+                LOGGER.warn("Unable to delete replayed JMS event journal segment {}", segment);
+            }
+            return events.size();
+        } finally {
+            replayLock.unlock();
+        }
+    }
+
+    /**
+     * Set aside a segment that cannot be read, so that it is no longer replayed.
+     */
+    private void reject(final File segment) {
+        synchronized (this) {
+            segments.remove(segment);
+        }
+        final File rejected = new File(directory, segment.getName() + REJECTED_SUFFIX);
+        if (segment.renameTo(rejected)) {
+            LOGGER.error("Unable to read JMS event journal segment {}; it has been renamed to {}", segment,
+                    rejected);
+        } else {
+            LOGGER.error("Unable to read JMS event journal segment {}, nor to rename it; it will not be replayed",
+                    segment);
+        }
+    }
+
+    /**
+     * Close the segment being written, if any.
+     *
+     * @throws IOException if the segment could not be closed
+     */
+    synchronized void close() throws IOException {
+        roll();
+    }
+
+    private void roll() throws IOException {
+        if (out != null) {
+            out.close();
+            segments.add(current);
+            out = null;
+            current = null;
+            currentCount = 0;
+        }
+    }
+
+    private static List<FedoraEvent> read(final File segment) throws IOException {
+        final List<FedoraEvent> events = new ArrayList<>();
+        try (final ObjectInputStream in =
+                new JournalInputStream(new BufferedInputStream(new FileInputStream(segment)))) {
+            while (true) {
+                events.add((FedoraEvent) in.readObject());
+            }
+        } catch (final EOFException e) {
+            // the end of the segment, or of what was written of it before a crash
+            return events;
+        } catch (final ClassNotFoundException e) {
+            throw (InvalidClassException) new InvalidClassException(e.getMessage()).initCause(e);
+        }
+    }
+
+    /**
+     * An ObjectInputStream that only resolves the classes of a journaled event
+     */
+    private static final class JournalInputStream extends ObjectInputStream {
+
+        private JournalInputStream(final InputStream in) throws IOException {
+            super(in);
+        }
+
+        @Override
+        protected Class<?> resolveClass(final ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+            final String name = desc.getName();
+            if (!JOURNALED_CLASSES.contains(name)) {
+                throw new InvalidClassException(name, "not a class of a journaled event");
+            }
+            return super.resolveClass(desc);
+        }
+
+        @Override
+        protected Class<?> resolveProxyClass(final String[] interfaces) throws InvalidClassException {
+            throw new InvalidClassException("proxy", "not a class of a journaled event");
+        }
+    }
+
+    /**
+     * A serializable copy of a FedoraEvent
+     */
+    private static final class JournaledEvent implements FedoraEvent, Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Set<EventType> types;
+        private final Set<String> resourceTypes;
+        private final String path;
+        private final String userID;
+        private final URI userURI;
+        private final Instant date;
+        private final String eventID;
+        private final HashMap<String, String> info;
+
+        private JournaledEvent(final FedoraEvent event) {
+            this.types = new HashSet<>(event.getTypes());
+            this.resourceTypes = new HashSet<>(event.getResourceTypes());
+            this.path = event.getPath();
+            this.userID = event.getUserID();
+            this.userURI = event.getUserURI();
+            this.date = event.getDate();
+            this.eventID = event.getEventID();
+            this.info = new HashMap<>(event.getInfo());
+        }
+
+        static JournaledEvent of(final FedoraEvent event) {
+            return event instanceof JournaledEvent ? (JournaledEvent) event : new JournaledEvent(event);
+        }
+
+        @Override
+        public Set<EventType> getTypes() {
+            return types;
+        }
+
+        @Override
+        public Set<String> getResourceTypes() {
+            return resourceTypes;
+        }
+
+        @Override
+        public String getPath() {
+            return path;
+        }
+
+        @Override
+        public String getUserID() {
+            return userID;
+        }
+
+        @Override
+        public URI getUserURI() {
+            return userURI;
+        }
+
+        @Override
+        public Instant getDate() {
+            return date;
+        }
+
+        @Override
+        public String getEventID() {
+            return eventID;
+        }
+
+        @Override
+        public Map<String, String> getInfo() {
+            return info;
+        }
+    }
+}
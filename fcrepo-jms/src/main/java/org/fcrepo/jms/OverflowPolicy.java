@@ -0,0 +1,41 @@
+/*
+ * Licensed to DuraSpace under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * DuraSpace licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.jms;
+
+/**
+ * What an asynchronous JMS publisher does with an event when its queue is full.
+ *
+ * @author rdfloyd
+ */
+public enum OverflowPolicy {
+
+    /**
+     * Block the thread posting the event until there is room in the queue
+     */
+    BLOCK,
+
+    /**
+     * Append the event to a journal on local disk, to be published once the queue has drained
+     */
+    SPILL,
+
+    /**
+     * Discard the event, counting it as dropped
+     */
+    DROP
+}
@@ -0,0 +1,130 @@
+/*
+ * Licensed to DuraSpace under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * DuraSpace licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.jms;
+
+/**
+ * A snapshot of the statistics of an asynchronous JMS publisher.  Counts are cumulative since the publisher was
+ * started.
+ *
+ * @author rdfloyd
+ */
+public final class PublisherStats {
+
+    private final int queueDepth;
+
+    private final int queueCapacity;
+
+    private final long publishedCount;
+
+    private final long droppedCount;
+
+    private final long spilledCount;
+
+    private final long failedCount;
+
+    private final long batchCount;
+
+    private final long meanLatencyNanos;
+
+    private final long maxLatencyNanos;
+
+    PublisherStats(final int queueDepth, final int queueCapacity, final long publishedCount,
+            final long droppedCount, final long spilledCount, final long failedCount, final long batchCount,
+            final long meanLatencyNanos, final long maxLatencyNanos) {
+        this.queueDepth = queueDepth;
+        this.queueCapacity = queueCapacity;
+        this.publishedCount = publishedCount;
+        this.droppedCount = droppedCount;
+        this.spilledCount = spilledCount;
+        this.failedCount = failedCount;
+        this.batchCount = batchCount;
+        this.meanLatencyNanos = meanLatencyNanos;
+        this.maxLatencyNanos = maxLatencyNanos;
+    }
+
+    /**
+     * @return the number of events waiting to be published
+     */
+    public int getQueueDepth() {
+        return queueDepth;
+    }
+
+    /**
+     * @return the capacity of the queue
+     */
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    /**
+     * @return the number of events published, including those replayed from the journal
+     */
+    public long getPublishedCount() {
+        return publishedCount;
+    }
+
+    /**
+     * @return the number of events discarded because the queue was full
+     */
+    public long getDroppedCount() {
+        return droppedCount;
+    }
+
+    /**
+     * @return the number of events written to the journal because the queue was full
+     */
+    public long getSpilledCount() {
+        return spilledCount;
+    }
+
+    /**
+     * @return the number of events whose batch could not be published
+     */
+    public long getFailedCount() {
+        return failedCount;
+    }
+
+    /**
+     * @return the number of transactions committed
+     */
+    public long getBatchCount() {
+        return batchCount;
+    }
+
+    /**
+     * @return the mean time in milliseconds from an event being queued to its batch being committed
+     */
+    public double getMeanLatencyMillis() {
+        return meanLatencyNanos / 1e6;
+    }
+
+    /**
+     * @return the longest time in milliseconds from an event being queued to its batch being committed
+     */
+    public double getMaxLatencyMillis() {
+        return maxLatencyNanos / 1e6;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("queue depth: %d/%d, published: %d, dropped: %d, spilled: %d, failed: %d, " +
+                "batches: %d, mean latency: %.2f ms, max latency: %.2f ms", queueDepth, queueCapacity,
+                publishedCount, droppedCount, spilledCount, failedCount, batchCount, getMeanLatencyMillis(),
+                getMaxLatencyMillis());
+    }
+}
@@ -0,0 +1,44 @@
+/*
+ * Licensed to DuraSpace under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * DuraSpace licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.integration.jms.observer;
+
+import javax.jms.Destination;
+import javax.jms.JMSException;
+
+import org.junit.runner.RunWith;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+/**
+ * <p>
+ * JmsAsyncQueueIT class: the JMS tests against a queue publisher that publishes asynchronously, in batches.
+ * </p>
+ *
+ * @author rdfloyd
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration({ "/spring-test/jms-queue-async.xml", "/spring-test/fcrepo-config.xml",
+    "/spring-test/eventing.xml" })
+@DirtiesContext
+public class JmsAsyncQueueIT extends AbstractJmsIT {
+
+    protected Destination createDestination() throws JMSException {
+        return jmsSession.createQueue("fcrepo-async-queue");
+    }
+}
@@ -0,0 +1,253 @@
+/*
+ * Licensed to DuraSpace under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * DuraSpace licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.jms;
+
+import static com.jayway.awaitility.Awaitility.await;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static javax.jms.Session.AUTO_ACKNOWLEDGE;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.jms.Connection;
+import javax.jms.Destination;
+import javax.jms.JMSException;
+import javax.jms.MessageConsumer;
+import javax.jms.Session;
+import javax.jms.TextMessage;
+
+import org.apache.activemq.ActiveMQConnectionFactory;
+import org.fcrepo.kernel.api.observer.FedoraEvent;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+/**
+ * Tests of asynchronous publication against an embedded, non-persistent broker.
+ *
+ * @author rdfloyd
+ */
+@RunWith(MockitoJUnitRunner.Silent.class)
+public class AsyncEventPublisherTest {
+
+    private static final long RECEIVE_TIMEOUT = 5000;
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Mock
+    private JMSEventMessageFactory mockEventFactory;
+
+    private final CountDownLatch gate = new CountDownLatch(1);
+
+    private final AtomicInteger failures = new AtomicInteger();
+
+    private Connection connection;
+
+    private Session session;
+
+    private Destination destination;
+
+    private MessageConsumer consumer;
+
+    private AsyncEventPublisher publisher;
+
+    @Before
+    public void setUp() throws JMSException {
+        final ActiveMQConnectionFactory connectionFactory = new ActiveMQConnectionFactory(
+                "vm://async-test?broker.persistent=false&broker.useJmx=false");
+        connection = connectionFactory.createConnection();
+        connection.start();
+        session = connection.createSession(false, AUTO_ACKNOWLEDGE);
+        destination = session.createQueue("async-test");
+        consumer = session.createConsumer(destination);
+        when(mockEventFactory.getMessage(any(FedoraEvent.class), any(Session.class))).thenAnswer(invocation -> {
+            gate.await();
+            if (failures.getAndUpdate(count -> Math.max(0, count - 1)) > 0) {
+                throw new JMSException("Broker unavailable");
+            }
+            final FedoraEvent event = invocation.getArgument(0);
+            return ((Session) invocation.getArgument(1)).createTextMessage(event.getEventID());
+        });
+    }
+
+    @After
+    public void tearDown() throws JMSException {
+        gate.countDown();
+        if (publisher != null) {
+            publisher.stop(RECEIVE_TIMEOUT);
+        }
+        consumer.close();
+        session.close();
+        connection.close();
+    }
+
+    private AsyncEventPublisher startPublisher(final int capacity, final OverflowPolicy policy, final int threads)
+            throws Exception {
+        final EventJournal journal = policy == OverflowPolicy.SPILL ? new EventJournal(folder.getRoot(), 2) : null;
+        publisher = new AsyncEventPublisher(connection, destination, mockEventFactory, capacity, 10, 20, policy,
+                journal);
+        publisher.start(threads, "test-publisher");
+        return publisher;
+    }
+
+    private static FedoraEvent event(final int i) {
+        final FedoraEvent event = mock(FedoraEvent.class);
+        when(event.getEventID()).thenReturn("event-" + i);
+        when(event.getPath()).thenReturn("/resource-" + i);
+        return event;
+    }
+
+    private List<String> receive(final int count) throws JMSException {
+        final List<String> received = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            final TextMessage message = (TextMessage) consumer.receive(RECEIVE_TIMEOUT);
+            assertNotNull("Expected " + count + " messages, but received " + i, message);
+            received.add(message.getText());
+        }
+        return received;
+    }
+
+    /**
+     * Publish one event and wait until a producer thread has taken it, and is blocked creating its message.
+     */
+    private void occupyProducer() {
+        publisher.publish(event(0));
+        await().atMost(5, SECONDS).until(() -> publisher.getStats().getQueueDepth() == 0);
+    }
+
+    @Test
+    public void testBatchedPublication() throws Exception {
+        gate.countDown();
+        startPublisher(100, OverflowPolicy.BLOCK, 2);
+        for (int i = 0; i < 95; i++) {
+            publisher.publish(event(i));
+        }
+        assertEquals(95, receive(95).size());
+        await().atMost(5, SECONDS).until(() -> publisher.getStats().getPublishedCount() == 95);
+        final PublisherStats stats = publisher.getStats();
+        assertTrue("Events should have been published in batches", stats.getBatchCount() < 95);
+        assertTrue(stats.getMaxLatencyMillis() >= stats.getMeanLatencyMillis());
+    }
+
+    @Test
+    public void testDropWhenFull() throws Exception {
+        startPublisher(5, OverflowPolicy.DROP, 1);
+        occupyProducer();
+        for (int i = 1; i <= 8; i++) {
+            publisher.publish(event(i));
+        }
+        assertEquals(3, publisher.getStats().getDroppedCount());
+        assertEquals(5, publisher.getStats().getQueueDepth());
+        gate.countDown();
+        assertEquals(6, receive(6).size());
+        assertNull(consumer.receive(200));
+    }
+
+    @Test
+    public void testSpillWhenFull() throws Exception {
+        startPublisher(5, OverflowPolicy.SPILL, 1);
+        occupyProducer();
+        for (int i = 1; i <= 8; i++) {
+            publisher.publish(event(i));
+        }
+        assertEquals(0, publisher.getStats().getDroppedCount());
+        assertEquals(3, publisher.getStats().getSpilledCount());
+        gate.countDown();
+        final List<String> received = receive(9);
+        for (int i = 0; i <= 8; i++) {
+            assertEquals("event-" + i, received.get(i));
+        }
+        await().atMost(5, SECONDS).until(() -> folder.getRoot().list().length == 0);
+    }
+
+    @Test
+    public void testBlockWhenFull() throws Exception {
+        startPublisher(1, OverflowPolicy.BLOCK, 1);
+        occupyProducer();
+        publisher.publish(event(1));
+        final Thread blocked = new Thread(() -> publisher.publish(event(2)));
+        blocked.start();
+        blocked.join(200);
+        assertTrue("Publishing to a full queue should block", blocked.isAlive());
+        gate.countDown();
+        blocked.join(RECEIVE_TIMEOUT);
+        assertEquals(3, receive(3).size());
+        assertEquals(0, publisher.getStats().getDroppedCount());
+    }
+
+    @Test
+    public void testStopPublishesQueuedEvents() throws Exception {
+        gate.countDown();
+        startPublisher(100, OverflowPolicy.BLOCK, 1);
+        for (int i = 0; i < 50; i++) {
+            publisher.publish(event(i));
+        }
+        publisher.stop(RECEIVE_TIMEOUT);
+        assertEquals(50, publisher.getStats().getPublishedCount());
+        publisher = null;
+        assertEquals(50, receive(50).size());
+    }
+
+    @Test
+    public void testRetryFailedBatch() throws Exception {
+        gate.countDown();
+        failures.set(1);
+        startPublisher(100, OverflowPolicy.BLOCK, 1);
+        for (int i = 0; i < 20; i++) {
+            publisher.publish(event(i));
+        }
+        final List<String> received = receive(20);
+        for (int i = 0; i < 20; i++) {
+            assertTrue(received.contains("event-" + i));
+        }
+        assertNull(consumer.receive(200));
+        assertEquals(0, publisher.getStats().getFailedCount());
+    }
+
+    @Test
+    public void testJournalFailedBatch() throws Exception {
+        gate.countDown();
+        failures.set(1);
+        startPublisher(100, OverflowPolicy.SPILL, 1);
+        for (int i = 0; i < 20; i++) {
+            publisher.publish(event(i));
+        }
+        final List<String> received = receive(20);
+        for (int i = 0; i < 20; i++) {
+            assertEquals("event-" + i, received.get(i));
+        }
+        assertNull(consumer.receive(200));
+        assertTrue(publisher.getStats().getSpilledCount() > 0);
+        assertEquals(0, publisher.getStats().getFailedCount());
+    }
+}
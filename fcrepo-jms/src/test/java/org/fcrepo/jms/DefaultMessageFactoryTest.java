@@ -18,9 +18,11 @@
 package org.fcrepo.jms;
 
 import static com.google.common.base.Strings.isNullOrEmpty;
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.time.Instant.ofEpochMilli;
 import static java.util.Collections.singleton;
 import static org.fcrepo.jms.DefaultMessageFactory.BASE_URL_HEADER_NAME;
+import static org.fcrepo.jms.DefaultMessageFactory.DESCENDANT_COUNT_HEADER_NAME;
 import static org.fcrepo.jms.DefaultMessageFactory.EVENT_TYPE_HEADER_NAME;
 import static org.fcrepo.jms.DefaultMessageFactory.IDENTIFIER_HEADER_NAME;
 import static org.fcrepo.jms.DefaultMessageFactory.RESOURCE_TYPE_HEADER_NAME;
@@ -29,8 +31,10 @@ import static org.fcrepo.jms.DefaultMessageFactory.USER_AGENT_HEADER_NAME;
 import static org.fcrepo.jms.DefaultMessageFactory.USER_HEADER_NAME;
 import static org.fcrepo.jms.DefaultMessageFactory.EVENT_ID_HEADER_NAME;
 import static org.fcrepo.kernel.api.observer.OptionalValues.BASE_URL;
+import static org.fcrepo.kernel.api.observer.OptionalValues.DESCENDANT_COUNT;
 import static org.fcrepo.kernel.api.observer.OptionalValues.USER_AGENT;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.when;
 
@@ -39,12 +43,15 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
 
+import javax.jms.BytesMessage;
 import javax.jms.JMSException;
 import javax.jms.Message;
 import javax.jms.Session;
 
+import org.apache.activemq.command.ActiveMQBytesMessage;
 import org.apache.activemq.command.ActiveMQTextMessage;
 
+import org.fcrepo.event.serialization.JsonLDSerializer;
 import org.fcrepo.kernel.api.observer.EventType;
 import org.fcrepo.kernel.api.observer.FedoraEvent;
 
@@ -70,9 +77,16 @@ public class DefaultMessageFactoryTest {
 
     private DefaultMessageFactory testDefaultMessageFactory;
 
+    private final Map<String, String> info = new HashMap<>();
+
     @Before
     public void setUp() throws JMSException {
-        when(mockSession.createTextMessage(anyString())).thenReturn(new ActiveMQTextMessage());
+        when(mockSession.createTextMessage(anyString())).thenAnswer(invocation -> {
+            final ActiveMQTextMessage message = new ActiveMQTextMessage();
+            message.setText(invocation.getArgument(0));
+            return message;
+        });
+        when(mockSession.createBytesMessage()).thenReturn(new ActiveMQBytesMessage());
         testDefaultMessageFactory = new DefaultMessageFactory();
     }
 
@@ -90,10 +104,28 @@ public class DefaultMessageFactoryTest {
         assertEquals("Got wrong identifier in message!", testPath, msg.getStringProperty(IDENTIFIER_HEADER_NAME));
     }
 
+    @Test
+    public void testBuildBytesMessage() throws JMSException {
+        testDefaultMessageFactory.setBytesMessages(true);
+        final Message msg = doTestBuildMessage("base-url", "Test UserAgent", "/path/to/resource");
+        assertTrue(msg instanceof BytesMessage);
+        final BytesMessage bytesMessage = (BytesMessage) msg;
+        bytesMessage.reset();
+        final byte[] body = new byte[(int) bytesMessage.getBodyLength()];
+        bytesMessage.readBytes(body);
+        assertEquals(new JsonLDSerializer().serialize(mockEvent), new String(body, UTF_8));
+    }
+
+    @Test
+    public void testBuildMessageDescendantCount() throws JMSException {
+        info.put(DESCENDANT_COUNT, "500000");
+        final Message msg = doTestBuildMessage("base-url", null, "/moved");
+        assertEquals(500000L, msg.getLongProperty(DESCENDANT_COUNT_HEADER_NAME));
+    }
+
     private Message doTestBuildMessage(final String baseUrl, final String userAgent, final String id)
             throws JMSException {
         final Long testDate = 46647758568747L;
-        final Map<String, String> info = new HashMap<>();
         if (baseUrl != null) {
             info.put(BASE_URL, baseUrl);
         }
@@ -0,0 +1,154 @@
+/*
+ * Licensed to DuraSpace under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * DuraSpace licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.jms;
+
+import static java.util.Collections.singleton;
+import static java.util.Collections.singletonMap;
+import static org.fcrepo.kernel.api.observer.EventType.RESOURCE_CREATION;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectOutputStream;
+import java.net.URI;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import javax.jms.JMSException;
+
+import org.fcrepo.kernel.api.observer.FedoraEvent;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * @author rdfloyd
+ */
+public class EventJournalTest {
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private static FedoraEvent event(final int i) {
+        final FedoraEvent event = mock(FedoraEvent.class);
+        when(event.getEventID()).thenReturn("event-" + i);
+        when(event.getPath()).thenReturn("/resource-" + i);
+        when(event.getTypes()).thenReturn(singleton(RESOURCE_CREATION));
+        when(event.getResourceTypes()).thenReturn(singleton("http://example.org/Type"));
+        when(event.getUserID()).thenReturn("user");
+        when(event.getUserURI()).thenReturn(URI.create("info:fedora/local-user#user"));
+        when(event.getDate()).thenReturn(Instant.ofEpochMilli(i));
+        when(event.getInfo()).thenReturn(singletonMap("baseURL", "http://localhost/rest"));
+        return event;
+    }
+
+    @Test
+    public void testReplayInOrder() throws Exception {
+        final EventJournal journal = new EventJournal(folder.getRoot(), 2);
+        assertTrue(journal.isEmpty());
+        for (int i = 0; i < 5; i++) {
+            journal.append(event(i));
+        }
+        assertFalse(journal.isEmpty());
+
+        final List<FedoraEvent> replayed = new ArrayList<>();
+        while (journal.replay(replayed::addAll) > 0) {
+            // replay every segment
+        }
+        assertTrue(journal.isEmpty());
+        assertEquals(5, replayed.size());
+        for (int i = 0; i < 5; i++) {
+            final FedoraEvent event = replayed.get(i);
+            assertEquals("event-" + i, event.getEventID());
+            assertEquals("/resource-" + i, event.getPath());
+            assertEquals(singleton(RESOURCE_CREATION), event.getTypes());
+            assertEquals(singleton("http://example.org/Type"), event.getResourceTypes());
+            assertEquals(URI.create("info:fedora/local-user#user"), event.getUserURI());
+            assertEquals(Instant.ofEpochMilli(i), event.getDate());
+            assertEquals("http://localhost/rest", event.getInfo().get("baseURL"));
+        }
+        assertEquals(0, folder.getRoot().list().length);
+    }
+
+    @Test
+    public void testFailedReplayKeepsSegment() throws Exception {
+        final EventJournal journal = new EventJournal(folder.getRoot(), 10);
+        journal.append(event(0));
+        try {
+            journal.replay(events -> {
+                throw new JMSException("broker unavailable");
+            });
+            fail("The failure to publish should be reported");
+        } catch (final JMSException e) {
+            // expected
+        }
+        final List<FedoraEvent> replayed = new ArrayList<>();
+        assertEquals(1, journal.replay(replayed::addAll));
+        assertEquals("event-0", replayed.get(0).getEventID());
+    }
+
+    @Test
+    public void testReplayAfterRestart() throws Exception {
+        final EventJournal journal = new EventJournal(folder.getRoot(), 2);
+        for (int i = 0; i < 3; i++) {
+            journal.append(event(i));
+        }
+        journal.close();
+
+        final EventJournal restarted = new EventJournal(folder.getRoot(), 2);
+        assertFalse(restarted.isEmpty());
+        restarted.append(event(3));
+        final List<FedoraEvent> replayed = new ArrayList<>();
+        while (restarted.replay(replayed::addAll) > 0) {
+            // replay every segment
+        }
+        assertEquals(4, replayed.size());
+        for (int i = 0; i < 4; i++) {
+            assertEquals("event-" + i, replayed.get(i).getEventID());
+        }
+    }
+
+    @Test
+    public void testRejectSegmentWithOtherClasses() throws Exception {
+        final File segment = new File(folder.getRoot(), "events-0000000000000000000.journal");
+        try (final ObjectOutputStream out = new ObjectOutputStream(new FileOutputStream(segment))) {
+            out.writeObject(new Date());
+        }
+        final EventJournal journal = new EventJournal(folder.getRoot(), 2);
+        assertFalse(journal.isEmpty());
+        final List<FedoraEvent> replayed = new ArrayList<>();
+        try {
+            journal.replay(replayed::addAll);
+            fail("A segment holding other classes should not be read");
+        } catch (final InvalidClassException e) {
+            // expected
+        }
+        assertTrue(replayed.isEmpty());
+        assertTrue(journal.isEmpty());
+        assertFalse(segment.exists());
+        assertTrue(new File(folder.getRoot(), segment.getName() + ".rejected").exists());
+    }
+}
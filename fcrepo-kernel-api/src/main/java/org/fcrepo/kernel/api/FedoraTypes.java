@@ -89,6 +89,8 @@ public interface FedoraTypes {
 
     String FCR_ACL = "fcr:acl";
 
+    String FCR_BULK = "fcr:bulk";
+
     String FCR_METADATA = "fcr:metadata";
 
     String FCR_VERSIONS = "fcr:versions";
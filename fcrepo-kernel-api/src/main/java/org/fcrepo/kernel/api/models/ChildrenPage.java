@@ -0,0 +1,59 @@
+/*
+ * Licensed to DuraSpace under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * DuraSpace licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.kernel.api.models;
+
+import static java.util.Collections.unmodifiableList;
+import static java.util.Optional.ofNullable;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * A page of the children of a resource, with a cursor from which the next page may be retrieved.
+ *
+ * @author rdfloyd
+ */
+public class ChildrenPage {
+
+    private final List<FedoraResource> children;
+
+    private final String nextCursor;
+
+    /**
+     * @param children the children in this page, in order
+     * @param nextCursor the cursor of the next page, or null if this is the last page
+     */
+    public ChildrenPage(final List<FedoraResource> children, final String nextCursor) {
+        this.children = unmodifiableList(children);
+        this.nextCursor = nextCursor;
+    }
+
+    /**
+     * @return the children in this page, in order
+     */
+    public List<FedoraResource> getChildren() {
+        return children;
+    }
+
+    /**
+     * @return the cursor of the next page, if there is one
+     */
+    public Optional<String> getNextCursor() {
+        return ofNullable(nextCursor);
+    }
+}
@@ -39,6 +39,16 @@ public interface FedoraBinary extends FedoraResource {
      */
     InputStream getContent();
 
+    /**
+     * Get a range of the content, positioned at its start without reading the content before it where the content
+     * is held in a way that allows it.
+     *
+     * @param start the offset of the first byte of the range
+     * @param length the number of bytes in the range, or -1 for the rest of the content
+     * @return The InputStream of the range of content associated with this datastream.
+     */
+    InputStream getContent(long start, long length);
+
     /**
      * Sets the content of this Datastream.
      *
@@ -160,4 +170,14 @@ public interface FedoraBinary extends FedoraResource {
      */
     Collection<URI> checkFixity(IdentifierConverter<Resource, FedoraResource> idTranslator,
             Collection<String> algorithms) throws UnsupportedAlgorithmException;
+
+    /**
+     * Get the digests of this datastream for the digest algorithms provided.  Unlike
+     * {@link #checkFixity(IdentifierConverter, Collection)}, digests already known for the current content are
+     * returned without reading the content again; only the remaining algorithms are computed.
+     * @param algorithms the digest algorithms to be used
+     * @return the checksums of this datastream
+     * @throws org.fcrepo.kernel.api.exception.UnsupportedAlgorithmException if unsupported digest algorithm occurred
+     */
+    Collection<URI> getDigests(Collection<String> algorithms) throws UnsupportedAlgorithmException;
 }
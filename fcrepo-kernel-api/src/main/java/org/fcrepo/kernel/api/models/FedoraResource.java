@@ -25,6 +25,7 @@ import java.util.Set;
 import java.util.stream.Stream;
 
 import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.update.UpdateRequest;
 
 import org.fcrepo.kernel.api.RdfStream;
 import org.fcrepo.kernel.api.TripleCategory;
@@ -61,6 +62,17 @@ public interface FedoraResource {
      */
     Stream<FedoraResource> getChildren(Boolean recursive);
 
+    /**
+     * Get a page of the children of this resource. The cursor records a position in the child list, so a page is
+     * retrieved without building the resources of the pages before it, and stays valid while children are added or
+     * removed.
+     * @param cursor the cursor returned with the previous page, or null for the first page
+     * @param size the maximum number of children in the page
+     * @return the page of children
+     * @throws IllegalArgumentException if the cursor is not one returned by this resource
+     */
+    ChildrenPage getChildren(String cursor, int size);
+
     /**
      * Get the container of this resource
      * @return the container of this resource
@@ -198,6 +210,20 @@ public interface FedoraResource {
                           final String sparqlUpdateStatement,
                           final RdfStream originalTriples) throws MalformedRdfException, AccessDeniedException;
 
+    /**
+     * Update the provided properties with an already-parsed SPARQL Update request. Any relative URIs in
+     * the request must have been resolved against the URI of the described resource.
+     *
+     * @param idTranslator the property of idTranslator
+     * @param sparqlUpdate the parsed sparql update request
+     * @param originalTriples original triples
+     * @throws MalformedRdfException if malformed rdf exception occurred
+     * @throws AccessDeniedException if access denied in updating properties
+     */
+    void updateProperties(final IdentifierConverter<Resource, FedoraResource> idTranslator,
+                          final UpdateRequest sparqlUpdate,
+                          final RdfStream originalTriples) throws MalformedRdfException, AccessDeniedException;
+
     /**
      * Return the RDF properties of this object using the provided context
      * @param idTranslator the property of idTranslator
@@ -17,6 +17,9 @@
  */
 package org.fcrepo.kernel.api.models;
 
+import java.time.Instant;
+import java.util.List;
+
 /**
  * @author lsitu
  * @since Oct. 04, 2017
@@ -29,4 +32,19 @@ public interface FedoraTimeMap extends FedoraResource {
      * @return the original resource for this
      */
     FedoraResource getOriginalResource();
+
+    /**
+     * Get the datetimes of the mementos of this TimeMap
+     *
+     * @return the datetimes, in ascending order
+     */
+    List<Instant> getMementoDatetimes();
+
+    /**
+     * Get the memento with a given datetime
+     *
+     * @param mementoDatetime the datetime of the memento, as given by {@link #getMementoDatetimes()}
+     * @return the memento, or null if there is none with this datetime
+     */
+    FedoraResource getMemento(Instant mementoDatetime);
 }
@@ -0,0 +1,122 @@
+/*
+ * Licensed to DuraSpace under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * DuraSpace licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.kernel.api.observer;
+
+import static java.util.Collections.unmodifiableSet;
+
+import java.net.URI;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Posted to the internal event bus when the content of a binary no longer matches the digests stored with it, or
+ * could not be read to be checked.  Unlike a {@link FedoraEvent} it records no change to the repository, so it is
+ * not published to the outside world unless a listener subscribes to it.
+ *
+ * @author rdfloyd
+ */
+public final class FixityFailureEvent {
+
+    private final String path;
+
+    private final Set<URI> storedDigests;
+
+    private final Set<URI> computedDigests;
+
+    private final long storedSize;
+
+    private final long computedSize;
+
+    private final Instant date;
+
+    /**
+     * @param path the path of the binary in the repository
+     * @param storedDigests the digests stored with the binary
+     * @param computedDigests the digests computed from its content, empty if it could not be read
+     * @param storedSize the size stored with the binary, or -1 if none was stored
+     * @param computedSize the size of its content, or -1 if it could not be read
+     * @param date when the content was checked
+     */
+    public FixityFailureEvent(final String path, final Collection<URI> storedDigests,
+            final Collection<URI> computedDigests, final long storedSize, final long computedSize,
+            final Instant date) {
+        this.path = path;
+        this.storedDigests = unmodifiableSet(new HashSet<>(storedDigests));
+        this.computedDigests = unmodifiableSet(new HashSet<>(computedDigests));
+        this.storedSize = storedSize;
+        this.computedSize = computedSize;
+        this.date = date;
+    }
+
+    /**
+     * @return the path of the binary in the repository
+     */
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * @return the digests stored with the binary
+     */
+    public Set<URI> getStoredDigests() {
+        return storedDigests;
+    }
+
+    /**
+     * @return the digests computed from the content, empty if it could not be read
+     */
+    public Set<URI> getComputedDigests() {
+        return computedDigests;
+    }
+
+    /**
+     * @return the size stored with the binary, or -1 if none was stored
+     */
+    public long getStoredSize() {
+        return storedSize;
+    }
+
+    /**
+     * @return the size of the content, or -1 if it could not be read
+     */
+    public long getComputedSize() {
+        return computedSize;
+    }
+
+    /**
+     * @return whether the content could be read
+     */
+    public boolean isReadable() {
+        return computedSize >= 0;
+    }
+
+    /**
+     * @return when the content was checked
+     */
+    public Instant getDate() {
+        return date;
+    }
+
+    @Override
+    public String toString() {
+        return "FixityFailureEvent{path: " + path + ", stored: " + storedDigests + " (" + storedSize +
+                " bytes), computed: " + computedDigests + " (" + computedSize + " bytes), date: " + date + "}";
+    }
+}
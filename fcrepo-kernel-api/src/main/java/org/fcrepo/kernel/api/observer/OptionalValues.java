@@ -26,6 +26,11 @@ public class OptionalValues {
 
     public static final String USER_AGENT = "userAgent";
 
+    /**
+     * The number of descendants moved with a resource, given on a relocation event that stands for a whole subtree
+     */
+    public static final String DESCENDANT_COUNT = "descendantCount";
+
     private OptionalValues() {
         // prevent instantiation
     }
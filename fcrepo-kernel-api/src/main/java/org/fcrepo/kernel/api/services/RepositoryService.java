@@ -21,6 +21,7 @@ import java.io.File;
 import java.util.Collection;
 
 import org.fcrepo.kernel.api.FedoraSession;
+import org.fcrepo.kernel.api.models.FedoraResource;
 
 /**
  * @author bbpennel
@@ -60,4 +61,23 @@ public interface RepositoryService {
      */
     Collection<Throwable> restoreRepository(FedoraSession session, File backupDirectory);
 
+    /**
+     * Check the membership index of every direct and indirect container against the children of the container, and
+     * rebuild those that are missing or out of date.
+     *
+     * @param session the session, to be committed by the caller
+     * @param verifyOnly if true, only report the containers whose index is missing or out of date
+     * @return the containers whose index was missing or out of date
+     */
+    Collection<FedoraResource> rebuildMembershipIndexes(FedoraSession session, boolean verifyOnly);
+
+    /**
+     * Rebuild the index of the resources that are the target of a reference, with which deleting a resource finds
+     * the inbound references it must remove.
+     *
+     * @param session the session, to be committed by the caller
+     * @return the number of resources found to be the target of a reference
+     */
+    long rebuildReferenceIndex(FedoraSession session);
+
 }
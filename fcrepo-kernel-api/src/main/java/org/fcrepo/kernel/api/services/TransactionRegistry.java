@@ -0,0 +1,87 @@
+/*
+ * Licensed to DuraSpace under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * DuraSpace licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.kernel.api.services;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+
+import org.fcrepo.kernel.api.FedoraSession;
+
+/**
+ * The open batch operations of a {@link BatchService}, keyed by user and session id.  A session holds uncommitted
+ * changes in the memory of the node on which it was begun, so a registry only ever returns sessions begun locally;
+ * a registry shared between the nodes of a cluster also knows which node holds each of the other open sessions.
+ *
+ * @author rdfloyd
+ */
+public interface TransactionRegistry {
+
+    /**
+     * Add an open session, replacing any session with the same key
+     *
+     * @param key the key of the session
+     * @param session the session
+     */
+    void register(String key, FedoraSession session);
+
+    /**
+     * Get a session open on this node
+     *
+     * @param key the key of the session
+     * @return the session, or null if no session with this key is open on this node
+     */
+    FedoraSession get(String key);
+
+    /**
+     * Find the node holding an open session
+     *
+     * @param key the key of the session
+     * @return the identifier of the node holding the session, if it is open on any node
+     */
+    Optional<String> getOwner(String key);
+
+    /**
+     * Record a change to the expiry of a session
+     *
+     * @param key the key of the session
+     * @param session the session, whose expiry has changed
+     */
+    void updateExpiry(String key, FedoraSession session);
+
+    /**
+     * Remove a session
+     *
+     * @param key the key of the session
+     * @return the session removed, or null if no session with this key was open on this node
+     */
+    FedoraSession remove(String key);
+
+    /**
+     * Remove the sessions open on this node that have expired
+     *
+     * @param now the current time
+     * @return the sessions removed, by key, which the caller should roll back
+     */
+    Map<String, FedoraSession> removeExpired(Instant now);
+
+    /**
+     * @return the number of sessions open on this node
+     */
+    int size();
+}
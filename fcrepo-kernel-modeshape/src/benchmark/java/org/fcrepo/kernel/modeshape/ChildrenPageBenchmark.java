@@ -0,0 +1,116 @@
+/*
+ * Licensed to DuraSpace under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * DuraSpace licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.kernel.modeshape;
+
+import static java.util.stream.Collectors.toList;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import org.fcrepo.kernel.api.FedoraRepository;
+import org.fcrepo.kernel.api.FedoraSession;
+import org.fcrepo.kernel.api.models.ChildrenPage;
+import org.fcrepo.kernel.api.models.Container;
+import org.fcrepo.kernel.api.services.ContainerService;
+import org.springframework.context.support.ClassPathXmlApplicationContext;
+
+/**
+ * A benchmark of listing the children of a large container: all at once, a page at a time with a cursor, and a page
+ * at a time by skipping over the stream of children.  It creates a container with 100,000 children in an in-memory
+ * repository, then reports the time taken to retrieve the first, middle and last pages of 100 children each way.
+ *
+ * This is not run as part of the build; run it with, e.g.:
+ * <pre>
+ * mvn -Pbenchmarks test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=org.fcrepo.kernel.modeshape.ChildrenPageBenchmark -Dbenchmark.children=100000
+ * </pre>
+ *
+ * @author rdfloyd
+ */
+public class ChildrenPageBenchmark {
+
+    private static final int CHILDREN = Integer.getInteger("benchmark.children", 100000);
+
+    private static final int PAGE_SIZE = Integer.getInteger("benchmark.pageSize", 100);
+
+    private static final int ITERATIONS = 5;
+
+    private ChildrenPageBenchmark() {
+    }
+
+    /**
+     * @param args unused
+     */
+    public static void main(final String[] args) {
+        try (final ClassPathXmlApplicationContext context =
+                new ClassPathXmlApplicationContext("/spring-test/fcrepo-config.xml")) {
+            final FedoraRepository repository = context.getBean(FedoraRepository.class);
+            final ContainerService containerService = context.getBean(ContainerService.class);
+
+            final FedoraSession session = repository.login();
+            final String path = "/benchmark-" + System.currentTimeMillis();
+            final long created = System.nanoTime();
+            containerService.findOrCreate(session, path);
+            for (int i = 0; i < CHILDREN; i++) {
+                containerService.findOrCreate(session, path + "/child-" + i);
+                if (i % 1000 == 999) {
+                    session.commit();
+                }
+            }
+            session.commit();
+            session.expire();
+            System.out.println(String.format("created %d children in %d ms", CHILDREN,
+                    (System.nanoTime() - created) / 1000000));
+
+            final FedoraSession reader = repository.login();
+            final Container container = containerService.find(reader, path);
+
+            // the cursor before each page, collected once up front
+            final List<String> cursors = new ArrayList<>();
+            cursors.add(null);
+            ChildrenPage page = container.getChildren(null, PAGE_SIZE);
+            while (page.getNextCursor().isPresent()) {
+                cursors.add(page.getNextCursor().get());
+                page = container.getChildren(page.getNextCursor().get(), PAGE_SIZE);
+            }
+            final int pages = cursors.size();
+
+            System.out.println(String.format("%-28s %12s", "operation", "ms/op"));
+            report("all children", () -> container.getChildren().count());
+            for (final int n : new int[] { 0, pages / 2, pages - 1 }) {
+                final String cursor = cursors.get(n);
+                report("page " + n + " (cursor)", () -> container.getChildren(cursor, PAGE_SIZE).getChildren());
+                report("page " + n + " (stream skip)", () -> container.getChildren()
+                        .skip((long) n * PAGE_SIZE).limit(PAGE_SIZE).collect(toList()));
+            }
+            reader.expire();
+        }
+    }
+
+    private static void report(final String operation, final Supplier<?> op) {
+        // warm up
+        op.get();
+        final long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            op.get();
+        }
+        final double millis = (System.nanoTime() - start) / 1e6 / ITERATIONS;
+        System.out.println(String.format("%-28s %12.2f", operation, millis));
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Licensed to DuraSpace under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * DuraSpace licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.kernel.modeshape;
+
+import static org.fcrepo.kernel.modeshape.LastModifiedCoalescer.COALESCE_PROPERTY;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.fcrepo.kernel.api.FedoraRepository;
+import org.fcrepo.kernel.api.FedoraSession;
+import org.fcrepo.kernel.api.services.ContainerService;
+import org.springframework.context.support.ClassPathXmlApplicationContext;
+
+/**
+ * A benchmark of creating children of one container from many threads at once, as a bulk loader does.  Each thread
+ * creates and commits its children one at a time in their own sessions, first with every creation updating the last
+ * modified date of the container and then with those updates coalesced.  It reports the rate of creation and the
+ * number of creations that failed each way.
+ *
+ * This is not run as part of the build; run it with, e.g.:
+ * <pre>
+ * mvn -Pbenchmarks test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=org.fcrepo.kernel.modeshape.ConcurrentIngestBenchmark -Dbenchmark.threads=16
+ * </pre>
+ *
+ * @author rdfloyd
+ */
+public class ConcurrentIngestBenchmark {
+
+    private static final int THREADS = Integer.getInteger("benchmark.threads", 8);
+
+    private static final int CHILDREN = Integer.getInteger("benchmark.children", 500);
+
+    private ConcurrentIngestBenchmark() {
+    }
+
+    /**
+     * @param args unused
+     * @throws InterruptedException if interrupted while waiting for the threads
+     */
+    public static void main(final String[] args) throws InterruptedException {
+        try (final ClassPathXmlApplicationContext context =
+                new ClassPathXmlApplicationContext("/spring-test/fcrepo-config.xml")) {
+            final FedoraRepository repository = context.getBean(FedoraRepository.class);
+            final ContainerService containerService = context.getBean(ContainerService.class);
+
+            System.out.println(String.format("%-12s %12s %12s %12s", "coalesced", "creates", "failed", "creates/s"));
+            for (final boolean coalesce : new boolean[] { false, true }) {
+                System.setProperty(COALESCE_PROPERTY, Boolean.toString(coalesce));
+                final FedoraSession session = repository.login();
+                final String path = "/benchmark-" + System.currentTimeMillis();
+                containerService.findOrCreate(session, path);
+                session.commit();
+                session.expire();
+
+                final LongAdder created = new LongAdder();
+                final LongAdder failed = new LongAdder();
+                final List<Thread> threads = new ArrayList<>();
+                for (int t = 0; t < THREADS; t++) {
+                    final String prefix = path + "/child-" + t + "-";
+                    threads.add(new Thread(() -> {
+                        for (int i = 0; i < CHILDREN; i++) {
+                            final FedoraSession writer = repository.login();
+                            try {
+                                containerService.findOrCreate(writer, prefix + i);
+                                writer.commit();
+                                created.increment();
+                            } catch (final RuntimeException e) {
+                                failed.increment();
+                            } finally {
+                                writer.expire();
+                            }
+                        }
+                    }));
+                }
+                final long start = System.nanoTime();
+                threads.forEach(Thread::start);
+                for (final Thread thread : threads) {
+                    thread.join();
+                }
+                final double seconds = (System.nanoTime() - start) / 1e9;
+                System.out.println(String.format("%-12s %12d %12d %12.1f", coalesce, created.sum(), failed.sum(),
+                        created.sum() / seconds));
+                if (coalesce) {
+                    final LastModifiedCoalescer coalescer = context.getBean(LastModifiedCoalescer.class);
+                    coalescer.flush();
+                    System.out.println("last modified dates: " + coalescer);
+                }
+            }
+            System.clearProperty(COALESCE_PROPERTY);
+        }
+    }
+}
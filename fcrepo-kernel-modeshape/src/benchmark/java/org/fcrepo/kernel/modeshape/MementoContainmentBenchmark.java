@@ -0,0 +1,143 @@
+/*
+ * Licensed to DuraSpace under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * DuraSpace licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.kernel.modeshape;
+
+import static org.fcrepo.kernel.api.RequiredRdfContext.LDP_CONTAINMENT;
+import static org.fcrepo.kernel.modeshape.FedoraSessionImpl.getJcrSession;
+import static org.fcrepo.kernel.modeshape.MementoContainment.MEMENTO_CONTAINS;
+import static org.fcrepo.kernel.modeshape.MementoContainment.MEMENTO_CONTAINS_REMOVED;
+import static org.fcrepo.kernel.modeshape.utils.FedoraTypesUtils.getJcrNode;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import javax.jcr.Node;
+import javax.jcr.RepositoryException;
+
+import org.apache.jena.rdf.model.Resource;
+import org.fcrepo.kernel.api.FedoraRepository;
+import org.fcrepo.kernel.api.FedoraSession;
+import org.fcrepo.kernel.api.identifiers.IdentifierConverter;
+import org.fcrepo.kernel.api.models.FedoraResource;
+import org.fcrepo.kernel.api.services.ContainerService;
+import org.fcrepo.kernel.api.services.TimeMapService;
+import org.fcrepo.kernel.modeshape.rdf.impl.DefaultIdentifierTranslator;
+import org.fcrepo.kernel.modeshape.services.VersionServiceImpl;
+import org.springframework.context.support.ClassPathXmlApplicationContext;
+
+/**
+ * A benchmark of storing the containment of RDF mementos as deltas.  It creates a container with 1,000 children in
+ * an in-memory repository and makes 50 mementos of it, adding 10 children between mementos, once with every memento
+ * stored whole and once with deltas between checkpoints.  It reports the bytes of containment stored for each, and
+ * the time taken to read the containment of the first and last mementos.
+ *
+ * This is not run as part of the build; run it with, e.g.:
+ * <pre>
+ * mvn -Pbenchmarks test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=org.fcrepo.kernel.modeshape.MementoContainmentBenchmark -Dbenchmark.checkpointInterval=10
+ * </pre>
+ *
+ * @author rdfloyd
+ */
+public class MementoContainmentBenchmark {
+
+    private static final int CHILDREN = Integer.getInteger("benchmark.children", 1000);
+
+    private static final int MEMENTOS = Integer.getInteger("benchmark.mementos", 50);
+
+    private static final int CHANGES = Integer.getInteger("benchmark.changes", 10);
+
+    private static final int CHECKPOINT_INTERVAL = Integer.getInteger("benchmark.checkpointInterval", 10);
+
+    private static final int ITERATIONS = 5;
+
+    private MementoContainmentBenchmark() {
+    }
+
+    /**
+     * @param args unused
+     * @throws RepositoryException if the repository could not be read
+     */
+    public static void main(final String[] args) throws RepositoryException {
+        try (final ClassPathXmlApplicationContext context =
+                new ClassPathXmlApplicationContext("/spring-test/fcrepo-config.xml")) {
+            final FedoraRepository repository = context.getBean(FedoraRepository.class);
+            final ContainerService containerService = context.getBean(ContainerService.class);
+            final TimeMapService timeMapService = context.getBean(TimeMapService.class);
+            final VersionServiceImpl versionService = context.getBean(VersionServiceImpl.class);
+            versionService.setDeltaMementos(true);
+
+            System.out.println(String.format("%-36s %12s", "operation", "ms/op"));
+            // a checkpoint interval of 1 stores every memento whole
+            for (final int interval : new int[] { 1, CHECKPOINT_INTERVAL }) {
+                versionService.setCheckpointInterval(interval);
+                final FedoraSession session = repository.login();
+                final IdentifierConverter<Resource, FedoraResource> translator =
+                        new DefaultIdentifierTranslator(getJcrSession(session));
+                final String path = "/benchmark-" + System.currentTimeMillis();
+                final FedoraResource container = containerService.findOrCreate(session, path);
+                timeMapService.findOrCreate(session, path);
+                int children = 0;
+                for (; children < CHILDREN; children++) {
+                    containerService.findOrCreate(session, path + "/child-" + children);
+                }
+                session.commit();
+
+                final List<FedoraResource> mementos = new ArrayList<>();
+                final Instant start = Instant.now();
+                for (int m = 0; m < MEMENTOS; m++) {
+                    for (int i = 0; i < CHANGES; i++, children++) {
+                        containerService.findOrCreate(session, path + "/child-" + children);
+                    }
+                    mementos.add(versionService.createVersion(session, container, translator, start.plusSeconds(m)));
+                    session.commit();
+                }
+
+                long bytes = 0;
+                for (final FedoraResource memento : mementos) {
+                    bytes += storedBytes(getJcrNode(memento), MEMENTO_CONTAINS)
+                            + storedBytes(getJcrNode(memento), MEMENTO_CONTAINS_REMOVED);
+                }
+                System.out.println(String.format("checkpoint interval %d: %d bytes of containment in %d mementos",
+                        interval, bytes, MEMENTOS));
+                report("first memento (interval " + interval + ")", () -> mementos.get(0)
+                        .getTriples(translator, LDP_CONTAINMENT).count());
+                report("last memento (interval " + interval + ")", () -> mementos.get(MEMENTOS - 1)
+                        .getTriples(translator, LDP_CONTAINMENT).count());
+                session.expire();
+            }
+        }
+    }
+
+    private static long storedBytes(final Node memento, final String property) throws RepositoryException {
+        return memento.hasProperty(property) ? memento.getProperty(property).getBinary().getSize() : 0;
+    }
+
+    private static void report(final String operation, final Supplier<?> op) {
+        // warm up
+        op.get();
+        final long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            op.get();
+        }
+        final double millis = (System.nanoTime() - start) / 1e6 / ITERATIONS;
+        System.out.println(String.format("%-36s %12.2f", operation, millis));
+    }
+}
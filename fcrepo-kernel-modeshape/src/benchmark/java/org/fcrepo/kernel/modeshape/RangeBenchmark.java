@@ -0,0 +1,130 @@
+/*
+ * Licensed to DuraSpace under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * DuraSpace licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.kernel.modeshape;
+
+import static java.nio.file.StandardOpenOption.READ;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+
+/**
+ * A benchmark of the latency of serving the last megabyte of a large binary: by skipping a stream that cannot seek,
+ * which reads and discards everything before the range, as a range of proxied content or of a binary store whose
+ * streams cannot seek is served; by skipping a file stream, which seeks; and by the positioned channel read that
+ * {@link LocalFileBinary#getContent(long, long)} uses.  The file is sparse, so it takes no space on disk.
+ *
+ * This is not run as part of the build; run it with, e.g.:
+ * <pre>
+ * mvn -Pbenchmarks test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=org.fcrepo.kernel.modeshape.RangeBenchmark -Dbenchmark.gigabytes=10
+ * </pre>
+ *
+ * @author rdfloyd
+ */
+public class RangeBenchmark {
+
+    private static final long GIGABYTES = Long.getLong("benchmark.gigabytes", 10);
+
+    private static final int RANGE = 1 << 20;
+
+    private static final int ITERATIONS = 3;
+
+    @FunctionalInterface
+    private interface RangeReader {
+        InputStream open(File file, long start) throws IOException;
+    }
+
+    private RangeBenchmark() {
+    }
+
+    /**
+     * @param args unused
+     * @throws IOException if the file could not be written or read
+     */
+    public static void main(final String[] args) throws IOException {
+        final File file = File.createTempFile("range-benchmark", ".bin");
+        file.deleteOnExit();
+        final long size = GIGABYTES << 30;
+        try (final RandomAccessFile out = new RandomAccessFile(file, "rw")) {
+            out.setLength(size);
+        }
+        final long start = size - RANGE;
+
+        System.out.println(String.format("reading the last %d bytes of %d GB", RANGE, GIGABYTES));
+        System.out.println(String.format("%-28s %12s", "method", "ms/op"));
+        report("skip, stream cannot seek", file, start, (f, s) ->
+                AbstractFedoraBinary.range(new UnseekableInputStream(new FileInputStream(f)), s, RANGE));
+        report("skip, file stream", file, start, (f, s) ->
+                AbstractFedoraBinary.range(new FileInputStream(f), s, RANGE));
+        report("positioned channel", file, start, (f, s) -> {
+            final FileChannel channel = FileChannel.open(f.toPath(), READ);
+            channel.position(s);
+            return AbstractFedoraBinary.range(Channels.newInputStream(channel), 0, RANGE);
+        });
+    }
+
+    private static void report(final String method, final File file, final long start, final RangeReader reader)
+            throws IOException {
+        final byte[] buffer = new byte[8192];
+        final long begin = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            long read = 0;
+            try (final InputStream in = reader.open(file, start)) {
+                for (int n; (n = in.read(buffer)) != -1; ) {
+                    read += n;
+                }
+            }
+            if (read != RANGE) {
+                throw new IllegalStateException(method + " read " + read + " bytes");
+            }
+        }
+        System.out.println(String.format("%-28s %12.2f", method, (System.nanoTime() - begin) / 1e6 / ITERATIONS));
+    }
+
+    /**
+     * A stream whose skip reads, as InputStream's does
+     */
+    private static class UnseekableInputStream extends InputStream {
+
+        private final InputStream in;
+
+        private UnseekableInputStream(final InputStream in) {
+            this.in = in;
+        }
+
+        @Override
+        public int read() throws IOException {
+            return in.read();
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len) throws IOException {
+            return in.read(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
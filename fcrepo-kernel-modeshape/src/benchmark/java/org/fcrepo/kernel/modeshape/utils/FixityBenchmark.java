@@ -0,0 +1,115 @@
+/*
+ * Licensed to DuraSpace under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * DuraSpace licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.kernel.modeshape.utils;
+
+import static java.util.Arrays.asList;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * A benchmark of digesting a file for a fixity check with several algorithms: through chained DigestInputStreams
+ * read with a 4 KB buffer, as fixity checks were computed before the {@link FixityEngine}, and through the engine,
+ * both from a stream and from the memory-mapped file.  It writes a file of random content, reads it once to warm the
+ * page cache, then reports the time taken and throughput of each.
+ *
+ * This is not run as part of the build; run it with, e.g.:
+ * <pre>
+ * mvn -Pbenchmarks test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=org.fcrepo.kernel.modeshape.utils.FixityBenchmark -Dbenchmark.megabytes=1024
+ * </pre>
+ *
+ * @author rdfloyd
+ */
+public class FixityBenchmark {
+
+    private static final int MEGABYTES = Integer.getInteger("benchmark.megabytes", 512);
+
+    private static final List<String> ALGORITHMS = asList("SHA", "SHA-256", "MD5");
+
+    private static final int ITERATIONS = 3;
+
+    @FunctionalInterface
+    private interface Digester {
+        void digest(File file) throws IOException, NoSuchAlgorithmException;
+    }
+
+    private FixityBenchmark() {
+    }
+
+    /**
+     * @param args unused
+     * @throws IOException if the file could not be written or read
+     * @throws NoSuchAlgorithmException if an algorithm is not available
+     */
+    public static void main(final String[] args) throws IOException, NoSuchAlgorithmException {
+        final File file = File.createTempFile("fixity-benchmark", ".bin");
+        file.deleteOnExit();
+        final byte[] block = new byte[1 << 20];
+        final Random random = new Random(0);
+        try (final OutputStream out = new BufferedOutputStream(new FileOutputStream(file))) {
+            for (int i = 0; i < MEGABYTES; i++) {
+                random.nextBytes(block);
+                out.write(block);
+            }
+        }
+
+        System.out.println(String.format("digesting %d MB with %s", MEGABYTES, ALGORITHMS));
+        System.out.println(String.format("%-28s %12s %12s", "method", "ms/op", "MB/s"));
+        report("chained streams, 4 KB", file, FixityBenchmark::chained);
+        report("engine, stream", file, f -> {
+            try (final InputStream in = new FileInputStream(f)) {
+                FixityEngine.digest(in, ALGORITHMS);
+            }
+        });
+        report("engine, mapped file", file, f -> FixityEngine.digest(f.toPath(), ALGORITHMS));
+    }
+
+    private static void chained(final File file) throws IOException, NoSuchAlgorithmException {
+        try (final InputStream in = new FileInputStream(file)) {
+            InputStream digestStream = in;
+            for (final String algorithm : ALGORITHMS) {
+                digestStream = new DigestInputStream(digestStream, MessageDigest.getInstance(algorithm));
+            }
+            final byte[] devNull = new byte[4096];
+            while (digestStream.read(devNull) != -1) { }
+        }
+    }
+
+    private static void report(final String method, final File file, final Digester digester)
+            throws IOException, NoSuchAlgorithmException {
+        // warm up
+        digester.digest(file);
+        final long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            digester.digest(file);
+        }
+        final double millis = (System.nanoTime() - start) / 1e6 / ITERATIONS;
+        System.out.println(String.format("%-28s %12.2f %12.1f", method, millis, MEGABYTES * 1000 / millis));
+    }
+}
@@ -17,6 +17,7 @@
  */
 package org.fcrepo.kernel.modeshape;
 
+import static org.apache.commons.io.IOUtils.closeQuietly;
 import static org.apache.jena.datatypes.xsd.XSDDatatype.XSDstring;
 import static org.fcrepo.kernel.api.RdfLexicon.FEDORA_DESCRIPTION;
 import static org.fcrepo.kernel.modeshape.FedoraJcrConstants.FIELD_DELIMITER;
@@ -25,7 +26,10 @@ import static org.fcrepo.kernel.api.RdfLexicon.LDPCV_TIME_MAP;
 
 import static org.slf4j.LoggerFactory.getLogger;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
+import java.util.Collection;
 import java.util.Optional;
 
 import javax.jcr.Node;
@@ -34,9 +38,11 @@ import javax.jcr.Property;
 import javax.jcr.RepositoryException;
 import javax.jcr.Value;
 
+import org.apache.commons.io.input.BoundedInputStream;
 import org.apache.jena.rdf.model.Resource;
 import org.fcrepo.kernel.api.RdfStream;
 import org.fcrepo.kernel.api.exception.RepositoryRuntimeException;
+import org.fcrepo.kernel.api.exception.UnsupportedAlgorithmException;
 import org.fcrepo.kernel.api.identifiers.IdentifierConverter;
 import org.fcrepo.kernel.api.models.FedoraBinary;
 import org.fcrepo.kernel.api.models.FedoraResource;
@@ -276,6 +282,53 @@ public abstract class AbstractFedoraBinary extends FedoraResourceImpl implements
         return getFixity(idTranslator, getContentDigest(), getContentSize());
     }
 
+    /**
+     * By default the content before the range is skipped, which for a stream that cannot seek means it is read and
+     * discarded.
+     */
+    @Override
+    public InputStream getContent(final long start, final long length) {
+        return range(getContent(), start, length);
+    }
+
+    /**
+     * Skip a stream to the start of a range and limit it to the length of the range
+     *
+     * @param content the stream, which is closed if it cannot be skipped
+     * @param start the offset of the first byte of the range
+     * @param length the number of bytes in the range, or -1 for the rest of the stream
+     * @return the stream of the range
+     */
+    protected static InputStream range(final InputStream content, final long start, final long length) {
+        try {
+            long remaining = start;
+            while (remaining > 0) {
+                final long skipped = content.skip(remaining);
+                if (skipped > 0) {
+                    remaining -= skipped;
+                } else if (content.read() >= 0) {
+                    remaining--;
+                } else {
+                    break;
+                }
+            }
+        } catch (final IOException e) {
+            closeQuietly(content);
+            throw new RepositoryRuntimeException("Unable to skip to offset " + start + " of content: " +
+                    e.getMessage(), e);
+        }
+        return length < 0 ? content : new BoundedInputStream(content, length);
+    }
+
+    /**
+     * By default the content is digested on every call, since content held outside of the repository may change
+     * without the repository knowing of it.
+     */
+    @Override
+    public Collection<URI> getDigests(final Collection<String> algorithms) throws UnsupportedAlgorithmException {
+        return checkFixity(null, algorithms);
+    }
+
     /**
      * When deleting the binary, we also need to clean up the description document.
      */
@@ -315,7 +368,7 @@ public abstract class AbstractFedoraBinary extends FedoraResourceImpl implements
      * @param relPath - path to the property
      * @return Property object
      */
-    private Property getDescriptionProperty(final String relPath) {
+    protected Property getDescriptionProperty(final String relPath) {
         try {
             return getDescriptionNode().getProperty(relPath);
         } catch (final RepositoryException e) {
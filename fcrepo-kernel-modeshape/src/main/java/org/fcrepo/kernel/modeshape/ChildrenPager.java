@@ -0,0 +1,231 @@
+/*
+ * Licensed to DuraSpace under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * DuraSpace licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.kernel.modeshape;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.fcrepo.kernel.api.FedoraTypes.FEDORA_PAIRTREE;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+import javax.jcr.Node;
+import javax.jcr.NodeIterator;
+import javax.jcr.RepositoryException;
+
+import org.fcrepo.kernel.api.models.ChildrenPage;
+import org.fcrepo.kernel.api.models.FedoraResource;
+
+/**
+ * Pages through the children of a node, descending through pairtree nodes as
+ * {@link FedoraResourceImpl#getChildren(Boolean)} does.
+ *
+ * <p>A cursor records, for each level of pairtree nesting, the position and name of the node last visited. Resuming
+ * skips the child iterator straight to that position and checks the name found there, falling back to a scan by name
+ * only if the child list has changed in the meantime. JCR offers no way to seek an iterator, so skipping still walks
+ * the child references before the position, but none of the skipped children are turned into resources.</p>
+ *
+ * @author rdfloyd
+ */
+final class ChildrenPager {
+
+    private static final char SEPARATOR = '/';
+
+    private static final char POSITION_SEPARATOR = ':';
+
+    private final Predicate<Node> excluded;
+
+    private final Function<Node, FedoraResource> converter;
+
+    /**
+     * @param excluded children that are not listed
+     * @param converter converts a child node to a resource
+     */
+    ChildrenPager(final Predicate<Node> excluded, final Function<Node, FedoraResource> converter) {
+        this.excluded = excluded;
+        this.converter = converter;
+    }
+
+    /**
+     * Get a page of the children of a node.
+     *
+     * @param parent the node
+     * @param cursor the cursor returned with the previous page, or null for the first page
+     * @param size the maximum number of children in the page
+     * @return the page
+     * @throws RepositoryException if the children could not be read
+     */
+    ChildrenPage page(final Node parent, final String cursor, final int size) throws RepositoryException {
+        if (size < 1) {
+            throw new IllegalArgumentException("Page size must be positive: " + size);
+        }
+        final Deque<Level> levels = cursor == null ? start(parent) : resume(parent, decode(cursor));
+        final List<FedoraResource> children = new ArrayList<>(Math.min(size, 1024));
+        while (children.size() < size) {
+            final Node child = nextChild(levels);
+            if (child == null) {
+                return new ChildrenPage(children, null);
+            }
+            children.add(converter.apply(child));
+        }
+        final String next = encode(levels);
+        return new ChildrenPage(children, nextChild(levels) == null ? null : next);
+    }
+
+    private static Deque<Level> start(final Node parent) throws RepositoryException {
+        final Deque<Level> levels = new ArrayDeque<>();
+        levels.push(new Level(parent.getNodes(), -1, null));
+        return levels;
+    }
+
+    private static Deque<Level> resume(final Node parent, final List<Position> positions) throws RepositoryException {
+        final Deque<Level> levels = new ArrayDeque<>();
+        Node current = parent;
+        for (final Position position : positions) {
+            final Level level = seek(current, position);
+            levels.push(level);
+            current = level.node;
+            if (current == null) {
+                // the node at this position is gone; carry on from where it was
+                break;
+            }
+        }
+        return levels;
+    }
+
+    private static Level seek(final Node parent, final Position position) throws RepositoryException {
+        final NodeIterator skipped = skip(parent.getNodes(), position.index);
+        if (skipped.hasNext()) {
+            final Node found = skipped.nextNode();
+            if (found.getName().equals(position.name)) {
+                return new Level(skipped, position.index, found);
+            }
+        }
+        // the child list has changed since the cursor was made
+        final NodeIterator scanned = parent.getNodes();
+        for (int index = 0; scanned.hasNext(); index++) {
+            final Node found = scanned.nextNode();
+            if (found.getName().equals(position.name)) {
+                return new Level(scanned, index, found);
+            }
+        }
+        return new Level(skip(parent.getNodes(), position.index), position.index - 1, null);
+    }
+
+    private static NodeIterator skip(final NodeIterator nodes, final int count) {
+        try {
+            nodes.skip(count);
+        } catch (final NoSuchElementException e) {
+            // fewer children than the position; the iterator is exhausted
+        }
+        return nodes;
+    }
+
+    private Node nextChild(final Deque<Level> levels) throws RepositoryException {
+        while (!levels.isEmpty()) {
+            final Level level = levels.peek();
+            if (!level.nodes.hasNext()) {
+                levels.pop();
+                continue;
+            }
+            final Node child = level.nodes.nextNode();
+            level.index++;
+            level.node = child;
+            if (excluded.test(child)) {
+                continue;
+            }
+            if (child.isNodeType(FEDORA_PAIRTREE)) {
+                levels.push(new Level(child.getNodes(), -1, null));
+                continue;
+            }
+            return child;
+        }
+        return null;
+    }
+
+    private static String encode(final Deque<Level> levels) throws RepositoryException {
+        final StringBuilder positions = new StringBuilder();
+        final Iterator<Level> outermostFirst = levels.descendingIterator();
+        while (outermostFirst.hasNext()) {
+            final Level level = outermostFirst.next();
+            if (positions.length() > 0) {
+                positions.append(SEPARATOR);
+            }
+            positions.append(level.index).append(POSITION_SEPARATOR).append(level.node.getName());
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(positions.toString().getBytes(UTF_8));
+    }
+
+    private static List<Position> decode(final String cursor) {
+        final List<Position> positions = new ArrayList<>();
+        try {
+            final String decoded = new String(Base64.getUrlDecoder().decode(cursor), UTF_8);
+            for (final String position : decoded.split(String.valueOf(SEPARATOR))) {
+                final int separator = position.indexOf(POSITION_SEPARATOR);
+                final int index = Integer.parseInt(position.substring(0, separator));
+                final String name = position.substring(separator + 1);
+                if (index < 0 || name.isEmpty()) {
+                    throw new IllegalArgumentException("Invalid cursor: " + cursor);
+                }
+                positions.add(new Position(index, name));
+            }
+        } catch (final IndexOutOfBoundsException | IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor, e);
+        }
+        return positions;
+    }
+
+    /**
+     * The iterator over one level of children, with the position and node last taken from it
+     */
+    private static final class Level {
+
+        private final NodeIterator nodes;
+
+        private int index;
+
+        private Node node;
+
+        private Level(final NodeIterator nodes, final int index, final Node node) {
+            this.nodes = nodes;
+            this.index = index;
+            this.node = node;
+        }
+    }
+
+    /**
+     * A decoded position of a cursor
+     */
+    private static final class Position {
+
+        private final int index;
+
+        private final String name;
+
+        private Position(final int index, final String name) {
+            this.index = index;
+            this.name = name;
+        }
+    }
+}
@@ -128,6 +128,15 @@ public class FedoraBinaryImpl extends AbstractFedoraBinary {
         return getBinary().getContent();
     }
 
+    /*
+     * (non-Javadoc)
+     * @see org.fcrepo.kernel.api.models.FedoraBinary#getContent(long, long)
+     */
+    @Override
+    public InputStream getContent(final long start, final long length) {
+        return getBinary().getContent(start, length);
+    }
+
     @Override
     public void setExternalContent(final String contentType,
                                    final Collection<URI> checksums, final String originalFileName,
@@ -216,6 +225,15 @@ public class FedoraBinaryImpl extends AbstractFedoraBinary {
         return getBinary().checkFixity(idTranslator, algorithms);
     }
 
+    /*
+     * (non-Javadoc)
+     * @see org.fcrepo.kernel.api.models.FedoraBinary#getDigests(java.util.Collection)
+     */
+    @Override
+    public Collection<URI> getDigests(final Collection<String> algorithms) throws UnsupportedAlgorithmException {
+        return getBinary().getDigests(algorithms);
+    }
+
     /**
      * When deleting the binary, we also need to clean up the description document.
      */
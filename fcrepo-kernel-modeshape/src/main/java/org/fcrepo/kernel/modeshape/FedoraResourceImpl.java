@@ -81,13 +81,10 @@ import static org.slf4j.LoggerFactory.getLogger;
 
 import java.net.URI;
 import java.time.Instant;
-import java.time.temporal.ChronoUnit;
-import java.time.temporal.Temporal;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Collection;
-import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -138,6 +135,7 @@ import org.fcrepo.kernel.api.exception.RepositoryRuntimeException;
 import org.fcrepo.kernel.api.exception.ServerManagedPropertyException;
 import org.fcrepo.kernel.api.exception.ServerManagedTypeException;
 import org.fcrepo.kernel.api.identifiers.IdentifierConverter;
+import org.fcrepo.kernel.api.models.ChildrenPage;
 import org.fcrepo.kernel.api.models.FedoraResource;
 import org.fcrepo.kernel.api.models.FedoraTimeMap;
 import org.fcrepo.kernel.api.models.NonRdfSourceDescription;
@@ -375,6 +373,18 @@ public class FedoraResourceImpl extends JcrTools implements FedoraTypes, FedoraR
         }
     }
 
+    /* (non-Javadoc)
+     * @see org.fcrepo.kernel.api.models.FedoraResource#getChildren(String cursor, int size)
+     */
+    @Override
+    public ChildrenPage getChildren(final String cursor, final int size) {
+        try {
+            return childrenPager.page(node, cursor, size);
+        } catch (final RepositoryException e) {
+            throw new RepositoryRuntimeException(e);
+        }
+    }
+
     /* (non-Javadoc)
      * @see org.fcrepo.kernel.api.models.FedoraResource#getDescription()
      */
@@ -418,13 +428,18 @@ public class FedoraResourceImpl extends JcrTools implements FedoraTypes, FedoraR
     /**
      * Children for whom we will not generate triples.
      */
-    private static final Predicate<Node> nastyChildren = isInternalNode
+    static final Predicate<Node> nastyChildren = isInternalNode
                     .or(TombstoneImpl::hasMixin)
+                    .or(UncheckedPredicate.uncheck(MembershipIndex::hasMixin))
+                    .or(UncheckedPredicate.uncheck(ReferenceIndex::hasMixin))
+                    .or(UncheckedPredicate.uncheck(FixityAuditor::hasMixin))
                     .or(FedoraTimeMapImpl::hasMixin)
                     .or(FedoraWebacAclImpl::hasMixin)
                     .or(UncheckedPredicate.uncheck(p -> p.getName().equals(JCR_CONTENT)))
                     .or(UncheckedPredicate.uncheck(p -> p.getName().equals("#")));
 
+    private static final ChildrenPager childrenPager = new ChildrenPager(nastyChildren, nodeConverter::convert);
+
     @Override
     public FedoraResource getContainer() {
         return getContainingNode(getNode()).map(nodeConverter::convert).orElse(null);
@@ -572,6 +587,7 @@ public class FedoraResourceImpl extends JcrTools implements FedoraTypes, FedoraR
             // Precalculate before node is removed
             final boolean isMemento = isMemento();
             final boolean isAcl = isAcl();
+            final Instant mementoDatetime = isMemento ? getMementoDatetime() : null;
 
             // Remove inbound references to this resource and, recursively, any of its children
             removeReferences(node);
@@ -586,6 +602,13 @@ public class FedoraResourceImpl extends JcrTools implements FedoraTypes, FedoraR
 
             final Optional<Node> containingNode = getContainingNode(getNode());
 
+            final String identifier = getNode().getIdentifier();
+
+            // mementos whose containment is stored as deltas from this one must no longer depend on it
+            if (isMemento && MementoContainment.isStored(node)) {
+                MementoContainment.release(node);
+            }
+
             node.remove();
 
             if (parent != null) {
@@ -599,16 +622,24 @@ public class FedoraResourceImpl extends JcrTools implements FedoraTypes, FedoraR
                             shouldUpdateIndirectResource)))
                     .ifPresent(ancestor -> {
                         try {
-                            FedoraTypesUtils.touch(ancestor.getProperty(LDP_MEMBER_RESOURCE).getNode());
+                            FedoraTypesUtils.touchContainer(ancestor.getProperty(LDP_MEMBER_RESOURCE).getNode());
                         } catch (final RepositoryException ex) {
                             throw new RepositoryRuntimeException(ex);
                         }
                     });
 
+                // drop the datetime of a memento from the index of its TimeMap
+                if (mementoDatetime != null && parent.isNodeType(FEDORA_TIME_MAP)) {
+                    MementoIndex.remove(parent, mementoDatetime);
+                }
+
+                // drop the entry of this resource from the membership index of its container
+                if (containingNode.isPresent()) {
+                    MembershipIndex.remove(containingNode.get(), identifier);
+                }
+
                 // update the lastModified date on the parent node
-                containingNode.ifPresent(ancestor -> {
-                    FedoraTypesUtils.touch(ancestor);
-                });
+                containingNode.ifPresent(FedoraTypesUtils::touchContainer);
             }
         } catch (final javax.jcr.AccessDeniedException e) {
             throw new AccessDeniedException(e);
@@ -619,6 +650,24 @@ public class FedoraResourceImpl extends JcrTools implements FedoraTypes, FedoraR
 
     protected void removeReferences(final Node n) {
         try {
+            if (ReferenceIndex.isEnabled(n.getSession())) {
+                // Look at this resource whether or not the index has it, and then only at the resources below it
+                // that have been the target of a reference
+                doRemoveReferences(n);
+                final String path = n.getPath();
+                ReferenceIndex.forEachTarget(n, target -> {
+                    try {
+                        if (!target.getPath().equals(path)) {
+                            doRemoveReferences(target);
+                        }
+                    } catch (final RepositoryException e) {
+                        throw new RepositoryRuntimeException(e);
+                    }
+                });
+                ReferenceIndex.remove(n);
+                return;
+            }
+
             // Remove references to this resource
             doRemoveReferences(n);
 
@@ -638,11 +687,11 @@ public class FedoraResourceImpl extends JcrTools implements FedoraTypes, FedoraR
         final Iterator<Property> references = n.getReferences();
         @SuppressWarnings("unchecked")
         final Iterator<Property> weakReferences = n.getWeakReferences();
+        final String identifier = n.getIdentifier();
         concat(iteratorToStream(references), iteratorToStream(weakReferences)).forEach(prop -> {
             try {
                 final List<Value> newVals = property2values.apply(prop).filter(
-                        UncheckedPredicate.uncheck(value ->
-                                !n.equals(getSession().getNodeByIdentifier(value.getString()))))
+                        UncheckedPredicate.uncheck(value -> !identifier.equals(value.getString())))
                         .collect(toList());
 
                 if (newVals.size() == 0) {
@@ -706,7 +755,9 @@ public class FedoraResourceImpl extends JcrTools implements FedoraTypes, FedoraR
         try {
             final long created = createdDate == null ? NO_TIME : createdDate.toEpochMilli();
             if (hasProperty(FEDORA_LASTMODIFIED)) {
-                return ofEpochMilli(getTimestamp(FEDORA_LASTMODIFIED, created));
+                final Instant lastModified = ofEpochMilli(getTimestamp(FEDORA_LASTMODIFIED, created));
+                // an update coalesced with others is reported before it is written
+                return LastModifiedCoalescer.getPending(node).filter(lastModified::isBefore).orElse(lastModified);
             } else if (hasProperty(JCR_LASTMODIFIED)) {
                 return ofEpochMilli(getTimestamp(JCR_LASTMODIFIED, created));
             }
@@ -797,13 +848,24 @@ public class FedoraResourceImpl extends JcrTools implements FedoraTypes, FedoraR
                                  final String sparqlUpdateStatement, final RdfStream originalTriples)
             throws MalformedRdfException, AccessDeniedException {
 
+        final String describedURI = idTranslator.reverse().convert(getDescribedResource()).toString();
+        updateProperties(idTranslator, create(sparqlUpdateStatement, describedURI), originalTriples);
+    }
+
+    /* (non-Javadoc)
+     * @see org.fcrepo.kernel.api.models.FedoraResource#updateProperties
+     *     (org.fcrepo.kernel.api.identifiers.IdentifierConverter, org.apache.jena.update.UpdateRequest, RdfStream)
+     */
+    @Override
+    public void updateProperties(final IdentifierConverter<Resource, FedoraResource> idTranslator,
+                                 final UpdateRequest request, final RdfStream originalTriples)
+            throws MalformedRdfException, AccessDeniedException {
+
         final Model model = originalTriples.collect(toModel());
 
         final FedoraResource described = getDescribedResource();
         final String describedURI = idTranslator.reverse().convert(described).toString();
 
-        final UpdateRequest request = create(sparqlUpdateStatement, describedURI);
-
         final Collection<ConstraintViolationException> errors = validateUpdateRequest(request);
 
         final NamespaceRegistry namespaceRegistry = getNamespaceRegistry(getSession());
@@ -967,11 +1029,25 @@ public class FedoraResourceImpl extends JcrTools implements FedoraTypes, FedoraR
             final IdentifierConverter<Resource, FedoraResource> internalIdTranslator
                     = new InternalIdentifierTranslator(getSession());
             triples = triples.map(convertMementoReferences(idTranslator, internalIdTranslator));
+            if (contexts.contains(LDP_CONTAINMENT)) {
+                triples = concat(triples, getStoredContainment(idTranslator));
+            }
         }
 
         return new DefaultRdfStream(idTranslator.reverse().convert(this).asNode(), triples);
     }
 
+    /*
+     * The containment triples of a memento whose containment is stored as deltas, and none otherwise.
+     */
+    private Stream<Triple> getStoredContainment(final IdentifierConverter<Resource, FedoraResource> idTranslator) {
+        try {
+            return MementoContainment.isStored(node) ? MementoContainment.getTriples(node, idTranslator) : empty();
+        } catch (final RepositoryException e) {
+            throw new RepositoryRuntimeException(e);
+        }
+    }
+
     /* (non-Javadoc)
      * @see org.fcrepo.kernel.api.models.FedoraResource#isNew()
      */
@@ -1055,10 +1131,12 @@ public class FedoraResourceImpl extends JcrTools implements FedoraTypes, FedoraR
 
             // If this resource's structural parent is an IndirectContainer, check whether the
             // ldp:insertedContentRelation property is present in the stream of changed triples.
-            // If so, set the propertyChanged value to true.
+            // If so, set the propertyChanged value to true.  The predicates are graph nodes, so they are compared
+            // with the node of the property; comparing them with the property itself never matched.
             final AtomicBoolean propertyChanged = new AtomicBoolean();
             ldpInsertedContentProperty(getNode()).ifPresent(resource -> {
-                propertyChanged.set(differencer.notCommon().map(Triple::getPredicate).anyMatch(resource::equals));
+                propertyChanged.set(differencer.notCommon().map(Triple::getPredicate)
+                        .anyMatch(resource.asNode()::equals));
             });
 
             removeEmptyFragments();
@@ -1108,10 +1186,17 @@ public class FedoraResourceImpl extends JcrTools implements FedoraTypes, FedoraR
                       final Calendar modifiedDate, final String modifyingUser) throws RepositoryException {
         FedoraTypesUtils.touch(getNode(), createdDate, createdUser, modifiedDate, modifyingUser);
 
+        // If this container's own ldp:insertedContentRelation was changed, its membership index is out of date.
+        if (MembershipIndex.isMembershipContainer(getNode()) && getNode().hasNode(MembershipIndex.MEMBERSHIP_INDEX)
+                && !MembershipIndex.isCurrent(getNode())) {
+            MembershipIndex.rebuild(getNode());
+        }
+
         // If the ldp:insertedContentRelation property was changed, update the
         // ldp:membershipResource resource.
         if (includeMembershipResource) {
             touchLdpMembershipResource(getNode(), modifiedDate, modifyingUser);
+            MembershipIndex.update(getNode());
         }
     }
 
@@ -1306,38 +1391,20 @@ public class FedoraResourceImpl extends JcrTools implements FedoraTypes, FedoraR
       if (isOriginalResource()) {
             final FedoraResource timemap = this.getTimeMap();
             if (timemap != null) {
-                final Stream<FedoraResource> mementos = timemap.getChildren();
-                // Filter to mementos prior to mementoDatetime, then reduce to the nearest one
-                final Optional<FedoraResource> closest = mementos
-                        .filter(t -> dateTimeDifference(mementoDatetime, t.getMementoDatetime()) <= 0)
-                        .reduce((a, b) ->
-                                dateTimeDifference(a.getMementoDatetime(), mementoDatetime)
-                                <= dateTimeDifference(b.getMementoDatetime(), mementoDatetime) ?
-                                        a : b);
-                if (closest.isPresent()) {
-                    // Return the closest version older than the requested date.
-                    return closest.get();
-                } else {
-                    // Otherwise you requested before the first version, so return the first version if it exists.
-                    // If there are no Mementos return null.
-                    final Optional<FedoraResource> earliest =  timemap.getChildren().min(
-                            Comparator.comparing(FedoraResource::getMementoDatetime));
-                    return earliest.orElse(null);
+                // Return the closest version older than the requested date or, if you requested before the first
+                // version, the first version. If there are no Mementos return null.
+                try {
+                    final Node timeMapNode = getJcrNode(timemap);
+                    final MementoIndex index = MementoIndex.of(timeMapNode);
+                    final int nearest = index.nearest(mementoDatetime);
+                    final Node memento = nearest < 0 ? null : index.getMemento(timeMapNode, nearest);
+                    return memento == null ? null : nodeConverter.convert(memento);
+                } catch (final RepositoryException e) {
+                    throw new RepositoryRuntimeException(e);
                 }
             }
       }
       return null;
   }
 
-    /**
-     * Calculate the difference between two datetime to the unit.
-     *
-     * @param d1 first datetime
-     * @param d2 second datetime
-     * @return the difference
-     */
-  private static long dateTimeDifference(final Temporal d1, final Temporal d2) {
-      return ChronoUnit.SECONDS.between(d1, d2);
-  }
-
 }
@@ -90,6 +90,8 @@ public class FedoraSessionImpl implements FedoraSession {
                 sessionData.forEach(json::put);
                 obs.setUserData(mapper.writeValueAsString(json));
                 jcrSession.save();
+                LastModifiedCoalescer.committed(jcrSession);
+                ReferenceIndex.committed(jcrSession);
             }
         } catch (final javax.jcr.AccessDeniedException ex) {
             throw new AccessDeniedException(ex);
@@ -104,6 +106,8 @@ public class FedoraSessionImpl implements FedoraSession {
         try {
             if (jcrSession.isLive()) {
                 jcrSession.refresh(false);
+                LastModifiedCoalescer.discarded(jcrSession);
+                ReferenceIndex.discarded(jcrSession);
                 jcrSession.logout();
             }
         } catch (final RepositoryException ex) {
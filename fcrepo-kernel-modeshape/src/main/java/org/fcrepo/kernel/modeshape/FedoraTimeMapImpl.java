@@ -17,11 +17,16 @@
  */
 package org.fcrepo.kernel.modeshape;
 
+import static org.fcrepo.kernel.api.services.VersionService.MEMENTO_LABEL_FORMATTER;
 import static org.fcrepo.kernel.modeshape.identifiers.NodeResourceConverter.nodeConverter;
 
+import java.time.Instant;
+import java.util.AbstractList;
+import java.util.List;
 import java.util.Optional;
 
 import javax.jcr.Node;
+import javax.jcr.PathNotFoundException;
 import javax.jcr.Property;
 import javax.jcr.RepositoryException;
 
@@ -88,4 +93,36 @@ public class FedoraTimeMapImpl extends FedoraResourceImpl implements FedoraTimeM
             throw new RepositoryRuntimeException(e);
         }
     }
+
+    @Override
+    public List<Instant> getMementoDatetimes() {
+        try {
+            final MementoIndex index = MementoIndex.of(node);
+            return new AbstractList<Instant>() {
+
+                @Override
+                public Instant get(final int position) {
+                    return index.get(position);
+                }
+
+                @Override
+                public int size() {
+                    return index.size();
+                }
+            };
+        } catch (final RepositoryException e) {
+            throw new RepositoryRuntimeException(e);
+        }
+    }
+
+    @Override
+    public FedoraResource getMemento(final Instant mementoDatetime) {
+        try {
+            return nodeConverter.convert(node.getNode(MEMENTO_LABEL_FORMATTER.format(mementoDatetime)));
+        } catch (final PathNotFoundException e) {
+            return null;
+        } catch (final RepositoryException e) {
+            throw new RepositoryRuntimeException(e);
+        }
+    }
 }
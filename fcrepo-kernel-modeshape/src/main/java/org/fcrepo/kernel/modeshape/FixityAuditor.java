@@ -0,0 +1,475 @@
+/*
+ * Licensed to DuraSpace under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * DuraSpace licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.kernel.modeshape;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static javax.jcr.PropertyType.PATH;
+import static javax.jcr.query.Query.JCR_SQL2;
+import static org.fcrepo.kernel.api.FedoraTypes.CONTENT_DIGEST;
+import static org.fcrepo.kernel.api.FedoraTypes.CONTENT_SIZE;
+import static org.fcrepo.kernel.api.FedoraTypes.FEDORA_BINARY;
+import static org.fcrepo.kernel.api.FedoraTypes.FEDORA_NON_RDF_SOURCE_DESCRIPTION;
+import static org.fcrepo.kernel.api.utils.ContentDigest.DIGEST_ALGORITHM.SHA1;
+import static org.fcrepo.kernel.modeshape.FedoraSessionImpl.getJcrSession;
+import static org.fcrepo.kernel.modeshape.utils.FedoraTypesUtils.getJcrNode;
+import static org.modeshape.jcr.api.JcrConstants.JCR_DATA;
+import static org.modeshape.jcr.api.JcrConstants.JCR_PATH;
+import static org.modeshape.jcr.api.JcrConstants.NT_FOLDER;
+import static org.slf4j.LoggerFactory.getLogger;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+import javax.jcr.Node;
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+import javax.jcr.Value;
+import javax.jcr.query.Query;
+import javax.jcr.query.QueryManager;
+import javax.jcr.query.RowIterator;
+
+import org.fcrepo.kernel.api.FedoraRepository;
+import org.fcrepo.kernel.api.observer.FixityFailureEvent;
+import org.fcrepo.kernel.api.utils.ContentDigest;
+import org.fcrepo.kernel.api.utils.ContentDigest.DIGEST_ALGORITHM;
+import org.fcrepo.kernel.modeshape.utils.FixityEngine;
+import org.modeshape.jcr.api.Binary;
+import org.slf4j.Logger;
+
+import com.google.common.eventbus.EventBus;
+import com.google.common.util.concurrent.RateLimiter;
+
+/**
+ * Checks, in the background, that the content of each binary in the repository still matches the digests stored
+ * with it when it was written.  Binaries are visited in batches in the order of the paths of their descriptions,
+ * taken from a single query per pass whose results are read a batch at a time; each batch is read within a budget
+ * of bytes and of reads per second, so that the audit does not compete with requests for the disk, and its results
+ * are saved together with the path the audit has reached, so an audit interrupted by a restart resumes where it left
+ * off.  When a pass over the repository is complete, the next one starts after a given interval.
+ *
+ * <p>The outcome of the last check of each binary, and when it was made, are kept under a node at the root of the
+ * repository that mirrors the paths of the binaries, as the {@link ReferenceIndex} does, rather than on the binaries
+ * themselves, so that an audit neither modifies resources nor emits events for them. Along with each batch of
+ * binaries, as many of these results are visited and those of binaries no longer in the repository removed. A
+ * binary whose content does not match, or cannot be read, is reported with a {@link FixityFailureEvent} on the
+ * internal event bus. Binaries held outside the repository are not checked.</p>
+ *
+ * @author rdfloyd
+ */
+public class FixityAuditor {
+
+    private static final Logger LOGGER = getLogger(FixityAuditor.class);
+
+    /**
+     * The name of the node holding the results of the audit, a child of the root of the repository
+     */
+    public static final String FIXITY_AUDIT = "fedora:fixityAudit";
+
+    /**
+     * The outcome of the last check of a binary
+     */
+    public enum Outcome {
+        /**
+         * The content matched every stored digest and the stored size
+         */
+        SUCCESS,
+        /**
+         * The content did not match a stored digest or the stored size
+         */
+        FAILURE,
+        /**
+         * The content could not be read
+         */
+        ERROR
+    }
+
+    private static final String FIXITY_AUDIT_TYPE = "fedora:FixityAudit";
+
+    private static final String FIXITY_RESULT_TYPE = "fedora:FixityResult";
+
+    private static final String CHECKPOINT = "fedora:auditCheckpoint";
+
+    static final String VERIFIED = "fedora:fixityVerified";
+
+    static final String OUTCOME = "fedora:fixityOutcome";
+
+    private static final String COMPUTED_DIGEST = "fedora:fixityDigest";
+
+    private static final String ALL_BINARIES = "SELECT [" + JCR_PATH + "] FROM [" +
+            FEDORA_NON_RDF_SOURCE_DESCRIPTION + "] AS d ORDER BY [" + JCR_PATH + "]";
+
+    private static final String BINARIES_AFTER = "SELECT [" + JCR_PATH + "] FROM [" +
+            FEDORA_NON_RDF_SOURCE_DESCRIPTION + "] AS d WHERE [" + JCR_PATH + "] > $checkpoint ORDER BY [" +
+            JCR_PATH + "]";
+
+    private static final String RESULTS = "SELECT [" + JCR_PATH + "] FROM [" + FIXITY_RESULT_TYPE + "] AS r";
+
+    private static final long STOP_TIMEOUT = 30000;
+
+    @Inject
+    private FedoraRepository repository;
+
+    @Inject
+    private EventBus eventBus;
+
+    private int batchSize = 100;
+
+    private long bytesPerSecond = 0;
+
+    private double readsPerSecond = 0;
+
+    private long passInterval = 24 * 60 * 60 * 1000L;
+
+    private boolean enabled = true;
+
+    private RateLimiter bytesLimiter;
+
+    private RateLimiter readsLimiter;
+
+    private volatile boolean running;
+
+    private CountDownLatch stopped;
+
+    private Thread worker;
+
+    private Session cursorSession;
+
+    private RowIterator binaries;
+
+    private RowIterator results;
+
+    /**
+     * Start auditing, on a thread of its own: a pass over the repository may take days, and would hold up other
+     * scheduled tasks if it ran on the shared scheduler.
+     */
+    @PostConstruct
+    public synchronized void start() {
+        if (!enabled || running) {
+            return;
+        }
+        bytesLimiter = bytesPerSecond > 0 ? RateLimiter.create(bytesPerSecond) : null;
+        readsLimiter = readsPerSecond > 0 ? RateLimiter.create(readsPerSecond) : null;
+        running = true;
+        stopped = new CountDownLatch(1);
+        worker = new Thread(this::run, "fcrepo-fixity-audit");
+        worker.setDaemon(true);
+        worker.start();
+        LOGGER.info("Started fixity audit in batches of {}; {} bytes/s, {} reads/s", batchSize,
+                bytesPerSecond > 0 ? bytesPerSecond : "unlimited", readsPerSecond > 0 ? readsPerSecond : "unlimited");
+    }
+
+    /**
+     * Stop auditing once the binary being checked has been checked.  Results of the batch not yet saved are lost,
+     * and the binaries of that batch are checked again when the audit is started again.
+     */
+    @PreDestroy
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        stopped.countDown();
+        try {
+            worker.join(STOP_TIMEOUT);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        worker = null;
+    }
+
+    private void run() {
+        try {
+            while (running) {
+                try {
+                    if (auditBatch() && running) {
+                        LOGGER.info("Completed a fixity audit pass; the next starts in {} ms", passInterval);
+                        stopped.await(passInterval, MILLISECONDS);
+                    }
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                } catch (final RepositoryException | RuntimeException e) {
+                    LOGGER.error("Fixity audit batch failed; retrying in {} ms: {}", passInterval, e.getMessage());
+                    try {
+                        stopped.await(passInterval, MILLISECONDS);
+                    } catch (final InterruptedException ie) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+            }
+        } finally {
+            closeCursors();
+        }
+    }
+
+    /**
+     * Check the next batch of binaries and save the results along with the point the audit has reached.  Batches
+     * must be run one at a time.
+     *
+     * @return whether the batch completed a pass over the repository
+     * @throws RepositoryException if the binaries could not be found or the results could not be saved
+     */
+    public boolean auditBatch() throws RepositoryException {
+        final Session session = getJcrSession(repository.login());
+        boolean complete = true;
+        try {
+            final Node audit = findOrCreateAudit(session);
+            if (binaries == null) {
+                openCursors(audit.hasProperty(CHECKPOINT) ? audit.getProperty(CHECKPOINT).getString() : null);
+            }
+            String last = null;
+            for (int i = 0; i < batchSize && binaries.hasNext(); i++) {
+                last = binaries.nextRow().getPath();
+                if (session.nodeExists(last)) {
+                    check(session, audit, session.getNode(last));
+                }
+            }
+            complete = !binaries.hasNext();
+            // the results left when the binaries run out are those of binaries removed during the pass
+            for (int i = 0; (complete || i < batchSize) && results.hasNext(); i++) {
+                prune(session, audit, results.nextRow().getPath());
+            }
+            audit.setProperty(CHECKPOINT, complete ? null : last);
+            session.save();
+            return complete;
+        } finally {
+            if (complete) {
+                closeCursors();
+            }
+            session.logout();
+        }
+    }
+
+    /**
+     * Query, once for the pass, the binaries from the checkpoint on and the results to be visited for pruning.  The
+     * results are read a batch at a time through a session kept open for the pass.
+     */
+    private void openCursors(final String checkpoint) throws RepositoryException {
+        cursorSession = getJcrSession(repository.login());
+        final QueryManager queries = cursorSession.getWorkspace().getQueryManager();
+        final Query query = queries.createQuery(checkpoint == null ? ALL_BINARIES : BINARIES_AFTER, JCR_SQL2);
+        if (checkpoint != null) {
+            query.bindValue("checkpoint", cursorSession.getValueFactory().createValue(checkpoint, PATH));
+        }
+        binaries = query.execute().getRows();
+        results = queries.createQuery(RESULTS, JCR_SQL2).execute().getRows();
+    }
+
+    private void closeCursors() {
+        binaries = null;
+        results = null;
+        if (cursorSession != null) {
+            cursorSession.logout();
+            cursorSession = null;
+        }
+    }
+
+    private void check(final Session session, final Node audit, final Node description) throws RepositoryException {
+        final Node binary = getJcrNode(new NonRdfSourceDescriptionImpl(description).getDescribedResource());
+        if (!binary.hasProperty(JCR_DATA)) {
+            return;
+        }
+        final Binary content = (Binary) binary.getProperty(JCR_DATA).getBinary();
+        final Map<String, URI> stored = storedDigests(description);
+        stored.putIfAbsent(SHA1.algorithm, ContentDigest.asURI(SHA1.algorithm, content.getHexHash()));
+        final long storedSize = description.hasProperty(CONTENT_SIZE) ?
+                description.getProperty(CONTENT_SIZE).getLong() : -1;
+
+        final Map<String, URI> computed = new LinkedHashMap<>();
+        long computedSize = -1;
+        Outcome outcome;
+        try (final InputStream in = new ThrottledInputStream(content.getStream())) {
+            final FixityEngine.Digests digests = FixityEngine.digest(in, stored.keySet());
+            digests.getDigests().forEach((algorithm, digest) ->
+                    computed.put(algorithm, ContentDigest.asURI(algorithm, digest)));
+            computedSize = digests.getByteCount();
+            outcome = computed.equals(stored) && (storedSize < 0 || storedSize == computedSize) ?
+                    Outcome.SUCCESS : Outcome.FAILURE;
+        } catch (final IOException | NoSuchAlgorithmException e) {
+            LOGGER.warn("Unable to read the content of {} to check its fixity: {}", binary.getPath(),
+                    e.getMessage());
+            outcome = Outcome.ERROR;
+        }
+
+        final Instant now = Instant.now();
+        final Node result = findOrCreateEntry(audit, binary.getPath());
+        if (!result.isNodeType(FIXITY_RESULT_TYPE)) {
+            result.addMixin(FIXITY_RESULT_TYPE);
+        }
+        final Calendar verified = new GregorianCalendar();
+        verified.setTimeInMillis(now.toEpochMilli());
+        result.setProperty(VERIFIED, verified);
+        result.setProperty(OUTCOME, outcome.name());
+        result.setProperty(COMPUTED_DIGEST, computed.values().stream().map(URI::toString).toArray(String[]::new));
+
+        if (outcome != Outcome.SUCCESS) {
+            LOGGER.error("Fixity check of {} failed: stored {} ({} bytes), computed {} ({} bytes)", binary.getPath(),
+                    stored.values(), storedSize, computed.values(), computedSize);
+            eventBus.post(new FixityFailureEvent(binary.getPath(), stored.values(), computed.values(), storedSize,
+                    computedSize, now));
+        }
+    }
+
+    private static Map<String, URI> storedDigests(final Node description) throws RepositoryException {
+        final Map<String, URI> digests = new LinkedHashMap<>();
+        if (description.hasProperty(CONTENT_DIGEST)) {
+            for (final Value value : description.getProperty(CONTENT_DIGEST).getValues()) {
+                try {
+                    final URI digest = URI.create(value.getString());
+                    final String algorithm = ContentDigest.getAlgorithm(digest);
+                    if (!algorithm.equals(DIGEST_ALGORITHM.MISSING.algorithm)) {
+                        digests.put(algorithm, digest);
+                    }
+                } catch (final IllegalArgumentException e) {
+                    LOGGER.warn("Ignoring unreadable digest {} of {}", value.getString(), description.getPath());
+                }
+            }
+        }
+        return digests;
+    }
+
+    /**
+     * Remove the result at a path if its binary is no longer in the repository, along with the entries above it left
+     * empty
+     */
+    private static void prune(final Session session, final Node audit, final String resultPath)
+            throws RepositoryException {
+        final String path = resultPath.substring(audit.getPath().length());
+        if (!session.nodeExists(resultPath) || path.isEmpty()) {
+            return;
+        }
+        final Node result = session.getNode(resultPath);
+        if (session.nodeExists(path) && session.getNode(path).isNodeType(FEDORA_BINARY)) {
+            return;
+        }
+        result.removeMixin(FIXITY_RESULT_TYPE);
+        Node entry = result;
+        while (!entry.isSame(audit) && !entry.hasNodes() && !entry.isNodeType(FIXITY_RESULT_TYPE)) {
+            final Node parent = entry.getParent();
+            entry.remove();
+            entry = parent;
+        }
+    }
+
+    private static Node findOrCreateAudit(final Session session) throws RepositoryException {
+        final Node root = session.getRootNode();
+        if (root.hasNode(FIXITY_AUDIT)) {
+            return root.getNode(FIXITY_AUDIT);
+        }
+        final Node audit = root.addNode(FIXITY_AUDIT, NT_FOLDER);
+        audit.addMixin(FIXITY_AUDIT_TYPE);
+        return audit;
+    }
+
+    private static Node findOrCreateEntry(final Node audit, final String path) throws RepositoryException {
+        Node entry = audit;
+        for (final String name : path.split("/")) {
+            if (!name.isEmpty()) {
+                entry = entry.hasNode(name) ? entry.getNode(name) : entry.addNode(name, NT_FOLDER);
+            }
+        }
+        return entry;
+    }
+
+    /**
+     * Check if the node is the node holding the results of the audit
+     *
+     * @param node the node
+     * @return whether the node holds the results of the fixity audit
+     * @throws RepositoryException if the node types could not be read
+     */
+    public static boolean hasMixin(final Node node) throws RepositoryException {
+        return node.isNodeType(FIXITY_AUDIT_TYPE);
+    }
+
+    /**
+     * @param batchSize the number of binaries checked before their results are saved
+     */
+    public void setBatchSize(final int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * @param bytesPerSecond the number of bytes of content read per second, or zero for no limit
+     */
+    public void setBytesPerSecond(final long bytesPerSecond) {
+        this.bytesPerSecond = bytesPerSecond;
+    }
+
+    /**
+     * @param readsPerSecond the number of reads of content per second, or zero for no limit
+     */
+    public void setReadsPerSecond(final double readsPerSecond) {
+        this.readsPerSecond = readsPerSecond;
+    }
+
+    /**
+     * @param passInterval the time in milliseconds between one pass over the repository and the next
+     */
+    public void setPassInterval(final long passInterval) {
+        this.passInterval = passInterval;
+    }
+
+    /**
+     * @param enabled whether to start auditing
+     */
+    public void setEnabled(final boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Reads content within the budgets of the audit
+     */
+    private class ThrottledInputStream extends FilterInputStream {
+
+        private ThrottledInputStream(final InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            final byte[] b = new byte[1];
+            return read(b, 0, 1) < 0 ? -1 : b[0] & 0xff;
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len) throws IOException {
+            if (readsLimiter != null) {
+                readsLimiter.acquire();
+            }
+            final int read = super.read(b, off, len);
+            if (read > 0 && bytesLimiter != null) {
+                bytesLimiter.acquire(read);
+            }
+            return read;
+        }
+    }
+}
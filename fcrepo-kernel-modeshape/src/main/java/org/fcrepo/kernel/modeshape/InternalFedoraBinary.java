@@ -18,22 +18,31 @@
 package org.fcrepo.kernel.modeshape;
 
 import static org.fcrepo.kernel.api.utils.ContentDigest.DIGEST_ALGORITHM.SHA1;
+import static org.fcrepo.kernel.modeshape.services.functions.JcrPropertyFunctions.property2values;
 import static org.modeshape.jcr.api.JcrConstants.JCR_CONTENT;
 import static org.modeshape.jcr.api.JcrConstants.JCR_DATA;
 import static org.slf4j.LoggerFactory.getLogger;
 
+import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 import javax.jcr.Node;
 import javax.jcr.PathNotFoundException;
 import javax.jcr.Property;
 import javax.jcr.RepositoryException;
+import javax.jcr.Session;
 
 import org.apache.jena.rdf.model.Resource;
 import org.fcrepo.kernel.api.RdfStream;
@@ -46,9 +55,11 @@ import org.fcrepo.kernel.api.models.FedoraResource;
 import org.fcrepo.kernel.api.services.policy.StoragePolicyDecisionPoint;
 import org.fcrepo.kernel.api.utils.CacheEntry;
 import org.fcrepo.kernel.api.utils.ContentDigest;
+import org.fcrepo.kernel.api.utils.ContentDigest.DIGEST_ALGORITHM;
 import org.fcrepo.kernel.api.utils.FixityResult;
 import org.fcrepo.kernel.modeshape.rdf.impl.FixityRdfContext;
 import org.fcrepo.kernel.modeshape.utils.FedoraTypesUtils;
+import org.fcrepo.kernel.modeshape.utils.MultiDigestInputStream;
 import org.fcrepo.kernel.modeshape.utils.impl.CacheEntryFactory;
 import org.modeshape.jcr.api.Binary;
 import org.modeshape.jcr.api.ValueFactory;
@@ -63,6 +74,15 @@ public class InternalFedoraBinary extends AbstractFedoraBinary {
 
     private static final Logger LOGGER = getLogger(InternalFedoraBinary.class);
 
+    /**
+     * System property naming the digest algorithms, separated by commas, computed for all content on ingest in
+     * addition to the SHA-1 computed by ModeShape.  None are by default; digests of other algorithms are computed and
+     * stored when first requested.
+     */
+    public static final String DIGEST_ALGORITHMS_PROPERTY = "fcrepo.digest.algorithms";
+
+    private static final String DEFAULT_DIGEST_ALGORITHMS = "";
+
     /**
      * Construct InternalFedoraBinary
      *
@@ -119,12 +139,18 @@ public class InternalFedoraBinary extends AbstractFedoraBinary {
             throws InvalidChecksumException {
 
         try {
-
-
             final Node dsNode = getNode();
 
             LOGGER.debug("Created content node at path: {}", dsNode.getPath());
 
+            // content identical to what this binary already holds is not stored again; content held only by other
+            // binaries is stored, see shareContent
+            if (identifiesContent(checksums) && shareContent(this, contentType, checksums, originalFileName)) {
+                LOGGER.debug("Content of {} is unchanged; not storing it again", dsNode.getPath());
+                closeUnread(content);
+                return;
+            }
+
             String hint = null;
 
             if (storagePolicyDecisionPoint != null) {
@@ -132,7 +158,24 @@ public class InternalFedoraBinary extends AbstractFedoraBinary {
             }
             final ValueFactory modevf =
                     (ValueFactory) node.getSession().getValueFactory();
-            final Binary binary = modevf.createBinary(content, hint);
+
+            // digest the configured and provided algorithms as the content is stored, rather than reading it again
+            final Collection<URI> nonNullChecksums = (null == checksums) ? new HashSet<>() : checksums;
+            final Binary binary;
+            final Map<String, URI> digests = new HashMap<>();
+            try (final MultiDigestInputStream digestStream =
+                    new MultiDigestInputStream(content, digestAlgorithms(nonNullChecksums))) {
+                binary = modevf.createBinary(digestStream, hint);
+                if (digestStream.isComplete()) {
+                    digestStream.getDigests().forEach((algorithm, digest) ->
+                            digests.put(algorithm, ContentDigest.asURI(algorithm, digest)));
+                } else {
+                    LOGGER.warn("Content of {} was not read to its end as it was stored; not digesting it",
+                            dsNode.getPath());
+                }
+            } catch (final IOException | NoSuchAlgorithmException e) {
+                throw new RepositoryRuntimeException(e);
+            }
 
         /*
          * This next line of code deserves explanation. If we chose for the
@@ -147,32 +190,123 @@ public class InternalFedoraBinary extends AbstractFedoraBinary {
          * may still be useful to us for an asynchronous method that we develop
          * later.
          */
-            final Property dataProperty = dsNode.setProperty(JCR_DATA, binary);
+            storeContent(binary, contentType, nonNullChecksums, digests, originalFileName);
+        } catch (final RepositoryException e) {
+            throw new RepositoryRuntimeException(e);
+        }
+    }
 
-            // Ensure provided checksums are valid
+    /**
+     * Set the content of this binary to the content already stored for another internal binary, sharing the stored
+     * value rather than copying it.  ModeShape keeps each binary value once, under its SHA-1, and tracks whether any
+     * property still uses it; its garbage collector removes the value once none does.  So no content is read or
+     * written, whatever its size.
+     *
+     * <p>The content is only shared if the source has content and every checksum given is one of its digests.  The
+     * checksums of content offered by a client identify it only if they include its SHA-1; see
+     * {@link #identifiesContent(Collection)}.</p>
+     *
+     * <p>The source is always a binary the caller already holds: this binary itself, or the original of a memento.
+     * There is deliberately no lookup of other binaries by digest.  Content offered by a client is only shared with
+     * content it is replacing, since sharing the content of any binary whose digest a client can name would let the
+     * client read content it may not otherwise access, just by knowing its hash.</p>
+     *
+     * @param source the binary whose content to share
+     * @param contentType the mime type of the content, or null
+     * @param checksums checksums the content must match, or null
+     * @param originalFileName the original file name, or null
+     * @return whether the content was shared
+     * @throws InvalidChecksumException if the checksums do not match the shared content
+     */
+    public boolean shareContent(final InternalFedoraBinary source, final String contentType,
+            final Collection<URI> checksums, final String originalFileName) throws InvalidChecksumException {
+        try {
+            final Node sourceNode = source.getNode();
+            if (!sourceNode.hasProperty(JCR_DATA)) {
+                return false;
+            }
+            final javax.jcr.Binary stored = sourceNode.getProperty(JCR_DATA).getBinary();
+            if (!(stored instanceof Binary)) {
+                return false;
+            }
+            final Binary binary = (Binary) stored;
+            final Map<String, URI> digests = source.getStoredDigests(binary.getHexHash());
+            digests.put(SHA1.algorithm, ContentDigest.asURI(SHA1.algorithm, binary.getHexHash()));
             final Collection<URI> nonNullChecksums = (null == checksums) ? new HashSet<>() : checksums;
-            verifyChecksums(nonNullChecksums, dataProperty);
+            if (!digests.values().containsAll(nonNullChecksums)) {
+                return false;
+            }
+            LOGGER.debug("Sharing content {} of {} with {}", binary.getHexHash(), source.getPath(), getPath());
+            storeContent(binary, contentType, nonNullChecksums, digests, originalFileName);
+            return true;
+        } catch (final RepositoryException e) {
+            throw new RepositoryRuntimeException(e);
+        }
+    }
 
-            final Node descNode = getDescriptionNodeOrNull();
+    /**
+     * Whether checksums provided with content identify it: they do if they include a SHA-1, the digest by which
+     * ModeShape stores content.
+     *
+     * @param checksums the checksums provided with the content, or null
+     * @return whether the checksums include a SHA-1
+     */
+    public static boolean identifiesContent(final Collection<URI> checksums) {
+        return checksums != null &&
+                checksums.stream().anyMatch(checksum -> SHA1.algorithm.equals(ContentDigest.getAlgorithm(checksum)));
+    }
 
-            decorateContentNode(dsNode, descNode, nonNullChecksums);
-            FedoraTypesUtils.touch(dsNode);
+    private static void closeUnread(final InputStream content) {
+        if (content != null) {
+            try {
+                content.close();
+            } catch (final IOException e) {
+                LOGGER.debug("Unable to close unread content: {}", e.getMessage());
+            }
+        }
+    }
 
-            if (descNode != null) {
-                descNode.setProperty(HAS_MIME_TYPE, contentType);
+    /**
+     * Store a binary value as the content of this binary, verify the checksums provided for it and record its
+     * digests.
+     *
+     * @param binary the binary value
+     * @param contentType the mime type, or null
+     * @param checksums the checksums provided with the content
+     * @param digests the digests of the content known without reading it, by algorithm
+     * @param originalFileName the original file name, or null
+     * @throws RepositoryException if the content could not be stored
+     * @throws InvalidChecksumException if the checksums do not match the content
+     */
+    private void storeContent(final Binary binary, final String contentType, final Collection<URI> checksums,
+            final Map<String, URI> digests, final String originalFileName)
+            throws RepositoryException, InvalidChecksumException {
+        final Node dsNode = getNode();
+        final Property dataProperty = dsNode.setProperty(JCR_DATA, binary);
 
-                if (originalFileName != null) {
-                    descNode.setProperty(FILENAME, originalFileName);
-                }
+        // Ensure provided checksums are valid
+        verifyChecksums(checksums, dataProperty, digests);
 
-                FedoraTypesUtils.touch(descNode);
-            }
+        final Map<String, URI> storedDigests = new HashMap<>(digests);
+        checksums.forEach(checksum ->
+                storedDigests.putIfAbsent(ContentDigest.getAlgorithm(checksum), checksum));
 
-            LOGGER.debug("Created data property at path: {}", dataProperty.getPath());
+        final Node descNode = getDescriptionNodeOrNull();
 
-        } catch (final RepositoryException e) {
-            throw new RepositoryRuntimeException(e);
+        decorateContentNode(dsNode, descNode, new HashSet<>(storedDigests.values()));
+        FedoraTypesUtils.touch(dsNode);
+
+        if (descNode != null) {
+            descNode.setProperty(HAS_MIME_TYPE, contentType);
+
+            if (originalFileName != null) {
+                descNode.setProperty(FILENAME, originalFileName);
+            }
+
+            FedoraTypesUtils.touch(descNode);
         }
+
+        LOGGER.debug("Created data property at path: {}", dataProperty.getPath());
     }
 
     /*
@@ -195,10 +329,11 @@ public class InternalFedoraBinary extends AbstractFedoraBinary {
      *
      * @param checksums that the user provided
      * @param dataProperty containing the binary against which the checksums will be verified
+     * @param digests the digests computed as the binary was stored, by algorithm
      * @throws InvalidChecksumException on error
      */
-    private void verifyChecksums(final Collection<URI> checksums, final Property dataProperty)
-            throws InvalidChecksumException {
+    private void verifyChecksums(final Collection<URI> checksums, final Property dataProperty,
+            final Map<String, URI> digests) throws InvalidChecksumException {
 
         final Map<URI, URI> checksumErrors = new HashMap<>();
 
@@ -216,6 +351,14 @@ public class InternalFedoraBinary extends AbstractFedoraBinary {
                         checksumErrors.put(checksum, dsSHA1Uri);
                     }
 
+                    // The case computed as the binary was stored
+                } else if (digests.containsKey(algorithm)) {
+                    final URI digest = digests.get(algorithm);
+                    if (!digest.equals(checksum)) {
+                        LOGGER.debug("Failed checksum test");
+                        checksumErrors.put(checksum, digest);
+                    }
+
                     // The case that requires re-computing the checksum
                 } else {
                     final CacheEntry cacheEntry = CacheEntryFactory.forProperty(dataProperty);
@@ -278,6 +421,146 @@ public class InternalFedoraBinary extends AbstractFedoraBinary {
         }
     }
 
+    /*
+     * (non-Javadoc)
+     * @see org.fcrepo.kernel.api.models.FedoraBinary#getDigests(java.util.Collection)
+     */
+    @Override
+    public Collection<URI> getDigests(final Collection<String> algorithms) throws UnsupportedAlgorithmException {
+        final String contentHash = ((Binary) getBinaryContent()).getHexHash();
+        final Map<String, URI> storedDigests = getStoredDigests(contentHash);
+
+        final Collection<URI> results = new HashSet<>();
+        final List<String> missing = new ArrayList<>();
+        for (final String requested : algorithms) {
+            final DIGEST_ALGORITHM algorithm = DIGEST_ALGORITHM.fromScheme(DIGEST_ALGORITHM.getScheme(requested));
+            if (algorithm == DIGEST_ALGORITHM.MISSING) {
+                missing.add(requested);
+                continue;
+            }
+            final URI digest = algorithm == SHA1 ? ContentDigest.asURI(SHA1.algorithm, contentHash) :
+                    storedDigests.get(algorithm.algorithm);
+            if (digest == null) {
+                missing.add(algorithm.algorithm);
+            } else {
+                results.add(digest);
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            LOGGER.debug("Computing {} digests of {}", missing, getPath());
+            final Collection<URI> computed = checkFixity(null, missing);
+            storeDigests(contentHash, computed);
+            results.addAll(computed);
+        }
+        return results;
+    }
+
+    /**
+     * Store digests computed on request with the digests of the content on the description, through an internal
+     * session so that a request neither leaves changes in nor saves the session that made it.  They are only stored
+     * if the saved content is that they were computed for, which the stored SHA-1 records.  Failure is only logged,
+     * as the digests will be computed again by a later request.
+     *
+     * @param contentHash the SHA-1 of the content the digests were computed for
+     * @param computed the computed digests
+     */
+    private void storeDigests(final String contentHash, final Collection<URI> computed) {
+        try {
+            final Node description = getDescriptionNodeOrNull();
+            if (description == null || node.isModified() || description.isNew() || description.isModified()) {
+                LOGGER.debug("Not storing computed digests of unsaved content of {}", getPath());
+                return;
+            }
+            final Session internal = node.getSession().getRepository().login();
+            try {
+                final Node stored = internal.getNodeByIdentifier(description.getIdentifier());
+                final Map<String, URI> digests = stored.hasProperty(CONTENT_DIGEST) ?
+                        readDigests(stored.getProperty(CONTENT_DIGEST)) : new LinkedHashMap<>();
+                final URI sha1 = ContentDigest.asURI(SHA1.algorithm, contentHash);
+                if (!digests.containsKey(SHA1.algorithm)) {
+                    // digests stored without the SHA-1 of their content are never trusted, so are not kept
+                    digests.clear();
+                } else if (!sha1.equals(digests.get(SHA1.algorithm))) {
+                    LOGGER.debug("Not storing digests computed for content of {} since replaced", getPath());
+                    return;
+                }
+                digests.put(SHA1.algorithm, sha1);
+                computed.forEach(digest -> digests.put(ContentDigest.getAlgorithm(digest), digest));
+                stored.setProperty(CONTENT_DIGEST,
+                        digests.values().stream().map(URI::toString).toArray(String[]::new));
+                internal.save();
+            } finally {
+                internal.logout();
+            }
+        } catch (final RepositoryException e) {
+            LOGGER.warn("Unable to store computed digests of {}: {}", getPath(), e.getMessage());
+        }
+    }
+
+    /**
+     * Get the digests stored with the content by algorithm.  They are only trusted if the stored SHA-1 is that of the
+     * current content.
+     *
+     * @param contentHash the SHA-1 of the current content
+     * @return the stored digests by algorithm, or an empty map
+     */
+    private Map<String, URI> getStoredDigests(final String contentHash) {
+        final Map<String, URI> storedDigests = hasDescriptionProperty(CONTENT_DIGEST) ?
+                readDigests(getDescriptionProperty(CONTENT_DIGEST)) : new HashMap<>();
+        if (!ContentDigest.asURI(SHA1.algorithm, contentHash).equals(storedDigests.get(SHA1.algorithm))) {
+            LOGGER.debug("Stored digests of {} are not those of its current content", getPath());
+            return new HashMap<>();
+        }
+        return storedDigests;
+    }
+
+    /**
+     * Read the digests of a digest property by algorithm, skipping those that cannot be read.
+     *
+     * @param property the digest property
+     * @return the digests by algorithm
+     */
+    private Map<String, URI> readDigests(final Property property) {
+        final Map<String, URI> digests = new LinkedHashMap<>();
+        property2values.apply(property).forEach(value -> {
+            try {
+                final URI digest = URI.create(value.getString());
+                digests.put(ContentDigest.getAlgorithm(digest), digest);
+            } catch (final RepositoryException | IllegalArgumentException e) {
+                LOGGER.warn("Unable to read stored digest {} of {}: {}", value, getPath(), e.getMessage());
+            }
+        });
+        return digests;
+    }
+
+    /**
+     * Get the algorithms to compute as content is stored: those configured to be computed for all content and those
+     * of the checksums provided with it, other than the SHA-1 computed by ModeShape.
+     *
+     * @param checksums the checksums provided with the content
+     * @return the digest algorithms
+     */
+    private static Set<String> digestAlgorithms(final Collection<URI> checksums) {
+        final Set<String> algorithms = new LinkedHashSet<>();
+        final String configured = System.getProperty(DIGEST_ALGORITHMS_PROPERTY, DEFAULT_DIGEST_ALGORITHMS);
+        for (final String name : configured.split(",")) {
+            final DIGEST_ALGORITHM algorithm = DIGEST_ALGORITHM.fromScheme(DIGEST_ALGORITHM.getScheme(name.trim()));
+            if (algorithm == DIGEST_ALGORITHM.MISSING) {
+                if (!name.trim().isEmpty()) {
+                    LOGGER.warn("Ignoring unsupported digest algorithm {} in {}", name, DIGEST_ALGORITHMS_PROPERTY);
+                }
+            } else if (algorithm != SHA1) {
+                algorithms.add(algorithm.algorithm);
+            }
+        }
+        checksums.stream().map(ContentDigest::getAlgorithm)
+                .filter(algorithm -> !algorithm.equals(SHA1.algorithm))
+                .filter(algorithm -> !algorithm.equals(DIGEST_ALGORITHM.MISSING.algorithm))
+                .forEach(algorithms::add);
+        return algorithms;
+    }
+
     /**
      * Add necessary information to node
      * @param dsNode The target binary node to add information to
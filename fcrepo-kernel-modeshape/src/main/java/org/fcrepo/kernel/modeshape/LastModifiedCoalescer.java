@@ -0,0 +1,411 @@
+/*
+ * Licensed to DuraSpace under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * DuraSpace licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.kernel.modeshape;
+
+import static java.util.Calendar.getInstance;
+import static java.util.Collections.singletonMap;
+import static java.util.Collections.synchronizedMap;
+import static java.util.TimeZone.getTimeZone;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.fcrepo.kernel.api.FedoraTypes.FEDORA_LASTMODIFIED;
+import static org.fcrepo.kernel.api.FedoraTypes.FEDORA_LASTMODIFIEDBY;
+import static org.fcrepo.kernel.api.FedoraTypes.FEDORA_TOMBSTONE;
+import static org.fcrepo.kernel.modeshape.FedoraRepositoryImpl.getJcrRepository;
+import static org.fcrepo.kernel.modeshape.FedoraSessionImpl.getJcrSession;
+import static org.slf4j.LoggerFactory.getLogger;
+
+import java.time.Instant;
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+import javax.jcr.Node;
+import javax.jcr.Repository;
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+
+import org.fcrepo.kernel.api.FedoraRepository;
+import org.fcrepo.kernel.api.FedoraSession;
+import org.fcrepo.kernel.api.exception.RepositoryRuntimeException;
+import org.slf4j.Logger;
+import org.springframework.stereotype.Component;
+
+/**
+ * Coalesces the updates to fedora:lastModified that a container receives when its children or members change.
+ * Without it, every request that creates or deletes a child of a container also modifies the container, so
+ * concurrent requests into one container contend to save the same node.  With it, such an update is held with the
+ * session that made it until that session is committed, then merged with the other updates to the same container and
+ * written by a background writer at most once per window.
+ *
+ * Until an update is written, {@link #getPending(Node)} reports it so that the last modified date, and so the ETag,
+ * of a container changes as soon as its children do.  The writer stores exactly the reported date, so the ETag does
+ * not change again when it does.  Coalescing is off unless the {@value #COALESCE_PROPERTY} system property is true,
+ * and updates are written directly while no coalescer is running for the repository.
+ *
+ * The coalescer runs from the start of the application context to its shutdown, when the pending updates are
+ * written.  If a batch of updates cannot be saved, they are written one at a time and any that still fail are
+ * dropped, so that one node that cannot be saved does not hold up the others.
+ *
+ * @author rdfloyd
+ */
+@Component
+public class LastModifiedCoalescer {
+
+    private static final Logger LOGGER = getLogger(LastModifiedCoalescer.class);
+
+    /**
+     * The system property that turns coalescing on
+     */
+    public static final String COALESCE_PROPERTY = "fcrepo.lastModified.coalesce";
+
+    /**
+     * The system property giving the interval in milliseconds at which coalesced updates are written
+     */
+    public static final String WINDOW_PROPERTY = "fcrepo.lastModified.coalesceWindow";
+
+    private static final long DEFAULT_WINDOW = 500;
+
+    private static final Map<Repository, LastModifiedCoalescer> COALESCERS = new ConcurrentHashMap<>();
+
+    @Inject
+    private FedoraRepository fedoraRepository;
+
+    private Repository repository;
+
+    private final Map<Session, Map<String, Touch>> uncommitted = synchronizedMap(new WeakHashMap<>());
+
+    private final Consumer<Session> discardListener = uncommitted::remove;
+
+    private final ConcurrentHashMap<String, Touch> pending = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService writer = Executors.newSingleThreadScheduledExecutor(task -> {
+        final Thread thread = new Thread(task, "fcrepo-lastModified-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private long window = Long.getLong(WINDOW_PROPERTY, DEFAULT_WINDOW);
+
+    private ScheduledFuture<?> schedule;
+
+    private final LongAdder deferred = new LongAdder();
+
+    private final LongAdder written = new LongAdder();
+
+    private final LongAdder dropped = new LongAdder();
+
+    private final LongAdder saves = new LongAdder();
+
+    /**
+     * Start coalescing the updates made in the repository.
+     */
+    @PostConstruct
+    public synchronized void start() {
+        repository = getJcrRepository(fedoraRepository);
+        COALESCERS.put(repository, this);
+        SessionPool.addDiscardListener(discardListener);
+        schedule = writer.scheduleWithFixedDelay(this::write, window, window, MILLISECONDS);
+        LOGGER.debug("Coalescing last modified dates every {} ms", window);
+    }
+
+    /**
+     * Stop coalescing, writing the updates committed but not yet written.  Later updates are written directly.
+     */
+    @PreDestroy
+    public synchronized void close() {
+        COALESCERS.remove(repository, this);
+        SessionPool.removeDiscardListener(discardListener);
+        if (schedule != null) {
+            schedule.cancel(false);
+        }
+        writer.execute(this::write);
+        writer.shutdown();
+        try {
+            if (!writer.awaitTermination(30, SECONDS)) {
+                LOGGER.warn("Abandoning {} last modified date(s) not yet written", pending.size());
+                writer.shutdownNow();
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            writer.shutdownNow();
+        }
+        LOGGER.debug("Stopped coalescing last modified dates; {}", this);
+    }
+
+    /**
+     * Set the interval at which coalesced updates are written, by default that given by the {@value #WINDOW_PROPERTY}
+     * system property or 500 ms.
+     *
+     * @param window the interval in milliseconds
+     */
+    public synchronized void setWindow(final long window) {
+        this.window = window;
+        if (schedule != null && !writer.isShutdown()) {
+            schedule.cancel(false);
+            schedule = writer.scheduleWithFixedDelay(this::write, window, window, MILLISECONDS);
+        }
+    }
+
+    /**
+     * @return whether updates to the last modified dates of containers are coalesced
+     */
+    public static boolean isEnabled() {
+        return Boolean.getBoolean(COALESCE_PROPERTY);
+    }
+
+    /**
+     * Defer an update of the last modified date of a node to now, by the user of its session, until that session is
+     * committed.
+     *
+     * @param node the node
+     * @return whether the update was deferred; it is not if no coalescer is running for the repository of the node
+     * @throws RepositoryException if the node could not be read
+     */
+    public static boolean defer(final Node node) throws RepositoryException {
+        final Session session = node.getSession();
+        final LastModifiedCoalescer coalescer = forSession(session);
+        if (coalescer == null) {
+            return false;
+        }
+        coalescer.add(session, node.getPath(), new Touch(getInstance(getTimeZone("UTC")), session.getUserID()));
+        return true;
+    }
+
+    /**
+     * Queue the updates deferred by a session for writing, once that session has been saved.
+     *
+     * @param session the session
+     */
+    public static void committed(final Session session) {
+        final LastModifiedCoalescer coalescer = forSession(session);
+        if (coalescer != null) {
+            coalescer.commit(session);
+        }
+    }
+
+    /**
+     * Drop the updates deferred by a session whose changes have been discarded.
+     *
+     * @param session the session
+     */
+    public static void discarded(final Session session) {
+        final LastModifiedCoalescer coalescer = forSession(session);
+        if (coalescer != null) {
+            coalescer.uncommitted.remove(session);
+        }
+    }
+
+    /**
+     * Get the last modified date of a node that has yet to be written, as seen by the session of the node.
+     *
+     * @param node the node
+     * @return the last modified date not yet written, if any
+     */
+    public static Optional<Instant> getPending(final Node node) {
+        if (COALESCERS.isEmpty()) {
+            return Optional.empty();
+        }
+        try {
+            final LastModifiedCoalescer coalescer = forSession(node.getSession());
+            if (coalescer == null) {
+                return Optional.empty();
+            }
+            final String path = node.getPath();
+            final Map<String, Touch> own = coalescer.uncommitted.get(node.getSession());
+            final Touch touch = later(own == null ? null : own.get(path), coalescer.pending.get(path));
+            return touch == null ? Optional.empty() : Optional.of(touch.modified.toInstant());
+        } catch (final RepositoryException e) {
+            throw new RepositoryRuntimeException(e);
+        }
+    }
+
+    private static LastModifiedCoalescer forSession(final Session session) {
+        return COALESCERS.isEmpty() ? null : COALESCERS.get(session.getRepository());
+    }
+
+    private void add(final Session session, final String path, final Touch touch) {
+        uncommitted.computeIfAbsent(session, s -> new HashMap<>()).merge(path, touch, LastModifiedCoalescer::later);
+        deferred.increment();
+    }
+
+    private void commit(final Session session) {
+        final Map<String, Touch> touches = uncommitted.remove(session);
+        if (touches != null) {
+            touches.forEach((path, touch) -> pending.merge(path, touch, LastModifiedCoalescer::later));
+        }
+    }
+
+    /**
+     * Write the pending updates now.
+     */
+    public void flush() {
+        try {
+            writer.submit(this::write).get();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (final ExecutionException e) {
+            throw new RepositoryRuntimeException(e.getCause());
+        }
+    }
+
+    private void write() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        final Map<String, Touch> batch = new HashMap<>(pending);
+        final FedoraSession session;
+        try {
+            session = new FedoraRepositoryImpl(repository).login();
+        } catch (final RepositoryRuntimeException e) {
+            LOGGER.warn("Unable to write {} last modified date(s); will retry: {}", batch.size(), e.getMessage());
+            return;
+        }
+        try {
+            final Session jcrSession = getJcrSession(session);
+            try {
+                for (final Map.Entry<String, Touch> entry : batch.entrySet()) {
+                    update(jcrSession, entry.getKey(), entry.getValue());
+                }
+                jcrSession.save();
+                saved(batch);
+                LOGGER.debug("Wrote {} coalesced last modified date(s)", batch.size());
+            } catch (final RepositoryException | RuntimeException e) {
+                LOGGER.warn("Unable to write {} last modified date(s) together; writing them one at a time: {}",
+                        batch.size(), e.getMessage());
+                jcrSession.refresh(false);
+                batch.forEach((path, touch) -> writeOne(jcrSession, path, touch));
+            }
+        } catch (final RepositoryException | RuntimeException e) {
+            LOGGER.warn("Unable to write {} last modified date(s); will retry: {}", batch.size(), e.getMessage());
+        } finally {
+            session.expire();
+        }
+    }
+
+    /**
+     * Write a single update, dropping it if it cannot be saved.
+     */
+    private void writeOne(final Session jcrSession, final String path, final Touch touch) {
+        try {
+            update(jcrSession, path, touch);
+            jcrSession.save();
+            saved(singletonMap(path, touch));
+        } catch (final RepositoryException | RuntimeException e) {
+            LOGGER.warn("Dropping the last modified date of {}: {}", path, e.getMessage());
+            pending.remove(path, touch);
+            dropped.increment();
+            try {
+                jcrSession.refresh(false);
+            } catch (final RepositoryException ex) {
+                throw new RepositoryRuntimeException(ex);
+            }
+        }
+    }
+
+    private static void update(final Session jcrSession, final String path, final Touch touch)
+            throws RepositoryException {
+        if (jcrSession.nodeExists(path)) {
+            final Node node = jcrSession.getNode(path);
+            if (!node.isNodeType(FEDORA_TOMBSTONE) && (!node.hasProperty(FEDORA_LASTMODIFIED) ||
+                    node.getProperty(FEDORA_LASTMODIFIED).getDate().before(touch.modified))) {
+                node.setProperty(FEDORA_LASTMODIFIED, touch.modified);
+                node.setProperty(FEDORA_LASTMODIFIEDBY, touch.user);
+            }
+        }
+    }
+
+    private void saved(final Map<String, Touch> touches) {
+        // keep any update that arrived while these were being written
+        touches.forEach(pending::remove);
+        written.add(touches.size());
+        saves.increment();
+    }
+
+    /**
+     * @return the number of updates deferred
+     */
+    public long getDeferredCount() {
+        return deferred.sum();
+    }
+
+    /**
+     * @return the number of updates written, after coalescing
+     */
+    public long getWrittenCount() {
+        return written.sum();
+    }
+
+    /**
+     * @return the number of updates dropped because they could not be saved
+     */
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    /**
+     * @return the number of times the writer has saved updates
+     */
+    public long getSaveCount() {
+        return saves.sum();
+    }
+
+    /**
+     * @return the number of updates committed but not yet written
+     */
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("deferred: %d, written: %d, dropped: %d, saves: %d, pending: %d", getDeferredCount(),
+                getWrittenCount(), getDroppedCount(), getSaveCount(), getPendingCount());
+    }
+
+    private static Touch later(final Touch a, final Touch b) {
+        if (a == null || b == null) {
+            return a == null ? b : a;
+        }
+        return a.modified.before(b.modified) ? b : a;
+    }
+
+    private static final class Touch {
+
+        private final Calendar modified;
+
+        private final String user;
+
+        private Touch(final Calendar modified, final String user) {
+            this.modified = modified;
+            this.user = user;
+        }
+    }
+}
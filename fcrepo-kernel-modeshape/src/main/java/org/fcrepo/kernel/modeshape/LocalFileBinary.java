@@ -17,15 +17,21 @@
  */
 package org.fcrepo.kernel.modeshape;
 
+import static java.nio.file.StandardOpenOption.READ;
 import static org.slf4j.LoggerFactory.getLogger;
 
 import java.io.File;
+import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
 import java.util.Collection;
 
 import javax.jcr.Node;
 import javax.jcr.RepositoryException;
+import org.fcrepo.kernel.api.exception.ExternalContentAccessException;
 import org.fcrepo.kernel.api.exception.InvalidChecksumException;
 import org.fcrepo.kernel.api.exception.RepositoryRuntimeException;
 import org.fcrepo.kernel.api.services.policy.StoragePolicyDecisionPoint;
@@ -86,6 +92,25 @@ public class LocalFileBinary extends UrlBinary {
         }
     }
 
+    /**
+     * The file is read from the start of the range by a positioned channel, so the content before it is not read.
+     */
+    @Override
+    public InputStream getContent(final long start, final long length) {
+        try {
+            final FileChannel channel = FileChannel.open(Paths.get(getResourceUri().getPath()), READ);
+            try {
+                channel.position(start);
+            } catch (final IOException | RuntimeException e) {
+                channel.close();
+                throw e;
+            }
+            return range(Channels.newInputStream(channel), 0, length);
+        } catch (final IOException e) {
+            throw new ExternalContentAccessException("Problems getting external content : " + e.getMessage(), e);
+        }
+    }
+
     @Override
     public String getMimeType() {
         return getMimeTypeValue();
@@ -0,0 +1,394 @@
+/*
+ * Licensed to DuraSpace under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * DuraSpace licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.kernel.modeshape;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.stream.Collectors.toList;
+import static org.apache.jena.rdf.model.ResourceFactory.createResource;
+import static org.fcrepo.kernel.api.FedoraTypes.FEDORA_PAIRTREE;
+import static org.fcrepo.kernel.api.FedoraTypes.LDP_DIRECT_CONTAINER;
+import static org.fcrepo.kernel.api.FedoraTypes.LDP_INDIRECT_CONTAINER;
+import static org.fcrepo.kernel.api.FedoraTypes.LDP_INSERTED_CONTENT_RELATION;
+import static org.fcrepo.kernel.api.RdfLexicon.FEDORA_DESCRIPTION;
+import static org.fcrepo.kernel.api.RdfLexicon.MEMBER_SUBJECT;
+import static org.fcrepo.kernel.modeshape.FedoraResourceImpl.nastyChildren;
+import static org.fcrepo.kernel.modeshape.utils.FedoraTypesUtils.getContainingNode;
+import static org.fcrepo.kernel.modeshape.utils.FedoraTypesUtils.getReferencePropertyName;
+import static org.fcrepo.kernel.modeshape.utils.FedoraTypesUtils.isFedoraBinary;
+import static org.fcrepo.kernel.modeshape.utils.FedoraTypesUtils.isNonRdfSourceDescription;
+import static org.fcrepo.kernel.modeshape.utils.FedoraTypesUtils.resourceToProperty;
+import static org.fcrepo.kernel.modeshape.utils.StreamUtils.iteratorToStream;
+import static org.fcrepo.kernel.modeshape.utils.UncheckedFunction.uncheck;
+import static org.modeshape.jcr.api.JcrConstants.NT_FOLDER;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import javax.jcr.Node;
+import javax.jcr.NodeIterator;
+import javax.jcr.Property;
+import javax.jcr.RepositoryException;
+import javax.jcr.Value;
+
+import org.fcrepo.kernel.api.exception.RepositoryRuntimeException;
+import org.fcrepo.kernel.modeshape.rdf.impl.mappings.PropertyValueIterator;
+import org.fcrepo.kernel.modeshape.utils.UncheckedPredicate;
+
+/**
+ * The membership index of a direct or indirect container, kept as a child node of the container so that the
+ * membership triples of a membership resource can be read without visiting every child of every container that
+ * names it.
+ *
+ * <p>The index holds an entry for each child that contributes membership, named by the identifier of the child. The
+ * entries are spread over a fixed number of shards, created with the index, so that children created at once in
+ * different sessions seldom write to the same node. The entry holds the objects of the membership triples the child
+ * contributes: a weak reference to the child itself for a direct container (or an indirect container with an
+ * ldp:insertedContentRelation of ldp:MemberSubject), or the values of the child's inserted content property for an
+ * indirect container. The index also records the inserted content relation it was built for, and an index built for
+ * another relation than the container's current one is not used, as is an index laid out with another number of
+ * shards; containers created before the index existed have none until {@link #rebuild(Node)} is run.</p>
+ *
+ * @author rdfloyd
+ */
+public final class MembershipIndex {
+
+    /**
+     * The name of the index node of a container
+     */
+    public static final String MEMBERSHIP_INDEX = "fedora:membershipIndex";
+
+    private static final String MEMBERSHIP_INDEX_TYPE = "fedora:MembershipIndex";
+
+    private static final String MEMBERSHIP_ENTRY_TYPE = "fedora:MembershipEntry";
+
+    private static final String INDEXED_RELATION = "fedora:indexedRelation";
+
+    private static final String MEMBER = "fedora:member";
+
+    private static final String SHARD_COUNT = "fedora:shardCount";
+
+    private static final int SHARDS = 16;
+
+    private MembershipIndex() {
+        // static utilities
+    }
+
+    /**
+     * Check if the node is the index node of a container
+     *
+     * @param node the node
+     * @return whether the node is a membership index
+     * @throws RepositoryException if the node types could not be read
+     */
+    public static boolean hasMixin(final Node node) throws RepositoryException {
+        return node.isNodeType(MEMBERSHIP_INDEX_TYPE);
+    }
+
+    /**
+     * Check if the node is an entry of a membership index
+     *
+     * @param node the node
+     * @return whether the node is a membership index entry
+     * @throws RepositoryException if the node types could not be read
+     */
+    public static boolean isEntry(final Node node) throws RepositoryException {
+        return node.isNodeType(MEMBERSHIP_ENTRY_TYPE);
+    }
+
+    /**
+     * Check if a container has a membership index built for its current inserted content relation
+     *
+     * @param container the container
+     * @return whether the membership of the container may be read from its index
+     * @throws RepositoryException if the container could not be read
+     */
+    public static boolean isCurrent(final Node container) throws RepositoryException {
+        if (!container.hasNode(MEMBERSHIP_INDEX)) {
+            return false;
+        }
+        final Node index = container.getNode(MEMBERSHIP_INDEX);
+        return index.hasProperty(SHARD_COUNT) && index.getProperty(SHARD_COUNT).getLong() == SHARDS &&
+                index.getProperty(INDEXED_RELATION).getString().equals(insertedContentRelation(container));
+    }
+
+    /**
+     * Create an empty membership index for a new direct or indirect container
+     *
+     * @param container the container
+     * @throws RepositoryException if the index could not be created
+     */
+    public static void create(final Node container) throws RepositoryException {
+        final Node index = container.addNode(MEMBERSHIP_INDEX, NT_FOLDER);
+        index.addMixin(MEMBERSHIP_INDEX_TYPE);
+        index.setProperty(INDEXED_RELATION, insertedContentRelation(container));
+        index.setProperty(SHARD_COUNT, SHARDS);
+        for (int i = 0; i < SHARDS; i++) {
+            index.addNode(shardName(i), NT_FOLDER);
+        }
+    }
+
+    /**
+     * Get the container of an index entry
+     *
+     * @param entry the entry
+     * @return the container whose index holds the entry
+     * @throws RepositoryException if the container could not be read
+     */
+    public static Node getContainer(final Node entry) throws RepositoryException {
+        return entry.getParent().getParent().getParent();
+    }
+
+    /**
+     * Get the objects of the membership triples of a container
+     *
+     * @param container a container with a current index
+     * @return the values of the index entries
+     * @throws RepositoryException if the index could not be read
+     */
+    @SuppressWarnings("unchecked")
+    public static Stream<Value> getMembers(final Node container) throws RepositoryException {
+        return entries(container.getNode(MEMBERSHIP_INDEX))
+                .filter(UncheckedPredicate.uncheck((final Node entry) -> entry.hasProperty(MEMBER)))
+                .flatMap(uncheck((final Node entry) ->
+                        iteratorToStream(new PropertyValueIterator(entry.getProperty(MEMBER)))));
+    }
+
+    /**
+     * Update the entry of a child in the index of its container, if the container has a current index. A binary
+     * description is taken to stand for its binary.
+     *
+     * @param node the child
+     * @throws RepositoryException if the index could not be updated
+     */
+    public static void update(final Node node) throws RepositoryException {
+        final Node child = isNonRdfSourceDescription.test(node) ? node.getParent() : node;
+        final Optional<Node> container = getContainingNode(child);
+        if (container.isPresent() && isCurrent(container.get()) && !nastyChildren.test(child)) {
+            final Node index = container.get().getNode(MEMBERSHIP_INDEX);
+            putEntry(index, child, members(child, index.getProperty(INDEXED_RELATION).getString()));
+        }
+    }
+
+    /**
+     * Remove the entry of a former child from the index of a container
+     *
+     * @param container the container
+     * @param identifier the identifier of the former child
+     * @throws RepositoryException if the index could not be updated
+     */
+    public static void remove(final Node container, final String identifier) throws RepositoryException {
+        if (container.hasNode(MEMBERSHIP_INDEX)) {
+            final Node shard = shard(container.getNode(MEMBERSHIP_INDEX), identifier);
+            final String name = entryName(identifier);
+            if (shard.hasNode(name)) {
+                shard.getNode(name).remove();
+            }
+        }
+    }
+
+    /**
+     * Replace the membership index of a direct or indirect container with one built from its children
+     *
+     * @param container the container
+     * @throws RepositoryException if the index could not be built
+     */
+    public static void rebuild(final Node container) throws RepositoryException {
+        if (container.hasNode(MEMBERSHIP_INDEX)) {
+            container.getNode(MEMBERSHIP_INDEX).remove();
+        }
+        create(container);
+        final Node index = container.getNode(MEMBERSHIP_INDEX);
+        final String relation = insertedContentRelation(container);
+        forEachChild(container, child -> {
+            try {
+                putEntry(index, child, members(child, relation));
+            } catch (final RepositoryException e) {
+                throw new RepositoryRuntimeException(e);
+            }
+        });
+    }
+
+    /**
+     * Rebuild the membership indexes of all the direct and indirect containers at or below a node, as they are after
+     * the node is copied
+     *
+     * @param node the node
+     * @throws RepositoryException if an index could not be built
+     */
+    public static void rebuildAll(final Node node) throws RepositoryException {
+        if (isMembershipContainer(node)) {
+            rebuild(node);
+        }
+        for (final NodeIterator children = node.getNodes(); children.hasNext(); ) {
+            final Node child = children.nextNode();
+            if (!hasMixin(child)) {
+                rebuildAll(child);
+            }
+        }
+    }
+
+    /**
+     * Check a membership index against the children of its container
+     *
+     * @param container a direct or indirect container
+     * @return whether the container has a current index holding exactly the entries its children call for
+     * @throws RepositoryException if the container could not be read
+     */
+    public static boolean verify(final Node container) throws RepositoryException {
+        if (!isCurrent(container)) {
+            return false;
+        }
+        final String relation = insertedContentRelation(container);
+        final Map<String, List<String>> expected = new HashMap<>();
+        forEachChild(container, child -> {
+            try {
+                final List<Value> members = members(child, relation);
+                if (!members.isEmpty()) {
+                    expected.put(entryName(child.getIdentifier()), strings(members.stream()));
+                }
+            } catch (final RepositoryException e) {
+                throw new RepositoryRuntimeException(e);
+            }
+        });
+        final Map<String, List<String>> actual = new HashMap<>();
+        for (final Iterator<Node> entries = entries(container.getNode(MEMBERSHIP_INDEX)).iterator();
+                entries.hasNext(); ) {
+            final Node entry = entries.next();
+            if (!entry.hasProperty(MEMBER)) {
+                // its values referred only to resources since deleted
+                continue;
+            }
+            actual.put(entry.getName(),
+                    strings(iteratorToStream(new PropertyValueIterator(entry.getProperty(MEMBER)))));
+        }
+        return expected.equals(actual);
+    }
+
+    /**
+     * Check if a node is a container whose membership is indexed
+     *
+     * @param node the node
+     * @return whether the node is a direct or indirect container
+     * @throws RepositoryException if the node types could not be read
+     */
+    public static boolean isMembershipContainer(final Node node) throws RepositoryException {
+        return node.isNodeType(LDP_DIRECT_CONTAINER) || node.isNodeType(LDP_INDIRECT_CONTAINER);
+    }
+
+    private static String insertedContentRelation(final Node container) throws RepositoryException {
+        if (!container.isNodeType(LDP_INDIRECT_CONTAINER)) {
+            return MEMBER_SUBJECT.getURI();
+        }
+        return container.hasProperty(LDP_INSERTED_CONTENT_RELATION) ?
+                container.getProperty(LDP_INSERTED_CONTENT_RELATION).getString() : "";
+    }
+
+    private static List<Value> members(final Node child, final String relation) throws RepositoryException {
+        final List<Value> members = new ArrayList<>();
+        if (relation.equals(MEMBER_SUBJECT.getURI())) {
+            members.add(child.getSession().getValueFactory().createValue(child, true));
+            return members;
+        }
+        final boolean isBinary = isFedoraBinary.test(child);
+        if (relation.isEmpty() || (isBinary && !child.hasNode(FEDORA_DESCRIPTION))) {
+            return members;
+        }
+        final Node described = isBinary ? child.getNode(FEDORA_DESCRIPTION) : child;
+        final Optional<String> property = resourceToProperty(child.getSession()).apply(createResource(relation));
+        if (property.isPresent()) {
+            final String name = described.hasProperty(property.get()) ? property.get() :
+                getReferencePropertyName(property.get());
+            if (described.hasProperty(name)) {
+                final Property values = described.getProperty(name);
+                new PropertyValueIterator(values).forEachRemaining(members::add);
+            }
+        }
+        return members;
+    }
+
+    private static void putEntry(final Node index, final Node child, final List<Value> members)
+            throws RepositoryException {
+        final Node shard = shard(index, child.getIdentifier());
+        final String name = entryName(child.getIdentifier());
+        if (members.isEmpty()) {
+            if (shard.hasNode(name)) {
+                shard.getNode(name).remove();
+            }
+            return;
+        }
+        final Node entry;
+        if (shard.hasNode(name)) {
+            entry = shard.getNode(name);
+        } else {
+            entry = shard.addNode(name, NT_FOLDER);
+            entry.addMixin(MEMBERSHIP_ENTRY_TYPE);
+        }
+        entry.setProperty(MEMBER, members.toArray(new Value[members.size()]));
+    }
+
+    private static void forEachChild(final Node parent, final Consumer<Node> action) throws RepositoryException {
+        for (final NodeIterator children = parent.getNodes(); children.hasNext(); ) {
+            final Node child = children.nextNode();
+            if (nastyChildren.test(child)) {
+                continue;
+            }
+            if (child.isNodeType(FEDORA_PAIRTREE)) {
+                forEachChild(child, action);
+            } else {
+                action.accept(child);
+            }
+        }
+    }
+
+    private static List<String> strings(final Stream<Value> values) {
+        return values.map(uncheck(Value::getString)).collect(toList());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Stream<Node> entries(final Node index) throws RepositoryException {
+        final Iterator<Node> shards = index.getNodes();
+        return iteratorToStream(shards).flatMap(uncheck((final Node shard) -> {
+            final Iterator<Node> entries = shard.getNodes();
+            return iteratorToStream(entries);
+        }));
+    }
+
+    private static Node shard(final Node index, final String identifier) throws RepositoryException {
+        return index.getNode(shardName(Math.floorMod(identifier.hashCode(), SHARDS)));
+    }
+
+    private static String shardName(final int shard) {
+        return String.format("%02x", shard);
+    }
+
+    private static String entryName(final String identifier) {
+        try {
+            return URLEncoder.encode(identifier, UTF_8.name());
+        } catch (final UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,270 @@
+/*
+ * Licensed to DuraSpace under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * DuraSpace licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.kernel.modeshape;
+
+import static org.apache.jena.graph.Node.ANY;
+import static org.apache.jena.rdf.model.ResourceFactory.createResource;
+import static org.apache.jena.riot.Lang.NTRIPLES;
+import static org.apache.jena.sparql.graph.GraphFactory.createDefaultGraph;
+import static org.fcrepo.kernel.api.FedoraTypes.MEMENTO_DATETIME;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import javax.jcr.Binary;
+import javax.jcr.Node;
+import javax.jcr.NodeIterator;
+import javax.jcr.RepositoryException;
+
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.riot.RDFDataMgr;
+import org.fcrepo.kernel.api.exception.RepositoryRuntimeException;
+import org.fcrepo.kernel.api.identifiers.IdentifierConverter;
+import org.fcrepo.kernel.api.models.FedoraResource;
+import org.fcrepo.kernel.api.utils.GraphDifferencer;
+import org.fcrepo.kernel.modeshape.rdf.impl.InternalIdentifierTranslator;
+
+/**
+ * The containment triples of container mementos, stored as a difference from those of the previous memento of the
+ * TimeMap rather than in full, with a full checkpoint every so many mementos.  A container with many children then
+ * costs the changes to its children per memento rather than all of its children.
+ *
+ * <p>The triples of a memento are held as N-Triples in binary properties of the memento node, with every URI of the
+ * repository translated to an internal identifier so that they do not depend on the base URL they were read with.  A
+ * checkpoint holds all of the triples.  A delta names the memento it is based on and holds the triples added and
+ * removed since; it is read by reading its base and applying the changes.  Before a memento is deleted, the mementos
+ * based on it are rewritten as checkpoints; see {@link #release(Node)}.</p>
+ *
+ * @author rdfloyd
+ */
+public final class MementoContainment {
+
+    /**
+     * The triples of a checkpoint, or the triples added by a delta
+     */
+    public static final String MEMENTO_CONTAINS = "fedora:mementoContains";
+
+    /**
+     * The triples removed by a delta
+     */
+    public static final String MEMENTO_CONTAINS_REMOVED = "fedora:mementoContainsRemoved";
+
+    /**
+     * The name of the memento a delta is based on
+     */
+    public static final String MEMENTO_CONTAINS_BASE = "fedora:mementoContainsBase";
+
+    /**
+     * The number of deltas between a memento and its checkpoint
+     */
+    public static final String MEMENTO_CONTAINS_DEPTH = "fedora:mementoContainsDepth";
+
+    private MementoContainment() {
+    }
+
+    /**
+     * Store the containment triples of a new memento, as a delta from the previous memento of its TimeMap if that
+     * memento has its containment stored here and fewer than checkpointInterval deltas lead to it, and in full
+     * otherwise.
+     *
+     * @param memento the memento node, with its datetime set
+     * @param triples the containment triples of the resource
+     * @param idTranslator the translator the triples were produced with
+     * @param checkpointInterval the number of mementos from one checkpoint to the next
+     * @throws RepositoryException if the triples could not be stored
+     */
+    public static void write(final Node memento, final Stream<Triple> triples,
+            final IdentifierConverter<Resource, FedoraResource> idTranslator, final int checkpointInterval)
+            throws RepositoryException {
+        final IdentifierConverter<Resource, FedoraResource> internalTranslator =
+                new InternalIdentifierTranslator(memento.getSession());
+        final Graph containment = createDefaultGraph();
+        triples.map(t -> translate(t, idTranslator, internalTranslator)).forEach(containment::add);
+
+        final Node base = getPreviousMemento(memento);
+        final long depth = base == null ? 0 : base.getProperty(MEMENTO_CONTAINS_DEPTH).getLong() + 1;
+        if (base == null || depth >= checkpointInterval) {
+            writeCheckpoint(memento, containment);
+            return;
+        }
+        // the base graph is consumed by the differencer, leaving the triples removed since it
+        final GraphDifferencer differencer = new GraphDifferencer(readGraph(base), stream(containment));
+        final Graph added = createDefaultGraph();
+        differencer.difference().forEach(added::add);
+        final Graph removed = createDefaultGraph();
+        differencer.notCommon().forEach(removed::add);
+
+        memento.setProperty(MEMENTO_CONTAINS, toBinary(memento, added));
+        memento.setProperty(MEMENTO_CONTAINS_REMOVED, toBinary(memento, removed));
+        memento.setProperty(MEMENTO_CONTAINS_BASE, base.getName());
+        memento.setProperty(MEMENTO_CONTAINS_DEPTH, depth);
+    }
+
+    private static void writeCheckpoint(final Node memento, final Graph containment) throws RepositoryException {
+        memento.setProperty(MEMENTO_CONTAINS, toBinary(memento, containment));
+        memento.setProperty(MEMENTO_CONTAINS_DEPTH, 0L);
+        if (memento.hasProperty(MEMENTO_CONTAINS_REMOVED)) {
+            memento.getProperty(MEMENTO_CONTAINS_REMOVED).remove();
+        }
+        if (memento.hasProperty(MEMENTO_CONTAINS_BASE)) {
+            memento.getProperty(MEMENTO_CONTAINS_BASE).remove();
+        }
+    }
+
+    /*
+     * The memento immediately before a memento in its TimeMap, if its containment is stored here.
+     */
+    private static Node getPreviousMemento(final Node memento) throws RepositoryException {
+        final Node timeMap = memento.getParent();
+        final MementoIndex index = MementoIndex.of(timeMap);
+        final Instant datetime = memento.getProperty(MEMENTO_DATETIME).getDate().toInstant();
+        final int position = index.ceiling(datetime);
+        if (position == 0) {
+            return null;
+        }
+        final Node previous = index.getMemento(timeMap, position - 1);
+        return previous != null && isStored(previous) ? previous : null;
+    }
+
+    /**
+     * Check if the containment of a memento is stored here
+     *
+     * @param memento the memento node
+     * @return whether the containment of the memento is stored here
+     * @throws RepositoryException if the node could not be read
+     */
+    public static boolean isStored(final Node memento) throws RepositoryException {
+        return memento.hasProperty(MEMENTO_CONTAINS);
+    }
+
+    /**
+     * Check if a memento is a checkpoint, holding all of its containment triples
+     *
+     * @param memento the memento node
+     * @return whether the memento is a checkpoint
+     * @throws RepositoryException if the node could not be read
+     */
+    public static boolean isCheckpoint(final Node memento) throws RepositoryException {
+        return isStored(memento) && !memento.hasProperty(MEMENTO_CONTAINS_BASE);
+    }
+
+    /**
+     * Read the containment triples of a memento
+     *
+     * @param memento the memento node
+     * @param idTranslator the translator to produce the triples with
+     * @return the triples
+     * @throws RepositoryException if the triples could not be read
+     */
+    public static Stream<Triple> getTriples(final Node memento,
+            final IdentifierConverter<Resource, FedoraResource> idTranslator) throws RepositoryException {
+        final IdentifierConverter<Resource, FedoraResource> internalTranslator =
+                new InternalIdentifierTranslator(memento.getSession());
+        return stream(readGraph(memento)).map(t -> translate(t, internalTranslator, idTranslator));
+    }
+
+    /*
+     * Read the containment of a memento by reading its checkpoint and applying the deltas from there to it.
+     */
+    private static Graph readGraph(final Node memento) throws RepositoryException {
+        final Deque<Node> deltas = new ArrayDeque<>();
+        Node current = memento;
+        while (current.hasProperty(MEMENTO_CONTAINS_BASE)) {
+            deltas.push(current);
+            current = current.getParent().getNode(current.getProperty(MEMENTO_CONTAINS_BASE).getString());
+        }
+        final Graph containment = fromBinary(current.getProperty(MEMENTO_CONTAINS).getBinary());
+        while (!deltas.isEmpty()) {
+            final Node delta = deltas.pop();
+            stream(fromBinary(delta.getProperty(MEMENTO_CONTAINS_REMOVED).getBinary())).forEach(containment::delete);
+            stream(fromBinary(delta.getProperty(MEMENTO_CONTAINS).getBinary())).forEach(containment::add);
+        }
+        return containment;
+    }
+
+    /**
+     * Prepare a memento for deletion by rewriting the mementos based on it as checkpoints
+     *
+     * @param memento the memento node
+     * @return the number of mementos rewritten
+     * @throws RepositoryException if the mementos could not be read or written
+     */
+    public static int release(final Node memento) throws RepositoryException {
+        int rewritten = 0;
+        for (final NodeIterator siblings = memento.getParent().getNodes(); siblings.hasNext(); ) {
+            final Node sibling = siblings.nextNode();
+            if (sibling.hasProperty(MEMENTO_CONTAINS_BASE) &&
+                    sibling.getProperty(MEMENTO_CONTAINS_BASE).getString().equals(memento.getName())) {
+                writeCheckpoint(sibling, readGraph(sibling));
+                rewritten++;
+            }
+        }
+        return rewritten;
+    }
+
+    private static Triple translate(final Triple t, final IdentifierConverter<Resource, FedoraResource> from,
+            final IdentifierConverter<Resource, FedoraResource> to) {
+        return new Triple(translate(t.getSubject(), from, to), t.getPredicate(), translate(t.getObject(), from, to));
+    }
+
+    private static org.apache.jena.graph.Node translate(final org.apache.jena.graph.Node node,
+            final IdentifierConverter<Resource, FedoraResource> from,
+            final IdentifierConverter<Resource, FedoraResource> to) {
+        if (node.isURI()) {
+            final Resource resource = createResource(node.getURI());
+            if (from.inDomain(resource)) {
+                return to.toDomain(from.asString(resource)).asNode();
+            }
+        }
+        return node;
+    }
+
+    private static Stream<Triple> stream(final Graph graph) {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(graph.find(ANY, ANY, ANY),
+                Spliterator.IMMUTABLE), false);
+    }
+
+    private static Binary toBinary(final Node memento, final Graph graph) throws RepositoryException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        RDFDataMgr.write(out, graph, NTRIPLES);
+        return memento.getSession().getValueFactory().createBinary(new ByteArrayInputStream(out.toByteArray()));
+    }
+
+    private static Graph fromBinary(final Binary binary) throws RepositoryException {
+        final Graph graph = createDefaultGraph();
+        try (final InputStream in = binary.getStream()) {
+            RDFDataMgr.read(graph, in, NTRIPLES);
+        } catch (final IOException e) {
+            throw new RepositoryRuntimeException(e);
+        } finally {
+            binary.dispose();
+        }
+        return graph;
+    }
+}
@@ -0,0 +1,348 @@
+/*
+ * Licensed to DuraSpace under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * DuraSpace licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.kernel.modeshape;
+
+import static java.time.ZoneOffset.UTC;
+import static org.fcrepo.kernel.api.FedoraTypes.MEMENTO_DATETIME;
+import static org.fcrepo.kernel.api.services.VersionService.MEMENTO_LABEL_FORMATTER;
+import static org.slf4j.LoggerFactory.getLogger;
+
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+
+import javax.jcr.Node;
+import javax.jcr.NodeIterator;
+import javax.jcr.PathNotFoundException;
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+import javax.jcr.Value;
+import javax.jcr.ValueFactory;
+
+import org.slf4j.Logger;
+
+/**
+ * The datetimes of the mementos of a TimeMap, kept in ascending order in properties of the TimeMap node so that a
+ * memento can be found by datetime with a binary search rather than by visiting every memento.
+ *
+ * <p>Datetimes are held in milliseconds since the epoch, in one property per calendar month named by
+ * {@link #MEMENTO_INDEX} and the month, so that adding or removing a memento rewrites only the datetimes of its
+ * month; {@link #MEMENTO_INDEX} itself lists the months that have mementos.  A memento is named by its datetime to
+ * the second, so the name of the memento for an entry is derived from the entry and the memento is then fetched
+ * directly. A TimeMap found without an index, such as one created before the index existed, is indexed when a
+ * memento is added to it or, through an internal session, when it is first read.</p>
+ *
+ * @author rdfloyd
+ */
+public final class MementoIndex {
+
+    private static final Logger LOGGER = getLogger(MementoIndex.class);
+
+    /**
+     * The name of the property of a TimeMap listing the months of its mementos, and the prefix of the names of the
+     * properties holding the datetimes of each month
+     */
+    public static final String MEMENTO_INDEX = "fedora:mementoIndex";
+
+    private final long[] datetimes;
+
+    private MementoIndex(final long[] datetimes) {
+        this.datetimes = datetimes;
+    }
+
+    /**
+     * Read the index of a TimeMap, indexing the TimeMap if it has no index
+     *
+     * @param timeMap the TimeMap node
+     * @return the index
+     * @throws RepositoryException if the index or the mementos could not be read
+     */
+    public static MementoIndex of(final Node timeMap) throws RepositoryException {
+        if (isIndexed(timeMap)) {
+            final long[] months = read(timeMap, MEMENTO_INDEX);
+            long[] datetimes = new long[0];
+            for (final long month : months) {
+                final long[] entries = read(timeMap, monthProperty(month));
+                final int size = datetimes.length;
+                datetimes = Arrays.copyOf(datetimes, size + entries.length);
+                System.arraycopy(entries, 0, datetimes, size, entries.length);
+            }
+            return new MementoIndex(datetimes);
+        }
+        final long[] datetimes = scan(timeMap);
+        if (!timeMap.isNew()) {
+            index(timeMap);
+        }
+        return new MementoIndex(datetimes);
+    }
+
+    private static long[] scan(final Node timeMap) throws RepositoryException {
+        long[] datetimes = new long[16];
+        int size = 0;
+        for (final NodeIterator mementos = timeMap.getNodes(); mementos.hasNext(); ) {
+            final Node memento = mementos.nextNode();
+            if (memento.hasProperty(MEMENTO_DATETIME)) {
+                if (size == datetimes.length) {
+                    datetimes = Arrays.copyOf(datetimes, size * 2);
+                }
+                datetimes[size++] = memento.getProperty(MEMENTO_DATETIME).getDate().getTimeInMillis();
+            }
+        }
+        final long[] sorted = Arrays.copyOf(datetimes, size);
+        Arrays.sort(sorted);
+        return sorted;
+    }
+
+    /**
+     * Index a TimeMap through an internal session, so that a lookup neither leaves changes in nor saves the
+     * session that made it.  Failure is only logged, as the TimeMap will be indexed by a later lookup.
+     */
+    private static void index(final Node timeMap) {
+        try {
+            final Session internal = timeMap.getSession().getRepository().login();
+            try {
+                final Node node = internal.getNodeByIdentifier(timeMap.getIdentifier());
+                if (!isIndexed(node)) {
+                    LOGGER.debug("Indexing the mementos of {}", node.getPath());
+                    rebuild(node);
+                    internal.save();
+                }
+            } finally {
+                internal.logout();
+            }
+        } catch (final RepositoryException e) {
+            LOGGER.warn("Unable to index the mementos of a TimeMap: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Create an empty index for a new TimeMap
+     *
+     * @param timeMap the TimeMap node
+     * @throws RepositoryException if the index could not be written
+     */
+    public static void create(final Node timeMap) throws RepositoryException {
+        write(timeMap, MEMENTO_INDEX, new long[0]);
+    }
+
+    /**
+     * Add the datetime of a new memento to the index of its TimeMap, indexing the TimeMap if it has no index
+     *
+     * @param timeMap the TimeMap node
+     * @param datetime the datetime of the memento
+     * @throws RepositoryException if the index could not be written
+     */
+    public static void add(final Node timeMap, final Instant datetime) throws RepositoryException {
+        if (!isIndexed(timeMap)) {
+            rebuild(timeMap);
+            return;
+        }
+        final long millis = datetime.toEpochMilli();
+        final long month = month(millis);
+        final String property = monthProperty(month);
+        final long[] entries = timeMap.hasProperty(property) ? read(timeMap, property) : new long[0];
+        final long[] updated = insert(entries, millis);
+        if (updated == entries) {
+            return;
+        }
+        if (entries.length == 0) {
+            write(timeMap, MEMENTO_INDEX, insert(read(timeMap, MEMENTO_INDEX), month));
+        }
+        write(timeMap, property, updated);
+    }
+
+    /**
+     * Remove the datetime of a deleted memento from the index of its TimeMap
+     *
+     * @param timeMap the TimeMap node
+     * @param datetime the datetime of the memento
+     * @throws RepositoryException if the index could not be written
+     */
+    public static void remove(final Node timeMap, final Instant datetime) throws RepositoryException {
+        final long millis = datetime.toEpochMilli();
+        final long month = month(millis);
+        final String property = monthProperty(month);
+        if (!isIndexed(timeMap) || !timeMap.hasProperty(property)) {
+            return;
+        }
+        final long[] entries = read(timeMap, property);
+        final long[] updated = delete(entries, millis);
+        if (updated == entries) {
+            return;
+        }
+        if (updated.length == 0) {
+            timeMap.getProperty(property).remove();
+            write(timeMap, MEMENTO_INDEX, delete(read(timeMap, MEMENTO_INDEX), month));
+        } else {
+            write(timeMap, property, updated);
+        }
+    }
+
+    /**
+     * Rebuild the index of a TimeMap from its mementos
+     *
+     * @param timeMap the TimeMap node
+     * @return the number of mementos indexed
+     * @throws RepositoryException if the mementos could not be read or the index written
+     */
+    public static int rebuild(final Node timeMap) throws RepositoryException {
+        if (isIndexed(timeMap)) {
+            for (final long month : read(timeMap, MEMENTO_INDEX)) {
+                if (timeMap.hasProperty(monthProperty(month))) {
+                    timeMap.getProperty(monthProperty(month)).remove();
+                }
+            }
+        }
+        final long[] datetimes = scan(timeMap);
+        long[] months = new long[0];
+        for (int start = 0, end; start < datetimes.length; start = end) {
+            final long month = month(datetimes[start]);
+            end = start + 1;
+            while (end < datetimes.length && month(datetimes[end]) == month) {
+                end++;
+            }
+            write(timeMap, monthProperty(month), Arrays.copyOfRange(datetimes, start, end));
+            months = Arrays.copyOf(months, months.length + 1);
+            months[months.length - 1] = month;
+        }
+        write(timeMap, MEMENTO_INDEX, months);
+        return datetimes.length;
+    }
+
+    private static long month(final long millis) {
+        final ZonedDateTime datetime = Instant.ofEpochMilli(millis).atZone(UTC);
+        return datetime.getYear() * 100L + datetime.getMonthValue();
+    }
+
+    private static String monthProperty(final long month) {
+        return MEMENTO_INDEX + "." + month;
+    }
+
+    private static long[] insert(final long[] values, final long value) {
+        final int position = Arrays.binarySearch(values, value);
+        if (position >= 0) {
+            return values;
+        }
+        final int insertion = -position - 1;
+        final long[] updated = new long[values.length + 1];
+        System.arraycopy(values, 0, updated, 0, insertion);
+        updated[insertion] = value;
+        System.arraycopy(values, insertion, updated, insertion + 1, values.length - insertion);
+        return updated;
+    }
+
+    private static long[] delete(final long[] values, final long value) {
+        final int position = Arrays.binarySearch(values, value);
+        if (position < 0) {
+            return values;
+        }
+        final long[] updated = new long[values.length - 1];
+        System.arraycopy(values, 0, updated, 0, position);
+        System.arraycopy(values, position + 1, updated, position, updated.length - position);
+        return updated;
+    }
+
+    private static long[] read(final Node timeMap, final String property) throws RepositoryException {
+        final Value[] values = timeMap.getProperty(property).getValues();
+        final long[] longs = new long[values.length];
+        for (int i = 0; i < values.length; i++) {
+            longs[i] = values[i].getLong();
+        }
+        return longs;
+    }
+
+    private static void write(final Node timeMap, final String property, final long[] longs)
+            throws RepositoryException {
+        final ValueFactory factory = timeMap.getSession().getValueFactory();
+        final Value[] values = new Value[longs.length];
+        for (int i = 0; i < longs.length; i++) {
+            values[i] = factory.createValue(longs[i]);
+        }
+        timeMap.setProperty(property, values);
+    }
+
+    /**
+     * @return the number of mementos
+     */
+    public int size() {
+        return datetimes.length;
+    }
+
+    /**
+     * @param position the position of a memento in order of datetime
+     * @return the datetime of the memento
+     */
+    public Instant get(final int position) {
+        return Instant.ofEpochMilli(datetimes[position]);
+    }
+
+    /**
+     * Find the memento nearest to and not after a datetime, comparing datetimes to the second as mementos are
+     * named.  If every memento is later than the datetime, the first memento is chosen.
+     *
+     * @param datetime the datetime
+     * @return the position of the memento, or -1 if there are no mementos
+     */
+    public int nearest(final Instant datetime) {
+        if (datetimes.length == 0) {
+            return -1;
+        }
+        final int after = firstAtOrAfter((datetime.getEpochSecond() + 1) * 1000);
+        return after == 0 ? 0 : after - 1;
+    }
+
+    /**
+     * @param datetime a datetime
+     * @return the position of the first memento at or after the datetime; the size of the index if there is none
+     */
+    public int ceiling(final Instant datetime) {
+        return firstAtOrAfter(datetime.toEpochMilli());
+    }
+
+    private int firstAtOrAfter(final long millis) {
+        final int position = Arrays.binarySearch(datetimes, millis);
+        return position >= 0 ? position : -position - 1;
+    }
+
+    /**
+     * Fetch the memento at a position in the index
+     *
+     * @param timeMap the TimeMap node
+     * @param position the position of the memento
+     * @return the memento node, or null if the index names a memento that does not exist
+     * @throws RepositoryException if the memento could not be read
+     */
+    public Node getMemento(final Node timeMap, final int position) throws RepositoryException {
+        try {
+            return timeMap.getNode(MEMENTO_LABEL_FORMATTER.format(get(position)));
+        } catch (final PathNotFoundException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Check if the node has an index of its mementos
+     *
+     * @param timeMap the TimeMap node
+     * @return whether the TimeMap is indexed
+     * @throws RepositoryException if the node could not be read
+     */
+    public static boolean isIndexed(final Node timeMap) throws RepositoryException {
+        return timeMap.hasProperty(MEMENTO_INDEX);
+    }
+}
@@ -120,12 +120,14 @@ public class NonRdfSourceDescriptionImpl extends FedoraResourceImpl implements N
     }
 
     /**
-     * Overrides the superclass to propagate updates to certain properties to the binary if explicitly set.
+     * Overrides the superclass to propagate updates to certain properties to the binary if explicitly set, and to
+     * update the membership index entry of the binary, which is taken from its description.
      */
     @Override
     public void touch(final boolean includeMembershipResource, final Calendar createdDate, final String createdUser,
                       final Calendar modifiedDate, final String modifyingUser) throws RepositoryException {
         super.touch(includeMembershipResource, createdDate, createdUser, modifiedDate, modifyingUser);
+        MembershipIndex.update(getNode());
         if (createdDate != null || createdUser != null || modifiedDate != null || modifyingUser != null) {
             ((FedoraBinaryImpl) getDescribedResource()).touch(false, createdDate, createdUser,
                     modifiedDate, modifyingUser);
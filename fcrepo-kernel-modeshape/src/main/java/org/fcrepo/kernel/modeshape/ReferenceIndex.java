@@ -0,0 +1,464 @@
+/*
+ * Licensed to DuraSpace under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * DuraSpace licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.kernel.modeshape;
+
+import static java.util.Collections.synchronizedMap;
+import static org.modeshape.jcr.api.JcrConstants.NT_FOLDER;
+import static org.slf4j.LoggerFactory.getLogger;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.function.Consumer;
+
+import javax.jcr.InvalidItemStateException;
+import javax.jcr.ItemExistsException;
+import javax.jcr.ItemNotFoundException;
+import javax.jcr.Node;
+import javax.jcr.NodeIterator;
+import javax.jcr.Property;
+import javax.jcr.PropertyIterator;
+import javax.jcr.Repository;
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+
+import org.slf4j.Logger;
+
+/**
+ * An index of the resources that are, or have been, the target of a reference, so that deleting a resource need not
+ * visit every resource below it to find the ones whose inbound references must be removed.  ModeShape already
+ * tracks the properties that refer to each node; what it cannot answer cheaply is which nodes of a subtree are
+ * referred to at all.
+ *
+ * <p>The index mirrors the paths of the targets under a node at the root of the repository, so the targets at or
+ * below a resource are found under a single index node, and an index entry is marked as such with a mixin. A
+ * repository that already holds resources when it is first started with this index has none until
+ * {@link #rebuild(Session)} is run, and deletes search every removed resource for inbound references until then.</p>
+ *
+ * <p>The index is shared by every session, so it is never written in the session of a user. Entries are written in
+ * a session of their own, saved at once, one writer at a time, and retried if another writer got there first. An
+ * entry is written before the reference it stands for is saved, and written again once that reference has been
+ * committed. An entry whose target has been removed, or has lost the last reference to it, is pruned once the
+ * session that removed it has been committed; until then, an entry only means there may be references to
+ * visit.</p>
+ *
+ * @author rdfloyd
+ */
+public final class ReferenceIndex {
+
+    private static final Logger LOGGER = getLogger(ReferenceIndex.class);
+
+    /**
+     * The name of the index node, a child of the root of the repository
+     */
+    public static final String REFERENCE_INDEX = "fedora:referenceIndex";
+
+    private static final String REFERENCE_INDEX_TYPE = "fedora:ReferenceIndex";
+
+    private static final String REFERENCE_TARGET_TYPE = "fedora:ReferenceTarget";
+
+    private static final String JCR_SYSTEM = "jcr:system";
+
+    private static final int MAX_ATTEMPTS = 3;
+
+    private static final Object WRITE_LOCK = new Object();
+
+    // the changes to the index that wait on the commit of each session
+    private static final Map<Session, Pending> PENDING = synchronizedMap(new WeakHashMap<>());
+
+    static {
+        SessionPool.addDiscardListener(ReferenceIndex::discarded);
+    }
+
+    private ReferenceIndex() {
+        // static utilities
+    }
+
+    /**
+     * Check if the node is the index node
+     *
+     * @param node the node
+     * @return whether the node is the reference index
+     * @throws RepositoryException if the node types could not be read
+     */
+    public static boolean hasMixin(final Node node) throws RepositoryException {
+        return node.isNodeType(REFERENCE_INDEX_TYPE);
+    }
+
+    /**
+     * Check if the repository has a reference index
+     *
+     * @param session the session
+     * @return whether the targets of references are indexed
+     * @throws RepositoryException if the root of the repository could not be read
+     */
+    public static boolean isEnabled(final Session session) throws RepositoryException {
+        return session.nodeExists(entryPath(""));
+    }
+
+    /**
+     * Create the index of a repository that holds no resources yet. A repository that already holds resources is
+     * left without one, to be built by {@link #rebuild(Session)}.
+     *
+     * @param session the session, which is saved if the index is created
+     * @throws RepositoryException if the index could not be created
+     */
+    public static void initialize(final Session session) throws RepositoryException {
+        if (isEnabled(session)) {
+            return;
+        }
+        final Node root = session.getRootNode();
+        for (final NodeIterator children = root.getNodes(); children.hasNext(); ) {
+            if (!children.nextNode().getName().equals(JCR_SYSTEM)) {
+                LOGGER.warn("The repository has no reference index; deleting a resource will search every resource" +
+                        " below it for inbound references until the index is rebuilt");
+                return;
+            }
+        }
+        createIndex(root);
+        session.save();
+    }
+
+    /**
+     * Add the target of a new reference to the index, if the repository has one
+     *
+     * @param target the target
+     * @throws RepositoryException if the index could not be updated
+     */
+    public static void add(final Node target) throws RepositoryException {
+        final Session session = target.getSession();
+        if (target.getDepth() == 0 || !isEnabled(session)) {
+            return;
+        }
+        pending(session).added.add(target.getIdentifier());
+        final String path = target.getPath();
+        if (!isTarget(session, path)) {
+            update(session.getRepository(), internal -> markTarget(internal, path));
+        }
+    }
+
+    /**
+     * Note that a reference to a target has been removed, so that its entry may be pruned if no reference to it is
+     * left once the session has been committed
+     *
+     * @param session the session
+     * @param identifier the identifier of the target
+     * @throws RepositoryException if the repository could not be read
+     */
+    public static void release(final Session session, final String identifier) throws RepositoryException {
+        if (isEnabled(session)) {
+            pending(session).released.add(identifier);
+        }
+    }
+
+    /**
+     * Visit the indexed targets at or below a node
+     *
+     * @param node the node
+     * @param action the action to take on each target
+     * @throws RepositoryException if the index could not be read
+     */
+    public static void forEachTarget(final Node node, final Consumer<Node> action) throws RepositoryException {
+        final Session session = node.getSession();
+        final String path = entryPath(node.getPath());
+        if (session.nodeExists(path)) {
+            forEachTarget(session, session.getNode(path), action);
+        }
+    }
+
+    /**
+     * Note that a node is about to be removed, so that the entries at or below it are pruned once the session has
+     * been committed
+     *
+     * @param node the node
+     * @throws RepositoryException if the node could not be read
+     */
+    public static void remove(final Node node) throws RepositoryException {
+        final Session session = node.getSession();
+        if (node.getDepth() > 0 && isEnabled(session)) {
+            pending(session).removed.add(node.getPath());
+        }
+    }
+
+    /**
+     * Apply the changes to the index that waited on the commit of a session.  The session has been saved, so a
+     * failure is logged rather than thrown; it leaves the index with entries to spare, or without an entry for a
+     * target written by the session, which deletes look for anyway.
+     *
+     * @param session the session
+     */
+    public static void committed(final Session session) {
+        final Pending pending = PENDING.remove(session);
+        if (pending == null) {
+            return;
+        }
+        try {
+            update(session.getRepository(), internal -> pending.apply(internal));
+        } catch (final RepositoryException e) {
+            LOGGER.warn("Unable to update the reference index after a commit: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Drop the changes to the index that waited on the commit of a session whose changes have been discarded
+     *
+     * @param session the session
+     */
+    public static void discarded(final Session session) {
+        PENDING.remove(session);
+    }
+
+    /**
+     * Move the entries at or below a node that has been moved
+     *
+     * @param session the session
+     * @param source the former path of the node
+     * @param destination the path of the node
+     * @throws RepositoryException if the index could not be updated
+     */
+    public static void move(final Session session, final String source, final String destination)
+            throws RepositoryException {
+        final String sourcePath = entryPath(source);
+        if (!isEnabled(session) || !session.nodeExists(sourcePath)) {
+            return;
+        }
+        // the resources were moved in the workspace, so their entries are moved at once, too
+        final String destinationPath = entryPath(destination);
+        update(session.getRepository(), internal -> {
+            if (!internal.nodeExists(sourcePath)) {
+                return;
+            }
+            if (internal.nodeExists(destinationPath)) {
+                internal.getNode(destinationPath).remove();
+            }
+            findOrCreateEntry(internal, destination.substring(0, destination.lastIndexOf('/')));
+            internal.move(sourcePath, destinationPath);
+        });
+    }
+
+    /**
+     * Replace the index with one built from the references held in the repository
+     *
+     * @param session the session, which the caller is expected to save
+     * @return the number of targets found
+     * @throws RepositoryException if the index could not be built
+     */
+    public static long rebuild(final Session session) throws RepositoryException {
+        final Node root = session.getRootNode();
+        if (root.hasNode(REFERENCE_INDEX)) {
+            root.getNode(REFERENCE_INDEX).remove();
+        }
+        createIndex(root);
+        long count = 0;
+        for (final NodeIterator children = root.getNodes(); children.hasNext(); ) {
+            final Node child = children.nextNode();
+            if (!child.getName().equals(JCR_SYSTEM) && !hasMixin(child) && !FixityAuditor.hasMixin(child)) {
+                count += index(child);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Add the targets of references at or below a node to the index, as they are after the node is copied
+     *
+     * @param node the node
+     * @return the number of targets found
+     * @throws RepositoryException if the index could not be updated
+     */
+    public static long addAll(final Node node) throws RepositoryException {
+        return isEnabled(node.getSession()) ? index(node) : 0;
+    }
+
+    private static long index(final Node node) throws RepositoryException {
+        long count = 0;
+        if (isReferenced(node)) {
+            add(node);
+            count++;
+        }
+        for (final NodeIterator children = node.getNodes(); children.hasNext(); ) {
+            final Node child = children.nextNode();
+            if (!MembershipIndex.hasMixin(child)) {
+                count += index(child);
+            }
+        }
+        return count;
+    }
+
+    private static boolean isReferenced(final Node node) throws RepositoryException {
+        if (node.getReferences().hasNext()) {
+            return true;
+        }
+        // the entries of membership indexes are removed with the resources they refer to
+        for (final PropertyIterator references = node.getWeakReferences(); references.hasNext(); ) {
+            final Property reference = references.nextProperty();
+            if (!MembershipIndex.isEntry(reference.getParent())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isTarget(final Session session, final String path) throws RepositoryException {
+        final String entryPath = entryPath(path);
+        return session.nodeExists(entryPath) && session.getNode(entryPath).isNodeType(REFERENCE_TARGET_TYPE);
+    }
+
+    private static void markTarget(final Session session, final String path) throws RepositoryException {
+        final Node entry = findOrCreateEntry(session, path);
+        if (!entry.isNodeType(REFERENCE_TARGET_TYPE)) {
+            entry.addMixin(REFERENCE_TARGET_TYPE);
+        }
+    }
+
+    /**
+     * Remove the mark of an entry, and then the entry and any entries above it if they are left empty
+     */
+    private static void unmark(final Node entry) throws RepositoryException {
+        if (entry.isNodeType(REFERENCE_TARGET_TYPE)) {
+            entry.removeMixin(REFERENCE_TARGET_TYPE);
+        }
+        removeEmpty(entry);
+    }
+
+    private static void removeEmpty(final Node entry) throws RepositoryException {
+        Node empty = entry;
+        while (!hasMixin(empty) && !empty.hasNodes() && !empty.isNodeType(REFERENCE_TARGET_TYPE)) {
+            final Node parent = empty.getParent();
+            empty.remove();
+            empty = parent;
+        }
+    }
+
+    private static Pending pending(final Session session) {
+        return PENDING.computeIfAbsent(session, s -> new Pending());
+    }
+
+    /**
+     * A change to the index, made in a session of its own
+     */
+    @FunctionalInterface
+    private interface Update {
+
+        void apply(Session internal) throws RepositoryException;
+    }
+
+    private static void update(final Repository repository, final Update update) throws RepositoryException {
+        synchronized (WRITE_LOCK) {
+            final Session internal = repository.login();
+            try {
+                for (int attempt = 1; ; attempt++) {
+                    try {
+                        update.apply(internal);
+                        internal.save();
+                        return;
+                    } catch (final InvalidItemStateException | ItemExistsException e) {
+                        // another writer, in another process, changed the same entries
+                        if (attempt >= MAX_ATTEMPTS) {
+                            throw e;
+                        }
+                        LOGGER.debug("Retrying an update of the reference index: {}", e.getMessage());
+                        internal.refresh(false);
+                    }
+                }
+            } finally {
+                internal.logout();
+            }
+        }
+    }
+
+    /**
+     * The changes to the index that wait on the commit of a session
+     */
+    private static final class Pending {
+
+        // the identifiers of the targets of references written
+        private final Set<String> added = new HashSet<>();
+
+        // the identifiers of the targets of references removed
+        private final Set<String> released = new HashSet<>();
+
+        // the paths of removed resources
+        private final Set<String> removed = new HashSet<>();
+
+        private void apply(final Session internal) throws RepositoryException {
+            for (final String identifier : added) {
+                final Node target = findByIdentifier(internal, identifier);
+                if (target != null && isReferenced(target)) {
+                    markTarget(internal, target.getPath());
+                }
+            }
+            for (final String identifier : released) {
+                final Node target = findByIdentifier(internal, identifier);
+                if (target != null && !isReferenced(target) && isTarget(internal, target.getPath())) {
+                    unmark(internal.getNode(entryPath(target.getPath())));
+                }
+            }
+            for (final String path : removed) {
+                final String entryPath = entryPath(path);
+                if (!internal.nodeExists(path) && internal.nodeExists(entryPath)) {
+                    final Node entry = internal.getNode(entryPath);
+                    final Node parent = entry.getParent();
+                    entry.remove();
+                    removeEmpty(parent);
+                }
+            }
+        }
+
+        private static Node findByIdentifier(final Session session, final String identifier)
+                throws RepositoryException {
+            try {
+                return session.getNodeByIdentifier(identifier);
+            } catch (final ItemNotFoundException e) {
+                return null;
+            }
+        }
+    }
+
+    private static void forEachTarget(final Session session, final Node entry, final Consumer<Node> action)
+            throws RepositoryException {
+        if (entry.isNodeType(REFERENCE_TARGET_TYPE)) {
+            final String path = entry.getPath().substring(REFERENCE_INDEX.length() + 1);
+            if (session.nodeExists(path)) {
+                action.accept(session.getNode(path));
+            }
+        }
+        for (final NodeIterator children = entry.getNodes(); children.hasNext(); ) {
+            forEachTarget(session, children.nextNode(), action);
+        }
+    }
+
+    private static Node findOrCreateEntry(final Session session, final String path) throws RepositoryException {
+        Node entry = session.getRootNode().getNode(REFERENCE_INDEX);
+        for (final String name : path.split("/")) {
+            if (!name.isEmpty()) {
+                entry = entry.hasNode(name) ? entry.getNode(name) : entry.addNode(name, NT_FOLDER);
+            }
+        }
+        return entry;
+    }
+
+    private static void createIndex(final Node root) throws RepositoryException {
+        root.addNode(REFERENCE_INDEX, NT_FOLDER).addMixin(REFERENCE_INDEX_TYPE);
+    }
+
+    private static String entryPath(final String path) {
+        return "/" + REFERENCE_INDEX + path;
+    }
+}
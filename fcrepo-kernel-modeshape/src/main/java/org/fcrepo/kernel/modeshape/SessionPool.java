@@ -0,0 +1,277 @@
+/*
+ * Licensed to DuraSpace under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * DuraSpace licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.kernel.modeshape;
+
+import static java.lang.System.currentTimeMillis;
+import static org.fcrepo.kernel.modeshape.FedoraSessionImpl.getJcrSession;
+import static org.slf4j.LoggerFactory.getLogger;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+
+import org.fcrepo.kernel.api.FedoraRepository;
+import org.fcrepo.kernel.api.FedoraSession;
+import org.slf4j.Logger;
+
+/**
+ * A pool of sessions for reading.  A session is leased for the duration of a lookup and returned by closing the
+ * lease; a session returned with unsaved changes is logged out rather than pooled, and an idle session is refreshed
+ * when it is leased again, so the pool only ever hands out clean, current sessions.  Whatever a returned session
+ * leaves unsaved is discarded, and the registered discard listeners are told of it.  A lease held for longer than
+ * the leak threshold is reported once, with the stack of the code that took it if debug logging is enabled.
+ *
+ * @author rdfloyd
+ */
+public class SessionPool {
+
+    private static final Logger LOGGER = getLogger(SessionPool.class);
+
+    private static final List<Consumer<Session>> DISCARD_LISTENERS = new CopyOnWriteArrayList<>();
+
+    private final FedoraRepository repository;
+
+    private final int maxIdle;
+
+    private final long leakThreshold;
+
+    private final BlockingDeque<FedoraSession> idle = new LinkedBlockingDeque<>();
+
+    private final Set<Lease> active = ConcurrentHashMap.newKeySet();
+
+    private final LongAdder logins = new LongAdder();
+
+    private final LongAdder leases = new LongAdder();
+
+    private final LongAdder leaks = new LongAdder();
+
+    private volatile boolean closed;
+
+    /**
+     * @param repository the repository to log in to
+     * @param maxIdle the maximum number of sessions kept for reuse
+     * @param leakThreshold how long in milliseconds a session may be leased before it is reported as leaked
+     */
+    public SessionPool(final FedoraRepository repository, final int maxIdle, final long leakThreshold) {
+        this.repository = repository;
+        this.maxIdle = maxIdle;
+        this.leakThreshold = leakThreshold;
+    }
+
+    /**
+     * Register a listener to be told of each pooled session whose unsaved state is discarded when it is returned,
+     * so that whatever is kept for that session elsewhere can be dropped as well.
+     *
+     * @param listener the listener
+     */
+    public static void addDiscardListener(final Consumer<Session> listener) {
+        DISCARD_LISTENERS.add(listener);
+    }
+
+    /**
+     * @param listener a listener registered by {@link #addDiscardListener(Consumer)}
+     */
+    public static void removeDiscardListener(final Consumer<Session> listener) {
+        DISCARD_LISTENERS.remove(listener);
+    }
+
+    /**
+     * Lease a session, logging in only if no idle session is available.  An idle session is refreshed before it is
+     * handed out, so it sees the changes saved since it was last used.  The lease must be closed.
+     *
+     * @return the lease
+     */
+    public Lease lease() {
+        checkLeaks();
+        FedoraSession session;
+        while ((session = idle.pollFirst()) != null && !checkOut(session)) {
+            logout(session);
+        }
+        if (session == null) {
+            session = repository.login();
+            logins.increment();
+        }
+        final Lease lease = new Lease(this, session);
+        active.add(lease);
+        leases.increment();
+        return lease;
+    }
+
+    private static boolean checkOut(final FedoraSession session) {
+        final Session jcrSession = getJcrSession(session);
+        try {
+            if (jcrSession.isLive()) {
+                jcrSession.refresh(false);
+                return true;
+            }
+        } catch (final RepositoryException e) {
+            LOGGER.debug("Unable to refresh a pooled session: {}", e.getMessage());
+        }
+        return false;
+    }
+
+    private void release(final Lease lease) {
+        active.remove(lease);
+        final FedoraSession session = lease.session;
+        final Session jcrSession = getJcrSession(session);
+        DISCARD_LISTENERS.forEach(listener -> listener.accept(jcrSession));
+        try {
+            if (!closed && jcrSession.isLive()) {
+                if (jcrSession.hasPendingChanges()) {
+                    LOGGER.warn("A pooled session was returned with unsaved changes; discarding it");
+                } else if (idle.size() < maxIdle) {
+                    idle.offerFirst(session);
+                    return;
+                }
+            }
+        } catch (final RepositoryException e) {
+            LOGGER.debug("Unable to return a session to the pool: {}", e.getMessage());
+        }
+        logout(session);
+    }
+
+    private static void logout(final FedoraSession session) {
+        final Session jcrSession = getJcrSession(session);
+        if (jcrSession.isLive()) {
+            jcrSession.logout();
+        }
+    }
+
+    private void checkLeaks() {
+        if (active.isEmpty()) {
+            return;
+        }
+        final long now = currentTimeMillis();
+        for (final Lease lease : active) {
+            if (now - lease.leased > leakThreshold && !lease.reported) {
+                lease.reported = true;
+                leaks.increment();
+                LOGGER.warn("A pooled session leased by thread {} has not been returned after {} ms", lease.thread,
+                        now - lease.leased);
+                if (lease.origin != null) {
+                    LOGGER.debug("The leaked session was leased at:", lease.origin);
+                }
+            }
+        }
+    }
+
+    /**
+     * Log out of the idle sessions and stop pooling sessions.  Sessions still leased are logged out when they are
+     * returned.
+     */
+    public void close() {
+        closed = true;
+        FedoraSession session;
+        while ((session = idle.pollFirst()) != null) {
+            logout(session);
+        }
+        LOGGER.debug("Closed session pool; {}", this);
+    }
+
+    /**
+     * @return the number of times the pool has logged in to the repository
+     */
+    public long getLoginCount() {
+        return logins.sum();
+    }
+
+    /**
+     * @return the number of sessions leased
+     */
+    public long getLeaseCount() {
+        return leases.sum();
+    }
+
+    /**
+     * @return the number of sessions currently leased
+     */
+    public int getActiveCount() {
+        return active.size();
+    }
+
+    /**
+     * @return the number of sessions waiting to be leased
+     */
+    public int getIdleCount() {
+        return idle.size();
+    }
+
+    /**
+     * @return the number of leases reported as leaked
+     */
+    public long getLeakCount() {
+        return leaks.sum();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("logins: %d, leases: %d, active: %d, idle: %d, leaked: %d", getLoginCount(),
+                getLeaseCount(), getActiveCount(), getIdleCount(), getLeakCount());
+    }
+
+    /**
+     * A session leased from a pool, returned to it on close
+     */
+    public static class Lease implements AutoCloseable {
+
+        private final SessionPool pool;
+
+        private final FedoraSession session;
+
+        private final long leased = currentTimeMillis();
+
+        private final String thread = Thread.currentThread().getName();
+
+        private final Throwable origin = LOGGER.isDebugEnabled() ? new Throwable("Session leased") : null;
+
+        private final AtomicBoolean returned = new AtomicBoolean();
+
+        private volatile boolean reported;
+
+        private Lease(final SessionPool pool, final FedoraSession session) {
+            this.pool = pool;
+            this.session = session;
+        }
+
+        /**
+         * @return the leased session
+         */
+        public FedoraSession getSession() {
+            return session;
+        }
+
+        /**
+         * Return the session to the pool.  Closing a lease more than once has no further effect.
+         */
+        @Override
+        public void close() {
+            if (returned.compareAndSet(false, true)) {
+                pool.release(this);
+            }
+        }
+    }
+}
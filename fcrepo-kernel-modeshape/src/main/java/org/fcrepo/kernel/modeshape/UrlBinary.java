@@ -18,6 +18,7 @@
 package org.fcrepo.kernel.modeshape;
 
 //import static org.modeshape.jcr.api.JcrConstants.JCR_DATA;
+import static java.net.HttpURLConnection.HTTP_PARTIAL;
 import static org.slf4j.LoggerFactory.getLogger;
 import static org.fcrepo.kernel.api.FedoraExternalContent.PROXY;
 import static org.fcrepo.kernel.api.FedoraExternalContent.REDIRECT;
@@ -86,6 +87,34 @@ public class UrlBinary extends AbstractFedoraBinary {
         }
     }
 
+    /**
+     * Content served over HTTP is requested from its origin with a Range header, so that the content before the
+     * range is not transferred. An origin that ignores the header sends the whole content, which is then skipped.
+     */
+    @Override
+    public InputStream getContent(final long start, final long length) {
+        final URI resourceUri = getResourceUri();
+        if (!"http".equalsIgnoreCase(resourceUri.getScheme()) && !"https".equalsIgnoreCase(resourceUri.getScheme())) {
+            return super.getContent(start, length);
+        }
+        try {
+            final HttpURLConnection httpConn = (HttpURLConnection) resourceUri.toURL().openConnection();
+            httpConn.setRequestProperty("Range", "bytes=" + start + "-" + (length < 0 ? "" : start + length - 1));
+            final int status = httpConn.getResponseCode();
+            if (status == HTTP_PARTIAL) {
+                return range(httpConn.getInputStream(), 0, length);
+            } else if (status == HttpURLConnection.HTTP_OK) {
+                LOGGER.debug("Origin of {} ignored a range request; skipping to offset {}", resourceUri, start);
+                return range(httpConn.getInputStream(), start, length);
+            }
+            httpConn.disconnect();
+            throw new ExternalContentAccessException("Problems getting external content : range request for " +
+                    resourceUri + " returned status " + status, null);
+        } catch (final IOException e) {
+            throw new ExternalContentAccessException("Problems getting external content : " + e.getMessage(), e);
+        }
+    }
+
     protected long getRemoteContentSize() {
         final URI resourceUri = getResourceUri();
         try {
@@ -0,0 +1,65 @@
+/*
+ * Licensed to DuraSpace under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * DuraSpace licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.kernel.modeshape.observer;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.fcrepo.kernel.api.models.FedoraResource;
+
+/**
+ * Iterates lazily, depth first, over the descendants of a resource, in the same order as
+ * {@link FedoraResource#getChildren(Boolean)} with recursion.  Only the children of the resources on the current
+ * path are held at any time, rather than a whole subtree.
+ *
+ * @author rdfloyd
+ */
+class DescendantIterator implements Iterator<FedoraResource> {
+
+    private final Deque<Iterator<FedoraResource>> stack = new ArrayDeque<>();
+
+    /**
+     * @param resource the resource whose descendants to iterate over
+     */
+    DescendantIterator(final FedoraResource resource) {
+        stack.push(resource.getChildren().iterator());
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (!stack.isEmpty()) {
+            if (stack.peek().hasNext()) {
+                return true;
+            }
+            stack.pop();
+        }
+        return false;
+    }
+
+    @Override
+    public FedoraResource next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        final FedoraResource child = stack.peek().next();
+        stack.push(child.getChildren().iterator());
+        return child;
+    }
+}
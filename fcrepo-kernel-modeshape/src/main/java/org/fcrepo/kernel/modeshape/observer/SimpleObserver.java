@@ -18,8 +18,10 @@
 package org.fcrepo.kernel.modeshape.observer;
 
 import static com.google.common.collect.Iterators.filter;
+import static java.util.concurrent.Executors.newSingleThreadExecutor;
+import static java.util.concurrent.TimeUnit.MINUTES;
+import static java.util.concurrent.TimeUnit.SECONDS;
 import static java.util.stream.Collectors.toSet;
-import static java.util.stream.Stream.concat;
 import static java.util.stream.Stream.of;
 import static javax.jcr.observation.Event.NODE_ADDED;
 import static javax.jcr.observation.Event.NODE_MOVED;
@@ -38,6 +40,7 @@ import static org.fcrepo.kernel.api.FedoraTypes.LDP_NON_RDF_SOURCE;
 import static org.fcrepo.kernel.api.FedoraTypes.LDP_RDF_SOURCE;
 import static org.fcrepo.kernel.api.observer.EventType.RESOURCE_DELETION;
 import static org.fcrepo.kernel.api.observer.EventType.RESOURCE_RELOCATION;
+import static org.fcrepo.kernel.api.observer.OptionalValues.DESCENDANT_COUNT;
 import static org.fcrepo.kernel.modeshape.FedoraSessionImpl.getJcrSession;
 import static org.fcrepo.kernel.modeshape.FedoraJcrConstants.ROOT;
 import static org.fcrepo.kernel.modeshape.RdfJcrLexicon.JCR_NAMESPACE;
@@ -49,9 +52,13 @@ import static org.fcrepo.kernel.modeshape.utils.UncheckedFunction.uncheck;
 import static org.fcrepo.kernel.modeshape.utils.StreamUtils.iteratorToStream;
 import static org.slf4j.LoggerFactory.getLogger;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
 import java.util.function.Function;
 import java.util.stream.Stream;
 
@@ -65,12 +72,11 @@ import javax.jcr.observation.Event;
 import javax.jcr.observation.EventListener;
 
 import org.fcrepo.kernel.api.FedoraRepository;
-import org.fcrepo.kernel.api.FedoraSession;
 import org.fcrepo.kernel.api.exception.RepositoryRuntimeException;
 import org.fcrepo.kernel.api.models.FedoraResource;
 import org.fcrepo.kernel.api.observer.FedoraEvent;
 import org.fcrepo.kernel.modeshape.FedoraResourceImpl;
-import org.fcrepo.kernel.modeshape.FedoraSessionImpl;
+import org.fcrepo.kernel.modeshape.SessionPool;
 import org.fcrepo.kernel.modeshape.observer.eventmappings.InternalExternalEventMapper;
 import org.fcrepo.kernel.modeshape.utils.FedoraSessionUserUtil;
 
@@ -78,11 +84,20 @@ import org.slf4j.Logger;
 
 import com.google.common.collect.ImmutableSet;
 import com.google.common.eventbus.EventBus;
+import com.google.common.util.concurrent.RateLimiter;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 /**
  * Simple JCR EventListener that filters JCR Events through a Fedora EventFilter, maps the results through a mapper,
  * and puts the resulting stream onto the internal Fedora EventBus as a stream of FedoraEvents.
  *
+ * Events are posted in order by a single emitting thread, so that the JCR observation thread never waits for them.
+ *
+ * A MOVE may lead to an arbitrarily large number of additional events for the descendants of the moved resource.
+ * The event for the moved resource is followed by those for its descendants, generated while walking the moved
+ * subtree a page at a time as the MOVE is observed, and emitted optionally at a limited rate before any later event;
+ * alternatively, a single relocation event carrying the number of descendants may stand for the whole subtree.
+ *
  * @author eddies
  * @author ajs6f
  * @since Feb 7, 2013
@@ -97,37 +112,6 @@ public class SimpleObserver implements EventListener {
     static final Integer EVENT_TYPES = NODE_ADDED + NODE_REMOVED + NODE_MOVED + PROPERTY_ADDED + PROPERTY_CHANGED
             + PROPERTY_REMOVED;
 
-    /**
-     * Note: This function maps a FedoraEvent to a Stream of some number of FedoraEvents. This is because a MOVE event
-     * may lead to an arbitrarily large number of additional events for any child resources. In the event of this not
-     * being a MOVE event, the same FedoraEvent is returned, wrapped in a Stream. For a MOVEd resource, the resource in
-     * question will be translated to two FedoraEvents: a MOVED event for the new resource location and a REMOVED event
-     * corresponding to the old location. The same pair of FedoraEvents will also be generated for each child resource.
-     */
-    private static Function<FedoraEvent, Stream<FedoraEvent>> handleMoveEvents(final Session session) {
-        return evt -> {
-            if (evt.getTypes().contains(RESOURCE_RELOCATION)) {
-                final Map<String, String> movePath = evt.getInfo();
-                final String dest = movePath.get("destAbsPath");
-                final String src = movePath.get("srcAbsPath");
-                final FedoraSession fsession = new FedoraSessionImpl(session);
-
-                try {
-                    final FedoraResource resource = new FedoraResourceImpl(session.getNode(evt.getPath()));
-                    return concat(of(evt), resource.getChildren(true).map(FedoraResource::getPath)
-                        .flatMap(path -> of(
-                            new FedoraEventImpl(RESOURCE_RELOCATION, path, evt.getResourceTypes(), evt.getUserID(),
-                                fsession.getUserURI(), evt.getDate(), evt.getInfo()),
-                            new FedoraEventImpl(RESOURCE_DELETION, path.replaceFirst(dest, src), evt.getResourceTypes(),
-                                evt.getUserID(), fsession.getUserURI(), evt.getDate(), evt.getInfo()))));
-                } catch (final RepositoryException ex) {
-                    throw new RepositoryRuntimeException(ex);
-                }
-            }
-            return of(evt);
-        };
-    }
-
     /**
      * Note: Certain RDF types are generated dynamically. These are added here, based on
      * certain type hints.
@@ -175,6 +159,44 @@ public class SimpleObserver implements EventListener {
     // it is used only to register and deregister this observer to the JCR
     private Session session;
 
+    // sessions for looking up the resources named by events
+    private SessionPool lookupSessions;
+
+    private final ExecutorService emitter = newSingleThreadExecutor(new ThreadFactoryBuilder()
+            .setNameFormat("fcrepo-event-emitter-%d").setDaemon(true).build());
+
+    private boolean descendantMoveEvents = true;
+
+    private double moveEventRate = 0;
+
+    private int movePageSize = 1000;
+
+    /**
+     * Set whether a MOVE produces events for each descendant of the moved resource (the default).  Otherwise a
+     * single relocation event for the moved resource stands for its subtree, with the number of descendants given
+     * as the {@link org.fcrepo.kernel.api.observer.OptionalValues#DESCENDANT_COUNT} in its info.
+     *
+     * @param descendantMoveEvents whether to produce events for each descendant
+     */
+    public void setDescendantMoveEvents(final boolean descendantMoveEvents) {
+        this.descendantMoveEvents = descendantMoveEvents;
+    }
+
+    /**
+     * @param moveEventRate the maximum number of descendant events per second produced for a MOVE, or zero (the
+     *        default) for no limit; later events are emitted after those of the descendants
+     */
+    public void setMoveEventRate(final double moveEventRate) {
+        this.moveEventRate = moveEventRate;
+    }
+
+    /**
+     * @param movePageSize the number of descendants of a moved resource read at a time (default 1000)
+     */
+    public void setMovePageSize(final int movePageSize) {
+        this.movePageSize = movePageSize;
+    }
+
     /**
      * Register this observer with the JCR event listeners
      *
@@ -187,6 +209,7 @@ public class SimpleObserver implements EventListener {
         session.getWorkspace().getObservationManager()
                 .addEventListener(this, EVENT_TYPES, "/", true, null, null, false);
         session.save();
+        lookupSessions = new SessionPool(repository, 2, MINUTES.toMillis(5));
     }
 
     /**
@@ -201,6 +224,17 @@ public class SimpleObserver implements EventListener {
             session.getWorkspace().getObservationManager().removeEventListener(this);
         } finally {
             session.logout();
+            lookupSessions.close();
+            emitter.shutdown();
+            try {
+                if (!emitter.awaitTermination(5, SECONDS)) {
+                    LOGGER.warn("Abandoning events not yet emitted");
+                    emitter.shutdownNow();
+                }
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                emitter.shutdownNow();
+            }
         }
     }
 
@@ -211,24 +245,109 @@ public class SimpleObserver implements EventListener {
      */
     @Override
     public void onEvent(final javax.jcr.observation.EventIterator events) {
-        Session lookupSession = null;
-        try {
-            lookupSession = getJcrSession(repository.login());
-
+        try (final SessionPool.Lease lease = lookupSessions.lease()) {
+            final Session lookupSession = getJcrSession(lease.getSession());
             @SuppressWarnings("unchecked")
             final Iterator<Event> filteredEvents = filter(events, eventFilter::test);
             eventMapper.apply(iteratorToStream(filteredEvents))
                 .map(filterAndDerefResourceTypes(lookupSession))
-                .flatMap(handleMoveEvents(lookupSession))
-                .forEach(this::post);
-        } finally {
-            if (lookupSession != null) {
-                lookupSession.logout();
+                .forEach(evt -> handleMoveEvents(evt, lookupSession));
+        }
+    }
+
+    /**
+     * For a MOVEd resource, the resource in question is translated to two FedoraEvents: a MOVED event for the new
+     * resource location and a REMOVED event corresponding to the old location.  The same pair of FedoraEvents is
+     * emitted for each descendant resource, read from the moved subtree while the MOVE is observed; otherwise the
+     * MOVED event carries the number of descendants found by the same walk.
+     */
+    private void handleMoveEvents(final FedoraEvent evt, final Session lookupSession) {
+        if (!evt.getTypes().contains(RESOURCE_RELOCATION)) {
+            emit(evt);
+        } else if (descendantMoveEvents) {
+            emit(evt);
+            relocateDescendants(evt, lookupSession);
+        } else {
+            final Map<String, String> info = new HashMap<>(evt.getInfo());
+            try {
+                final Iterator<FedoraResource> descendants = descendants(evt, lookupSession);
+                long count = 0;
+                while (descendants.hasNext()) {
+                    descendants.next();
+                    count++;
+                }
+                info.put(DESCENDANT_COUNT, Long.toString(count));
+            } catch (final RepositoryException | RepositoryRuntimeException ex) {
+                LOGGER.warn("Unable to count the descendants of moved resource {}: {}", evt.getPath(),
+                        ex.getMessage());
+            }
+            emit(new FedoraEventImpl(evt.getTypes(), evt.getPath(), evt.getResourceTypes(), evt.getUserID(),
+                    evt.getUserURI(), evt.getDate(), info));
+        }
+    }
+
+    /**
+     * Emit the pair of events for each descendant of a moved resource, a page at a time, optionally at a limited
+     * rate.  A page is emitted once all events before it have been, so that later events wait for it.
+     */
+    private void relocateDescendants(final FedoraEvent evt, final Session lookupSession) {
+        final String dest = evt.getInfo().get("destAbsPath");
+        final String src = evt.getInfo().get("srcAbsPath");
+        final RateLimiter limiter = moveEventRate > 0 ? RateLimiter.create(moveEventRate) : null;
+        List<FedoraEvent> page = new ArrayList<>(2 * movePageSize);
+        long count = 0;
+        try {
+            final Iterator<FedoraResource> descendants = descendants(evt, lookupSession);
+            while (descendants.hasNext()) {
+                final String path = descendants.next().getPath();
+                page.add(new FedoraEventImpl(RESOURCE_RELOCATION, path, evt.getResourceTypes(), evt.getUserID(),
+                        evt.getUserURI(), evt.getDate(), evt.getInfo()));
+                page.add(new FedoraEventImpl(RESOURCE_DELETION, relocatedPath(path, dest, src),
+                        evt.getResourceTypes(), evt.getUserID(), evt.getUserURI(), evt.getDate(), evt.getInfo()));
+                count++;
+                if (page.size() >= 2 * movePageSize) {
+                    emit(page, limiter);
+                    page = new ArrayList<>(2 * movePageSize);
+                }
             }
+            LOGGER.debug("Moved {} descendant(s) of {}", count, evt.getPath());
+        } catch (final RepositoryException | RepositoryRuntimeException ex) {
+            LOGGER.warn("Unable to read the descendants of moved resource {}: {}", evt.getPath(), ex.getMessage());
         }
+        emit(page, limiter);
+    }
+
+    /**
+     * Iterate depth first over the subtree of a moved resource, holding no more than the children of the resources
+     * on the current path.
+     */
+    private static Iterator<FedoraResource> descendants(final FedoraEvent evt, final Session lookupSession)
+            throws RepositoryException {
+        return new DescendantIterator(new FedoraResourceImpl(lookupSession.getNode(evt.getPath())));
     }
 
-    private void post(final FedoraEvent evt) {
-        eventBus.post(evt);
+    /**
+     * Rewrite a path below the destination of a move to the corresponding path below its source.
+     */
+    static String relocatedPath(final String path, final String dest, final String src) {
+        if (dest != null && src != null && path.startsWith(dest)) {
+            return src + path.substring(dest.length());
+        }
+        return path;
+    }
+
+    private void emit(final FedoraEvent evt) {
+        emitter.execute(() -> eventBus.post(evt));
+    }
+
+    private void emit(final List<FedoraEvent> page, final RateLimiter limiter) {
+        if (!page.isEmpty()) {
+            emitter.execute(() -> {
+                if (limiter != null) {
+                    limiter.acquire(page.size());
+                }
+                page.forEach(eventBus::post);
+            });
+        }
     }
 }
@@ -22,6 +22,7 @@ import org.apache.jena.rdf.model.Resource;
 
 import org.fcrepo.kernel.api.models.FedoraResource;
 import org.fcrepo.kernel.api.identifiers.IdentifierConverter;
+import org.fcrepo.kernel.modeshape.MembershipIndex;
 import org.fcrepo.kernel.modeshape.rdf.converters.ValueConverter;
 import org.fcrepo.kernel.modeshape.rdf.impl.mappings.PropertyValueIterator;
 import org.fcrepo.kernel.modeshape.utils.UncheckedFunction;
@@ -117,6 +118,13 @@ public class LdpContainerRdfContext extends NodeRdfContext {
             insertedContainerProperty = MEMBER_SUBJECT.getURI();
         }
 
+        final Node containerNode = getJcrNode(container);
+        if (MembershipIndex.isCurrent(containerNode)) {
+            final ValueConverter valueConverter = new ValueConverter(containerNode.getSession(), translator());
+            return MembershipIndex.getMembers(containerNode)
+                .map(v -> create(subject(), memberRelation, valueConverter.convert(v).asNode()));
+        }
+
         return container.getChildren().flatMap(
             UncheckedFunction.uncheck(child -> {
                 final org.apache.jena.graph.Node childSubject = uriFor(child.getDescribedResource());
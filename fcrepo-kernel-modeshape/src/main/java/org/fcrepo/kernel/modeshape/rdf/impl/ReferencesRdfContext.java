@@ -17,12 +17,23 @@
  */
 package org.fcrepo.kernel.modeshape.rdf.impl;
 
+import static org.apache.jena.graph.NodeFactory.createURI;
+import static org.apache.jena.graph.Triple.create;
+import static org.apache.jena.rdf.model.ResourceFactory.createResource;
+import static org.fcrepo.kernel.api.FedoraTypes.LDP_HAS_MEMBER_RELATION;
+import static org.fcrepo.kernel.api.FedoraTypes.LDP_INDIRECT_CONTAINER;
+import static org.fcrepo.kernel.api.FedoraTypes.LDP_INSERTED_CONTENT_RELATION;
+import static org.fcrepo.kernel.api.FedoraTypes.LDP_MEMBER_RESOURCE;
 import static org.fcrepo.kernel.modeshape.identifiers.NodeResourceConverter.nodeConverter;
-import static org.fcrepo.kernel.modeshape.rdf.converters.ValueConverter.nodeForValue;
+import static org.fcrepo.kernel.modeshape.utils.FedoraTypesUtils.getContainingNode;
 import static org.fcrepo.kernel.modeshape.utils.FedoraTypesUtils.getJcrNode;
+import static org.fcrepo.kernel.modeshape.utils.FedoraTypesUtils.getReferencePropertyName;
+import static org.fcrepo.kernel.modeshape.utils.FedoraTypesUtils.isNonRdfSourceDescription;
+import static org.fcrepo.kernel.modeshape.utils.FedoraTypesUtils.resourceToProperty;
 import static org.fcrepo.kernel.modeshape.utils.StreamUtils.iteratorToStream;
 import static org.fcrepo.kernel.modeshape.utils.UncheckedFunction.uncheck;
 import static java.util.Arrays.asList;
+import static java.util.stream.Collectors.toList;
 import static javax.jcr.PropertyType.PATH;
 import static javax.jcr.PropertyType.REFERENCE;
 import static javax.jcr.PropertyType.WEAKREFERENCE;
@@ -31,15 +42,16 @@ import org.apache.jena.graph.Triple;
 import org.apache.jena.rdf.model.Resource;
 import org.fcrepo.kernel.api.identifiers.IdentifierConverter;
 import org.fcrepo.kernel.api.models.FedoraResource;
+import org.fcrepo.kernel.modeshape.MembershipIndex;
 import org.fcrepo.kernel.modeshape.rdf.impl.mappings.PropertyToTriple;
-import org.fcrepo.kernel.modeshape.rdf.impl.mappings.PropertyValueIterator;
+import org.fcrepo.kernel.modeshape.utils.UncheckedPredicate;
 
 import javax.jcr.Node;
 import javax.jcr.Property;
 import javax.jcr.RepositoryException;
-import javax.jcr.Value;
 
 import java.util.List;
+import java.util.Optional;
 import java.util.function.Predicate;
 import java.util.stream.Stream;
 
@@ -55,6 +67,9 @@ public class ReferencesRdfContext extends NodeRdfContext {
 
     public static final List<Integer> REFERENCE_TYPES = asList(PATH, REFERENCE, WEAKREFERENCE);
 
+    private static final Predicate<Property> isMembershipEntry =
+            UncheckedPredicate.uncheck((final Property p) -> MembershipIndex.isEntry(p.getParent()));
+
     /**
      * Add the inbound references from other nodes to this resource to the stream
      *
@@ -71,31 +86,60 @@ public class ReferencesRdfContext extends NodeRdfContext {
         concat(putReferencesIntoContext(getJcrNode(resource)));
     }
 
-    private final Predicate<Triple> INBOUND = t -> {
-        return t.getObject().getURI().equals(uriFor(resource()).getURI());
-    };
-
     /* References from LDP indirect containers are generated dynamically by LdpContainerRdfContext, so they won't
-       show up in getReferences()/getWeakReferences().  Instead, we should check referencers to see if they are
-       members of an IndirectContainer and generate the appropriate inbound references. */
+       show up in getReferences()/getWeakReferences().  For an IndirectContainer with a membership index, the entries
+       of the index that refer to this resource give the inbound references directly.  For one without, a reference
+       from a child of the IndirectContainer through its inserted content relation gives the same reference. */
     private Stream<Triple> putReferencesIntoContext(final Node node) throws RepositoryException {
-        return Stream.concat(
-            getAllReferences(node).flatMap(property2triple),
-            getAllReferences(node).flatMap(uncheck((final Property x) -> {
-                    @SuppressWarnings("unchecked")
-                    final Stream<Value> values = iteratorToStream(new PropertyValueIterator(x.getParent()
-                            .getProperties())).filter((final Value y) -> REFERENCE_TYPES.contains(y.getType()));
-                    return values;
-                }))
-                .flatMap(uncheck((final Value x) -> {
-                    return new LdpContainerRdfContext(nodeConverter.convert(nodeForValue(node.getSession(), x)),
-                        translator());
-                }))
-                .filter(INBOUND));
+        final List<Property> references = getAllReferences(node).collect(toList());
+        return Stream.concat(Stream.concat(
+            references.stream().flatMap(property2triple),
+            references.stream().flatMap(uncheck(this::unindexedMembership))),
+            getMembershipReferences(node).flatMap(uncheck((final Property x) ->
+                    indexedMembership(MembershipIndex.getContainer(x.getParent())))));
+    }
+
+    private Stream<Triple> unindexedMembership(final Property reference) throws RepositoryException {
+        final Node referrer = reference.getParent();
+        final Node child = isNonRdfSourceDescription.test(referrer) ? referrer.getParent() : referrer;
+        final Optional<Node> container = getContainingNode(child);
+        if (!container.isPresent() || MembershipIndex.isCurrent(container.get())
+                || !container.get().hasProperty(LDP_INSERTED_CONTENT_RELATION)) {
+            return Stream.empty();
+        }
+        final Node indirectContainer = container.get();
+        final Optional<String> property = resourceToProperty(referrer.getSession()).apply(
+                createResource(indirectContainer.getProperty(LDP_INSERTED_CONTENT_RELATION).getString()));
+        if (!property.isPresent() || !(reference.getName().equals(property.get())
+                || reference.getName().equals(getReferencePropertyName(property.get())))) {
+            return Stream.empty();
+        }
+        return membership(indirectContainer);
+    }
+
+    private Stream<Triple> indexedMembership(final Node container) throws RepositoryException {
+        return MembershipIndex.isCurrent(container) ? membership(container) : Stream.empty();
+    }
+
+    private Stream<Triple> membership(final Node container) throws RepositoryException {
+        if (!container.isNodeType(LDP_INDIRECT_CONTAINER) || !container.hasProperty(LDP_MEMBER_RESOURCE)
+                || !container.hasProperty(LDP_HAS_MEMBER_RELATION)) {
+            return Stream.empty();
+        }
+        final FedoraResource membershipResource =
+                nodeConverter.convert(container.getProperty(LDP_MEMBER_RESOURCE).getNode());
+        return Stream.of(create(uriFor(membershipResource),
+                createURI(container.getProperty(LDP_HAS_MEMBER_RELATION).getString()), subject()));
     }
 
     @SuppressWarnings("unchecked")
     private static Stream<Property> getAllReferences(final Node node) throws RepositoryException {
-        return Stream.concat(iteratorToStream(node.getReferences()), iteratorToStream(node.getWeakReferences()));
+        return Stream.concat(iteratorToStream(node.getReferences()), iteratorToStream(node.getWeakReferences()))
+                .filter(isMembershipEntry.negate());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Stream<Property> getMembershipReferences(final Node node) throws RepositoryException {
+        return iteratorToStream(node.getWeakReferences()).filter(isMembershipEntry);
     }
 }
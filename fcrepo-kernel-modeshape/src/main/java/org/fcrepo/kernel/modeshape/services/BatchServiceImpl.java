@@ -18,20 +18,26 @@
 
 package org.fcrepo.kernel.modeshape.services;
 
+import static java.lang.System.currentTimeMillis;
+import static java.lang.System.nanoTime;
 import static java.time.Instant.now;
-import static java.util.stream.Collectors.toSet;
 import static com.google.common.base.Strings.nullToEmpty;
 import static org.fcrepo.kernel.modeshape.FedoraSessionImpl.operationTimeout;
 import static org.slf4j.LoggerFactory.getLogger;
 
 import java.util.Map;
-import java.util.Set;
+import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.inject.Inject;
 
 import org.fcrepo.kernel.api.FedoraSession;
 import org.fcrepo.kernel.api.exception.RepositoryRuntimeException;
 import org.fcrepo.kernel.api.exception.SessionMissingException;
 import org.fcrepo.kernel.api.services.BatchService;
+import org.fcrepo.kernel.api.services.TransactionRegistry;
 
 import com.google.common.annotations.VisibleForTesting;
 import org.slf4j.Logger;
@@ -42,7 +48,8 @@ import org.springframework.stereotype.Component;
  * This is part of the strawman implementation for Fedora batch operations This
  * service implements a simple {@link FedoraSession} service which is able to
  * create/commit/rollback {@link FedoraSession} objects. A {@link Scheduled}
- * annotation is used for removing timed out operations
+ * annotation is used for removing timed out operations.  Open sessions are held
+ * in a {@link TransactionRegistry}, by default one local to this node.
  *
  * @author frank asseg
  * @author ajs6f
@@ -53,16 +60,30 @@ public class BatchServiceImpl extends AbstractService implements BatchService {
 
     private static final Logger LOGGER = getLogger(BatchServiceImpl.class);
 
-    /**
-     * TODO since sessions have to be available on all nodes, they have to
-     * be either persisted or written to a distributed map or sth, not just this
-     * plain hashmap that follows
-     */
-    private static final Map<String, FedoraSession> sessions = new ConcurrentHashMap<>();
+    private TransactionRegistry registry = new LocalTransactionRegistry();
+
+    // the time each open session was begun, and the number of requests made within it
+    private final Map<String, Usage> usage = new ConcurrentHashMap<>();
+
+    private final LongAdder begun = new LongAdder();
+    private final LongAdder committed = new LongAdder();
+    private final LongAdder aborted = new LongAdder();
+    private final LongAdder expired = new LongAdder();
+    private final LongAdder operations = new LongAdder();
+    private final LongAdder totalCommitLatency = new LongAdder();
+    private final AtomicLong maxCommitLatency = new AtomicLong();
 
     @VisibleForTesting
     public static final long REAP_INTERVAL = 1000;
 
+    /**
+     * @param registry the registry holding the open sessions
+     */
+    @Inject
+    public void setRegistry(final TransactionRegistry registry) {
+        this.registry = registry;
+    }
+
     /**
      * Every REAP_INTERVAL milliseconds, check for expired sessions. If the
      * tx is expired, roll it back and remove it from the registry.
@@ -70,63 +91,105 @@ public class BatchServiceImpl extends AbstractService implements BatchService {
     @Override
     @Scheduled(fixedRate = REAP_INTERVAL)
     public void removeExpired() {
-        final Set<String> reapable = sessions.entrySet().stream()
-                .filter(e -> e.getValue().getExpires().isPresent())
-                .filter(e -> e.getValue().getExpires().get().isBefore(now()))
-                .map(Map.Entry::getKey).collect(toSet());
-        reapable.forEach(key -> {
-            final FedoraSession s = sessions.get(key);
-            if (s != null) {
-                try {
-                    s.expire();
-                } catch (final RepositoryRuntimeException e) {
-                    LOGGER.error("Got exception rolling back expired session {}: {}", s, e.getMessage());
-                }
+        registry.removeExpired(now()).forEach((key, s) -> {
+            usage.remove(key);
+            expired.increment();
+            try {
+                s.expire();
+            } catch (final RepositoryRuntimeException e) {
+                LOGGER.error("Got exception rolling back expired session {}: {}", s, e.getMessage());
             }
-            sessions.remove(key);
         });
     }
 
     @Override
     public void begin(final FedoraSession session, final String username) {
-        sessions.put(getTxKey(session.getId(), username), session);
+        final String key = getTxKey(session.getId(), username);
+        usage.put(key, new Usage());
+        registry.register(key, session);
+        begun.increment();
     }
 
     @Override
     public FedoraSession getSession(final String sessionId, final String username) {
-        final FedoraSession session = sessions.get(getTxKey(sessionId, username));
+        final String key = getTxKey(sessionId, username);
+        final FedoraSession session = registry.get(key);
         if (session == null) {
+            final Optional<String> owner = registry.getOwner(key);
+            if (owner.isPresent()) {
+                throw new SessionMissingException("Batch session with id: " + sessionId +
+                        " is open on another node: " + owner.get());
+            }
             throw new SessionMissingException("Batch session with id: " + sessionId + " is not available");
         }
+        final Usage used = usage.get(key);
+        if (used != null) {
+            used.operations.increment();
+        }
+        operations.increment();
         return session;
     }
 
     @Override
     public boolean exists(final String sessionId, final String username) {
-        return sessions.containsKey(getTxKey(sessionId, username));
+        return registry.get(getTxKey(sessionId, username)) != null;
     }
 
     @Override
     public void commit(final String sessionId, final String username) {
+        final String key = getTxKey(sessionId, username);
         final FedoraSession session = getSession(sessionId, username);
+        final long start = nanoTime();
         session.commit();
-        sessions.remove(getTxKey(sessionId, username));
+        final long latency = nanoTime() - start;
+        registry.remove(key);
+        totalCommitLatency.add(latency);
+        maxCommitLatency.accumulateAndGet(latency, Math::max);
+        committed.increment();
+        final Usage used = usage.remove(key);
+        if (used != null && LOGGER.isDebugEnabled()) {
+            LOGGER.debug("Committed batch session {} after {} ms and {} operation(s) in {} ms", sessionId,
+                    currentTimeMillis() - used.begun, used.operations.sum(), latency / 1000000);
+        }
     }
 
     @Override
     public void refresh(final String sessionId, final String username) {
+        final String key = getTxKey(sessionId, username);
         final FedoraSession session = getSession(sessionId, username);
         session.updateExpiry(operationTimeout());
+        registry.updateExpiry(key, session);
     }
 
     @Override
     public void abort(final String sessionId, final String username) {
+        final String key = getTxKey(sessionId, username);
         final FedoraSession session = getSession(sessionId, username);
         session.expire();
-        sessions.remove(getTxKey(sessionId, username));
+        registry.remove(key);
+        usage.remove(key);
+        aborted.increment();
+    }
+
+    /**
+     * @return a snapshot of the statistics of the batch operations of this node
+     */
+    public TransactionStats getStats() {
+        final long now = currentTimeMillis();
+        final long oldest = usage.values().stream().mapToLong(u -> now - u.begun).max().orElse(0);
+        final long commits = committed.sum();
+        return new TransactionStats(registry.size(), oldest, begun.sum(), commits, aborted.sum(), expired.sum(),
+                operations.sum(), commits > 0 ? totalCommitLatency.sum() / commits : 0, maxCommitLatency.get());
     }
 
     private static String getTxKey(final String sessionId, final String username) {
         return nullToEmpty(username) + ":" + sessionId;
     }
+
+    private static final class Usage {
+
+        private final long begun = currentTimeMillis();
+
+        private final LongAdder operations = new LongAdder();
+    }
 }
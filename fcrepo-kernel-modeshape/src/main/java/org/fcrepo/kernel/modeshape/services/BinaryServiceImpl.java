@@ -24,6 +24,7 @@ import org.fcrepo.kernel.api.models.FedoraBinary;
 import org.fcrepo.kernel.api.models.NonRdfSourceDescription;
 import org.fcrepo.kernel.api.services.BinaryService;
 import org.fcrepo.kernel.modeshape.FedoraBinaryImpl;
+import org.fcrepo.kernel.modeshape.MembershipIndex;
 import org.fcrepo.kernel.modeshape.NonRdfSourceDescriptionImpl;
 import org.slf4j.Logger;
 import org.springframework.stereotype.Component;
@@ -40,6 +41,7 @@ import static org.fcrepo.kernel.api.RdfLexicon.NT_VERSION_FILE;
 import static org.fcrepo.kernel.modeshape.utils.FedoraTypesUtils.getContainingNode;
 import static org.fcrepo.kernel.modeshape.utils.FedoraTypesUtils.getJcrNode;
 import static org.fcrepo.kernel.modeshape.utils.FedoraTypesUtils.touch;
+import static org.fcrepo.kernel.modeshape.utils.FedoraTypesUtils.touchContainer;
 import static org.fcrepo.kernel.modeshape.utils.FedoraTypesUtils.touchLdpMembershipResource;
 import static org.slf4j.LoggerFactory.getLogger;
 
@@ -85,9 +87,10 @@ public class BinaryServiceImpl extends AbstractService implements BinaryService
                 initializeNewBinaryProperties(dsNode);
 
                 getContainingNode(dsNode).ifPresent(parent -> {
-                    touch(parent);
+                    touchContainer(parent);
                     touchLdpMembershipResource(dsNode);
                 });
+                MembershipIndex.update(dsNode);
             }
 
             final FedoraBinaryImpl binary = new FedoraBinaryImpl(dsNode);
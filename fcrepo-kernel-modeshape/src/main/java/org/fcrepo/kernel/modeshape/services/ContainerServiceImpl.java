@@ -30,6 +30,7 @@ import static org.fcrepo.kernel.api.RdfLexicon.MEMBER_SUBJECT;
 import static org.fcrepo.kernel.modeshape.ContainerImpl.hasMixin;
 import static org.fcrepo.kernel.modeshape.utils.FedoraTypesUtils.getContainingNode;
 import static org.fcrepo.kernel.modeshape.utils.FedoraTypesUtils.touch;
+import static org.fcrepo.kernel.modeshape.utils.FedoraTypesUtils.touchContainer;
 import static org.fcrepo.kernel.modeshape.utils.FedoraTypesUtils.touchLdpMembershipResource;
 import static org.modeshape.jcr.api.JcrConstants.JCR_CONTENT;
 import static org.modeshape.jcr.api.JcrConstants.NT_FOLDER;
@@ -44,6 +45,7 @@ import org.fcrepo.kernel.api.exception.ResourceTypeException;
 import org.fcrepo.kernel.api.models.Container;
 import org.fcrepo.kernel.api.services.ContainerService;
 import org.fcrepo.kernel.modeshape.ContainerImpl;
+import org.fcrepo.kernel.modeshape.MembershipIndex;
 
 import org.slf4j.Logger;
 import org.springframework.stereotype.Component;
@@ -71,19 +73,22 @@ public class ContainerServiceImpl extends AbstractService implements ContainerSe
                 initializeNewObjectProperties(node);
 
                 getContainingNode(node).ifPresent(parent -> {
-                    touch(parent);
+                    touchContainer(parent);
                     touchLdpMembershipResource(node);
                 });
+                MembershipIndex.update(node);
 
                 if (LDP_INDIRECT_CONTAINER.equals(interactionModel)) {
                     node.addMixin(LDP_INDIRECT_CONTAINER);
                     node.setProperty(LDP_MEMBER_RESOURCE, node);
                     node.setProperty(LDP_HAS_MEMBER_RELATION, LDP_MEMBER.getURI());
                     node.setProperty(LDP_INSERTED_CONTENT_RELATION, MEMBER_SUBJECT.getURI());
+                    MembershipIndex.create(node);
                 } else if (LDP_DIRECT_CONTAINER.equals(interactionModel)) {
                     node.addMixin(LDP_DIRECT_CONTAINER);
                     node.setProperty(LDP_MEMBER_RESOURCE, node);
                     node.setProperty(LDP_HAS_MEMBER_RELATION, LDP_MEMBER.getURI());
+                    MembershipIndex.create(node);
                 } else {
                     node.addMixin(LDP_BASIC_CONTAINER);
                 }
@@ -0,0 +1,197 @@
+/*
+ * Licensed to DuraSpace under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * DuraSpace licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.kernel.modeshape.services;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+import java.lang.management.ManagementFactory;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+
+import javax.annotation.PostConstruct;
+import javax.sql.DataSource;
+
+import org.fcrepo.kernel.api.FedoraSession;
+import org.fcrepo.kernel.api.exception.RepositoryRuntimeException;
+import org.fcrepo.kernel.api.services.TransactionRegistry;
+import org.slf4j.Logger;
+
+/**
+ * A registry shared by the nodes of a cluster through a database table.  Each node keeps its own sessions in a
+ * {@link LocalTransactionRegistry} and records in the table which node holds each session and when it expires, so
+ * that any node can tell a session open elsewhere from one that has ended.  The table is advisory: a failure to
+ * update it is logged and does not affect the session on its own node.  Rows left by a node that has stopped are
+ * deleted by the other nodes once their sessions have expired.
+ *
+ * @author rdfloyd
+ */
+public class JdbcTransactionRegistry implements TransactionRegistry {
+
+    private static final Logger LOGGER = getLogger(JdbcTransactionRegistry.class);
+
+    private final DataSource dataSource;
+
+    private final LocalTransactionRegistry local;
+
+    private final String table;
+
+    /**
+     * @param dataSource the database shared by the nodes of the cluster
+     */
+    public JdbcTransactionRegistry(final DataSource dataSource) {
+        this(dataSource, ManagementFactory.getRuntimeMXBean().getName(), "fcrepo_transactions");
+    }
+
+    /**
+     * @param dataSource the database shared by the nodes of the cluster
+     * @param nodeId the identifier of this node, unique within the cluster
+     * @param table the name of the table holding the sessions
+     */
+    public JdbcTransactionRegistry(final DataSource dataSource, final String nodeId, final String table) {
+        this.dataSource = dataSource;
+        this.local = new LocalTransactionRegistry(nodeId);
+        this.table = table;
+    }
+
+    /**
+     * Create the table if it does not exist
+     */
+    @PostConstruct
+    public void init() {
+        try (final Connection connection = dataSource.getConnection();
+                final Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE IF NOT EXISTS " + table +
+                    " (tx_key VARCHAR(512) PRIMARY KEY, node_id VARCHAR(255) NOT NULL, expires BIGINT)");
+        } catch (final SQLException e) {
+            throw new RepositoryRuntimeException("Unable to create transaction table " + table, e);
+        }
+        LOGGER.info("Sharing open transactions of node {} through table {}", local.getNodeId(), table);
+    }
+
+    @Override
+    public void register(final String key, final FedoraSession session) {
+        local.register(key, session);
+        try (final Connection connection = dataSource.getConnection()) {
+            try (final PreparedStatement delete = connection.prepareStatement(
+                    "DELETE FROM " + table + " WHERE tx_key = ?")) {
+                delete.setString(1, key);
+                delete.executeUpdate();
+            }
+            try (final PreparedStatement insert = connection.prepareStatement(
+                    "INSERT INTO " + table + " (tx_key, node_id, expires) VALUES (?, ?, ?)")) {
+                insert.setString(1, key);
+                insert.setString(2, local.getNodeId());
+                setExpires(insert, 3, session);
+                insert.executeUpdate();
+            }
+        } catch (final SQLException e) {
+            LOGGER.warn("Unable to record transaction {} in table {}: {}", key, table, e.getMessage());
+        }
+    }
+
+    @Override
+    public FedoraSession get(final String key) {
+        return local.get(key);
+    }
+
+    @Override
+    public Optional<String> getOwner(final String key) {
+        final Optional<String> owner = local.getOwner(key);
+        if (owner.isPresent()) {
+            return owner;
+        }
+        try (final Connection connection = dataSource.getConnection();
+                final PreparedStatement select = connection.prepareStatement(
+                        "SELECT node_id FROM " + table + " WHERE tx_key = ? AND (expires IS NULL OR expires >= ?)")) {
+            select.setString(1, key);
+            select.setLong(2, System.currentTimeMillis());
+            try (final ResultSet result = select.executeQuery()) {
+                return result.next() ? Optional.of(result.getString(1)) : Optional.empty();
+            }
+        } catch (final SQLException e) {
+            LOGGER.warn("Unable to look up transaction {} in table {}: {}", key, table, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public void updateExpiry(final String key, final FedoraSession session) {
+        local.updateExpiry(key, session);
+        try (final Connection connection = dataSource.getConnection();
+                final PreparedStatement update = connection.prepareStatement(
+                        "UPDATE " + table + " SET expires = ? WHERE tx_key = ? AND node_id = ?")) {
+            setExpires(update, 1, session);
+            update.setString(2, key);
+            update.setString(3, local.getNodeId());
+            update.executeUpdate();
+        } catch (final SQLException e) {
+            LOGGER.warn("Unable to update transaction {} in table {}: {}", key, table, e.getMessage());
+        }
+    }
+
+    @Override
+    public FedoraSession remove(final String key) {
+        final FedoraSession session = local.remove(key);
+        try (final Connection connection = dataSource.getConnection();
+                final PreparedStatement delete = connection.prepareStatement(
+                        "DELETE FROM " + table + " WHERE tx_key = ? AND node_id = ?")) {
+            delete.setString(1, key);
+            delete.setString(2, local.getNodeId());
+            delete.executeUpdate();
+        } catch (final SQLException e) {
+            LOGGER.warn("Unable to remove transaction {} from table {}: {}", key, table, e.getMessage());
+        }
+        return session;
+    }
+
+    @Override
+    public Map<String, FedoraSession> removeExpired(final Instant now) {
+        final Map<String, FedoraSession> expired = local.removeExpired(now);
+        try (final Connection connection = dataSource.getConnection();
+                final PreparedStatement delete = connection.prepareStatement(
+                        "DELETE FROM " + table + " WHERE expires < ?")) {
+            delete.setLong(1, now.toEpochMilli());
+            delete.executeUpdate();
+        } catch (final SQLException e) {
+            LOGGER.warn("Unable to remove expired transactions from table {}: {}", table, e.getMessage());
+        }
+        return expired;
+    }
+
+    @Override
+    public int size() {
+        return local.size();
+    }
+
+    private static void setExpires(final PreparedStatement statement, final int index, final FedoraSession session)
+            throws SQLException {
+        final Optional<Instant> expires = session.getExpires();
+        if (expires.isPresent()) {
+            statement.setLong(index, expires.get().toEpochMilli());
+        } else {
+            statement.setNull(index, Types.BIGINT);
+        }
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * Licensed to DuraSpace under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * DuraSpace licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.kernel.modeshape.services;
+
+import static java.util.Comparator.comparing;
+
+import java.lang.management.ManagementFactory;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Optional;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.fcrepo.kernel.api.FedoraSession;
+import org.fcrepo.kernel.api.services.TransactionRegistry;
+import org.springframework.stereotype.Component;
+
+/**
+ * A registry of the sessions open on this node.  Sessions are also indexed in order of expiry, so that reaping
+ * expired sessions costs time in proportion to the number that have expired rather than to the number open.
+ *
+ * @author rdfloyd
+ */
+@Component
+public class LocalTransactionRegistry implements TransactionRegistry {
+
+    private static final Comparator<Entry> BY_EXPIRY = comparing((Entry e) -> e.expires).thenComparing(e -> e.key);
+
+    private final String nodeId;
+
+    private final Map<String, Entry> sessions = new ConcurrentHashMap<>();
+
+    // sessions with an expiry, soonest first; guarded by this
+    private final NavigableSet<Entry> expiries = new TreeSet<>(BY_EXPIRY);
+
+    /**
+     * Create a registry for this JVM
+     */
+    public LocalTransactionRegistry() {
+        this(ManagementFactory.getRuntimeMXBean().getName());
+    }
+
+    /**
+     * @param nodeId the identifier of this node
+     */
+    public LocalTransactionRegistry(final String nodeId) {
+        this.nodeId = nodeId;
+    }
+
+    /**
+     * @return the identifier of this node
+     */
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    @Override
+    public synchronized void register(final String key, final FedoraSession session) {
+        index(new Entry(key, session));
+    }
+
+    @Override
+    public FedoraSession get(final String key) {
+        final Entry entry = sessions.get(key);
+        return entry == null ? null : entry.session;
+    }
+
+    @Override
+    public Optional<String> getOwner(final String key) {
+        return sessions.containsKey(key) ? Optional.of(nodeId) : Optional.empty();
+    }
+
+    @Override
+    public synchronized void updateExpiry(final String key, final FedoraSession session) {
+        final Entry entry = sessions.get(key);
+        if (entry != null && entry.session == session) {
+            index(new Entry(key, session));
+        }
+    }
+
+    private void index(final Entry entry) {
+        final Entry old = sessions.put(entry.key, entry);
+        if (old != null && old.expires != null) {
+            expiries.remove(old);
+        }
+        if (entry.expires != null) {
+            expiries.add(entry);
+        }
+    }
+
+    @Override
+    public synchronized FedoraSession remove(final String key) {
+        final Entry entry = sessions.remove(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expires != null) {
+            expiries.remove(entry);
+        }
+        return entry.session;
+    }
+
+    @Override
+    public synchronized Map<String, FedoraSession> removeExpired(final Instant now) {
+        final Map<String, FedoraSession> expired = new HashMap<>();
+        while (!expiries.isEmpty() && expiries.first().expires.isBefore(now)) {
+            final Entry entry = expiries.pollFirst();
+            sessions.remove(entry.key);
+            expired.put(entry.key, entry.session);
+        }
+        return expired;
+    }
+
+    @Override
+    public int size() {
+        return sessions.size();
+    }
+
+    /**
+     * A session, with its expiry as it was when the session was registered or its expiry last updated
+     */
+    private static final class Entry {
+
+        private final String key;
+
+        private final FedoraSession session;
+
+        private final Instant expires;
+
+        private Entry(final String key, final FedoraSession session) {
+            this.key = key;
+            this.session = session;
+            this.expires = session.getExpires().orElse(null);
+        }
+    }
+}
@@ -19,11 +19,14 @@ package org.fcrepo.kernel.modeshape.services;
 
 import static org.fcrepo.kernel.api.FedoraTypes.FEDORA_TOMBSTONE;
 import static org.fcrepo.kernel.modeshape.FedoraSessionImpl.getJcrSession;
+import static org.fcrepo.kernel.modeshape.utils.FedoraTypesUtils.getContainingNode;
 import static org.fcrepo.kernel.modeshape.utils.FedoraTypesUtils.getJcrNode;
 import static org.fcrepo.kernel.modeshape.utils.FedoraTypesUtils.touchLdpMembershipResource;
 import static org.fcrepo.kernel.modeshape.utils.NamespaceTools.validatePath;
 import static org.slf4j.LoggerFactory.getLogger;
 
+import java.util.Optional;
+
 import javax.jcr.Node;
 import javax.jcr.RepositoryException;
 import javax.jcr.Session;
@@ -34,6 +37,8 @@ import org.fcrepo.kernel.api.exception.RepositoryRuntimeException;
 import org.fcrepo.kernel.api.models.FedoraResource;
 import org.fcrepo.kernel.api.services.NodeService;
 import org.fcrepo.kernel.modeshape.FedoraResourceImpl;
+import org.fcrepo.kernel.modeshape.MembershipIndex;
+import org.fcrepo.kernel.modeshape.ReferenceIndex;
 import org.slf4j.Logger;
 import org.springframework.stereotype.Component;
 
@@ -94,7 +99,12 @@ public class NodeServiceImpl extends AbstractService implements NodeService {
         final Session jcrSession = getJcrSession(session);
         try {
             jcrSession.getWorkspace().copy(source, destination);
-            touchLdpMembershipResource(getJcrNode(find(session, destination)));
+            final Node copy = getJcrNode(find(session, destination));
+            touchLdpMembershipResource(copy);
+            // the copied indexes still hold the entries of the source's children
+            MembershipIndex.rebuildAll(copy);
+            MembershipIndex.update(copy);
+            ReferenceIndex.addAll(copy);
         } catch (final RepositoryException e) {
             throw new RepositoryRuntimeException(e);
         }
@@ -115,6 +125,8 @@ public class NodeServiceImpl extends AbstractService implements NodeService {
             final Node sourceNode = getJcrNode(srcResource);
             final String name = sourceNode.getName();
             final Node parent = sourceNode.getDepth() > 0 ? sourceNode.getParent() : null;
+            final Optional<Node> sourceContainer = getContainingNode(sourceNode);
+            final String identifier = sourceNode.getIdentifier();
 
             jcrSession.getWorkspace().move(source, destination);
 
@@ -125,6 +137,12 @@ public class NodeServiceImpl extends AbstractService implements NodeService {
             touchLdpMembershipResource(getJcrNode(find(session, source)));
             touchLdpMembershipResource(getJcrNode(find(session, destination)));
 
+            if (sourceContainer.isPresent()) {
+                MembershipIndex.remove(sourceContainer.get(), identifier);
+            }
+            MembershipIndex.update(getJcrNode(find(session, destination)));
+            ReferenceIndex.move(jcrSession, source, destination);
+
         } catch (final RepositoryException e) {
             throw new RepositoryRuntimeException(e);
         }
@@ -17,14 +17,23 @@
  */
 package org.fcrepo.kernel.modeshape.services;
 
+import static java.util.Arrays.asList;
+import static javax.jcr.query.Query.JCR_SQL2;
+import static org.fcrepo.kernel.api.FedoraTypes.LDP_DIRECT_CONTAINER;
+import static org.fcrepo.kernel.api.FedoraTypes.LDP_INDIRECT_CONTAINER;
 import static org.fcrepo.kernel.modeshape.FedoraRepositoryImpl.getJcrRepository;
 import static org.fcrepo.kernel.modeshape.FedoraSessionImpl.getJcrSession;
+import static org.fcrepo.kernel.modeshape.identifiers.NodeResourceConverter.nodeConverter;
 import static org.fcrepo.kernel.modeshape.services.ServiceHelpers.getRepositoryCount;
+import static org.modeshape.jcr.api.JcrConstants.JCR_PATH;
 import static org.slf4j.LoggerFactory.getLogger;
 
 import org.fcrepo.kernel.api.FedoraSession;
 import org.fcrepo.kernel.api.FedoraRepository;
 import org.fcrepo.kernel.api.exception.RepositoryRuntimeException;
+import org.fcrepo.kernel.api.models.FedoraResource;
+import org.fcrepo.kernel.modeshape.MembershipIndex;
+import org.fcrepo.kernel.modeshape.ReferenceIndex;
 
 import java.io.File;
 import java.util.ArrayList;
@@ -32,9 +41,12 @@ import java.util.Collection;
 
 
 import javax.inject.Inject;
+import javax.jcr.Node;
+import javax.jcr.NodeIterator;
 import javax.jcr.Repository;
 import javax.jcr.RepositoryException;
 import javax.jcr.Session;
+import javax.jcr.query.QueryManager;
 
 import org.fcrepo.kernel.api.services.RepositoryService;
 import org.modeshape.jcr.api.RepositoryManager;
@@ -140,4 +152,51 @@ public class RepositoryServiceImpl extends AbstractService implements Repository
         }
     }
 
+    /*
+     * (non-Javadoc)
+     * @see
+     * org.fcrepo.kernel.api.services.RepositoryService#rebuildMembershipIndexes(org.fcrepo.kernel.api.FedoraSession,
+     * boolean)
+     */
+    @Override
+    public Collection<FedoraResource> rebuildMembershipIndexes(final FedoraSession session,
+                                                               final boolean verifyOnly) {
+        final Session jcrSession = getJcrSession(session);
+        try {
+            final QueryManager queryManager = jcrSession.getWorkspace().getQueryManager();
+            final Collection<FedoraResource> outOfDate = new ArrayList<>();
+            for (final String type : asList(LDP_DIRECT_CONTAINER, LDP_INDIRECT_CONTAINER)) {
+                final String querystring = "SELECT [" + JCR_PATH + "] FROM [" + type + "]";
+                for (final NodeIterator nodes = queryManager.createQuery(querystring, JCR_SQL2).execute().getNodes();
+                        nodes.hasNext(); ) {
+                    final Node container = nodes.nextNode();
+                    if (!MembershipIndex.verify(container)) {
+                        LOGGER.info("Membership index of {} is out of date", container.getPath());
+                        outOfDate.add(nodeConverter.convert(container));
+                        if (!verifyOnly) {
+                            MembershipIndex.rebuild(container);
+                        }
+                    }
+                }
+            }
+            return outOfDate;
+        } catch (final RepositoryException e) {
+            throw new RepositoryRuntimeException(e);
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see
+     * org.fcrepo.kernel.api.services.RepositoryService#rebuildReferenceIndex(org.fcrepo.kernel.api.FedoraSession)
+     */
+    @Override
+    public long rebuildReferenceIndex(final FedoraSession session) {
+        try {
+            return ReferenceIndex.rebuild(getJcrSession(session));
+        } catch (final RepositoryException e) {
+            throw new RepositoryRuntimeException(e);
+        }
+    }
+
 }
@@ -33,6 +33,7 @@ import org.fcrepo.kernel.api.exception.ResourceTypeException;
 import org.fcrepo.kernel.api.models.FedoraTimeMap;
 import org.fcrepo.kernel.api.services.TimeMapService;
 import org.fcrepo.kernel.modeshape.FedoraTimeMapImpl;
+import org.fcrepo.kernel.modeshape.MementoIndex;
 import org.slf4j.Logger;
 import org.springframework.stereotype.Component;
 
@@ -77,6 +78,8 @@ public class TimeMapServiceImpl extends AbstractService implements TimeMapServic
 
                 // Set reference from timegate/map to original resource
                 node.setProperty(MEMENTO_ORIGINAL, node.getParent());
+
+                MementoIndex.create(node);
             }
 
             return new FedoraTimeMapImpl(node);
@@ -0,0 +1,129 @@
+/*
+ * Licensed to DuraSpace under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * DuraSpace licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.kernel.modeshape.services;
+
+/**
+ * A snapshot of the statistics of the batch operations of a node.  Counts are cumulative since the node was started.
+ *
+ * @author rdfloyd
+ */
+public final class TransactionStats {
+
+    private final int openCount;
+
+    private final long oldestAgeMillis;
+
+    private final long begunCount;
+
+    private final long committedCount;
+
+    private final long abortedCount;
+
+    private final long expiredCount;
+
+    private final long operationCount;
+
+    private final long meanCommitLatencyNanos;
+
+    private final long maxCommitLatencyNanos;
+
+    TransactionStats(final int openCount, final long oldestAgeMillis, final long begunCount,
+            final long committedCount, final long abortedCount, final long expiredCount, final long operationCount,
+            final long meanCommitLatencyNanos, final long maxCommitLatencyNanos) {
+        this.openCount = openCount;
+        this.oldestAgeMillis = oldestAgeMillis;
+        this.begunCount = begunCount;
+        this.committedCount = committedCount;
+        this.abortedCount = abortedCount;
+        this.expiredCount = expiredCount;
+        this.operationCount = operationCount;
+        this.meanCommitLatencyNanos = meanCommitLatencyNanos;
+        this.maxCommitLatencyNanos = maxCommitLatencyNanos;
+    }
+
+    /**
+     * @return the number of transactions open on this node
+     */
+    public int getOpenCount() {
+        return openCount;
+    }
+
+    /**
+     * @return the time in milliseconds since the oldest open transaction was begun, or zero if none is open
+     */
+    public long getOldestAgeMillis() {
+        return oldestAgeMillis;
+    }
+
+    /**
+     * @return the number of transactions begun
+     */
+    public long getBegunCount() {
+        return begunCount;
+    }
+
+    /**
+     * @return the number of transactions committed
+     */
+    public long getCommittedCount() {
+        return committedCount;
+    }
+
+    /**
+     * @return the number of transactions rolled back at the request of a client
+     */
+    public long getAbortedCount() {
+        return abortedCount;
+    }
+
+    /**
+     * @return the number of transactions rolled back because they expired
+     */
+    public long getExpiredCount() {
+        return expiredCount;
+    }
+
+    /**
+     * @return the number of requests made within transactions
+     */
+    public long getOperationCount() {
+        return operationCount;
+    }
+
+    /**
+     * @return the mean time in milliseconds taken to commit a transaction
+     */
+    public double getMeanCommitLatencyMillis() {
+        return meanCommitLatencyNanos / 1e6;
+    }
+
+    /**
+     * @return the longest time in milliseconds taken to commit a transaction
+     */
+    public double getMaxCommitLatencyMillis() {
+        return maxCommitLatencyNanos / 1e6;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("open: %d, oldest: %d ms, begun: %d, committed: %d, aborted: %d, expired: %d, " +
+                "operations: %d, mean commit latency: %.2f ms, max commit latency: %.2f ms", openCount,
+                oldestAgeMillis, begunCount, committedCount, abortedCount, expiredCount, operationCount,
+                getMeanCommitLatencyMillis(), getMaxCommitLatencyMillis());
+    }
+}
@@ -35,12 +35,14 @@ import static org.fcrepo.kernel.api.RequiredRdfContext.PROPERTIES;
 import static org.fcrepo.kernel.api.RequiredRdfContext.SERVER_MANAGED;
 import static org.fcrepo.kernel.api.RdfLexicon.LDPCV_TIME_MAP;
 import static org.fcrepo.kernel.modeshape.FedoraSessionImpl.getJcrSession;
+import static org.fcrepo.kernel.modeshape.InternalFedoraBinary.identifiesContent;
 import static org.fcrepo.kernel.modeshape.rdf.impl.RequiredPropertiesUtil.assertRequiredContainerTriples;
 import static org.fcrepo.kernel.modeshape.rdf.impl.RequiredPropertiesUtil.assertRequiredDescriptionTriples;
 import static org.fcrepo.kernel.modeshape.utils.FedoraTypesUtils.getJcrNode;
 import static org.modeshape.jcr.api.JcrConstants.NT_FOLDER;
 import static org.slf4j.LoggerFactory.getLogger;
 import static org.fcrepo.kernel.api.utils.SubjectMappingUtil.mapSubject;
+import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
 import java.time.Instant;
@@ -83,6 +85,9 @@ import org.fcrepo.kernel.api.services.BinaryService;
 import org.fcrepo.kernel.api.services.VersionService;
 import org.fcrepo.kernel.api.services.policy.StoragePolicyDecisionPoint;
 import org.fcrepo.kernel.modeshape.ContainerImpl;
+import org.fcrepo.kernel.modeshape.InternalFedoraBinary;
+import org.fcrepo.kernel.modeshape.MementoContainment;
+import org.fcrepo.kernel.modeshape.MementoIndex;
 import org.fcrepo.kernel.modeshape.rdf.impl.InternalIdentifierTranslator;
 import org.fcrepo.kernel.modeshape.utils.iterators.RelaxedRdfAdder;
 import org.slf4j.Logger;
@@ -106,6 +111,28 @@ public class VersionServiceImpl extends AbstractService implements VersionServic
     public static final Set<TripleCategory> VERSION_TRIPLES = new HashSet<>(asList(
             PROPERTIES, SERVER_MANAGED, LDP_MEMBERSHIP, LDP_CONTAINMENT));
 
+    /**
+     * The triples stored as properties of a memento whose containment triples are stored as deltas
+     */
+    private static final Set<TripleCategory> DELTA_VERSION_TRIPLES = new HashSet<>(asList(
+            PROPERTIES, SERVER_MANAGED, LDP_MEMBERSHIP));
+
+    /**
+     * System property to store the containment triples of container mementos as deltas from the previous memento
+     * rather than in full; "true" or "false", the default.
+     */
+    public static final String DELTA_MEMENTOS_PROPERTY = "fcrepo.memento.delta";
+
+    /**
+     * System property giving the number of mementos from one full checkpoint of containment triples to the next when
+     * they are stored as deltas.
+     */
+    public static final String CHECKPOINT_INTERVAL_PROPERTY = "fcrepo.memento.checkpointInterval";
+
+    private boolean deltaMementos = Boolean.getBoolean(DELTA_MEMENTOS_PROPERTY);
+
+    private int checkpointInterval = Integer.getInteger(CHECKPOINT_INTERVAL_PROPERTY, 10);
+
     /**
      * The bitstream service
      */
@@ -143,10 +170,14 @@ public class VersionServiceImpl extends AbstractService implements VersionServic
         final String mementoUri = getUri(mementoResource, idTranslator);
         final String resourceUri = getUri(resource.getDescribedResource(), idTranslator);
 
+        // Containment is only stored as deltas for versions of the current state of a container
+        final boolean deltaContainment = deltaMementos && rdfInputStream == null && resource instanceof Container;
+
         final RdfStream mementoRdfStream;
         if (rdfInputStream == null) {
             // With no rdf body provided, create version from current resource state.
-            mementoRdfStream = resource.getTriples(idTranslator, VERSION_TRIPLES);
+            mementoRdfStream = resource.getTriples(idTranslator,
+                    deltaContainment ? DELTA_VERSION_TRIPLES : VERSION_TRIPLES);
         } else {
             final Model inputModel = ModelFactory.createDefaultModel();
             inputModel.read(rdfInputStream, mementoUri, rdfFormat.getName());
@@ -177,9 +208,32 @@ public class VersionServiceImpl extends AbstractService implements VersionServic
 
         decorateWithMementoProperties(session, mementoPath, dateTime);
 
+        if (deltaContainment) {
+            try (final RdfStream containment = resource.getTriples(idTranslator, LDP_CONTAINMENT)) {
+                MementoContainment.write(getJcrNode(mementoResource), containment, idTranslator,
+                        checkpointInterval);
+            } catch (final RepositoryException e) {
+                throw new RepositoryRuntimeException(e);
+            }
+        }
+
         return mementoResource;
     }
 
+    /**
+     * @param deltaMementos whether to store the containment triples of container mementos as deltas
+     */
+    public void setDeltaMementos(final boolean deltaMementos) {
+        this.deltaMementos = deltaMementos;
+    }
+
+    /**
+     * @param checkpointInterval the number of mementos from one full checkpoint of containment triples to the next
+     */
+    public void setCheckpointInterval(final int checkpointInterval) {
+        this.checkpointInterval = checkpointInterval;
+    }
+
     /*
      * Creates a minimal container node for further population elsewhere
      */
@@ -295,6 +349,15 @@ public class VersionServiceImpl extends AbstractService implements VersionServic
         if (contentStream == null) {
             // Creating memento from existing resource
             populateBinaryMementoFromExisting(resource, memento, storagePolicyDecisionPoint);
+        } else if (identifiesContent(checksums) && isInternal(resource) &&
+                asInternalBinary(memento).shareContent(asInternalBinary(resource), null, checksums, null)) {
+            // The provided content is that of the original, which the memento shares rather than stores again
+            LOGGER.debug("Memento {} shares the content of {}", mementoPath, resource.getPath());
+            try {
+                contentStream.close();
+            } catch (final IOException e) {
+                LOGGER.debug("Unable to close unread content of memento {}: {}", mementoPath, e.getMessage());
+            }
         } else {
             memento.setContent(contentStream, null, checksums, null, storagePolicyDecisionPoint);
         }
@@ -302,6 +365,14 @@ public class VersionServiceImpl extends AbstractService implements VersionServic
         return memento;
     }
 
+    private static boolean isInternal(final FedoraBinary binary) {
+        return !binary.isProxy() && !binary.isRedirect();
+    }
+
+    private static InternalFedoraBinary asInternalBinary(final FedoraBinary binary) {
+        return new InternalFedoraBinary(getJcrNode(binary));
+    }
+
     private void populateBinaryMementoFromExisting(final FedoraBinary resource, final FedoraBinary memento,
             final StoragePolicyDecisionPoint storagePolicyDecisionPoint) throws InvalidChecksumException {
 
@@ -335,6 +406,9 @@ public class VersionServiceImpl extends AbstractService implements VersionServic
             // Create memento as external or internal based on state of original
             if (handling != null && externalUrl != null) {
                 memento.setExternalContent(null, checksums, null, handling, externalUrl);
+            } else if (asInternalBinary(memento).shareContent(asInternalBinary(resource), null, checksums, null)) {
+                // The memento shares the stored content of the original rather than copying it
+                LOGGER.debug("Memento of {} shares its content", resource.getPath());
             } else {
                 memento.setContent(resource.getContent(), null, checksums,
                         null, storagePolicyDecisionPoint);
@@ -366,6 +440,7 @@ public class VersionServiceImpl extends AbstractService implements VersionServic
             final Calendar mementoDatetime = GregorianCalendar.from(
                     ZonedDateTime.ofInstant(dateTime, ZoneId.of("UTC")));
             mementoNode.setProperty(MEMENTO_DATETIME, mementoDatetime);
+            MementoIndex.add(mementoNode.getParent(), dateTime);
         } catch (final RepositoryException e) {
             throw new RepositoryRuntimeException(e);
         }
@@ -25,10 +25,12 @@ import java.util.concurrent.Future;
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
 import javax.inject.Inject;
+import javax.jcr.Session;
 
 import org.fcrepo.kernel.api.FedoraRepository;
 import org.fcrepo.kernel.api.exception.RepositoryRuntimeException;
 import org.fcrepo.kernel.modeshape.FedoraRepositoryImpl;
+import org.fcrepo.kernel.modeshape.ReferenceIndex;
 import org.modeshape.jcr.JcrRepository;
 import org.modeshape.jcr.ModeShapeEngine;
 import org.modeshape.jcr.NoSuchRepositoryException;
@@ -82,6 +84,13 @@ public class ModeShapeRepositoryFactoryBean implements
                 LOGGER.error("ModeShape Start Problem: {}", p.getMessageString());
                 // TODO determine problems that should be runtime errors
             }
+
+            final Session session = repository.login();
+            try {
+                ReferenceIndex.initialize(session);
+            } finally {
+                session.logout();
+            }
         } catch (final Exception e) {
             throw new RepositoryRuntimeException(e);
         }
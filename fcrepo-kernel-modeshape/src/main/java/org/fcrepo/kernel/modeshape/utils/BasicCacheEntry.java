@@ -28,12 +28,8 @@ import org.slf4j.Logger;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
-import java.security.DigestInputStream;
-import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.Collection;
-import java.util.HashMap;
-import java.util.Map;
 import java.util.stream.Collectors;
 
 import static java.util.Collections.singletonList;
@@ -47,15 +43,11 @@ import static org.slf4j.LoggerFactory.getLogger;
  */
 public abstract class BasicCacheEntry implements CacheEntry {
 
-    private static final int DEV_NULL_BUFFER_SIZE = 4096;
-
-    private static final byte[] devNull = new byte[DEV_NULL_BUFFER_SIZE];
-
     private static final Logger LOGGER = getLogger(BasicCacheEntry.class);
 
     /**
      * Calculate the fixity of a CacheEntry by piping it through
-     * a simple fixity-calculating InputStream
+     * the fixity engine
      *
      * @param algorithm the digest algorithm to be used
      * @return the fixity of this cache entry
@@ -63,18 +55,14 @@ public abstract class BasicCacheEntry implements CacheEntry {
     @Override
     public Collection<FixityResult> checkFixity(final String algorithm) {
 
-        try (FixityInputStream fixityInputStream = new FixityInputStream(
-                this.getInputStream(), MessageDigest.getInstance(algorithm))) {
+        try {
+            final FixityEngine.Digests digests = digest(singletonList(algorithm));
 
-            // actually calculate the digest by consuming the stream
-            while (fixityInputStream.read(devNull) != -1) { }
-
-            final URI calculatedChecksum =
-                    ContentDigest.asURI(algorithm, fixityInputStream.getMessageDigest().digest());
+            final URI calculatedChecksum = ContentDigest.asURI(algorithm, digests.getDigest(algorithm));
 
             final FixityResult result =
                 new FixityResultImpl(getExternalIdentifier(),
-                                    fixityInputStream.getByteCount(),
+                                    digests.getByteCount(),
                                     calculatedChecksum,
                                     algorithm);
 
@@ -89,7 +77,7 @@ public abstract class BasicCacheEntry implements CacheEntry {
 
     /**
      * Calculate fixity with list of digest algorithms of a CacheEntry by piping it through
-     * a simple fixity-calculating InputStream
+     * the fixity engine, which computes the algorithms in parallel
      *
      * @param algorithms the digest algorithms to be used
      * @return the checksums for the digest algorithms
@@ -98,29 +86,30 @@ public abstract class BasicCacheEntry implements CacheEntry {
     @Override
     public Collection<URI> checkFixity(final Collection<String> algorithms) throws UnsupportedAlgorithmException {
 
-        try (InputStream binaryStream = this.getInputStream()) {
-
-            final Map<String, DigestInputStream> digestInputStreams = new HashMap<>();
-            InputStream digestStream = binaryStream;
-            for (String digestAlg : algorithms) {
-
-                try {
-                    digestStream = new DigestInputStream(digestStream, MessageDigest.getInstance(digestAlg));
-                    digestInputStreams.put(digestAlg, (DigestInputStream)digestStream);
-                } catch (NoSuchAlgorithmException e) {
-                    throw new UnsupportedAlgorithmException("Unsupported digest algorithm: " + digestAlg);
-                }
-            }
-
-            // calculate the digest by consuming the stream
-            while (digestStream.read(devNull) != -1) { }
-
-            return digestInputStreams.entrySet().stream()
-                .map(entry -> ContentDigest.asURI(entry.getKey(), entry.getValue().getMessageDigest().digest()))
+        try {
+            return digest(algorithms).getDigests().entrySet().stream()
+                .map(entry -> ContentDigest.asURI(entry.getKey(), entry.getValue()))
                 .collect(Collectors.toSet());
+        } catch (final NoSuchAlgorithmException e) {
+            throw new UnsupportedAlgorithmException("Unsupported digest algorithm: " + e.getMessage());
         } catch (final IOException e) {
             LOGGER.debug("Got error closing input stream: {}", e);
             throw new RepositoryRuntimeException(e);
         }
     }
+
+    /**
+     * Digest the content of this cache entry.  By default its stream is read.
+     *
+     * @param algorithms the digest algorithms to be used
+     * @return the digests
+     * @throws IOException if the content could not be read
+     * @throws NoSuchAlgorithmException if an algorithm is not available
+     */
+    protected FixityEngine.Digests digest(final Collection<String> algorithms)
+            throws IOException, NoSuchAlgorithmException {
+        try (InputStream binaryStream = this.getInputStream()) {
+            return FixityEngine.digest(binaryStream, algorithms);
+        }
+    }
 }
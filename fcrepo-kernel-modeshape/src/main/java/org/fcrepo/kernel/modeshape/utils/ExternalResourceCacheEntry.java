@@ -19,9 +19,13 @@ package org.fcrepo.kernel.modeshape.utils;
 
 import static org.slf4j.LoggerFactory.getLogger;
 
+import java.io.IOException;
 import java.io.InputStream;
 import java.net.MalformedURLException;
 import java.net.URI;
+import java.nio.file.Paths;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
 
 import javax.jcr.Property;
 import javax.jcr.RepositoryException;
@@ -74,4 +78,17 @@ public class ExternalResourceCacheEntry extends BinaryCacheEntry {
             throw new RepositoryRuntimeException(e);
         }
     }
+
+    /**
+     * Content in a local file is digested from the file itself, rather than from a stream.
+     */
+    @Override
+    protected FixityEngine.Digests digest(final Collection<String> algorithms)
+            throws IOException, NoSuchAlgorithmException {
+        final URI uri = URI.create(getExternalIdentifier());
+        if ("file".equalsIgnoreCase(uri.getScheme())) {
+            return FixityEngine.digest(Paths.get(uri), algorithms);
+        }
+        return super.digest(algorithms);
+    }
 }
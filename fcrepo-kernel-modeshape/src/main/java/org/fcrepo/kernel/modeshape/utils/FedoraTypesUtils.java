@@ -31,6 +31,7 @@ import org.fcrepo.kernel.api.exception.AccessDeniedException;
 import org.fcrepo.kernel.api.exception.RepositoryRuntimeException;
 import org.fcrepo.kernel.api.models.FedoraResource;
 import org.fcrepo.kernel.modeshape.FedoraResourceImpl;
+import org.fcrepo.kernel.modeshape.LastModifiedCoalescer;
 import org.fcrepo.kernel.modeshape.services.functions.AnyTypesPredicate;
 import org.modeshape.jcr.JcrRepository;
 import org.modeshape.jcr.cache.NodeKey;
@@ -58,6 +59,11 @@ import static org.fcrepo.kernel.modeshape.FedoraJcrConstants.JCR_CREATEDBY;
 import static org.fcrepo.kernel.modeshape.FedoraJcrConstants.JCR_LASTMODIFIED;
 import static org.fcrepo.kernel.modeshape.FedoraJcrConstants.JCR_LASTMODIFIEDBY;
 import static org.fcrepo.kernel.modeshape.FedoraJcrConstants.ROOT;
+import static org.fcrepo.kernel.modeshape.MementoContainment.MEMENTO_CONTAINS;
+import static org.fcrepo.kernel.modeshape.MementoContainment.MEMENTO_CONTAINS_BASE;
+import static org.fcrepo.kernel.modeshape.MementoContainment.MEMENTO_CONTAINS_DEPTH;
+import static org.fcrepo.kernel.modeshape.MementoContainment.MEMENTO_CONTAINS_REMOVED;
+import static org.fcrepo.kernel.modeshape.MementoIndex.MEMENTO_INDEX;
 import static org.fcrepo.kernel.modeshape.services.functions.JcrPropertyFunctions.isBinaryContentProperty;
 import static org.fcrepo.kernel.modeshape.utils.NamespaceTools.getNamespaceRegistry;
 import static org.fcrepo.kernel.modeshape.utils.UncheckedPredicate.uncheck;
@@ -90,7 +96,12 @@ public abstract class FedoraTypesUtils implements FedoraTypes {
             JCR_CREATED,
             JCR_CREATEDBY,
             JCR_MIXIN_TYPES,
-            MEMENTO_DATETIME);
+            MEMENTO_DATETIME,
+            MEMENTO_INDEX,
+            MEMENTO_CONTAINS,
+            MEMENTO_CONTAINS_REMOVED,
+            MEMENTO_CONTAINS_BASE,
+            MEMENTO_CONTAINS_DEPTH);
 
     private static final Set<String> validJcrProperties = of(
             JCR_CREATED,
@@ -171,7 +182,8 @@ public abstract class FedoraTypesUtils implements FedoraTypes {
     */
     public static final Predicate<Property> isInternalProperty = isBinaryContentProperty
                             .or(isProtectedAndShouldBeHidden::test)
-                            .or(uncheck(p -> privateProperties.contains(p.getName())));
+                            .or(uncheck(p -> privateProperties.contains(p.getName())))
+                            .or(uncheck(p -> p.getName().startsWith(MEMENTO_INDEX + ".")));
 
     /**
      * Check whether a type is an internal type that should be suppressed from external output.
@@ -422,7 +434,12 @@ public abstract class FedoraTypesUtils implements FedoraTypes {
                         .flatMap(resourceToProperty(node.getSession())).filter(uncheck(node::hasProperty));
                 if (parent.isNodeType(LDP_DIRECT_CONTAINER) ||
                         (parent.isNodeType(LDP_INDIRECT_CONTAINER) && hasInsertedContentProperty.isPresent())) {
-                    touch(parent.getProperty(LDP_MEMBER_RESOURCE).getNode(), date, user);
+                    final Node membershipResource = parent.getProperty(LDP_MEMBER_RESOURCE).getNode();
+                    if (date == null && user == null) {
+                        touchContainer(membershipResource);
+                    } else {
+                        touch(membershipResource, date, user);
+                    }
                 }
             } catch (final javax.jcr.AccessDeniedException ex) {
                 throw new AccessDeniedException(ex);
@@ -432,6 +449,23 @@ public abstract class FedoraTypesUtils implements FedoraTypes {
         });
     }
 
+    /**
+     * Updates the LAST_MODIFIED_DATE and LAST_MODIFIED_BY properties of a container whose children or members have
+     * changed to now, and the current user respectively.  If such updates are coalesced, the update to a container
+     * that already exists is left to the {@link LastModifiedCoalescer}.
+     *
+     * @param node The JCR node
+     */
+    public static void touchContainer(final Node node) {
+        try {
+            if (!LastModifiedCoalescer.isEnabled() || node.isNew() || !LastModifiedCoalescer.defer(node)) {
+                touch(node);
+            }
+        } catch (final RepositoryException ex) {
+            throw new RepositoryRuntimeException(ex);
+        }
+    }
+
     /**
      * Updates the LAST_MODIFIED_DATE and LAST_MODIFIED_BY properties to now, and the current user
      * respectively.
@@ -0,0 +1,200 @@
+/*
+ * Licensed to DuraSpace under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * DuraSpace licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.kernel.modeshape.utils;
+
+import static java.nio.channels.FileChannel.MapMode.READ_ONLY;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.slf4j.LoggerFactory.getLogger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import org.apache.commons.io.IOUtils;
+import org.slf4j.Logger;
+
+/**
+ * Computes the digests of content for fixity checks, with every algorithm in parallel on a thread of its own.
+ * Streamed content is read into a small pool of large buffers, the size of which is set by the
+ * {@value #BUFFER_SIZE_PROPERTY} system property, so that reading the next buffer overlaps digesting the previous
+ * ones.  Content held in a local file is memory-mapped a region at a time instead, so that the digesting threads read
+ * straight from the page cache without it being copied at all.
+ *
+ * @author rdfloyd
+ */
+public final class FixityEngine {
+
+    private static final Logger LOGGER = getLogger(FixityEngine.class);
+
+    /**
+     * System property setting the size in bytes of the buffers into which streamed content is read
+     */
+    public static final String BUFFER_SIZE_PROPERTY = "fcrepo.fixity.buffer.size";
+
+    private static final int DEFAULT_BUFFER_SIZE = 1 << 20;
+
+    private static final int BUFFERS = 4;
+
+    private static final long MAPPED_REGION_SIZE = 64L << 20;
+
+    private FixityEngine() {
+    }
+
+    /**
+     * Digest a stream to its end.
+     *
+     * @param in the stream, which is not closed
+     * @param algorithms the digest algorithms
+     * @return the digests
+     * @throws IOException if the stream could not be read
+     * @throws NoSuchAlgorithmException if an algorithm is not available
+     */
+    public static Digests digest(final InputStream in, final Collection<String> algorithms)
+            throws IOException, NoSuchAlgorithmException {
+        final ParallelDigester digester = new ParallelDigester(algorithms);
+        final int bufferSize = Integer.getInteger(BUFFER_SIZE_PROPERTY, DEFAULT_BUFFER_SIZE);
+        final BlockingQueue<byte[]> buffers = new ArrayBlockingQueue<>(BUFFERS);
+        for (int i = 0; i < BUFFERS; i++) {
+            buffers.add(new byte[bufferSize]);
+        }
+        final long start = System.nanoTime();
+        long count = 0;
+        try {
+            while (true) {
+                byte[] buffer;
+                while ((buffer = buffers.poll(1, SECONDS)) == null) {
+                    digester.check();
+                }
+                // fill the buffer, since streams often return less than is asked for
+                final int read = IOUtils.read(in, buffer);
+                if (read == 0) {
+                    break;
+                }
+                final byte[] filled = buffer;
+                digester.update(ByteBuffer.wrap(filled, 0, read), () -> buffers.add(filled));
+                count += read;
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            digester.cancel();
+            throw new InterruptedIOException("Interrupted while digesting content");
+        } catch (final IOException | RuntimeException e) {
+            digester.cancel();
+            throw e;
+        }
+        return finish(digester, count, start);
+    }
+
+    /**
+     * Digest a file.
+     *
+     * @param file the file
+     * @param algorithms the digest algorithms
+     * @return the digests
+     * @throws IOException if the file could not be read
+     * @throws NoSuchAlgorithmException if an algorithm is not available
+     */
+    public static Digests digest(final Path file, final Collection<String> algorithms)
+            throws IOException, NoSuchAlgorithmException {
+        final ParallelDigester digester = new ParallelDigester(algorithms);
+        final long start = System.nanoTime();
+        long count = 0;
+        try (final FileChannel channel = FileChannel.open(file, READ)) {
+            final long size = channel.size();
+            while (count < size) {
+                final long length = Math.min(MAPPED_REGION_SIZE, size - count);
+                digester.update(channel.map(READ_ONLY, count, length));
+                count += length;
+            }
+        } catch (final IOException | RuntimeException e) {
+            digester.cancel();
+            throw e;
+        }
+        return finish(digester, count, start);
+    }
+
+    private static Digests finish(final ParallelDigester digester, final long count, final long start) {
+        final Digests digests = new Digests(digester.getDigests(), count, System.nanoTime() - start);
+        LOGGER.debug("Digested {} bytes with {} in {} ms ({} MB/s)", count, digests.getDigests().keySet(),
+                digests.getElapsedNanos() / 1000000, String.format("%.1f", digests.getThroughput() / 1e6));
+        return digests;
+    }
+
+    /**
+     * The digests of some content, with how long they took to compute
+     */
+    public static final class Digests {
+
+        private final Map<String, byte[]> digests;
+
+        private final long byteCount;
+
+        private final long elapsedNanos;
+
+        private Digests(final Map<String, byte[]> digests, final long byteCount, final long elapsedNanos) {
+            this.digests = digests;
+            this.byteCount = byteCount;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        /**
+         * @return the digests by algorithm
+         */
+        public Map<String, byte[]> getDigests() {
+            return digests;
+        }
+
+        /**
+         * @param algorithm the digest algorithm
+         * @return the digest computed with the algorithm
+         */
+        public byte[] getDigest(final String algorithm) {
+            return digests.get(algorithm);
+        }
+
+        /**
+         * @return the number of bytes digested
+         */
+        public long getByteCount() {
+            return byteCount;
+        }
+
+        /**
+         * @return the time taken to digest the content, in nanoseconds
+         */
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        /**
+         * @return the number of bytes digested per second
+         */
+        public double getThroughput() {
+            return elapsedNanos > 0 ? byteCount * 1e9 / elapsedNanos : 0;
+        }
+    }
+}
@@ -0,0 +1,206 @@
+/*
+ * Licensed to DuraSpace under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * DuraSpace licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.kernel.modeshape.utils;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * An InputStream wrapper that digests what is read through it with several algorithms in a single pass.  Each
+ * algorithm is computed on a thread of its own, so that hashing overlaps both the reading of the stream and the other
+ * algorithms.  What is read is copied into a few pooled buffers, which are handed to the algorithms as they fill and
+ * reused once digested, so a reader faster than the slowest algorithm waits for it.  With only one processor
+ * available the algorithms are computed by the reading thread, straight from the caller's buffer.
+ *
+ * @author rdfloyd
+ */
+public class MultiDigestInputStream extends FilterInputStream {
+
+    private static final int SKIP_BUFFER_SIZE = 8192;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final int BUFFERS = 4;
+
+    private final ParallelDigester digester;
+
+    private final BlockingQueue<byte[]> buffers = new ArrayBlockingQueue<>(BUFFERS);
+
+    private int allocated;
+
+    private byte[] pending;
+
+    private int filled;
+
+    private boolean complete;
+
+    /**
+     * @param in the stream to digest
+     * @param algorithms the digest algorithms to compute
+     * @throws NoSuchAlgorithmException if an algorithm is not available
+     */
+    public MultiDigestInputStream(final InputStream in, final Collection<String> algorithms)
+            throws NoSuchAlgorithmException {
+        super(in);
+        this.digester = new ParallelDigester(algorithms);
+    }
+
+    @Override
+    public int read() throws IOException {
+        final int b = in.read();
+        if (b == -1) {
+            finish();
+        } else {
+            digest(new byte[] { (byte) b }, 0, 1);
+        }
+        return b;
+    }
+
+    @Override
+    public int read(final byte[] b, final int off, final int len) throws IOException {
+        final int count = in.read(b, off, len);
+        if (count == -1) {
+            finish();
+        } else if (count > 0) {
+            digest(b, off, count);
+        }
+        return count;
+    }
+
+    private void digest(final byte[] b, final int off, final int len) throws IOException {
+        if (digester.isInline()) {
+            digester.update(ByteBuffer.wrap(b, off, len));
+            return;
+        }
+        for (int copied = 0; copied < len; ) {
+            if (pending == null) {
+                pending = takeBuffer();
+            }
+            final int length = Math.min(len - copied, pending.length - filled);
+            System.arraycopy(b, off + copied, pending, filled, length);
+            filled += length;
+            copied += length;
+            if (filled == pending.length) {
+                flush();
+            }
+        }
+    }
+
+    private void flush() throws IOException {
+        if (filled > 0) {
+            final byte[] buffer = pending;
+            pending = null;
+            final int length = filled;
+            filled = 0;
+            digester.update(ByteBuffer.wrap(buffer, 0, length), () -> buffers.add(buffer));
+        }
+    }
+
+    private void finish() throws IOException {
+        if (!complete) {
+            flush();
+            complete = true;
+            digester.end();
+        }
+    }
+
+    /**
+     * Take a buffer that has been digested, allocating one while there are fewer than the pool holds
+     */
+    private byte[] takeBuffer() throws IOException {
+        byte[] buffer = buffers.poll();
+        if (buffer == null && allocated < BUFFERS) {
+            allocated++;
+            return new byte[BUFFER_SIZE];
+        }
+        try {
+            while (buffer == null) {
+                buffer = buffers.poll(1, SECONDS);
+                if (buffer == null) {
+                    digester.check();
+                }
+            }
+            return buffer;
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            digester.cancel();
+            throw new InterruptedIOException("Interrupted while digesting content");
+        }
+    }
+
+    /**
+     * Skipped bytes are read, so that they are digested as well.
+     */
+    @Override
+    public long skip(final long n) throws IOException {
+        final byte[] buffer = new byte[(int) Math.min(n, SKIP_BUFFER_SIZE)];
+        long skipped = 0;
+        while (skipped < n) {
+            final int count = read(buffer, 0, (int) Math.min(n - skipped, buffer.length));
+            if (count == -1) {
+                break;
+            }
+            skipped += count;
+        }
+        return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            super.close();
+        } finally {
+            digester.end();
+        }
+    }
+
+    /**
+     * @return whether the stream has been read to its end
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    /**
+     * Get the digests of the stream, waiting for the algorithms to finish.
+     *
+     * @return the digests by algorithm
+     * @throws IllegalStateException if the stream has not been read to its end
+     */
+    public Map<String, byte[]> getDigests() {
+        if (!complete) {
+            throw new IllegalStateException("The stream has not been read to its end");
+        }
+        return digester.getDigests();
+    }
+}
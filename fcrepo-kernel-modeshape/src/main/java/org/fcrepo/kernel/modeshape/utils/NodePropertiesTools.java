@@ -19,6 +19,8 @@ package org.fcrepo.kernel.modeshape.utils;
 
 import static java.util.Arrays.asList;
 import static java.util.Arrays.stream;
+import static javax.jcr.PropertyType.REFERENCE;
+import static javax.jcr.PropertyType.WEAKREFERENCE;
 import static org.apache.jena.datatypes.xsd.XSDDatatype.XSDstring;
 import static org.fcrepo.kernel.modeshape.FedoraJcrConstants.FIELD_DELIMITER;
 import static org.fcrepo.kernel.modeshape.utils.FedoraTypesUtils.getJcrNode;
@@ -48,6 +50,7 @@ import org.fcrepo.kernel.api.models.FedoraResource;
 import org.fcrepo.kernel.api.exception.IdentifierConversionException;
 import org.fcrepo.kernel.api.exception.NoSuchPropertyDefinitionException;
 import org.fcrepo.kernel.api.identifiers.IdentifierConverter;
+import org.fcrepo.kernel.modeshape.ReferenceIndex;
 import org.slf4j.Logger;
 
 /**
@@ -122,6 +125,10 @@ public class NodePropertiesTools {
             }
         }
 
+        if (newValue.getType() == REFERENCE || newValue.getType() == WEAKREFERENCE) {
+            ReferenceIndex.add(node.getSession().getNodeByIdentifier(newValue.getString()));
+        }
+
         if (!property.isMultiple() && !isInternalReferenceProperty.test(property)) {
             final String referencePropertyName = getReferencePropertyName(propertyName);
             if (node.hasProperty(referencePropertyName)) {
@@ -227,6 +234,7 @@ public class NodePropertiesTools {
 
                 // we only need to update the property if we did anything.
                 if (remove.get()) {
+                    releaseReference(node, property, strValueToRemove);
                     if (newValues.length == 0) {
                         LOGGER.debug("Removing property '{}'", propertyName);
                         property.remove();
@@ -246,6 +254,7 @@ public class NodePropertiesTools {
                 LOGGER.debug("Removing string '{}'", strValueToRemove);
                 if (StringUtils.equals(strPropValWithoutStringType, strValueToRemoveWithoutStringType)) {
                     LOGGER.debug("single value: Removing value from property '{}'", propertyName);
+                    releaseReference(node, property, strValueToRemove);
                     property.remove();
                 } else {
                     LOGGER.debug("Value not removed from property name '{}' (property value: '{}';compare value: '{}')",
@@ -257,6 +266,13 @@ public class NodePropertiesTools {
         }
     }
 
+    private static void releaseReference(final Node node, final Property property, final String identifier)
+            throws RepositoryException {
+        if (property.getType() == REFERENCE || property.getType() == WEAKREFERENCE) {
+            ReferenceIndex.release(node.getSession(), identifier);
+        }
+    }
+
     private String removeStringTypes(final String value) {
         if (value != null) {
             // Remove string datatype
@@ -0,0 +1,304 @@
+/*
+ * Licensed to DuraSpace under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * DuraSpace licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.kernel.modeshape.utils;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.fcrepo.kernel.api.exception.RepositoryRuntimeException;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Computes the digests of some content with several algorithms at once, each on a thread of its own.  The buffers
+ * handed to it are shared by those threads, each reading through a view of its own, so a buffer must not be modified
+ * until every algorithm has digested it, which the producer may ask to be told of in order to reuse the buffer.  The
+ * queue of buffers waiting for each algorithm is bounded, so that a producer faster than the slowest algorithm waits
+ * for it.
+ *
+ * <p>The digesting threads come from a pool of at most {@value #THREADS_PROPERTY} threads (by default twice the
+ * number of processors).  An algorithm for which no thread is free, and every algorithm when only one processor is
+ * available, is digested by the producing thread instead.  Neither side waits on the other indefinitely: a producer
+ * whose digest has failed or been cancelled is told so rather than left waiting for room in its queue, and a digest
+ * that is given no content for {@value #IDLE_TIMEOUT} ms, as when its content is abandoned unread, gives up its
+ * thread.</p>
+ *
+ * @author rdfloyd
+ */
+final class ParallelDigester {
+
+    /**
+     * System property setting the maximum number of threads digesting content
+     */
+    static final String THREADS_PROPERTY = "fcrepo.digest.threads";
+
+    private static final int QUEUE_CAPACITY = 16;
+
+    private static final long WAIT_INTERVAL = 1000;
+
+    private static final long IDLE_TIMEOUT = 300000;
+
+    private static final Chunk END = new Chunk(ByteBuffer.allocate(0), null);
+
+    private static final ExecutorService DIGESTERS = new ThreadPoolExecutor(0,
+            Integer.getInteger(THREADS_PROPERTY, 2 * Runtime.getRuntime().availableProcessors()), 60, SECONDS,
+            new SynchronousQueue<>(), new ThreadFactoryBuilder().setNameFormat("fcrepo-digest-%d").setDaemon(true)
+                    .build());
+
+    private final Map<String, BlockingQueue<Chunk>> queues = new LinkedHashMap<>();
+
+    private final Map<String, Future<byte[]>> digests = new LinkedHashMap<>();
+
+    private final Map<String, MessageDigest> inline = new LinkedHashMap<>();
+
+    private final Collection<String> algorithms;
+
+    private Map<String, byte[]> results;
+
+    private volatile boolean cancelled;
+
+    private boolean ended;
+
+    /**
+     * @param algorithms the digest algorithms to compute
+     * @throws NoSuchAlgorithmException if an algorithm is not available
+     */
+    ParallelDigester(final Collection<String> algorithms) throws NoSuchAlgorithmException {
+        final Map<String, MessageDigest> messageDigests = new LinkedHashMap<>();
+        for (final String algorithm : algorithms) {
+            messageDigests.putIfAbsent(algorithm, MessageDigest.getInstance(algorithm));
+        }
+        this.algorithms = messageDigests.keySet();
+        if (Runtime.getRuntime().availableProcessors() < 2) {
+            inline.putAll(messageDigests);
+            return;
+        }
+        messageDigests.forEach((algorithm, messageDigest) -> {
+            final BlockingQueue<Chunk> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+            try {
+                digests.put(algorithm, DIGESTERS.submit(() -> digest(queue, messageDigest)));
+                queues.put(algorithm, queue);
+            } catch (final RejectedExecutionException e) {
+                inline.put(algorithm, messageDigest);
+            }
+        });
+    }
+
+    private byte[] digest(final BlockingQueue<Chunk> queue, final MessageDigest messageDigest) throws Exception {
+        try {
+            long idle = 0;
+            for (Chunk chunk = queue.poll(WAIT_INTERVAL, MILLISECONDS); chunk != END;
+                    chunk = queue.poll(WAIT_INTERVAL, MILLISECONDS)) {
+                if (chunk == null) {
+                    idle += WAIT_INTERVAL;
+                    if (cancelled || idle >= IDLE_TIMEOUT) {
+                        throw new IOException("Digesting abandoned after " + idle + " ms without content");
+                    }
+                    continue;
+                }
+                idle = 0;
+                try {
+                    messageDigest.update(chunk.buffer);
+                } finally {
+                    chunk.digested();
+                }
+            }
+            return messageDigest.digest();
+        } catch (final Exception e) {
+            // release the buffers still queued, so a producer waiting to reuse them is not held up
+            for (Chunk chunk = queue.poll(); chunk != null; chunk = queue.poll()) {
+                chunk.digested();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Digest the remaining content of a buffer with every algorithm.
+     *
+     * @param buffer the buffer, which must not be modified afterwards
+     * @throws IOException if a digest has failed or been cancelled, or if interrupted while waiting for room in a
+     *         queue
+     */
+    void update(final ByteBuffer buffer) throws IOException {
+        update(buffer, null);
+    }
+
+    /**
+     * Digest the remaining content of a buffer with every algorithm.
+     *
+     * @param buffer the buffer, which must not be modified until it has been digested
+     * @param digested run once every algorithm has digested the buffer, or null
+     * @throws IOException if a digest has failed or been cancelled, or if interrupted while waiting for room in a
+     *         queue
+     */
+    void update(final ByteBuffer buffer, final Runnable digested) throws IOException {
+        inline.values().forEach(messageDigest -> messageDigest.update(buffer.asReadOnlyBuffer()));
+        if (queues.isEmpty()) {
+            if (digested != null) {
+                digested.run();
+            }
+            return;
+        }
+        final AtomicInteger remaining = new AtomicInteger(queues.size());
+        final Runnable release = digested == null ? null : () -> {
+            if (remaining.decrementAndGet() == 0) {
+                digested.run();
+            }
+        };
+        for (final Map.Entry<String, BlockingQueue<Chunk>> queue : queues.entrySet()) {
+            if (!offer(queue.getKey(), queue.getValue(), new Chunk(buffer.asReadOnlyBuffer(), release))) {
+                throw new IOException("The " + queue.getKey() + " digest has failed or been cancelled");
+            }
+        }
+    }
+
+    /**
+     * Wait for room in the queue of an algorithm, giving up if its digest is no longer running
+     */
+    private boolean offer(final String algorithm, final BlockingQueue<Chunk> queue, final Chunk chunk)
+            throws InterruptedIOException {
+        try {
+            while (!queue.offer(chunk, WAIT_INTERVAL, MILLISECONDS)) {
+                if (cancelled || digests.get(algorithm).isDone()) {
+                    return false;
+                }
+            }
+            return true;
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            cancel();
+            throw new InterruptedIOException("Interrupted while digesting content");
+        }
+    }
+
+    /**
+     * Check that no digest has failed or been cancelled.
+     *
+     * @throws IOException if a digest has failed or been cancelled
+     */
+    void check() throws IOException {
+        if (cancelled) {
+            throw new IOException("Digesting has been cancelled");
+        }
+        for (final Map.Entry<String, Future<byte[]>> digest : digests.entrySet()) {
+            if (digest.getValue().isDone()) {
+                throw new IOException("The " + digest.getKey() + " digest has failed");
+            }
+        }
+    }
+
+    /**
+     * @return whether buffers are digested by the thread handing them over, so that they may be reused as soon as
+     *         they have been
+     */
+    boolean isInline() {
+        return queues.isEmpty();
+    }
+
+    /**
+     * Signal that there is no more content.
+     */
+    void end() {
+        if (ended) {
+            return;
+        }
+        ended = true;
+        try {
+            for (final Map.Entry<String, BlockingQueue<Chunk>> queue : queues.entrySet()) {
+                offer(queue.getKey(), queue.getValue(), END);
+            }
+        } catch (final InterruptedIOException e) {
+            // already cancelled
+        }
+    }
+
+    /**
+     * Signal that there is no more content and wait for the digests.
+     *
+     * @return the digests by algorithm
+     */
+    Map<String, byte[]> getDigests() {
+        if (results != null) {
+            return results;
+        }
+        end();
+        final Map<String, byte[]> computed = new LinkedHashMap<>();
+        try {
+            for (final String algorithm : algorithms) {
+                computed.put(algorithm, inline.containsKey(algorithm) ? inline.get(algorithm).digest() :
+                        digests.get(algorithm).get());
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RepositoryRuntimeException(e);
+        } catch (final ExecutionException e) {
+            throw new RepositoryRuntimeException(e.getCause());
+        }
+        results = computed;
+        return results;
+    }
+
+    /**
+     * Abandon the digests.
+     */
+    void cancel() {
+        ended = true;
+        cancelled = true;
+        digests.values().forEach(digest -> digest.cancel(true));
+    }
+
+    /**
+     * A view of a buffer waiting to be digested with one algorithm
+     */
+    private static final class Chunk {
+
+        private final ByteBuffer buffer;
+
+        private final Runnable digested;
+
+        private Chunk(final ByteBuffer buffer, final Runnable digested) {
+            this.buffer = buffer;
+            this.digested = digested;
+        }
+
+        private void digested() {
+            if (digested != null) {
+                digested.run();
+            }
+        }
+    }
+}
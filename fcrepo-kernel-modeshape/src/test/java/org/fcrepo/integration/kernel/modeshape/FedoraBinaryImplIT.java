@@ -28,15 +28,18 @@ import static org.fcrepo.kernel.api.utils.ContentDigest.asURI;
 import static org.fcrepo.kernel.modeshape.FedoraSessionImpl.getJcrSession;
 import static org.fcrepo.kernel.modeshape.utils.FedoraTypesUtils.getJcrNode;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 import static org.modeshape.jcr.api.JcrConstants.JCR_DATA;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashSet;
@@ -45,6 +48,7 @@ import javax.inject.Inject;
 import javax.jcr.Node;
 import javax.jcr.RepositoryException;
 import javax.jcr.Session;
+import javax.jcr.Value;
 import javax.jcr.ValueFactory;
 
 import org.apache.jena.rdf.model.Model;
@@ -197,6 +201,35 @@ public class FedoraBinaryImplIT extends AbstractIT {
         }
     }
 
+    @Test
+    public void testSetUnchangedContent() throws IOException, InvalidChecksumException {
+        final FedoraSession session = repo.login();
+        try {
+            final String pid = getRandomPid();
+            final FedoraBinary orig = binaryService.findOrCreate(session, "/" + pid);
+            orig.setContent(new ByteArrayInputStream("asdf".getBytes()), "application/octet-stream", null, null, null);
+            session.commit();
+
+            // content identified by the SHA-1 it already has is not read again
+            final InputStream unreadable = new InputStream() {
+                @Override
+                public int read() throws IOException {
+                    throw new IOException("Content should not be read");
+                }
+            };
+            final FedoraBinary ds = binaryService.findOrCreate(session, "/" + pid);
+            ds.setContent(unreadable, "text/plain",
+                    singletonList(asURI(SHA1.algorithm, "3da541559918a808c2402bba5012f6c60b27661c")), null, null);
+            session.commit();
+
+            assertEquals("asdf", IOUtils.toString(ds.getContent(), "ASCII"));
+            assertEquals("text/plain", ds.getMimeType());
+            assertEquals(4L, ds.getContentSize());
+        } finally {
+            session.expire();
+        }
+    }
+
     @Test
     public void
     testModifyDatastreamContentDigestAndLength() throws IOException, InvalidChecksumException {
@@ -484,6 +517,93 @@ public class FedoraBinaryImplIT extends AbstractIT {
         }
     }
 
+    @Test
+    public void testGetDigestsFromStoredDigests() throws InvalidChecksumException, URISyntaxException,
+            UnsupportedAlgorithmException, RepositoryException {
+        final String pid = "testGetDigestsFromStoredDigests-" + randomUUID();
+        final URI md5 = new URI("urn:md5:baed005300234f3d1503c50a48ce8e6f");
+        final URI sha256 = new URI("urn:sha-256:fb871ff8cce8fea83dfaeab41784305a1461e008dc02a371ed26d856c766c903");
+        final FedoraSession session = repo.login();
+        try {
+            containerService.findOrCreate(session, pid);
+
+            binaryService.findOrCreate(session, pid + "/testRepositoryContent").setContent(
+                    new ByteArrayInputStream("01234567890123456789012345678901234567890123456789".getBytes()),
+                    "text/plain",
+                    new HashSet<>(singletonList(md5)),
+                    "numbers.txt",
+                    null
+                    );
+
+            session.commit();
+
+            final FedoraBinary ds = binaryService.findOrCreate(session, pid + "/testRepositoryContent");
+
+            // only the provided md5 is stored along with the sha1 on ingest by default
+            assertFalse("SHA-256 digest stored", storedDigests(ds).contains(sha256.toString()));
+            assertTrue("MD5 digest not stored", storedDigests(ds).contains(md5.toString()));
+
+            final Collection<URI> digests = ds.getDigests(Arrays.asList("SHA", "md5", "sha-256"));
+            assertEquals(3, digests.size());
+            assertTrue(digests.contains(new URI("urn:sha1:9578f951955d37f20b601c26591e260c1e5389bf")));
+            assertTrue(digests.contains(md5));
+            assertTrue(digests.contains(sha256));
+
+            // the sha-256 computed on request is stored with the others
+            final FedoraSession reader = repo.login();
+            try {
+                final Collection<String> stored = storedDigests(
+                        binaryService.findOrCreate(reader, pid + "/testRepositoryContent"));
+                assertTrue("SHA-256 digest not stored", stored.contains(sha256.toString()));
+                assertTrue("MD5 digest not kept", stored.contains(md5.toString()));
+            } finally {
+                reader.expire();
+            }
+
+            // stored digests are replaced along with the content
+            ds.setContent(new ByteArrayInputStream("asdf".getBytes()), "text/plain", null, null, null);
+            session.commit();
+
+            assertEquals(singletonList(
+                    new URI("urn:sha-256:f0e4c2f76c58916ec258f246851bea091d14d4247a2fc3e18694461b1816e13b")),
+                    new ArrayList<>(ds.getDigests(singletonList("sha-256"))));
+            assertEquals(singletonList(new URI("urn:md5:912ec803b2ce49e4a541068d495ab570")),
+                    new ArrayList<>(ds.getDigests(singletonList("md5"))));
+        } finally {
+            session.expire();
+        }
+    }
+
+    private static Collection<String> storedDigests(final FedoraBinary binary) throws RepositoryException {
+        final Collection<String> stored = new HashSet<>();
+        for (final Value value : getJcrNode(binary.getDescription()).getProperty("premis:hasMessageDigest")
+                .getValues()) {
+            stored.add(value.getString());
+        }
+        return stored;
+    }
+
+    @Test(expected = InvalidChecksumException.class)
+    public void testSetContentWithMismatchedDigest() throws InvalidChecksumException, URISyntaxException {
+        final String pid = "testSetContentWithMismatchedDigest-" + randomUUID();
+        final FedoraSession session = repo.login();
+        try {
+            containerService.findOrCreate(session, pid);
+
+            // the sha-256 is verified against the digest computed as the content is stored
+            binaryService.findOrCreate(session, pid + "/testRepositoryContent").setContent(
+                    new ByteArrayInputStream("01234567890123456789012345678901234567890123456789".getBytes()),
+                    "text/plain",
+                    new HashSet<>(Arrays.asList(new URI("urn:md5:baed005300234f3d1503c50a48ce8e6f"),
+                            new URI("urn:sha-256:0000000000000000000000000000000000000000000000000000000000000000"))),
+                    "numbers.txt",
+                    null
+                    );
+        } finally {
+            session.expire();
+        }
+    }
+
     @Test
     public void testModifyDatastreamDescriptionLastMod() throws InvalidChecksumException {
         final FedoraSession session = repo.login();
@@ -18,7 +18,9 @@
 package org.fcrepo.integration.kernel.modeshape;
 
 import static java.net.URI.create;
+import static java.util.Arrays.asList;
 import static java.util.Collections.emptySet;
+import static java.util.stream.Collectors.toList;
 import static javax.jcr.PropertyType.BINARY;
 
 import java.io.ByteArrayInputStream;
@@ -30,6 +32,7 @@ import java.time.Instant;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeFormatterBuilder;
+import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.Iterator;
@@ -58,6 +61,7 @@ import org.fcrepo.kernel.api.exception.InvalidChecksumException;
 import org.fcrepo.kernel.api.exception.InvalidPrefixException;
 import org.fcrepo.kernel.api.exception.MalformedRdfException;
 import org.fcrepo.kernel.api.exception.RepositoryRuntimeException;
+import org.fcrepo.kernel.api.models.ChildrenPage;
 import org.fcrepo.kernel.api.models.Container;
 import org.fcrepo.kernel.api.models.FedoraResource;
 import org.fcrepo.kernel.api.models.FedoraTimeMap;
@@ -69,6 +73,8 @@ import org.fcrepo.kernel.api.services.NodeService;
 import org.fcrepo.kernel.api.services.TimeMapService;
 import org.fcrepo.kernel.api.services.VersionService;
 import org.fcrepo.kernel.modeshape.FedoraResourceImpl;
+import org.fcrepo.kernel.modeshape.MembershipIndex;
+import org.fcrepo.kernel.modeshape.ReferenceIndex;
 import org.fcrepo.kernel.modeshape.rdf.impl.DefaultIdentifierTranslator;
 import org.apache.commons.io.IOUtils;
 import org.apache.jena.graph.Graph;
@@ -99,10 +105,13 @@ import static org.fcrepo.kernel.api.FedoraTypes.FEDORA_RESOURCE;
 import static org.fcrepo.kernel.api.FedoraTypes.FEDORA_TIME_MAP;
 import static org.fcrepo.kernel.api.FedoraTypes.FEDORA_TOMBSTONE;
 import static org.fcrepo.kernel.api.FedoraTypes.FEDORA_WEBAC_ACL;
+import static org.fcrepo.kernel.api.FedoraTypes.LDP_DIRECT_CONTAINER;
+import static org.fcrepo.kernel.api.FedoraTypes.LDP_INDIRECT_CONTAINER;
 import static org.fcrepo.kernel.api.RdfCollectors.toModel;
 import static org.fcrepo.kernel.api.RdfLexicon.LAST_MODIFIED_DATE;
 import static org.fcrepo.kernel.api.RdfLexicon.REPOSITORY_NAMESPACE;
 import static org.fcrepo.kernel.api.RequiredRdfContext.INBOUND_REFERENCES;
+import static org.fcrepo.kernel.api.RequiredRdfContext.LDP_MEMBERSHIP;
 import static org.fcrepo.kernel.api.RequiredRdfContext.PROPERTIES;
 import static org.fcrepo.kernel.api.RequiredRdfContext.SERVER_MANAGED;
 import static org.fcrepo.kernel.api.RequiredRdfContext.VERSIONS;
@@ -1028,6 +1037,214 @@ public class FedoraResourceImplIT extends AbstractIT {
         assertFalse(container.getChildren().findFirst().isPresent());
     }
 
+    @Test
+    public void testGetChildrenPages() {
+        final String pid = getRandomPid();
+        final Container container = containerService.findOrCreate(session, "/" + pid);
+        containerService.findOrCreate(session, "/" + pid + "/a");
+        containerService.findOrCreate(session, "/" + pid + "/b/c/d");
+        binaryService.findOrCreate(session, "/" + pid + "/e");
+        containerService.findOrCreate(session, "/" + pid + "/b/c/f");
+        containerService.findOrCreate(session, "/" + pid + "/g");
+        containerService.findOrCreate(session, "/" + pid + "/#/h");
+
+        final List<FedoraResource> paged = new ArrayList<>();
+        ChildrenPage page = container.getChildren(null, 2);
+        paged.addAll(page.getChildren());
+        while (page.getNextCursor().isPresent()) {
+            assertEquals(2, page.getChildren().size());
+            page = container.getChildren(page.getNextCursor().get(), 2);
+            paged.addAll(page.getChildren());
+        }
+
+        assertEquals(5, paged.size());
+        assertEquals(container.getChildren().collect(toList()), paged);
+    }
+
+    @Test
+    public void testGetChildrenPageAfterRemovedChild() throws RepositoryException {
+        final String pid = getRandomPid();
+        final Container container = containerService.findOrCreate(session, "/" + pid);
+        final FedoraResource a = containerService.findOrCreate(session, "/" + pid + "/a");
+        final FedoraResource b = containerService.findOrCreate(session, "/" + pid + "/b");
+        final FedoraResource c = containerService.findOrCreate(session, "/" + pid + "/c");
+        final FedoraResource d = containerService.findOrCreate(session, "/" + pid + "/d");
+        session.commit();
+
+        final ChildrenPage first = container.getChildren(null, 2);
+        assertEquals(asList(a, b), first.getChildren());
+
+        getJcrNode(b).remove();
+        session.commit();
+
+        final ChildrenPage second = container.getChildren(first.getNextCursor().get(), 2);
+        assertEquals(asList(c, d), second.getChildren());
+        assertFalse(second.getNextCursor().isPresent());
+    }
+
+    @Test
+    public void testIndirectContainerMembershipIndex() throws RepositoryException {
+        final String pid = getRandomPid();
+        final Container membershipResource = containerService.findOrCreate(session, "/" + pid);
+        final Container target1 = containerService.findOrCreate(session, "/" + pid + "/target1");
+        final Container target2 = containerService.findOrCreate(session, "/" + pid + "/target2");
+        final Container container =
+                containerService.findOrCreate(session, "/" + pid + "/members", LDP_INDIRECT_CONTAINER);
+        container.updateProperties(subjects, "PREFIX ldp: <http://www.w3.org/ns/ldp#>\n" +
+                "PREFIX example: <http://example.org/>\n" +
+                "DELETE { <> ldp:membershipResource ?m ; ldp:hasMemberRelation ?r ; " +
+                "ldp:insertedContentRelation ?i } " +
+                "INSERT { <> ldp:membershipResource " + uri(membershipResource) +
+                " ; ldp:hasMemberRelation example:hasMember ; ldp:insertedContentRelation example:proxyFor } " +
+                "WHERE { <> ldp:membershipResource ?m ; ldp:hasMemberRelation ?r ; ldp:insertedContentRelation ?i }",
+                container.getTriples(subjects, PROPERTIES));
+        final Container proxy = containerService.findOrCreate(session, "/" + pid + "/members/proxy");
+        proxy.updateProperties(subjects, "PREFIX example: <http://example.org/>\n" +
+                "INSERT { <> example:proxyFor " + uri(target1) + " } WHERE {}",
+                proxy.getTriples(subjects, emptySet()));
+        session.commit();
+
+        final Property hasMember = createProperty("http://example.org/hasMember");
+        final Resource subject = subjects.reverse().convert(membershipResource);
+        Model model = membershipResource.getTriples(subjects, LDP_MEMBERSHIP).collect(toModel());
+        assertTrue(model.contains(subject, hasMember, subjects.reverse().convert(target1)));
+        assertTrue(MembershipIndex.verify(getJcrNode(container)));
+        assertTrue(target1.getTriples(subjects, INBOUND_REFERENCES).collect(toModel())
+                .contains(subject, hasMember, subjects.reverse().convert(target1)));
+
+        proxy.updateProperties(subjects, "PREFIX example: <http://example.org/>\n" +
+                "DELETE { <> example:proxyFor ?t } INSERT { <> example:proxyFor " + uri(target2) + " } " +
+                "WHERE { <> example:proxyFor ?t }", proxy.getTriples(subjects, PROPERTIES));
+        session.commit();
+
+        model = membershipResource.getTriples(subjects, LDP_MEMBERSHIP).collect(toModel());
+        assertFalse(model.contains(subject, hasMember, subjects.reverse().convert(target1)));
+        assertTrue(model.contains(subject, hasMember, subjects.reverse().convert(target2)));
+        assertTrue(MembershipIndex.verify(getJcrNode(container)));
+        assertFalse(target1.getTriples(subjects, INBOUND_REFERENCES).collect(toModel())
+                .contains(subject, hasMember, subjects.reverse().convert(target1)));
+
+        proxy.delete();
+        session.commit();
+
+        model = membershipResource.getTriples(subjects, LDP_MEMBERSHIP).collect(toModel());
+        assertFalse(model.contains(subject, hasMember, (RDFNode) null));
+        assertTrue(MembershipIndex.verify(getJcrNode(container)));
+    }
+
+    @Test
+    public void testDirectContainerMembershipIndexFollowsMove() throws RepositoryException {
+        final String pid = getRandomPid();
+        final Container first = containerService.findOrCreate(session, "/" + pid + "/first", LDP_DIRECT_CONTAINER);
+        final Container second = containerService.findOrCreate(session, "/" + pid + "/second", LDP_DIRECT_CONTAINER);
+        final Container child = containerService.findOrCreate(session, "/" + pid + "/first/child");
+        session.commit();
+
+        final Property member = createProperty("http://www.w3.org/ns/ldp#member");
+        assertTrue(first.getTriples(subjects, LDP_MEMBERSHIP).collect(toModel())
+                .contains(subjects.reverse().convert(first), member, subjects.reverse().convert(child)));
+
+        nodeService.moveObject(session, "/" + pid + "/first/child", "/" + pid + "/second/child");
+        session.commit();
+
+        final FedoraResource moved = nodeService.find(session, "/" + pid + "/second/child");
+        assertFalse(first.getTriples(subjects, LDP_MEMBERSHIP).collect(toModel())
+                .contains(subjects.reverse().convert(first), member, (RDFNode) null));
+        assertTrue(second.getTriples(subjects, LDP_MEMBERSHIP).collect(toModel())
+                .contains(subjects.reverse().convert(second), member, subjects.reverse().convert(moved)));
+        assertTrue(MembershipIndex.verify(getJcrNode(first)));
+        assertTrue(MembershipIndex.verify(getJcrNode(second)));
+
+        nodeService.copyObject(session, "/" + pid + "/second", "/" + pid + "/third");
+        session.commit();
+
+        final FedoraResource third = nodeService.find(session, "/" + pid + "/third");
+        assertTrue(MembershipIndex.verify(getJcrNode(third)));
+        assertTrue(third.getTriples(subjects, LDP_MEMBERSHIP).collect(toModel())
+                .contains(subjects.reverse().convert(third), member,
+                        subjects.reverse().convert(nodeService.find(session, "/" + pid + "/third/child"))));
+    }
+
+    @Test
+    public void testDeleteRemovesIndexedInboundReferences() throws RepositoryException {
+        final String pid = getRandomPid();
+        final Container subject = containerService.findOrCreate(session, "/" + pid + "/a");
+        containerService.findOrCreate(session, "/" + pid + "/b");
+        final Container target = containerService.findOrCreate(session, "/" + pid + "/b/x");
+        subject.updateProperties(subjects, "INSERT DATA { " + uri(subject) + " <info:fcrepo/rel> " + uri(target) +
+                " }", subject.getTriples(subjects, PROPERTIES));
+        session.commit();
+
+        final Session jcrSession = getJcrSession(session);
+        final String entry = "/" + ReferenceIndex.REFERENCE_INDEX + "/" + pid + "/b/x";
+        assertTrue(jcrSession.nodeExists(entry));
+        assertTrue(target.getTriples(subjects, INBOUND_REFERENCES).collect(toModel()).contains(
+                subjects.reverse().convert(subject), createProperty("info:fcrepo/rel"), (RDFNode) null));
+
+        nodeService.moveObject(session, "/" + pid + "/b", "/" + pid + "/c");
+        session.commit();
+
+        assertFalse(jcrSession.nodeExists(entry));
+        assertTrue(jcrSession.nodeExists("/" + ReferenceIndex.REFERENCE_INDEX + "/" + pid + "/c/x"));
+
+        nodeService.find(session, "/" + pid + "/c").delete();
+        session.commit();
+
+        assertFalse(jcrSession.nodeExists("/" + ReferenceIndex.REFERENCE_INDEX + "/" + pid + "/c"));
+        assertFalse(subject.getTriples(subjects, PROPERTIES).collect(toModel()).contains(
+                subjects.reverse().convert(subject), createProperty("info:fcrepo/rel"), (RDFNode) null));
+    }
+
+    @Test
+    public void testRemovingLastReferencePrunesIndex() throws RepositoryException {
+        final String pid = getRandomPid();
+        final Container subject = containerService.findOrCreate(session, "/" + pid + "/a");
+        final Container target = containerService.findOrCreate(session, "/" + pid + "/b");
+        subject.updateProperties(subjects, "INSERT DATA { " + uri(subject) + " <info:fcrepo/rel> " + uri(target) +
+                " }", subject.getTriples(subjects, PROPERTIES));
+        session.commit();
+
+        final Session jcrSession = getJcrSession(session);
+        assertTrue(jcrSession.nodeExists("/" + ReferenceIndex.REFERENCE_INDEX + "/" + pid + "/b"));
+
+        subject.updateProperties(subjects, "DELETE DATA { " + uri(subject) + " <info:fcrepo/rel> " + uri(target) +
+                " }", subject.getTriples(subjects, PROPERTIES));
+        session.commit();
+
+        assertFalse(jcrSession.nodeExists("/" + ReferenceIndex.REFERENCE_INDEX + "/" + pid));
+    }
+
+    @Test
+    public void testDeleteRemovesReferencesMissingFromIndex() throws RepositoryException {
+        final String pid = getRandomPid();
+        final Container subject = containerService.findOrCreate(session, "/" + pid + "/a");
+        final Container target = containerService.findOrCreate(session, "/" + pid + "/b");
+        subject.updateProperties(subjects, "INSERT DATA { " + uri(subject) + " <info:fcrepo/rel> " + uri(target) +
+                " }", subject.getTriples(subjects, PROPERTIES));
+        session.commit();
+
+        // as though the entry had been lost
+        final Session jcrSession = getJcrSession(session);
+        jcrSession.getNode("/" + ReferenceIndex.REFERENCE_INDEX + "/" + pid).remove();
+        session.commit();
+
+        target.delete();
+        session.commit();
+
+        assertFalse(subject.getTriples(subjects, PROPERTIES).collect(toModel()).contains(
+                subjects.reverse().convert(subject), createProperty("info:fcrepo/rel"), (RDFNode) null));
+    }
+
+    private String uri(final FedoraResource resource) {
+        return "<" + subjects.reverse().convert(resource).getURI() + ">";
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testGetChildrenPageWithInvalidCursor() {
+        final Container container = containerService.findOrCreate(session, "/" + getRandomPid());
+        container.getChildren("not a cursor", 2);
+    }
+
     @Test
     public void testDeleteLinkedVersionedResources() {
         final Container object1 = containerService.findOrCreate(session, "/" + getRandomPid());
@@ -17,11 +17,15 @@
  */
 package org.fcrepo.integration.kernel.modeshape;
 
+import static java.util.Arrays.asList;
+import static org.fcrepo.kernel.modeshape.FedoraSessionImpl.getJcrSession;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 import java.io.ByteArrayInputStream;
 import java.io.InputStream;
+import java.time.Instant;
 
 import javax.inject.Inject;
 
@@ -34,6 +38,8 @@ import org.fcrepo.kernel.api.models.FedoraTimeMap;
 import org.fcrepo.kernel.api.services.BinaryService;
 import org.fcrepo.kernel.api.services.ContainerService;
 import org.fcrepo.kernel.api.services.TimeMapService;
+import org.fcrepo.kernel.api.services.VersionService;
+import org.fcrepo.kernel.modeshape.rdf.impl.DefaultIdentifierTranslator;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Rule;
@@ -61,6 +67,9 @@ public class FedoraTimeMapImplIT extends AbstractIT {
     @Inject
     private TimeMapService timeMapService;
 
+    @Inject
+    private VersionService versionService;
+
     private FedoraSession session;
 
     @Rule
@@ -127,4 +136,29 @@ public class FedoraTimeMapImplIT extends AbstractIT {
         assertEquals("Original resource must reference original container",
                 description.getPath(), originalResource.getPath());
     }
+
+    @Test
+    public void testGetMementoDatetimes() {
+        final String pid = getRandomPid();
+        final Container object = containerService.findOrCreate(session, "/" + pid);
+        timeMapService.findOrCreate(session, "/" + pid);
+        final DefaultIdentifierTranslator subjects = new DefaultIdentifierTranslator(getJcrSession(session));
+        final Instant time1 = Instant.parse("2017-12-31T08:00:00Z");
+        final Instant time2 = Instant.parse("2018-01-01T10:15:00Z");
+        final Instant time3 = Instant.parse("2018-01-01T20:15:00Z");
+        versionService.createVersion(session, object, subjects, time2);
+        final FedoraResource memento3 = versionService.createVersion(session, object, subjects, time3);
+        versionService.createVersion(session, object, subjects, time1);
+        session.commit();
+
+        final FedoraTimeMap timeMap = (FedoraTimeMap) object.getTimeMap();
+        assertEquals(asList(time1, time2, time3), timeMap.getMementoDatetimes());
+        assertEquals(memento3, timeMap.getMemento(time3));
+
+        memento3.delete();
+        session.commit();
+
+        assertEquals(asList(time1, time2), timeMap.getMementoDatetimes());
+        assertNull(timeMap.getMemento(time3));
+    }
 }
@@ -0,0 +1,218 @@
+/*
+ * Licensed to DuraSpace under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * DuraSpace licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.integration.kernel.modeshape;
+
+import static java.util.Collections.singletonList;
+import static org.fcrepo.kernel.api.FedoraTypes.CONTENT_DIGEST;
+import static org.fcrepo.kernel.modeshape.FedoraSessionImpl.getJcrSession;
+import static org.fcrepo.kernel.modeshape.FixityAuditor.FIXITY_AUDIT;
+import static org.fcrepo.kernel.modeshape.utils.FedoraTypesUtils.getJcrNode;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.inject.Inject;
+import javax.jcr.Node;
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+
+import org.fcrepo.kernel.api.FedoraRepository;
+import org.fcrepo.kernel.api.FedoraSession;
+import org.fcrepo.kernel.api.exception.InvalidChecksumException;
+import org.fcrepo.kernel.api.models.FedoraBinary;
+import org.fcrepo.kernel.api.observer.FixityFailureEvent;
+import org.fcrepo.kernel.api.services.BinaryService;
+import org.fcrepo.kernel.api.services.NodeService;
+import org.fcrepo.kernel.modeshape.FixityAuditor;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.context.ContextConfiguration;
+
+import com.google.common.eventbus.EventBus;
+import com.google.common.eventbus.Subscribe;
+
+/**
+ * @author rdfloyd
+ */
+@ContextConfiguration({"/spring-test/fcrepo-config.xml", "/spring-test/fixity-audit.xml"})
+public class FixityAuditorIT extends AbstractIT {
+
+    @Inject
+    private FedoraRepository repository;
+
+    @Inject
+    private BinaryService binaryService;
+
+    @Inject
+    private NodeService nodeService;
+
+    @Inject
+    private FixityAuditor auditor;
+
+    @Inject
+    private EventBus eventBus;
+
+    private final List<FixityFailureEvent> failures = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        eventBus.register(this);
+    }
+
+    @After
+    public void tearDown() {
+        eventBus.unregister(this);
+    }
+
+    @Subscribe
+    public void onFailure(final FixityFailureEvent event) {
+        failures.add(event);
+    }
+
+    @Test
+    public void testAuditRecordsOutcome() throws Exception {
+        final String path = "/" + getRandomPid();
+        createBinary(path, "abc");
+
+        auditPass();
+
+        final Session session = getJcrSession(repository.login());
+        try {
+            final Node result = session.getNode("/" + FIXITY_AUDIT + path);
+            assertEquals(FixityAuditor.Outcome.SUCCESS.name(), result.getProperty("fedora:fixityOutcome").getString());
+            assertTrue(result.hasProperty("fedora:fixityVerified"));
+            assertFalse(session.getRootNode().getNode(FIXITY_AUDIT).hasProperty("fedora:auditCheckpoint"));
+        } finally {
+            session.logout();
+        }
+        assertTrue(failures.stream().noneMatch(e -> e.getPath().equals(path)));
+    }
+
+    @Test
+    public void testAuditReportsMismatch() throws Exception {
+        final String path = "/" + getRandomPid();
+        createBinary(path, "abc");
+
+        final FedoraSession session = repository.login();
+        try {
+            final FedoraBinary binary = binaryService.find(session, path);
+            final Node description = getJcrNode(binary.getDescription());
+            final List<String> digests = new ArrayList<>();
+            for (final URI digest : binary.getDigests(singletonList("SHA-1"))) {
+                digests.add(digest.toString());
+            }
+            digests.add("urn:sha-256:0000000000000000000000000000000000000000000000000000000000000000");
+            description.setProperty(CONTENT_DIGEST, digests.toArray(new String[0]));
+            session.commit();
+        } finally {
+            session.expire();
+        }
+
+        auditPass();
+
+        final Session jcrSession = getJcrSession(repository.login());
+        try {
+            assertEquals(FixityAuditor.Outcome.FAILURE.name(), jcrSession.getNode("/" + FIXITY_AUDIT + path)
+                    .getProperty("fedora:fixityOutcome").getString());
+        } finally {
+            jcrSession.logout();
+        }
+        final FixityFailureEvent failure = failures.stream().filter(e -> e.getPath().equals(path)).findFirst().get();
+        assertTrue(failure.isReadable());
+        assertEquals(3, failure.getComputedSize());
+        assertTrue(failure.getStoredDigests().contains(
+                URI.create("urn:sha-256:0000000000000000000000000000000000000000000000000000000000000000")));
+    }
+
+    @Test
+    public void testAuditResumesFromCheckpoint() throws Exception {
+        final String parent = "/" + getRandomPid();
+        for (int i = 0; i < 5; i++) {
+            createBinary(parent + "/" + i, "content " + i);
+        }
+        auditPass();
+
+        assertFalse(auditor.auditBatch());
+        final Session session = getJcrSession(repository.login());
+        try {
+            final Node audit = session.getRootNode().getNode(FIXITY_AUDIT);
+            assertTrue(audit.hasProperty("fedora:auditCheckpoint"));
+        } finally {
+            session.logout();
+        }
+
+        // the pass continues from the checkpoint saved in the repository, as it would after a restart
+        auditPass();
+        final Session after = getJcrSession(repository.login());
+        try {
+            for (int i = 0; i < 5; i++) {
+                assertTrue(after.nodeExists("/" + FIXITY_AUDIT + parent + "/" + i));
+            }
+        } finally {
+            after.logout();
+        }
+    }
+
+    @Test
+    public void testAuditRemovesResultsOfDeletedBinaries() throws Exception {
+        final String path = "/" + getRandomPid();
+        createBinary(path, "abc");
+        auditPass();
+
+        final FedoraSession session = repository.login();
+        try {
+            nodeService.find(session, path).delete();
+            getJcrSession(session).getNode(path).remove();
+            session.commit();
+        } finally {
+            session.expire();
+        }
+        auditPass();
+
+        final Session jcrSession = getJcrSession(repository.login());
+        try {
+            assertFalse(jcrSession.nodeExists("/" + FIXITY_AUDIT + path));
+        } finally {
+            jcrSession.logout();
+        }
+    }
+
+    private void createBinary(final String path, final String content) throws InvalidChecksumException {
+        final FedoraSession session = repository.login();
+        try {
+            binaryService.findOrCreate(session, path).setContent(new ByteArrayInputStream(content.getBytes()),
+                    "text/plain", null, null, null);
+            session.commit();
+        } finally {
+            session.expire();
+        }
+    }
+
+    private void auditPass() throws RepositoryException {
+        int batches = 0;
+        while (!auditor.auditBatch()) {
+            assertTrue("The audit did not complete a pass", ++batches < 1000);
+        }
+    }
+}
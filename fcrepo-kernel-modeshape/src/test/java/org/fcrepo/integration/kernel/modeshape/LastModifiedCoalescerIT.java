@@ -0,0 +1,144 @@
+/*
+ * Licensed to DuraSpace under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * DuraSpace licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.integration.kernel.modeshape;
+
+import static java.util.UUID.randomUUID;
+import static org.fcrepo.kernel.api.FedoraTypes.FEDORA_LASTMODIFIED;
+import static org.fcrepo.kernel.modeshape.LastModifiedCoalescer.COALESCE_PROPERTY;
+import static org.fcrepo.kernel.modeshape.utils.FedoraTypesUtils.getJcrNode;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Instant;
+
+import javax.inject.Inject;
+import javax.jcr.RepositoryException;
+
+import org.fcrepo.kernel.api.FedoraRepository;
+import org.fcrepo.kernel.api.FedoraSession;
+import org.fcrepo.kernel.api.models.Container;
+import org.fcrepo.kernel.api.services.ContainerService;
+import org.fcrepo.kernel.modeshape.LastModifiedCoalescer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.context.ContextConfiguration;
+
+/**
+ * @author rdfloyd
+ */
+@ContextConfiguration({"/spring-test/fcrepo-config.xml"})
+public class LastModifiedCoalescerIT extends AbstractIT {
+
+    @Inject
+    private FedoraRepository repo;
+
+    @Inject
+    private ContainerService containerService;
+
+    @Inject
+    private LastModifiedCoalescer coalescer;
+
+    private String parent;
+
+    private Instant created;
+
+    private String etag;
+
+    @Before
+    public void setUp() throws InterruptedException {
+        System.setProperty(COALESCE_PROPERTY, "true");
+        // long enough that nothing is written unless the test flushes
+        coalescer.setWindow(600000);
+        final FedoraSession session = repo.login();
+        parent = "/" + randomUUID();
+        final Container container = containerService.findOrCreate(session, parent);
+        session.commit();
+        created = container.getLastModifiedDate();
+        etag = container.getEtagValue();
+        session.expire();
+        Thread.sleep(10);
+    }
+
+    @After
+    public void tearDown() {
+        System.clearProperty(COALESCE_PROPERTY);
+        coalescer.flush();
+        coalescer.setWindow(500);
+    }
+
+    @Test
+    public void testCoalescedUpdate() throws RepositoryException {
+        final FedoraSession session = repo.login();
+        containerService.findOrCreate(session, parent + "/a");
+        containerService.findOrCreate(session, parent + "/b");
+        session.commit();
+        session.expire();
+
+        final FedoraSession reader = repo.login();
+        final Container container = containerService.find(reader, parent);
+        final Instant modified = container.getLastModifiedDate();
+        final String modifiedEtag = container.getEtagValue();
+        assertTrue(modified.isAfter(created));
+        assertNotEquals(etag, modifiedEtag);
+        assertEquals("The update should not have been written yet", created.toEpochMilli(),
+                getJcrNode(container).getProperty(FEDORA_LASTMODIFIED).getDate().getTimeInMillis());
+        reader.expire();
+
+        coalescer.flush();
+
+        final FedoraSession flushed = repo.login();
+        final Container written = containerService.find(flushed, parent);
+        assertEquals(modified.toEpochMilli(),
+                getJcrNode(written).getProperty(FEDORA_LASTMODIFIED).getDate().getTimeInMillis());
+        assertEquals(modified, written.getLastModifiedDate());
+        assertEquals("Writing the update should not change the ETag", modifiedEtag, written.getEtagValue());
+        flushed.expire();
+    }
+
+    @Test
+    public void testUncommittedUpdate() {
+        final FedoraSession session = repo.login();
+        containerService.findOrCreate(session, parent + "/a");
+        assertTrue("A session should see its own update",
+                containerService.find(session, parent).getLastModifiedDate().isAfter(created));
+
+        final FedoraSession reader = repo.login();
+        assertEquals("Other sessions should not see an uncommitted update",
+                etag, containerService.find(reader, parent).getEtagValue());
+
+        session.expire();
+        assertEquals(etag, containerService.find(reader, parent).getEtagValue());
+        reader.expire();
+    }
+
+    @Test
+    public void testDeleteChild() {
+        final FedoraSession session = repo.login();
+        final Container child = containerService.findOrCreate(session, parent + "/a");
+        session.commit();
+        coalescer.flush();
+        final String withChild = containerService.find(session, parent).getEtagValue();
+
+        child.delete();
+        session.commit();
+        assertNotEquals(withChild, containerService.find(session, parent).getEtagValue());
+        session.expire();
+    }
+}
@@ -36,10 +36,13 @@ import static org.fcrepo.kernel.api.observer.EventType.RESOURCE_CREATION;
 import static org.fcrepo.kernel.api.observer.EventType.RESOURCE_DELETION;
 import static org.fcrepo.kernel.api.observer.EventType.RESOURCE_MODIFICATION;
 import static org.fcrepo.kernel.api.observer.EventType.RESOURCE_RELOCATION;
+import static org.fcrepo.kernel.api.observer.OptionalValues.DESCENDANT_COUNT;
 import static org.fcrepo.kernel.api.utils.ContentDigest.DIGEST_ALGORITHM.SHA1;
 import static org.fcrepo.kernel.api.utils.ContentDigest.asURI;
 import static org.fcrepo.kernel.modeshape.FedoraSessionImpl.getJcrSession;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 import static org.modeshape.jcr.api.JcrConstants.NT_FOLDER;
 import java.io.ByteArrayInputStream;
 import java.util.HashSet;
@@ -62,6 +65,7 @@ import org.fcrepo.kernel.api.observer.FedoraEvent;
 import org.fcrepo.kernel.api.services.ContainerService;
 import org.fcrepo.kernel.api.services.NodeService;
 import org.fcrepo.kernel.modeshape.FedoraBinaryImpl;
+import org.fcrepo.kernel.modeshape.observer.SimpleObserver;
 import org.fcrepo.kernel.modeshape.rdf.impl.DefaultIdentifierTranslator;
 import org.fcrepo.kernel.modeshape.services.NodeServiceImpl;
 
@@ -98,6 +102,9 @@ public class SimpleObserverIT extends AbstractIT {
     @Inject
     private ContainerService containerService;
 
+    @Inject
+    private SimpleObserver observer;
+
     @Test
     public void testEventBusPublishing() throws RepositoryException {
 
@@ -178,6 +185,46 @@ public class SimpleObserverIT extends AbstractIT {
         awaitEvent("/object4/child2", RESOURCE_DELETION);
 
         assertEquals("Move operation didn't generate additional events", (Integer) 9, eventBusMessageCount);
+        assertTrue("The moved resource should be announced before its descendants",
+                indexOf("/object5", RESOURCE_RELOCATION) < indexOf("/object5/child1", RESOURCE_RELOCATION));
+    }
+
+    private int indexOf(final String path, final EventType type) {
+        for (int i = 0; i < events.size(); i++) {
+            if (events.get(i).getPath().equals(path) && events.get(i).getTypes().contains(type)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Test
+    public void testSubtreeMoveEvent() throws RepositoryException {
+        observer.setDescendantMoveEvents(false);
+        try {
+            final FedoraSession session = repository.login();
+            final Session se = getJcrSession(session);
+            final NodeService ns = new NodeServiceImpl();
+
+            final Node n = se.getRootNode().addNode("/object14");
+            n.addMixin(FEDORA_CONTAINER);
+            n.addNode("/child1").addMixin(FEDORA_CONTAINER);
+            final Node child2 = n.addNode("/child2");
+            child2.addMixin(FEDORA_CONTAINER);
+            child2.addNode("/grandchild").addMixin(FEDORA_CONTAINER);
+            session.commit();
+            ns.moveObject(session, "/object14", "/object15");
+            session.commit();
+            session.expire();
+
+            await().atMost(5, SECONDS).pollInterval(ONE_HUNDRED_MILLISECONDS).until(() -> events.stream()
+                    .anyMatch(evt -> evt.getPath().equals("/object15") && evt.getTypes().contains(RESOURCE_RELOCATION)
+                            && "3".equals(evt.getInfo().get(DESCENDANT_COUNT))));
+            assertFalse("Descendants should not have their own relocation events", events.stream()
+                    .anyMatch(evt -> evt.getPath().startsWith("/object15/")));
+        } finally {
+            observer.setDescendantMoveEvents(true);
+        }
     }
 
     @Test
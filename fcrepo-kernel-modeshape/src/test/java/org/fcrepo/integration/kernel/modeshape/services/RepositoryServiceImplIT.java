@@ -18,7 +18,14 @@
 package org.fcrepo.integration.kernel.modeshape.services;
 
 import static com.google.common.io.Files.createTempDir;
+import static java.util.UUID.randomUUID;
+import static org.fcrepo.kernel.api.FedoraTypes.LDP_DIRECT_CONTAINER;
+import static org.fcrepo.kernel.modeshape.FedoraSessionImpl.getJcrSession;
+import static org.fcrepo.kernel.modeshape.MembershipIndex.MEMBERSHIP_INDEX;
+import static org.fcrepo.kernel.modeshape.ReferenceIndex.REFERENCE_INDEX;
+import static org.fcrepo.kernel.modeshape.utils.FedoraTypesUtils.getJcrNode;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import java.io.ByteArrayInputStream;
@@ -26,13 +33,18 @@ import java.io.File;
 import java.util.Collection;
 
 import javax.inject.Inject;
+import javax.jcr.Session;
+import javax.jcr.Value;
 
 import org.fcrepo.integration.kernel.modeshape.AbstractIT;
 import org.fcrepo.kernel.api.FedoraRepository;
 import org.fcrepo.kernel.api.FedoraSession;
 import org.fcrepo.kernel.api.exception.InvalidChecksumException;
+import org.fcrepo.kernel.api.models.Container;
 import org.fcrepo.kernel.api.services.BinaryService;
+import org.fcrepo.kernel.api.services.ContainerService;
 import org.fcrepo.kernel.api.services.RepositoryService;
+import org.fcrepo.kernel.modeshape.MembershipIndex;
 
 import org.junit.Test;
 import org.springframework.test.context.ContextConfiguration;
@@ -55,6 +67,9 @@ public class RepositoryServiceImplIT extends AbstractIT {
     @Inject
     private BinaryService binaryService;
 
+    @Inject
+    private ContainerService containerService;
+
     @Test
     public void testGetAllObjectsDatastreamSize() throws InvalidChecksumException {
         final long originalSize;
@@ -122,4 +137,57 @@ public class RepositoryServiceImplIT extends AbstractIT {
             session.expire();
         }
     }
+
+    @Test
+    public void testRebuildMembershipIndexes() throws Exception {
+        final FedoraSession session = repository.login();
+        try {
+            final String pid = "/testMembershipIndex" + randomUUID();
+            final Container container = containerService.findOrCreate(session, pid, LDP_DIRECT_CONTAINER);
+            containerService.findOrCreate(session, pid + "/child");
+            session.commit();
+            assertFalse(repositoryService.rebuildMembershipIndexes(session, true).contains(container));
+
+            // as for a container created before the index existed
+            getJcrNode(container).getNode(MEMBERSHIP_INDEX).remove();
+            session.commit();
+
+            assertTrue(repositoryService.rebuildMembershipIndexes(session, true).contains(container));
+            assertFalse(getJcrNode(container).hasNode(MEMBERSHIP_INDEX));
+
+            assertTrue(repositoryService.rebuildMembershipIndexes(session, false).contains(container));
+            session.commit();
+            assertTrue(MembershipIndex.verify(getJcrNode(container)));
+            assertFalse(repositoryService.rebuildMembershipIndexes(session, true).contains(container));
+        } finally {
+            session.expire();
+        }
+    }
+
+    @Test
+    public void testRebuildReferenceIndex() throws Exception {
+        final FedoraSession session = repository.login();
+        try {
+            final String pid = "/testReferenceIndex" + randomUUID();
+            final Container subject = containerService.findOrCreate(session, pid + "/a");
+            final Container target = containerService.findOrCreate(session, pid + "/b");
+            // as for a reference written before the index existed
+            final Session jcrSession = getJcrSession(session);
+            getJcrNode(subject).setProperty("fedora:hasMember",
+                    new Value[] { jcrSession.getValueFactory().createValue(getJcrNode(target), true) });
+            session.commit();
+            assertFalse(jcrSession.nodeExists("/" + REFERENCE_INDEX + pid + "/b"));
+
+            assertTrue(repositoryService.rebuildReferenceIndex(session) > 0);
+            session.commit();
+            assertTrue(jcrSession.nodeExists("/" + REFERENCE_INDEX + pid + "/b"));
+            assertFalse(jcrSession.nodeExists("/" + REFERENCE_INDEX + pid + "/a"));
+
+            target.delete();
+            session.commit();
+            assertFalse(getJcrNode(subject).hasProperty("fedora:hasMember"));
+        } finally {
+            session.expire();
+        }
+    }
 }
@@ -17,26 +17,42 @@
  */
 package org.fcrepo.integration.kernel.modeshape.services;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.time.Instant;
+import java.util.Arrays;
+import java.util.Set;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
 
 import javax.inject.Inject;
+import javax.jcr.RepositoryException;
 
+import org.apache.commons.io.IOUtils;
 import org.fcrepo.integration.kernel.modeshape.AbstractIT;
 import org.fcrepo.kernel.api.FedoraRepository;
 import org.fcrepo.kernel.api.FedoraSession;
+import org.fcrepo.kernel.api.models.FedoraBinary;
 import org.fcrepo.kernel.api.models.FedoraResource;
 import org.fcrepo.kernel.api.services.BinaryService;
 import org.fcrepo.kernel.api.services.ContainerService;
 import org.fcrepo.kernel.api.services.NodeService;
+import org.fcrepo.kernel.api.services.TimeMapService;
 import org.fcrepo.kernel.api.services.VersionService;
+import org.fcrepo.kernel.modeshape.MementoContainment;
+import org.fcrepo.kernel.modeshape.services.VersionServiceImpl;
 import org.fcrepo.kernel.modeshape.rdf.impl.DefaultIdentifierTranslator;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.springframework.test.context.ContextConfiguration;
 
+import static java.util.Collections.singletonList;
+import static java.util.stream.Collectors.toSet;
+import static org.fcrepo.kernel.api.RequiredRdfContext.LDP_CONTAINMENT;
+import static org.fcrepo.kernel.api.RequiredRdfContext.PROPERTIES;
+import static org.fcrepo.kernel.modeshape.utils.FedoraTypesUtils.getJcrNode;
 import static org.fcrepo.kernel.api.RdfLexicon.CONTAINS;
 import static org.fcrepo.kernel.api.RdfLexicon.DESCRIBED_BY;
 import static org.fcrepo.kernel.modeshape.services.VersionServiceImpl.VERSION_TRIPLES;
@@ -68,6 +84,9 @@ public class VersionServiceImplIT extends AbstractIT {
     @Inject
     private VersionService versionService;
 
+    @Inject
+    private TimeMapService timeMapService;
+
     private DefaultIdentifierTranslator subjects;
 
     private FedoraSession session;
@@ -174,6 +193,107 @@ public class VersionServiceImplIT extends AbstractIT {
         assertEquals(1L, countVersions(session, descResc));
     }
 
+    @Test
+    public void testCreateBinaryVersionSharesContent() throws Exception {
+        final String pid = getRandomPid();
+        final FedoraBinary binary = binaryService.findOrCreate(session, "/" + pid);
+        binary.setContent(new ByteArrayInputStream("asdf".getBytes()), "text/plain", null, null, null);
+        session.commit();
+
+        final FedoraBinary memento = versionService.createBinaryVersion(session, binary, mementoDate2, null);
+        session.commit();
+
+        assertEquals("asdf", IOUtils.toString(memento.getContent(), "ASCII"));
+    }
+
+    @Test
+    public void testCreateBinaryVersionWithContentOfOriginal() throws Exception {
+        final String pid = getRandomPid();
+        final FedoraBinary binary = binaryService.findOrCreate(session, "/" + pid);
+        binary.setContent(new ByteArrayInputStream("asdf".getBytes()), "text/plain", null, null, null);
+        session.commit();
+
+        // content provided with the SHA-1 of the original is not read
+        final InputStream unreadable = new InputStream() {
+            @Override
+            public int read() throws IOException {
+                throw new IOException("Content should not be read");
+            }
+        };
+        final FedoraBinary memento = versionService.createBinaryVersion(session, binary, mementoDate2, unreadable,
+                singletonList(binary.getContentDigest()), null);
+        session.commit();
+
+        assertEquals("asdf", IOUtils.toString(memento.getContent(), "ASCII"));
+    }
+
+    @Test
+    public void testDeltaContainment() throws RepositoryException {
+        final VersionServiceImpl deltaVersionService = (VersionServiceImpl) versionService;
+        deltaVersionService.setDeltaMementos(true);
+        deltaVersionService.setCheckpointInterval(3);
+        try {
+            final String pid = getRandomPid();
+            final FedoraResource resource = containerService.findOrCreate(session, "/" + pid);
+            timeMapService.findOrCreate(session, "/" + pid);
+            containerService.findOrCreate(session, "/" + pid + "/a");
+            final FedoraResource b = containerService.findOrCreate(session, "/" + pid + "/b");
+            session.commit();
+            final FedoraResource memento1 = versionService.createVersion(session, resource, subjects,
+                    Instant.parse("2018-01-01T00:00:00Z"));
+            session.commit();
+
+            b.delete();
+            containerService.findOrCreate(session, "/" + pid + "/c");
+            session.commit();
+            final FedoraResource memento2 = versionService.createVersion(session, resource, subjects,
+                    Instant.parse("2018-01-02T00:00:00Z"));
+            session.commit();
+
+            containerService.findOrCreate(session, "/" + pid + "/d");
+            session.commit();
+            final FedoraResource memento3 = versionService.createVersion(session, resource, subjects,
+                    Instant.parse("2018-01-03T00:00:00Z"));
+            final FedoraResource memento4 = versionService.createVersion(session, resource, subjects,
+                    Instant.parse("2018-01-04T00:00:00Z"));
+            session.commit();
+
+            assertTrue(MementoContainment.isCheckpoint(getJcrNode(memento1)));
+            assertFalse(MementoContainment.isCheckpoint(getJcrNode(memento2)));
+            assertFalse(MementoContainment.isCheckpoint(getJcrNode(memento3)));
+            assertTrue(MementoContainment.isCheckpoint(getJcrNode(memento4)));
+            assertEquals(children(pid, "a", "b"), getContainedUris(memento1));
+            assertEquals(children(pid, "a", "c"), getContainedUris(memento2));
+            assertEquals(children(pid, "a", "c", "d"), getContainedUris(memento3));
+            assertEquals(children(pid, "a", "c", "d"), getContainedUris(memento4));
+            assertTrue(memento2.getTriples(subjects, LDP_CONTAINMENT).allMatch(t ->
+                    t.getSubject().getURI().equals("info:fedora/" + pid)));
+            assertFalse("Containment should not be stored as properties",
+                    memento2.getTriples(subjects, PROPERTIES).anyMatch(t ->
+                    t.getPredicate().getURI().equals(CONTAINS.getURI())));
+
+            // the deltas based on a deleted memento are kept whole
+            memento1.delete();
+            session.commit();
+            assertTrue(MementoContainment.isCheckpoint(getJcrNode(memento2)));
+            assertEquals(children(pid, "a", "c"), getContainedUris(memento2));
+            assertEquals(children(pid, "a", "c", "d"), getContainedUris(memento3));
+        } finally {
+            deltaVersionService.setDeltaMementos(false);
+            deltaVersionService.setCheckpointInterval(10);
+        }
+    }
+
+    private Set<String> getContainedUris(final FedoraResource memento) {
+        return memento.getTriples(subjects, LDP_CONTAINMENT)
+                .filter(t -> t.getPredicate().getURI().equals(CONTAINS.getURI()))
+                .map(t -> t.getObject().getURI()).collect(toSet());
+    }
+
+    private static Set<String> children(final String pid, final String... names) {
+        return Arrays.stream(names).map(name -> "info:fedora/" + pid + "/" + name).collect(toSet());
+    }
+
     private static long countVersions(final FedoraSession session, final FedoraResource resource ) {
         final FedoraResource timeMap = resource.getTimeMap();
         return timeMap.getChildren().count();
@@ -170,6 +170,12 @@ public class LocalFileBinaryTest {
         testObj.setExternalContent(mimeType, singleton(new URI("urn:sha1:xyz")), null, "proxy", fileName);
     }
 
+    @Test
+    public void testGetRangeContent() throws Exception {
+        assertEquals("cont", IOUtils.toString(testObj.getContent(5, 4)));
+        assertEquals("content", IOUtils.toString(testObj.getContent(5, -1)));
+    }
+
     @Test
     public void getContentSize() throws Exception {
         getContentNodeMock(mockContent, mockDescNode, EXPECTED_CONTENT);
@@ -0,0 +1,298 @@
+/*
+ * Licensed to DuraSpace under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * DuraSpace licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.kernel.modeshape;
+
+import static java.time.Instant.parse;
+import static java.time.ZoneOffset.UTC;
+import static org.fcrepo.kernel.api.FedoraTypes.MEMENTO_DATETIME;
+import static org.fcrepo.kernel.modeshape.MementoIndex.MEMENTO_INDEX;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.GregorianCalendar;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.TreeMap;
+
+import javax.jcr.Node;
+import javax.jcr.NodeIterator;
+import javax.jcr.PathNotFoundException;
+import javax.jcr.Property;
+import javax.jcr.Repository;
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+import javax.jcr.Value;
+import javax.jcr.ValueFactory;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import com.google.common.collect.ImmutableList;
+
+/**
+ * @author rdfloyd
+ */
+@RunWith(MockitoJUnitRunner.Silent.class)
+public class MementoIndexTest {
+
+    private static final Instant FIRST = parse("2018-01-01T10:00:00Z");
+
+    private static final Instant SECOND = parse("2018-02-01T10:00:00.500Z");
+
+    private static final Instant THIRD = parse("2018-03-01T10:00:00Z");
+
+    @Mock
+    private Node timeMap;
+
+    @Mock
+    private Session session;
+
+    @Mock
+    private ValueFactory valueFactory;
+
+    @Mock
+    private Repository repository;
+
+    @Mock
+    private Session internalSession;
+
+    @Mock
+    private Node internalTimeMap;
+
+    private final Map<String, Property> properties = new HashMap<>();
+
+    @Before
+    public void setUp() throws RepositoryException {
+        when(timeMap.getSession()).thenReturn(session);
+        when(session.getValueFactory()).thenReturn(valueFactory);
+        when(session.getRepository()).thenReturn(repository);
+        when(repository.login()).thenReturn(internalSession);
+        when(timeMap.getIdentifier()).thenReturn("timemap");
+        when(internalSession.getNodeByIdentifier("timemap")).thenReturn(internalTimeMap);
+        when(valueFactory.createValue(anyLong())).thenAnswer(i -> value(i.getArgument(0)));
+        when(timeMap.hasProperty(anyString())).thenAnswer(i -> properties.containsKey(i.<String>getArgument(0)));
+        when(timeMap.getProperty(anyString())).thenAnswer(i -> properties.get(i.<String>getArgument(0)));
+    }
+
+    private void indexed(final Instant... datetimes) throws RepositoryException {
+        final Map<Long, List<Long>> months = new TreeMap<>();
+        for (final Instant datetime : datetimes) {
+            final long month = datetime.atZone(UTC).getYear() * 100L + datetime.atZone(UTC).getMonthValue();
+            months.computeIfAbsent(month, k -> new ArrayList<>()).add(datetime.toEpochMilli());
+        }
+        property(MEMENTO_INDEX, months.keySet());
+        for (final Map.Entry<Long, List<Long>> month : months.entrySet()) {
+            property(MEMENTO_INDEX + "." + month.getKey(), month.getValue());
+        }
+    }
+
+    private void property(final String name, final Collection<Long> longs) throws RepositoryException {
+        final Value[] values = new Value[longs.size()];
+        int i = 0;
+        for (final long millis : longs) {
+            values[i++] = value(millis);
+        }
+        final Property property = mock(Property.class);
+        when(property.getValues()).thenReturn(values);
+        properties.put(name, property);
+    }
+
+    private static Value value(final long millis) throws RepositoryException {
+        final Value value = mock(Value.class);
+        when(value.getLong()).thenReturn(millis);
+        return value;
+    }
+
+    private long[] written(final Node node, final String property) throws RepositoryException {
+        final ArgumentCaptor<Value[]> values = ArgumentCaptor.forClass(Value[].class);
+        verify(node).setProperty(eq(property), values.capture());
+        final Value[] captured = values.getValue();
+        final long[] millis = new long[captured.length];
+        for (int i = 0; i < captured.length; i++) {
+            millis[i] = captured[i].getLong();
+        }
+        return millis;
+    }
+
+    private long[] written(final String property) throws RepositoryException {
+        return written(timeMap, property);
+    }
+
+    @Test
+    public void testNearest() throws RepositoryException {
+        indexed(FIRST, SECOND, THIRD);
+        final MementoIndex index = MementoIndex.of(timeMap);
+        assertEquals(3, index.size());
+        assertEquals(0, index.nearest(FIRST.minusSeconds(60)));
+        assertEquals(0, index.nearest(FIRST));
+        assertEquals(0, index.nearest(SECOND.minusSeconds(1)));
+        assertEquals("Datetimes are compared to the second", 1, index.nearest(parse("2018-02-01T10:00:00Z")));
+        assertEquals(1, index.nearest(THIRD.minusMillis(1)));
+        assertEquals(2, index.nearest(THIRD));
+        assertEquals(2, index.nearest(THIRD.plusSeconds(60)));
+        assertEquals(SECOND, index.get(1));
+    }
+
+    @Test
+    public void testNearestEmpty() throws RepositoryException {
+        indexed();
+        assertEquals(-1, MementoIndex.of(timeMap).nearest(FIRST));
+    }
+
+    @Test
+    public void testCeiling() throws RepositoryException {
+        indexed(FIRST, SECOND, THIRD);
+        final MementoIndex index = MementoIndex.of(timeMap);
+        assertEquals(0, index.ceiling(FIRST.minusSeconds(1)));
+        assertEquals(1, index.ceiling(SECOND));
+        assertEquals(2, index.ceiling(SECOND.plusMillis(1)));
+        assertEquals(3, index.ceiling(THIRD.plusMillis(1)));
+    }
+
+    @Test
+    public void testAdd() throws RepositoryException {
+        indexed(FIRST, THIRD);
+        final Instant later = FIRST.plusSeconds(60);
+        MementoIndex.add(timeMap, later);
+        assertArrayEquals(new long[] { FIRST.toEpochMilli(), later.toEpochMilli() },
+                written(MEMENTO_INDEX + ".201801"));
+        verify(timeMap, never()).setProperty(eq(MEMENTO_INDEX), any(Value[].class));
+        verify(timeMap, never()).setProperty(eq(MEMENTO_INDEX + ".201803"), any(Value[].class));
+    }
+
+    @Test
+    public void testAddMonth() throws RepositoryException {
+        indexed(FIRST, THIRD);
+        MementoIndex.add(timeMap, SECOND);
+        assertArrayEquals(new long[] { SECOND.toEpochMilli() }, written(MEMENTO_INDEX + ".201802"));
+        assertArrayEquals(new long[] { 201801, 201802, 201803 }, written(MEMENTO_INDEX));
+    }
+
+    @Test
+    public void testAddExisting() throws RepositoryException {
+        indexed(FIRST, THIRD);
+        MementoIndex.add(timeMap, THIRD);
+        verify(timeMap, never()).setProperty(anyString(), any(Value[].class));
+    }
+
+    @Test
+    public void testAddUnindexed() throws RepositoryException {
+        final Node first = memento(FIRST);
+        children(timeMap, first);
+        MementoIndex.add(timeMap, FIRST);
+        assertArrayEquals(new long[] { FIRST.toEpochMilli() }, written(MEMENTO_INDEX + ".201801"));
+        assertArrayEquals(new long[] { 201801 }, written(MEMENTO_INDEX));
+    }
+
+    @Test
+    public void testRemove() throws RepositoryException {
+        indexed(FIRST, FIRST.plusSeconds(60), THIRD);
+        MementoIndex.remove(timeMap, FIRST);
+        assertArrayEquals(new long[] { FIRST.plusSeconds(60).toEpochMilli() }, written(MEMENTO_INDEX + ".201801"));
+        verify(timeMap, never()).setProperty(eq(MEMENTO_INDEX), any(Value[].class));
+    }
+
+    @Test
+    public void testRemoveMonth() throws RepositoryException {
+        indexed(FIRST, SECOND, THIRD);
+        final Property month = properties.get(MEMENTO_INDEX + ".201802");
+        MementoIndex.remove(timeMap, SECOND);
+        verify(month).remove();
+        assertArrayEquals(new long[] { 201801, 201803 }, written(MEMENTO_INDEX));
+    }
+
+    @Test
+    public void testScanAndRebuild() throws RepositoryException {
+        children(timeMap, memento(THIRD), mock(Node.class), memento(FIRST), memento(FIRST.plusSeconds(1)));
+
+        assertFalse(MementoIndex.isIndexed(timeMap));
+        assertEquals(3, MementoIndex.rebuild(timeMap));
+        assertArrayEquals(new long[] { FIRST.toEpochMilli(), FIRST.plusSeconds(1).toEpochMilli() },
+                written(MEMENTO_INDEX + ".201801"));
+        assertArrayEquals(new long[] { THIRD.toEpochMilli() }, written(MEMENTO_INDEX + ".201803"));
+        assertArrayEquals(new long[] { 201801, 201803 }, written(MEMENTO_INDEX));
+    }
+
+    @Test
+    public void testIndexOnLookup() throws RepositoryException {
+        children(timeMap, memento(THIRD), memento(FIRST));
+        children(internalTimeMap, memento(THIRD), memento(FIRST));
+        when(internalTimeMap.getSession()).thenReturn(session);
+
+        final MementoIndex index = MementoIndex.of(timeMap);
+
+        assertEquals(2, index.size());
+        assertEquals(FIRST, index.get(0));
+        verify(timeMap, never()).setProperty(anyString(), any(Value[].class));
+        assertArrayEquals(new long[] { 201801, 201803 }, written(internalTimeMap, MEMENTO_INDEX));
+        verify(internalSession).save();
+        verify(internalSession).logout();
+    }
+
+    private static void children(final Node parent, final Node... nodes) throws RepositoryException {
+        final Iterator<Node> children = ImmutableList.copyOf(nodes).iterator();
+        final NodeIterator iterator = mock(NodeIterator.class);
+        when(iterator.hasNext()).thenAnswer(i -> children.hasNext());
+        when(iterator.nextNode()).thenAnswer(i -> children.next());
+        when(parent.getNodes()).thenReturn(iterator);
+    }
+
+    @Test
+    public void testGetMemento() throws RepositoryException {
+        indexed(FIRST, SECOND);
+        final Node memento = mock(Node.class);
+        when(timeMap.getNode("20180101100000")).thenReturn(memento);
+        when(timeMap.getNode("20180201100000")).thenThrow(new PathNotFoundException());
+        final MementoIndex index = MementoIndex.of(timeMap);
+        assertSame(memento, index.getMemento(timeMap, 0));
+        assertNull(index.getMemento(timeMap, 1));
+    }
+
+    private static Node memento(final Instant datetime) throws RepositoryException {
+        final Node memento = mock(Node.class);
+        final Property property = mock(Property.class);
+        final Calendar calendar = new GregorianCalendar(TimeZone.getTimeZone("UTC"));
+        calendar.setTimeInMillis(datetime.toEpochMilli());
+        when(property.getDate()).thenReturn(calendar);
+        when(memento.hasProperty(MEMENTO_DATETIME)).thenReturn(true);
+        when(memento.getProperty(MEMENTO_DATETIME)).thenReturn(property);
+        return memento;
+    }
+}
@@ -0,0 +1,197 @@
+/*
+ * Licensed to DuraSpace under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * DuraSpace licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.kernel.modeshape;
+
+import static java.util.Collections.singletonList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+
+import org.fcrepo.kernel.api.FedoraRepository;
+import org.fcrepo.kernel.api.FedoraSession;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+/**
+ * @author rdfloyd
+ */
+@RunWith(MockitoJUnitRunner.Silent.class)
+public class SessionPoolTest {
+
+    @Mock
+    private FedoraRepository mockRepository;
+
+    private SessionPool testObj;
+
+    @Before
+    public void setUp() {
+        when(mockRepository.login()).thenAnswer(invocation -> newSession());
+        testObj = new SessionPool(mockRepository, 2, 60000);
+    }
+
+    private static FedoraSession newSession() {
+        final Session session = mock(Session.class);
+        when(session.isLive()).thenReturn(true);
+        return new FedoraSessionImpl(session);
+    }
+
+    private static Session jcr(final FedoraSession session) {
+        return FedoraSessionImpl.getJcrSession(session);
+    }
+
+    @Test
+    public void testReuse() throws RepositoryException {
+        final FedoraSession first;
+        try (final SessionPool.Lease lease = testObj.lease()) {
+            first = lease.getSession();
+        }
+        try (final SessionPool.Lease lease = testObj.lease()) {
+            assertSame(first, lease.getSession());
+        }
+        verify(jcr(first), never()).logout();
+        verify(jcr(first), times(1)).refresh(false);
+        assertEquals(1, testObj.getLoginCount());
+        assertEquals(2, testObj.getLeaseCount());
+        assertEquals(0, testObj.getActiveCount());
+        assertEquals(1, testObj.getIdleCount());
+    }
+
+    @Test
+    public void testDiscardListener() {
+        final List<Session> discarded = new ArrayList<>();
+        final Consumer<Session> listener = discarded::add;
+        SessionPool.addDiscardListener(listener);
+        try {
+            final FedoraSession session;
+            try (final SessionPool.Lease lease = testObj.lease()) {
+                session = lease.getSession();
+            }
+            assertEquals(singletonList(jcr(session)), discarded);
+        } finally {
+            SessionPool.removeDiscardListener(listener);
+        }
+    }
+
+    @Test
+    public void testDiscardUnrefreshableSession() throws RepositoryException {
+        final FedoraSession session;
+        try (final SessionPool.Lease lease = testObj.lease()) {
+            session = lease.getSession();
+        }
+        doThrow(new RepositoryException("stale")).when(jcr(session)).refresh(false);
+        try (final SessionPool.Lease lease = testObj.lease()) {
+            assertNotSame(session, lease.getSession());
+        }
+        verify(jcr(session)).logout();
+        assertEquals(2, testObj.getLoginCount());
+    }
+
+    @Test
+    public void testConcurrentLeases() {
+        try (final SessionPool.Lease first = testObj.lease(); final SessionPool.Lease second = testObj.lease()) {
+            assertNotSame(first.getSession(), second.getSession());
+            assertEquals(2, testObj.getActiveCount());
+        }
+        assertEquals(2, testObj.getLoginCount());
+        assertEquals(2, testObj.getIdleCount());
+    }
+
+    @Test
+    public void testCloseTwice() {
+        final SessionPool.Lease lease = testObj.lease();
+        lease.close();
+        lease.close();
+        assertEquals(1, testObj.getIdleCount());
+    }
+
+    @Test
+    public void testDiscardDirtySession() throws RepositoryException {
+        final FedoraSession session;
+        try (final SessionPool.Lease lease = testObj.lease()) {
+            session = lease.getSession();
+            when(jcr(session).hasPendingChanges()).thenReturn(true);
+        }
+        verify(jcr(session)).logout();
+        assertEquals(0, testObj.getIdleCount());
+    }
+
+    @Test
+    public void testSkipDeadSession() {
+        final FedoraSession session;
+        try (final SessionPool.Lease lease = testObj.lease()) {
+            session = lease.getSession();
+        }
+        when(jcr(session).isLive()).thenReturn(false);
+        try (final SessionPool.Lease lease = testObj.lease()) {
+            assertNotSame(session, lease.getSession());
+        }
+        assertEquals(2, testObj.getLoginCount());
+    }
+
+    @Test
+    public void testMaxIdle() {
+        final SessionPool.Lease first = testObj.lease();
+        final SessionPool.Lease second = testObj.lease();
+        final SessionPool.Lease third = testObj.lease();
+        first.close();
+        second.close();
+        third.close();
+        assertEquals(2, testObj.getIdleCount());
+        verify(jcr(third.getSession())).logout();
+    }
+
+    @Test
+    public void testLeak() throws InterruptedException {
+        testObj = new SessionPool(mockRepository, 2, 10);
+        final SessionPool.Lease leaked = testObj.lease();
+        Thread.sleep(20);
+        testObj.lease().close();
+        testObj.lease().close();
+        assertEquals(1, testObj.getLeakCount());
+        leaked.close();
+        assertEquals(0, testObj.getActiveCount());
+    }
+
+    @Test
+    public void testClose() {
+        final SessionPool.Lease idle = testObj.lease();
+        final SessionPool.Lease active = testObj.lease();
+        idle.close();
+        testObj.close();
+        verify(jcr(idle.getSession())).logout();
+        active.close();
+        verify(jcr(active.getSession())).logout();
+        assertEquals(0, testObj.getIdleCount());
+    }
+}
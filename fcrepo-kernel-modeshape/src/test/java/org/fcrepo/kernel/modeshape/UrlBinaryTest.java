@@ -18,6 +18,7 @@
 package org.fcrepo.kernel.modeshape;
 
 import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.equalTo;
 import static com.github.tomakehurst.wiremock.client.WireMock.get;
 import static com.github.tomakehurst.wiremock.client.WireMock.head;
 import static com.github.tomakehurst.wiremock.client.WireMock.stubFor;
@@ -42,6 +43,7 @@ import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.Collections.singleton;
 
 import static org.modeshape.jcr.api.JcrConstants.JCR_CONTENT;
@@ -55,6 +57,7 @@ import javax.jcr.Session;
 import javax.jcr.Value;
 import javax.jcr.nodetype.NodeType;
 
+import org.apache.commons.io.IOUtils;
 import org.fcrepo.kernel.api.exception.ExternalContentAccessException;
 import org.fcrepo.kernel.api.exception.InvalidChecksumException;
 import org.fcrepo.kernel.api.models.FedoraBinary;
@@ -200,6 +203,25 @@ public class UrlBinaryTest {
         testObj.setExternalContent(mimeType, singleton(new URI("urn:sha1:xyz")), null, PROXY, "content.txt");
     }
 
+    @Test
+    public void testGetRangeContent() throws Exception {
+        stubFor(get(urlEqualTo("/file.txt")).withHeader("Range", equalTo("bytes=5-8"))
+                .willReturn(aResponse()
+                        .withStatus(206)
+                        .withHeader("Content-Range", "bytes 5-8/" + EXPECTED_CONTENT.length())
+                        .withBody("cont")));
+        mockProxyProperty();
+
+        assertEquals("cont", IOUtils.toString(testObj.getContent(5, 4), UTF_8));
+    }
+
+    @Test
+    public void testGetRangeContentIgnoredByOrigin() throws Exception {
+        mockProxyProperty();
+
+        assertEquals("cont", IOUtils.toString(testObj.getContent(5, 4), UTF_8));
+    }
+
     @Test
     public void testGetContentSize() throws Exception {
         mockProxyProperty();
@@ -0,0 +1,69 @@
+/*
+ * Licensed to DuraSpace under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * DuraSpace licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.kernel.modeshape.observer;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.fcrepo.kernel.api.models.FedoraResource;
+import org.junit.Test;
+
+/**
+ * @author rdfloyd
+ */
+public class DescendantIteratorTest {
+
+    private static FedoraResource resource(final String path, final FedoraResource... children) {
+        final FedoraResource resource = mock(FedoraResource.class);
+        when(resource.getPath()).thenReturn(path);
+        when(resource.getChildren()).thenAnswer(invocation -> Stream.of(children));
+        return resource;
+    }
+
+    @Test
+    public void testDepthFirst() {
+        final FedoraResource grandchild = resource("/a/b/c");
+        final FedoraResource root = resource("/a", resource("/a/b", grandchild), resource("/a/d"));
+        final List<String> paths = new ArrayList<>();
+        new DescendantIterator(root).forEachRemaining(r -> paths.add(r.getPath()));
+        assertEquals(asList("/a/b", "/a/b/c", "/a/d"), paths);
+    }
+
+    @Test
+    public void testLazy() {
+        final FedoraResource deep = resource("/a/b/c");
+        final FedoraResource child = resource("/a/b", deep);
+        final DescendantIterator descendants = new DescendantIterator(resource("/a", child));
+        assertEquals("/a/b", descendants.next().getPath());
+        verify(deep, never()).getChildren();
+    }
+
+    @Test
+    public void testNoDescendants() {
+        assertFalse(new DescendantIterator(resource("/a")).hasNext());
+    }
+}
@@ -18,9 +18,12 @@
 package org.fcrepo.kernel.modeshape.observer;
 
 import static org.fcrepo.kernel.modeshape.observer.SimpleObserver.EVENT_TYPES;
+import static org.fcrepo.kernel.modeshape.observer.SimpleObserver.relocatedPath;
 import static org.fcrepo.kernel.modeshape.utils.TestHelpers.setField;
+import static org.junit.Assert.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import javax.jcr.NamespaceRegistry;
@@ -33,6 +36,7 @@ import org.modeshape.jcr.api.Workspace;
 
 import org.fcrepo.kernel.api.observer.FedoraEvent;
 import org.fcrepo.kernel.modeshape.FedoraRepositoryImpl;
+import org.fcrepo.kernel.modeshape.SessionPool;
 import org.fcrepo.kernel.modeshape.observer.eventmappings.OneToOne;
 
 import org.junit.Before;
@@ -98,7 +102,9 @@ public class SimpleObserverTest {
         when(mockSession.getWorkspace()).thenReturn(mockWS);
         when(mockWS.getNamespaceRegistry()).thenReturn(mockNS);
         testObserver = new SimpleObserver();
-        setField(testObserver, "repository", new FedoraRepositoryImpl(mockRepository));
+        final FedoraRepositoryImpl repository = new FedoraRepositoryImpl(mockRepository);
+        setField(testObserver, "repository", repository);
+        setField(testObserver, "lookupSessions", new SessionPool(repository, 2, 60000));
         setField(testObserver, "eventMapper", new OneToOne());
         setField(testObserver, "eventFilter", (EventFilter) x -> true);
         setField(testObserver, "eventBus", mockBus);
@@ -115,7 +121,16 @@ public class SimpleObserverTest {
     @Test
     public void testOnEvent() {
         testObserver.onEvent(mockEvents);
-        verify(mockBus).post(any(FedoraEvent.class));
+        verify(mockBus, timeout(1000)).post(any(FedoraEvent.class));
+    }
+
+    @Test
+    public void testRelocatedPath() {
+        assertEquals("/src/child", relocatedPath("/dest/child", "/dest", "/src"));
+        // paths are rewritten literally, not as regular expressions
+        assertEquals("/a.b(1)/child", relocatedPath("/x+y[2]/child", "/x+y[2]", "/a.b(1)"));
+        assertEquals("/$1/child", relocatedPath("/dest/child", "/dest", "/$1"));
+        assertEquals("/other/child", relocatedPath("/other/child", "/dest", "/src"));
     }
 
     @Test
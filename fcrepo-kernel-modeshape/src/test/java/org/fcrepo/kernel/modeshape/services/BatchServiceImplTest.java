@@ -24,13 +24,14 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
-import java.lang.reflect.Field;
 import java.time.Instant;
-import java.util.Map;
 
 import javax.jcr.NamespaceException;
 import javax.jcr.RepositoryException;
@@ -40,6 +41,7 @@ import org.fcrepo.kernel.api.FedoraSession;
 import org.fcrepo.kernel.api.exception.RepositoryRuntimeException;
 import org.fcrepo.kernel.api.exception.SessionMissingException;
 import org.fcrepo.kernel.api.services.BatchService;
+import org.fcrepo.kernel.api.services.TransactionRegistry;
 import org.fcrepo.kernel.modeshape.FedoraSessionImpl;
 
 import org.junit.Before;
@@ -79,22 +81,58 @@ public class BatchServiceImplTest {
         service = new BatchServiceImpl();
         when(mockTx.getId()).thenReturn(IS_A_TX);
         when(mockTx.getUserURI()).thenReturn(null);
-        final Field txsField =
-                BatchServiceImpl.class.getDeclaredField("sessions");
-        txsField.setAccessible(true);
-        @SuppressWarnings("unchecked")
-        final Map<String, FedoraSession> txs =
-                (Map<String, FedoraSession>) txsField
-                        .get(BatchService.class);
-        txs.put(":" + IS_A_TX, mockTx);
+        service.begin(mockTx);
     }
 
     @Test
     public void testExpiration() {
         final Instant fiveSecondsAgo = now().minusSeconds(5);
         when(mockTx.getExpires()).thenReturn(of(fiveSecondsAgo));
+        service.begin(mockTx);
         service.removeExpired();
         verify(mockTx).expire();
+        assertFalse(service.exists(IS_A_TX));
+    }
+
+    @Test
+    public void testRefreshPostponesExpiration() {
+        when(mockTx.getExpires()).thenReturn(of(now().minusSeconds(5)));
+        service.begin(mockTx);
+        when(mockTx.getExpires()).thenReturn(of(now().plusSeconds(60)));
+        service.refresh(IS_A_TX, null);
+        service.removeExpired();
+        verify(mockTx, never()).expire();
+        assertTrue(service.exists(IS_A_TX));
+    }
+
+    @Test
+    public void testOpenOnAnotherNode() {
+        final TransactionRegistry mockRegistry = mock(TransactionRegistry.class);
+        when(mockRegistry.getOwner(":" + NOT_A_TX)).thenReturn(of("other-node"));
+        ((BatchServiceImpl) service).setRegistry(mockRegistry);
+        try {
+            service.getSession(NOT_A_TX);
+            fail("A session open on another node cannot be used here");
+        } catch (final SessionMissingException e) {
+            assertTrue(e.getMessage().contains("other-node"));
+        }
+    }
+
+    @Test
+    public void testStats() {
+        service.getSession(IS_A_TX);
+        service.getSession(IS_A_TX);
+        service.commit(IS_A_TX);
+        service.begin(fedoraSession);
+        service.abort(fedoraSession.getId());
+        final TransactionStats stats = ((BatchServiceImpl) service).getStats();
+        assertEquals(0, stats.getOpenCount());
+        assertEquals(2, stats.getBegunCount());
+        assertEquals(1, stats.getCommittedCount());
+        assertEquals(1, stats.getAbortedCount());
+        assertEquals(0, stats.getExpiredCount());
+        // commit looks the session up as well
+        assertEquals(4, stats.getOperationCount());
     }
 
     @Test
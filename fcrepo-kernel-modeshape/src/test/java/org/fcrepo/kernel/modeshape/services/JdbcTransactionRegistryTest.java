@@ -0,0 +1,106 @@
+/*
+ * Licensed to DuraSpace under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * DuraSpace licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.kernel.modeshape.services;
+
+import static java.time.Instant.now;
+import static java.util.Optional.empty;
+import static java.util.Optional.of;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.when;
+
+import java.time.Instant;
+import java.util.UUID;
+
+import org.fcrepo.kernel.api.FedoraSession;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+/**
+ * Two nodes sharing an embedded database
+ *
+ * @author rdfloyd
+ */
+@RunWith(MockitoJUnitRunner.Silent.class)
+public class JdbcTransactionRegistryTest {
+
+    @Mock
+    private FedoraSession mockSession;
+
+    private JdbcTransactionRegistry node1, node2;
+
+    private final Instant start = now();
+
+    @Before
+    public void setUp() {
+        final JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        node1 = new JdbcTransactionRegistry(dataSource, "node-1", "fcrepo_transactions");
+        node2 = new JdbcTransactionRegistry(dataSource, "node-2", "fcrepo_transactions");
+        node1.init();
+        node2.init();
+        when(mockSession.getExpires()).thenReturn(of(start.plusSeconds(60)));
+    }
+
+    @Test
+    public void testOwner() {
+        node1.register(":a", mockSession);
+        assertSame(mockSession, node1.get(":a"));
+        assertNull(node2.get(":a"));
+        assertEquals(of("node-1"), node1.getOwner(":a"));
+        assertEquals(of("node-1"), node2.getOwner(":a"));
+        assertEquals(empty(), node2.getOwner(":b"));
+        assertEquals(1, node1.size());
+        assertEquals(0, node2.size());
+    }
+
+    @Test
+    public void testRemove() {
+        node1.register(":a", mockSession);
+        // only the node holding a session removes it
+        assertNull(node2.remove(":a"));
+        assertEquals(of("node-1"), node2.getOwner(":a"));
+        assertSame(mockSession, node1.remove(":a"));
+        assertEquals(empty(), node2.getOwner(":a"));
+    }
+
+    @Test
+    public void testExpiry() {
+        when(mockSession.getExpires()).thenReturn(of(start.minusSeconds(1)));
+        node1.register(":a", mockSession);
+        // an expired session is not reported as open, even before it is reaped
+        assertEquals(empty(), node2.getOwner(":a"));
+        when(mockSession.getExpires()).thenReturn(of(start.plusSeconds(60)));
+        node1.updateExpiry(":a", mockSession);
+        assertEquals(of("node-1"), node2.getOwner(":a"));
+    }
+
+    @Test
+    public void testReapRowsOfStoppedNode() {
+        node1.register(":a", mockSession);
+        // node 1 stops without ending its session; node 2 deletes its row once the session has expired
+        assertTrue(node2.removeExpired(start.plusSeconds(120)).isEmpty());
+        assertEquals(empty(), node2.getOwner(":a"));
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Licensed to DuraSpace under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * DuraSpace licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.kernel.modeshape.services;
+
+import static java.time.Instant.now;
+import static java.util.Optional.empty;
+import static java.util.Optional.of;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.when;
+
+import java.time.Instant;
+import java.util.Map;
+
+import org.fcrepo.kernel.api.FedoraSession;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+/**
+ * @author rdfloyd
+ */
+@RunWith(MockitoJUnitRunner.Silent.class)
+public class LocalTransactionRegistryTest {
+
+    @Mock
+    private FedoraSession mockSession, mockOtherSession, mockEternalSession;
+
+    private LocalTransactionRegistry registry;
+
+    private final Instant start = now();
+
+    @Before
+    public void setUp() {
+        registry = new LocalTransactionRegistry("node-1");
+        when(mockSession.getExpires()).thenReturn(of(start.plusSeconds(10)));
+        when(mockOtherSession.getExpires()).thenReturn(of(start.plusSeconds(20)));
+        when(mockEternalSession.getExpires()).thenReturn(empty());
+        registry.register(":a", mockSession);
+        registry.register(":b", mockOtherSession);
+        registry.register(":c", mockEternalSession);
+    }
+
+    @Test
+    public void testGet() {
+        assertSame(mockSession, registry.get(":a"));
+        assertNull(registry.get(":d"));
+        assertEquals(of("node-1"), registry.getOwner(":a"));
+        assertEquals(empty(), registry.getOwner(":d"));
+        assertEquals(3, registry.size());
+    }
+
+    @Test
+    public void testRemoveExpiredInOrder() {
+        assertTrue(registry.removeExpired(start.plusSeconds(5)).isEmpty());
+        final Map<String, FedoraSession> first = registry.removeExpired(start.plusSeconds(15));
+        assertEquals(1, first.size());
+        assertSame(mockSession, first.get(":a"));
+        assertNull(registry.get(":a"));
+        final Map<String, FedoraSession> second = registry.removeExpired(start.plusSeconds(3600));
+        assertEquals(1, second.size());
+        assertSame(mockOtherSession, second.get(":b"));
+        // a session without an expiry is only removed explicitly
+        assertSame(mockEternalSession, registry.get(":c"));
+        assertSame(mockEternalSession, registry.remove(":c"));
+        assertEquals(0, registry.size());
+    }
+
+    @Test
+    public void testUpdateExpiry() {
+        when(mockSession.getExpires()).thenReturn(of(start.plusSeconds(30)));
+        registry.updateExpiry(":a", mockSession);
+        final Map<String, FedoraSession> expired = registry.removeExpired(start.plusSeconds(25));
+        assertEquals(1, expired.size());
+        assertTrue(expired.containsKey(":b"));
+        assertSame(mockSession, registry.get(":a"));
+    }
+
+    @Test
+    public void testUpdateExpiryOfReplacedSession() {
+        registry.register(":a", mockOtherSession);
+        when(mockSession.getExpires()).thenReturn(of(start.plusSeconds(30)));
+        registry.updateExpiry(":a", mockSession);
+        assertSame(mockOtherSession, registry.get(":a"));
+        assertTrue(registry.removeExpired(start.plusSeconds(25)).containsKey(":a"));
+    }
+
+    @Test
+    public void testRemove() {
+        assertSame(mockSession, registry.remove(":a"));
+        assertNull(registry.remove(":a"));
+        assertFalse(registry.removeExpired(start.plusSeconds(15)).containsKey(":a"));
+        assertEquals(2, registry.size());
+    }
+}
@@ -24,6 +24,7 @@ import static org.mockito.Mockito.when;
 
 import javax.jcr.NamespaceRegistry;
 import javax.jcr.Node;
+import javax.jcr.NodeIterator;
 import javax.jcr.PropertyIterator;
 import javax.jcr.RepositoryException;
 import javax.jcr.Session;
@@ -75,6 +76,9 @@ public class NodeServiceImplTest {
     @Mock
     private PropertyIterator mockEmptyIterator;
 
+    @Mock
+    private NodeIterator mockEmptyNodeIterator;
+
     private NodeService testObj;
 
     @Mock
@@ -109,6 +113,8 @@ public class NodeServiceImplTest {
         when(mockSession.getWorkspace()).thenReturn(mockWorkspace);
         when(mockSession.getNode("bar")).thenReturn(mockObjNode);
         when(mockObjNode.getDepth()).thenReturn(0);
+        when(mockObjNode.getNodes()).thenReturn(mockEmptyNodeIterator);
+        when(mockObjNode.getSession()).thenReturn(mockSession);
         testObj.copyObject(testSession, "foo", "bar");
         verify(mockWorkspace).copy("foo", "bar");
     }
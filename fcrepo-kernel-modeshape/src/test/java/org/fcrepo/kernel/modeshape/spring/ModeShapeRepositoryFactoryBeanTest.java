@@ -18,9 +18,11 @@
 package org.fcrepo.kernel.modeshape.spring;
 
 import static org.fcrepo.kernel.modeshape.FedoraRepositoryImpl.getJcrRepository;
+import static org.fcrepo.kernel.modeshape.ReferenceIndex.REFERENCE_INDEX;
 import static org.fcrepo.kernel.modeshape.utils.TestHelpers.setField;
 import static org.junit.Assert.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.mockito.MockitoAnnotations.initMocks;
 
@@ -67,6 +69,7 @@ public class ModeShapeRepositoryFactoryBeanTest {
         when(mockRepo.getStartupProblems()).thenReturn(mockProblems);
         when(mockProblems.iterator()).thenReturn(new ArrayList<org.modeshape.common.collection.Problem>().iterator());
         when(mockRepo.login()).thenReturn(mockSession);
+        when(mockSession.nodeExists("/" + REFERENCE_INDEX)).thenReturn(true);
         testObj = new ModeShapeRepositoryFactoryBean();
         testObj.setRepositoryConfiguration(config);
         when(mockModeShapeEngine.deploy(any(RepositoryConfiguration.class)))
@@ -78,6 +81,7 @@ public class ModeShapeRepositoryFactoryBeanTest {
     public void testFactory() {
         testObj.buildRepository();
         assertEquals(mockRepo, getJcrRepository(testObj.getObject()));
+        verify(mockSession).logout();
     }
 
     @Test
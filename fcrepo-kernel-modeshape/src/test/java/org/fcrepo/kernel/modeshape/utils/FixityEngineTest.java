@@ -0,0 +1,94 @@
+/*
+ * Licensed to DuraSpace under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * DuraSpace licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.kernel.modeshape.utils;
+
+import static java.util.Arrays.asList;
+import static org.fcrepo.kernel.modeshape.utils.FixityEngine.BUFFER_SIZE_PROPERTY;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * @author rdfloyd
+ */
+public class FixityEngineTest {
+
+    @Rule
+    public TemporaryFolder tmpDir = new TemporaryFolder();
+
+    private final byte[] content = new byte[100000];
+
+    @Before
+    public void setUp() {
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) (i % 251);
+        }
+        // small buffers, so that they are reused many times over
+        System.setProperty(BUFFER_SIZE_PROPERTY, "1000");
+    }
+
+    @After
+    public void tearDown() {
+        System.clearProperty(BUFFER_SIZE_PROPERTY);
+    }
+
+    @Test
+    public void testDigestStream() throws IOException, NoSuchAlgorithmException {
+        final FixityEngine.Digests digests =
+                FixityEngine.digest(new ByteArrayInputStream(content), asList("SHA", "SHA-256", "MD5"));
+        assertEquals(content.length, digests.getByteCount());
+        assertEquals(3, digests.getDigests().size());
+        for (final String algorithm : asList("SHA", "SHA-256", "MD5")) {
+            assertArrayEquals(MessageDigest.getInstance(algorithm).digest(content), digests.getDigest(algorithm));
+        }
+    }
+
+    @Test
+    public void testDigestFile() throws IOException, NoSuchAlgorithmException {
+        final File file = tmpDir.newFile();
+        Files.write(file.toPath(), content);
+        final FixityEngine.Digests digests = FixityEngine.digest(file.toPath(), asList("SHA-256", "MD5"));
+        assertEquals(content.length, digests.getByteCount());
+        assertArrayEquals(MessageDigest.getInstance("SHA-256").digest(content), digests.getDigest("SHA-256"));
+        assertArrayEquals(MessageDigest.getInstance("MD5").digest(content), digests.getDigest("MD5"));
+    }
+
+    @Test
+    public void testDigestEmpty() throws IOException, NoSuchAlgorithmException {
+        final FixityEngine.Digests digests = FixityEngine.digest(new ByteArrayInputStream(new byte[0]), asList("MD5"));
+        assertEquals(0, digests.getByteCount());
+        assertArrayEquals(MessageDigest.getInstance("MD5").digest(), digests.getDigest("MD5"));
+    }
+
+    @Test(expected = NoSuchAlgorithmException.class)
+    public void testUnsupportedAlgorithm() throws IOException, NoSuchAlgorithmException {
+        FixityEngine.digest(new ByteArrayInputStream(content), asList("NONE"));
+    }
+}
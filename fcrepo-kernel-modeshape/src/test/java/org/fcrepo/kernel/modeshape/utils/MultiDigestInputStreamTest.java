@@ -0,0 +1,98 @@
+/*
+ * Licensed to DuraSpace under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * DuraSpace licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.kernel.modeshape.utils;
+
+import static java.util.Arrays.asList;
+import static org.apache.commons.codec.binary.Hex.encodeHexString;
+import static org.apache.commons.io.output.NullOutputStream.NULL_OUTPUT_STREAM;
+import static org.apache.tika.io.IOUtils.copy;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * @author rdfloyd
+ */
+public class MultiDigestInputStreamTest {
+
+    private static final String SHA256 = "84d89877f0d4041efb6bf91a16f0248f2fd573e6af05c19f96bedb9f882f7882";
+
+    private static final String MD5 = "781e5e245d69b566979b86e28d23f2c7";
+
+    @Test
+    public void testDigests() throws NoSuchAlgorithmException, IOException {
+        try (final MultiDigestInputStream is = new MultiDigestInputStream(
+                new ByteArrayInputStream("0123456789".getBytes()), asList("SHA-256", "MD5"))) {
+            assertEquals('0', is.read());
+            copy(is, NULL_OUTPUT_STREAM);
+            assertTrue(is.isComplete());
+            final Map<String, byte[]> digests = is.getDigests();
+            assertEquals(2, digests.size());
+            assertEquals(SHA256, encodeHexString(digests.get("SHA-256")));
+            assertEquals(MD5, encodeHexString(digests.get("MD5")));
+        }
+    }
+
+    @Test
+    public void testContentLargerThanBuffers() throws NoSuchAlgorithmException, IOException {
+        final byte[] content = new byte[1000003];
+        new Random(1).nextBytes(content);
+        try (final MultiDigestInputStream is = new MultiDigestInputStream(new ByteArrayInputStream(content),
+                asList("SHA-256", "MD5"))) {
+            copy(is, NULL_OUTPUT_STREAM);
+            final Map<String, byte[]> digests = is.getDigests();
+            assertArrayEquals(MessageDigest.getInstance("SHA-256").digest(content), digests.get("SHA-256"));
+            assertArrayEquals(MessageDigest.getInstance("MD5").digest(content), digests.get("MD5"));
+        }
+    }
+
+    @Test
+    public void testSkippedBytesAreDigested() throws NoSuchAlgorithmException, IOException {
+        try (final MultiDigestInputStream is = new MultiDigestInputStream(
+                new ByteArrayInputStream("0123456789".getBytes()), asList("MD5"))) {
+            assertEquals(5, is.skip(5));
+            copy(is, NULL_OUTPUT_STREAM);
+            assertEquals(MD5, encodeHexString(is.getDigests().get("MD5")));
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testIncompleteStream() throws NoSuchAlgorithmException, IOException {
+        try (final MultiDigestInputStream is = new MultiDigestInputStream(
+                new ByteArrayInputStream("0123456789".getBytes()), asList("MD5"))) {
+            assertEquals('0', is.read());
+            assertFalse(is.isComplete());
+            is.getDigests();
+        }
+    }
+
+    @Test(expected = NoSuchAlgorithmException.class)
+    public void testUnsupportedAlgorithm() throws NoSuchAlgorithmException {
+        new MultiDigestInputStream(new ByteArrayInputStream(new byte[0]), asList("NONE"));
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Licensed to DuraSpace under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * DuraSpace licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fcrepo.kernel.modeshape.utils;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assume.assumeFalse;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import org.junit.Test;
+
+/**
+ * @author rdfloyd
+ */
+public class ParallelDigesterTest {
+
+    @Test
+    public void testDigests() throws NoSuchAlgorithmException, IOException {
+        final ParallelDigester digester = new ParallelDigester(asList("SHA-1", "MD5"));
+        digester.update(ByteBuffer.wrap("01234".getBytes()));
+        digester.update(ByteBuffer.wrap("56789".getBytes()));
+        assertArrayEquals(MessageDigest.getInstance("SHA-1").digest("0123456789".getBytes()),
+                digester.getDigests().get("SHA-1"));
+    }
+
+    @Test(expected = IOException.class)
+    public void testUpdateAfterCancel() throws NoSuchAlgorithmException, IOException {
+        final ParallelDigester digester = new ParallelDigester(asList("MD5"));
+        assumeFalse("Digests are computed by this thread", digester.isInline());
+        digester.cancel();
+        // once the queue is full, the producer is told the digest is gone rather than left waiting
+        for (int i = 0; i < 100; i++) {
+            digester.update(ByteBuffer.wrap(new byte[16]));
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testCheckAfterCancel() throws NoSuchAlgorithmException, IOException {
+        final ParallelDigester digester = new ParallelDigester(asList("MD5"));
+        assumeFalse("Digests are computed by this thread", digester.isInline());
+        digester.cancel();
+        digester.check();
+    }
+}